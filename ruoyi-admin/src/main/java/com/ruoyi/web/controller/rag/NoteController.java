@@ -3,10 +3,14 @@ package com.ruoyi.web.controller.rag;
 import com.ruoyi.common.annotation.Log;
 import com.ruoyi.common.core.controller.BaseController;
 import com.ruoyi.common.core.domain.AjaxResult;
+import com.ruoyi.common.core.page.CursorPage;
 import com.ruoyi.common.core.page.TableDataInfo;
 import com.ruoyi.common.enums.BusinessType;
+import com.ruoyi.common.exception.ServiceException;
 import com.ruoyi.common.utils.SecurityUtils;
 import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.domain.dto.NoteImportJob;
+import com.ruoyi.system.service.INoteImportService;
 import com.ruoyi.system.service.INoteService;
 import com.ruoyi.web.controller.rag.dto.CreateNoteRequest;
 import io.swagger.annotations.Api;
@@ -15,7 +19,9 @@ import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.Date;
 import java.util.List;
 
@@ -33,6 +39,9 @@ public class NoteController extends BaseController {
     @Autowired
     private INoteService noteService;
     
+    @Autowired
+    private INoteImportService noteImportService;
+    
     /**
      * 添加笔记
      */
@@ -58,6 +67,49 @@ public class NoteController extends BaseController {
         }
     }
     
+    /**
+     * 批量导入笔记
+     * 文件在后台解析并分批写入，返回任务ID，通过 /import/{jobId} 查询进度
+     */
+    @ApiOperation("批量导入笔记")
+    @Log(title = "导入笔记", businessType = BusinessType.IMPORT)
+    @PostMapping("/import")
+    public AjaxResult importNotes(
+            @ApiParam("导入文件(csv/tsv/txt/jsonl/xlsx)") @RequestParam("file") MultipartFile file) {
+        try {
+            if (file.isEmpty()) {
+                return error("导入文件不能为空");
+            }
+            Long userId = SecurityUtils.getUserId();
+            String jobId;
+            try (InputStream in = file.getInputStream()) {
+                jobId = noteImportService.startImport(userId, file.getOriginalFilename(), in);
+            }
+            AjaxResult ajax = success();
+            ajax.put("jobId", jobId);
+            return ajax;
+        } catch (ServiceException e) {
+            return error(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Failed to import notes: {}", e.getMessage(), e);
+            return error("导入笔记失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询导入进度
+     */
+    @ApiOperation("查询导入进度")
+    @GetMapping("/import/{jobId}")
+    public AjaxResult importProgress(
+            @ApiParam("导入任务ID") @PathVariable String jobId) {
+        NoteImportJob job = noteImportService.getJob(SecurityUtils.getUserId(), jobId);
+        if (job == null) {
+            return error("导入任务不存在或已过期");
+        }
+        return success(job);
+    }
+    
     /**
      * 列出笔记
      */
@@ -74,16 +126,46 @@ public class NoteController extends BaseController {
             return getDataTable(null);
         }
     }
-//    @GetMapping("/search")
-//    public AjaxResult search(@RequestParam String keyword) {
-//        try {
-//            Long userId = SecurityUtils.getUserId();
-//            List<EnglishNote> notes = noteService.searchNotes(userId, keyword);
-//            return success(notes);
-//        } catch (Exception e) {
-//            return error("搜索失败");
-//        }
-//    }
+    
+    /**
+     * 游标分页列出笔记
+     */
+    @ApiOperation("游标分页列出笔记")
+    @GetMapping("/list/cursor")
+    public AjaxResult listByCursor(
+            @ApiParam("上一页返回的 nextCursor，为空时返回第一页") @RequestParam(required = false) String after,
+            @ApiParam("每页数量") @RequestParam(required = false) Integer limit) {
+        try {
+            Long userId = SecurityUtils.getUserId();
+            CursorPage<EnglishNote> page = noteService.listNotes(userId, after, limit);
+            return success(page);
+        } catch (ServiceException e) {
+            return error(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Failed to list notes: {}", e.getMessage(), e);
+            return error("获取笔记列表失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 检索笔记
+     */
+    @ApiOperation("检索笔记")
+    @GetMapping("/search")
+    public AjaxResult search(
+            @ApiParam("查询文本") @RequestParam String keyword,
+            @ApiParam("是否融合向量检索，false 时只做关键词检索") @RequestParam(defaultValue = "true") Boolean hybrid,
+            @ApiParam("最大返回数量") @RequestParam(required = false) Integer limit) {
+        try {
+            Long userId = SecurityUtils.getUserId();
+            List<EnglishNote> notes = noteService.searchNotes(userId, keyword, hybrid, limit);
+            return success(notes);
+        } catch (Exception e) {
+            logger.error("Failed to search notes: {}", e.getMessage(), e);
+            return error("检索笔记失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 获取笔记详情
      */
@@ -6,16 +6,28 @@ import com.ruoyi.common.core.domain.AjaxResult;
 import com.ruoyi.common.enums.BusinessType;
 import com.ruoyi.common.utils.SecurityUtils;
 import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.domain.dto.NoteDTO;
 import com.ruoyi.system.domain.dto.RAGQueryRequest;
 import com.ruoyi.system.domain.dto.RAGResponse;
+import com.ruoyi.system.rag.cache.AnswerCache;
+import com.ruoyi.system.rag.cache.EmbeddingCache;
+import com.ruoyi.system.rag.cache.VisionCache;
+import com.ruoyi.system.rag.embedding.NoteEmbeddingWorker;
 import com.ruoyi.system.service.IRAGService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * RAG功能Controller
@@ -31,6 +43,18 @@ public class RAGController extends BaseController {
     @Autowired
     private IRAGService ragService;
     
+    @Autowired
+    private EmbeddingCache embeddingCache;
+    
+    @Autowired
+    private AnswerCache answerCache;
+    
+    @Autowired
+    private VisionCache visionCache;
+    
+    @Autowired
+    private NoteEmbeddingWorker noteEmbeddingWorker;
+    
     /**
      * 向量检索相关笔记
      */
@@ -57,38 +81,26 @@ public class RAGController extends BaseController {
     
     /**
      * 获取带上下文的回答
+     * 异步返回，等待大模型期间释放请求线程
      */
     @ApiOperation("获取AI回答")
     @Log(title = "RAG问答", businessType = BusinessType.OTHER)
     @PostMapping("/answer")
-    public AjaxResult answer(@Validated @RequestBody RAGQueryRequest request) {
-        try {
-            Long userId = SecurityUtils.getUserId();
-            
-            // 设置默认值
-            if (request.getIncludeContext() == null) {
-                request.setIncludeContext(true);
-            }
-            
-            RAGResponse response = ragService.generateAnswer(
-                    userId,
-                    request.getQuestion(),
-                    request.getSimilarityThreshold(),
-                    request.getMaxResults(),
-                    request.getIncludeContext()
-            );
-            
-            return success(response);
-        } catch (Exception e) {
-            logger.error("Failed to generate answer: {}", e.getMessage(), e);
-            
-            RAGResponse errorResponse = new RAGResponse();
-            errorResponse.setSuccess(false);
-            errorResponse.setErrorMessage(e.getMessage());
-            errorResponse.setProcessingTime(0L);
-            
-            return error(String.valueOf(errorResponse));
+    public CompletableFuture<AjaxResult> answer(@Validated @RequestBody RAGQueryRequest request) {
+        Long userId = SecurityUtils.getUserId();
+        
+        // 设置默认值
+        if (request.getIncludeContext() == null) {
+            request.setIncludeContext(true);
         }
+        
+        return ragService.generateAnswerAsync(
+                userId,
+                request.getQuestion(),
+                request.getSimilarityThreshold(),
+                request.getMaxResults(),
+                request.getIncludeContext()
+        ).thenApply(this::success);
     }
     
     /**
@@ -98,29 +110,127 @@ public class RAGController extends BaseController {
     @ApiOperation("多轮对话")
     @Log(title = "RAG对话", businessType = BusinessType.OTHER)
     @PostMapping("/chat")
-    public AjaxResult chat(@Validated @RequestBody RAGQueryRequest request) {
+    public CompletableFuture<AjaxResult> chat(@Validated @RequestBody RAGQueryRequest request) {
+        Long userId = SecurityUtils.getUserId();
+        
+        // 目前使用相同的实现，后续可以扩展支持对话历史
+        return ragService.generateAnswerAsync(
+                userId,
+                request.getQuestion(),
+                request.getSimilarityThreshold(),
+                request.getMaxResults(),
+                true // 多轮对话始终包含上下文
+        ).thenApply(this::success);
+    }
+    
+    /**
+     * 流式获取AI回答（SSE）
+     * 事件依次为: notes(相关笔记) -> token(增量内容，可多次) -> done(完整响应) 或 error
+     */
+    @ApiOperation("流式获取AI回答")
+    @Log(title = "RAG问答", businessType = BusinessType.OTHER, isSaveResponseData = false)
+    @PostMapping(value = "/answer/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter answerStream(@Validated @RequestBody RAGQueryRequest request) {
+        Long userId = SecurityUtils.getUserId();
+        return stream(userId, request, request.getIncludeContext() == null || request.getIncludeContext());
+    }
+    
+    /**
+     * 流式多轮对话（SSE），事件格式同 /answer/stream
+     */
+    @ApiOperation("流式多轮对话")
+    @Log(title = "RAG对话", businessType = BusinessType.OTHER, isSaveResponseData = false)
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@Validated @RequestBody RAGQueryRequest request) {
+        Long userId = SecurityUtils.getUserId();
+        return stream(userId, request, true);
+    }
+    
+    /**
+     * 文本向量缓存命中统计
+     */
+    @ApiOperation("向量缓存统计")
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/embedding/cache/stats")
+    public AjaxResult embeddingCacheStats() {
+        return success(embeddingCache.getStats());
+    }
+    
+    /**
+     * 语义回答缓存命中统计
+     */
+    @ApiOperation("回答缓存统计")
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/answer/cache/stats")
+    public AjaxResult answerCacheStats() {
+        return success(answerCache.getStats());
+    }
+    
+    /**
+     * 图片识别结果缓存命中统计
+     */
+    @ApiOperation("识图缓存统计")
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/vision/cache/stats")
+    public AjaxResult visionCacheStats() {
+        return success(visionCache.getStats());
+    }
+    
+    /**
+     * 笔记向量生成任务统计
+     */
+    @ApiOperation("向量生成任务统计")
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/embedding/task/stats")
+    public AjaxResult embeddingTaskStats() {
+        return success(noteEmbeddingWorker.getStats());
+    }
+    
+    /**
+     * 把流式回答转发到 SseEmitter，客户端断开或超时时取消上游请求
+     */
+    private SseEmitter stream(Long userId, RAGQueryRequest request, boolean includeContext) {
+        SseEmitter emitter = new SseEmitter();
+        CompletableFuture<RAGResponse> answer = ragService.generateAnswerStream(
+                userId,
+                request.getQuestion(),
+                request.getSimilarityThreshold(),
+                request.getMaxResults(),
+                includeContext,
+                notes -> send(emitter, "notes", notes),
+                token -> send(emitter, "token", Collections.singletonMap("content", token))
+        );
+        emitter.onTimeout(() -> answer.cancel(true));
+        emitter.onError(e -> answer.cancel(true));
+        emitter.onCompletion(() -> answer.cancel(true));
+        
+        answer.whenComplete((response, e) -> {
+            if (response == null) {
+                // 已取消，连接已关闭
+                return;
+            }
+            try {
+                if (Boolean.TRUE.equals(response.getSuccess())) {
+                    // 相关笔记已在 notes 事件中发送
+                    response.setRelatedNotes(null);
+                    send(emitter, "done", response);
+                } else {
+                    send(emitter, "error", Collections.singletonMap("message", response.getErrorMessage()));
+                }
+                emitter.complete();
+            } catch (UncheckedIOException ex) {
+                emitter.completeWithError(ex.getCause());
+            }
+        });
+        return emitter;
+    }
+    
+    private void send(SseEmitter emitter, String event, Object data) {
         try {
-            Long userId = SecurityUtils.getUserId();
-            
-            // 目前使用相同的实现，后续可以扩展支持对话历史
-            RAGResponse response = ragService.generateAnswer(
-                    userId,
-                    request.getQuestion(),
-                    request.getSimilarityThreshold(),
-                    request.getMaxResults(),
-                    true // 多轮对话始终包含上下文
-            );
-            
-            return success(response);
-        } catch (Exception e) {
-            logger.error("Failed to chat: {}", e.getMessage(), e);
-            
-            RAGResponse errorResponse = new RAGResponse();
-            errorResponse.setSuccess(false);
-            errorResponse.setErrorMessage(e.getMessage());
-            errorResponse.setProcessingTime(0L);
-            
-            return error(String.valueOf(errorResponse));
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // 客户端已断开，由调用链转为失败并取消上游请求
+            throw new UncheckedIOException(e);
         }
     }
 }
@@ -3,8 +3,11 @@ package com.ruoyi.web.controller.rag;
 import com.ruoyi.common.annotation.Log;
 import com.ruoyi.common.core.controller.BaseController;
 import com.ruoyi.common.core.domain.AjaxResult;
+import com.ruoyi.common.core.page.CursorPage;
 import com.ruoyi.common.enums.BusinessType;
+import com.ruoyi.common.exception.ServiceException;
 import com.ruoyi.common.utils.SecurityUtils;
+import com.ruoyi.system.domain.ReviewDailyStat;
 import com.ruoyi.system.domain.ReviewRecord;
 import com.ruoyi.system.service.IReviewService;
 import io.swagger.annotations.Api;
@@ -100,6 +103,84 @@ public class ReviewController extends BaseController {
         }
     }
     
+    /**
+     * 获取每日复习统计
+     */
+    @ApiOperation("获取每日复习统计")
+    @GetMapping("/stats/daily")
+    public AjaxResult getDailyStats(
+            @ApiParam("天数(含今天)，默认30，最多366") @RequestParam(required = false) Integer days) {
+        try {
+            Long userId = SecurityUtils.getUserId();
+            
+            List<ReviewDailyStat> stats = reviewService.getDailyStats(userId, days);
+            return success(stats);
+        } catch (Exception e) {
+            logger.error("Failed to get daily review stats: {}", e.getMessage(), e);
+            return error("获取每日复习统计失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 预测未来每天的复习量
+     */
+    @ApiOperation("预测复习量")
+    @GetMapping("/forecast")
+    public AjaxResult getForecast(
+            @ApiParam("天数(含今天)，默认30，最多365") @RequestParam(required = false) Integer days) {
+        try {
+            Long userId = SecurityUtils.getUserId();
+            
+            Map<String, Object> forecast = reviewService.getForecast(userId, days);
+            return success(forecast);
+        } catch (Exception e) {
+            logger.error("Failed to get review forecast: {}", e.getMessage(), e);
+            return error("获取复习量预测失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 游标分页获取复习历史
+     */
+    @ApiOperation("获取复习历史")
+    @GetMapping("/history")
+    public AjaxResult getHistory(
+            @ApiParam("笔记ID（可选）") @RequestParam(required = false) Long noteId,
+            @ApiParam("上一页返回的 nextCursor，为空时返回第一页") @RequestParam(required = false) String after,
+            @ApiParam("每页数量") @RequestParam(required = false) Integer limit) {
+        try {
+            Long userId = SecurityUtils.getUserId();
+            
+            CursorPage<ReviewRecord> page = reviewService.getReviewHistory(userId, noteId, after, limit);
+            return success(page);
+        } catch (ServiceException e) {
+            return error(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Failed to get review history: {}", e.getMessage(), e);
+            return error("获取复习历史失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 按当前调度算法重新排期全部复习
+     */
+    @ApiOperation("重新排期全部复习")
+    @Log(title = "复习重排期", businessType = BusinessType.UPDATE)
+    @PostMapping("/reschedule")
+    public AjaxResult reschedule() {
+        try {
+            Long userId = SecurityUtils.getUserId();
+            
+            int updated = reviewService.rescheduleReviews(userId);
+            AjaxResult ajax = success();
+            ajax.put("updated", updated);
+            return ajax;
+        } catch (Exception e) {
+            logger.error("Failed to reschedule reviews: {}", e.getMessage(), e);
+            return error("重新排期失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 初始化笔记的复习记录
      */
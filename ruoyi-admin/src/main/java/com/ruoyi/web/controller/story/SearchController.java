@@ -6,9 +6,10 @@ import com.ruoyi.common.core.domain.AjaxResult;
 import com.ruoyi.common.enums.BusinessType;
 import com.ruoyi.common.utils.SecurityUtils;
 import com.ruoyi.system.domain.StoryCharacter;
-import com.ruoyi.system.domain.Story;
+import com.ruoyi.system.domain.dto.StorySearchResult;
 
 import com.ruoyi.system.service.IStoryCharacterService;
+import com.ruoyi.system.service.ISearchService;
 import com.ruoyi.system.service.IStoryService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -16,7 +17,6 @@ import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -39,6 +39,9 @@ public class SearchController extends BaseController {
 
     @Autowired
     private IStoryCharacterService characterService;
+
+    @Autowired
+    private ISearchService searchService;
     
     /**
      * 搜索故事
@@ -57,7 +60,7 @@ public class SearchController extends BaseController {
             Double actualThreshold = threshold != null ? threshold : DEFAULT_SIMILARITY_THRESHOLD;
             Integer actualMaxResults = maxResults != null ? maxResults : DEFAULT_MAX_RESULTS;
             
-            List<Story> stories = storyService.searchStories(userId, keyword, actualThreshold, actualMaxResults);
+            List<StorySearchResult> stories = storyService.searchStories(userId, keyword, actualThreshold, actualMaxResults);
             
             return success(stories);
         } catch (Exception e) {
@@ -87,7 +90,7 @@ public class SearchController extends BaseController {
     }
     
     /**
-     * 全局搜索（包括故事和主角）
+     * 全局搜索：笔记、故事、主角并行检索，合并为按得分排序的列表
      */
     @ApiOperation("全局搜索")
     @Log(title = "全局搜索", businessType = BusinessType.OTHER)
@@ -103,18 +106,7 @@ public class SearchController extends BaseController {
             Double actualThreshold = threshold != null ? threshold : DEFAULT_SIMILARITY_THRESHOLD;
             Integer actualMaxResults = maxResults != null ? maxResults : DEFAULT_MAX_RESULTS;
             
-            // 搜索故事
-            List<Story> stories = storyService.searchStories(userId, keyword, actualThreshold, actualMaxResults);
-            
-            // 搜索主角
-            List<StoryCharacter> characters = characterService.searchCharacters(userId, keyword);
-            
-            // 组合结果
-            Map<String, Object> result = new HashMap<>();
-            result.put("stories", stories);
-            result.put("characters", characters);
-            result.put("totalStories", stories.size());
-            result.put("totalCharacters", characters.size());
+            Map<String, Object> result = searchService.searchAll(userId, keyword, actualThreshold, actualMaxResults);
             
             return success(result);
         } catch (Exception e) {
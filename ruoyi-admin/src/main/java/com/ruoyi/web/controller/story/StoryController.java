@@ -3,20 +3,30 @@ package com.ruoyi.web.controller.story;
 import com.ruoyi.common.annotation.Log;
 import com.ruoyi.common.core.controller.BaseController;
 import com.ruoyi.common.core.domain.AjaxResult;
+import com.ruoyi.common.core.page.CursorPage;
 import com.ruoyi.common.core.page.TableDataInfo;
 import com.ruoyi.common.enums.BusinessType;
+import com.ruoyi.common.exception.ServiceException;
 import com.ruoyi.common.utils.SecurityUtils;
 import com.ruoyi.system.domain.Story;
 import com.ruoyi.system.domain.dto.GenerateStoryRequest;
 import com.ruoyi.system.domain.dto.GenerateStoryResponse;
+import com.ruoyi.system.domain.dto.StoryGenerateJob;
+import com.ruoyi.system.service.IStoryGenerateJobService;
 import com.ruoyi.system.service.IStoryService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,26 +45,97 @@ public class StoryController extends BaseController {
     @Autowired
     private IStoryService storyService;
     
+    @Autowired
+    private IStoryGenerateJobService generateJobService;
+    
     /**
      * 生成故事（核心功能）
      */
     @ApiOperation("生成故事")
     @Log(title = "生成故事", businessType = BusinessType.INSERT)
     @PostMapping("/generate")
-    public AjaxResult generate(@Validated @RequestBody GenerateStoryRequest request) {
+    public DeferredResult<AjaxResult> generate(@Validated @RequestBody GenerateStoryRequest request) {
+        DeferredResult<AjaxResult> result = new DeferredResult<>();
+        result.onTimeout(() -> result.setResult(error("生成故事超时，请稍后重试")));
+        
+        Long userId = SecurityUtils.getUserId();
+        storyService.generateStoryAsync(userId, request).whenComplete((response, e) -> {
+            if (e != null) {
+                logger.error("Failed to generate story: {}", e.getMessage(), e);
+                result.setResult(error("生成故事失败: " + e.getMessage()));
+            } else if (response.isSuccess()) {
+                result.setResult(success(response));
+            } else {
+                result.setResult(error(response.getErrorMessage()));
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * 提交故事生成任务，立即返回任务ID，进度通过轮询或 SSE 获取
+     */
+    @ApiOperation("提交故事生成任务")
+    @Log(title = "生成故事", businessType = BusinessType.INSERT)
+    @PostMapping("/generate/jobs")
+    public AjaxResult submitGenerateJob(@Validated @RequestBody GenerateStoryRequest request) {
         try {
             Long userId = SecurityUtils.getUserId();
-            GenerateStoryResponse response = storyService.generateStory(userId, request);
-            
-            if (response.isSuccess()) {
-                return success(response);
+            AjaxResult ajax = AjaxResult.success();
+            ajax.put("jobId", generateJobService.submit(userId, request));
+            return ajax;
+        } catch (ServiceException e) {
+            return error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询故事生成任务
+     */
+    @ApiOperation("查询故事生成任务")
+    @GetMapping("/generate/jobs/{jobId}")
+    public AjaxResult getGenerateJob(@ApiParam("任务ID") @PathVariable String jobId) {
+        StoryGenerateJob job = generateJobService.getJob(SecurityUtils.getUserId(), jobId);
+        if (job == null) {
+            return error("生成任务不存在或已过期");
+        }
+        return success(job);
+    }
+    
+    /**
+     * 订阅故事生成任务进度（SSE）
+     * 
+     * 事件：progress（阶段完成，含任务当前状态）、done（生成成功）、error（生成失败或任务不存在），
+     * 任务结束后关闭连接
+     */
+    @ApiOperation("订阅故事生成任务进度")
+    @GetMapping(value = "/generate/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generateJobEvents(@ApiParam("任务ID") @PathVariable String jobId) {
+        SseEmitter emitter = new SseEmitter();
+        Runnable unsubscribe = generateJobService.subscribe(SecurityUtils.getUserId(), jobId, job -> {
+            if (StoryGenerateJob.STATUS_COMPLETED.equals(job.getStatus())) {
+                send(emitter, "done", job);
+                emitter.complete();
+            } else if (StoryGenerateJob.STATUS_FAILED.equals(job.getStatus())) {
+                send(emitter, "error", job);
+                emitter.complete();
             } else {
-                return error(response.getErrorMessage());
+                send(emitter, "progress", job);
             }
-        } catch (Exception e) {
-            logger.error("Failed to generate story: {}", e.getMessage(), e);
-            return error("生成故事失败: " + e.getMessage());
+        });
+        if (unsubscribe == null) {
+            try {
+                send(emitter, "error", Collections.singletonMap("message", "生成任务不存在或已过期"));
+                emitter.complete();
+            } catch (UncheckedIOException e) {
+                emitter.completeWithError(e.getCause());
+            }
+            return emitter;
         }
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
     }
     
     /**
@@ -86,6 +167,28 @@ public class StoryController extends BaseController {
         }
     }
     
+    /**
+     * 游标分页获取故事列表（不含正文）
+     */
+    @ApiOperation("游标分页获取故事列表")
+    @GetMapping("/list/cursor")
+    public AjaxResult listByCursor(
+            @ApiParam("主角ID（可选）") @RequestParam(required = false) Long characterId,
+            @ApiParam("是否收藏（可选）") @RequestParam(required = false) Boolean isFavorite,
+            @ApiParam("上一页返回的 nextCursor，为空时返回第一页") @RequestParam(required = false) String after,
+            @ApiParam("每页数量") @RequestParam(required = false) Integer limit) {
+        try {
+            Long userId = SecurityUtils.getUserId();
+            CursorPage<Story> page = storyService.selectStoryPage(userId, characterId, isFavorite, after, limit);
+            return success(page);
+        } catch (ServiceException e) {
+            return error(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Failed to list stories: {}", e.getMessage(), e);
+            return error("获取故事列表失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 获取故事详情
      */
@@ -291,4 +394,13 @@ public class StoryController extends BaseController {
             return error("获取故事失败: " + e.getMessage());
         }
     }
+    
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // 客户端已断开，由任务服务取消订阅
+            throw new UncheckedIOException(e);
+        }
+    }
 }
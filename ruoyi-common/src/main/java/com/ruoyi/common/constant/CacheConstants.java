@@ -44,4 +44,24 @@ public class CacheConstants
 
     /** 礼品卡预占用 Redis Key 前缀 */
     public static final String GIFT_CARD_PRE_OCCUPY_PREFIX = "gift_card:pre_occupy:";
+
+    /**
+     * 文本向量 redis key
+     */
+    public static final String RAG_EMBEDDING_KEY = "rag_embedding:";
+
+    /**
+     * 图片识别结果 redis key
+     */
+    public static final String RAG_VISION_KEY = "rag_vision:";
+
+    /**
+     * 笔记导入任务 redis key
+     */
+    public static final String NOTE_IMPORT_JOB_KEY = "note_import_job:";
+
+    /**
+     * 故事生成任务 redis key
+     */
+    public static final String STORY_GENERATE_JOB_KEY = "story_generate_job:";
 }
@@ -0,0 +1,81 @@
+package com.ruoyi.common.core.page;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页数据对象
+ * 
+ * 与 {@link TableDataInfo} 不同，不查询总数，客户端用 nextCursor 请求下一页。
+ * 
+ * @author ruoyi
+ */
+public class CursorPage<T> implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** 列表数据 */
+    private List<T> rows;
+
+    /** 下一页游标，没有更多数据时为空 */
+    private String nextCursor;
+
+    /** 是否还有更多数据 */
+    private boolean hasMore;
+
+    public CursorPage()
+    {
+    }
+
+    /**
+     * 根据多查询一条的结果构造分页
+     * 
+     * @param rows 按 limit + 1 条查询的数据
+     * @param limit 每页数量
+     * @param cursorOf 由一条数据生成游标
+     * @return 分页数据
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, String> cursorOf)
+    {
+        CursorPage<T> page = new CursorPage<T>();
+        page.hasMore = rows.size() > limit;
+        page.rows = page.hasMore ? new ArrayList<T>(rows.subList(0, limit)) : rows;
+        if (page.hasMore)
+        {
+            page.nextCursor = cursorOf.apply(page.rows.get(limit - 1));
+        }
+        return page;
+    }
+
+    public List<T> getRows()
+    {
+        return rows;
+    }
+
+    public void setRows(List<T> rows)
+    {
+        this.rows = rows;
+    }
+
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor)
+    {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore()
+    {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore)
+    {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,102 @@
+package com.ruoyi.common.core.page;
+
+import java.util.Date;
+import com.ruoyi.common.exception.ServiceException;
+import com.ruoyi.common.utils.StringUtils;
+
+/**
+ * 游标分页位置
+ * 
+ * 记录上一页最后一条数据的排序时间与ID，格式为 "毫秒时间戳,ID"。
+ * 查询条件为 (时间, ID) 小于游标，配合 (用户, 时间, ID) 联合索引，每一页的代价与翻页深度无关。
+ * 
+ * @author ruoyi
+ */
+public class PageCursor
+{
+    /** 默认每页数量 */
+    public static final int DEFAULT_LIMIT = 20;
+
+    /** 最大每页数量 */
+    public static final int MAX_LIMIT = 100;
+
+    /** 排序时间 */
+    private final Date time;
+
+    /** 数据ID */
+    private final Long id;
+
+    public PageCursor(Date time, Long id)
+    {
+        this.time = time;
+        this.id = id;
+    }
+
+    /**
+     * 解析游标
+     * 
+     * @param cursor 游标字符串
+     * @return 游标，为空表示从第一页开始时返回null
+     */
+    public static PageCursor parse(String cursor)
+    {
+        if (StringUtils.isBlank(cursor))
+        {
+            return null;
+        }
+        String[] parts = cursor.split(",");
+        try
+        {
+            if (parts.length == 2)
+            {
+                return new PageCursor(new Date(Long.parseLong(parts[0].trim())), Long.valueOf(parts[1].trim()));
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            // 按格式错误处理
+        }
+        throw new ServiceException("无效的分页游标: " + cursor);
+    }
+
+    /**
+     * 生成游标
+     * 
+     * @param time 排序时间
+     * @param id 数据ID
+     * @return 游标字符串
+     */
+    public static String format(Date time, Long id)
+    {
+        if (time == null || id == null)
+        {
+            return null;
+        }
+        return time.getTime() + "," + id;
+    }
+
+    /**
+     * 每页数量合理化
+     * 
+     * @param limit 请求的每页数量
+     * @return 1 到 {@link #MAX_LIMIT} 之间的数量，为空时取 {@link #DEFAULT_LIMIT}
+     */
+    public static int limit(Integer limit)
+    {
+        if (limit == null || limit <= 0)
+        {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    public Date getTime()
+    {
+        return time;
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+}
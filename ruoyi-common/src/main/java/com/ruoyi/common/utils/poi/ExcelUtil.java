@@ -18,12 +18,16 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletResponse;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.SAXParserFactory;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.RegExUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
@@ -34,12 +38,15 @@ import org.apache.poi.hssf.usermodel.HSSFShape;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.BorderStyle;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.ClientAnchor;
 import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.DataValidation;
 import org.apache.poi.ss.usermodel.DataValidationConstraint;
 import org.apache.poi.ss.usermodel.DataValidationHelper;
@@ -58,9 +65,16 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.CellRangeAddressList;
+import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFClientAnchor;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.xssf.usermodel.XSSFDataValidation;
 import org.apache.poi.xssf.usermodel.XSSFDrawing;
 import org.apache.poi.xssf.usermodel.XSSFPicture;
@@ -70,6 +84,8 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.openxmlformats.schemas.drawingml.x2006.spreadsheetDrawing.CTMarker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 import com.ruoyi.common.annotation.Excel;
 import com.ruoyi.common.annotation.Excel.ColumnType;
 import com.ruoyi.common.annotation.Excel.Type;
@@ -520,6 +536,86 @@ public class ExcelUtil<T>
         return list;
     }
 
+    /**
+     * 以SAX方式逐行读取xlsx文件的第一个工作表，不把整个工作簿加载到内存，适合大文件导入
+     * 
+     * @param file xlsx文件
+     * @param rowHandler 行处理器，参数为各列格式化后的文本（中间的空单元格为空字符串）
+     */
+    public static void readXlsxRows(File file, Consumer<List<String>> rowHandler) throws Exception
+    {
+        OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+        try
+        {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext())
+            {
+                throw new IOException("文件sheet不存在");
+            }
+            try (InputStream sheet = sheets.next())
+            {
+                SAXParserFactory factory = SAXParserFactory.newInstance();
+                factory.setNamespaceAware(true);
+                factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+                factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+                XMLReader parser = factory.newSAXParser().getXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new RowCollector(rowHandler), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        }
+        finally
+        {
+            // 只读打开的包用 revert 关闭，close 会尝试保存
+            pkg.revert();
+        }
+    }
+
+    /**
+     * 把SAX解析出的单元格按列号收集为一行
+     */
+    private static class RowCollector implements SheetContentsHandler
+    {
+        private final Consumer<List<String>> rowHandler;
+
+        private List<String> row = new ArrayList<String>();
+
+        RowCollector(Consumer<List<String>> rowHandler)
+        {
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void startRow(int rowNum)
+        {
+            row = new ArrayList<String>();
+        }
+
+        @Override
+        public void endRow(int rowNum)
+        {
+            rowHandler.accept(row);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment)
+        {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : row.size();
+            while (row.size() < column)
+            {
+                row.add(StringUtils.EMPTY);
+            }
+            row.add(formattedValue != null ? formattedValue : StringUtils.EMPTY);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName)
+        {
+        }
+    }
+
     /**
      * 对list数据源将其里面的数据导入到excel表单
      * 
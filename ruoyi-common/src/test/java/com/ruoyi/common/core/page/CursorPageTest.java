@@ -0,0 +1,48 @@
+package com.ruoyi.common.core.page;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 游标分页数据对象测试
+ * 
+ * @author ruoyi
+ */
+class CursorPageTest
+{
+    @Test
+    void extraRowMeansMorePages()
+    {
+        CursorPage<Integer> page = CursorPage.of(Arrays.asList(1, 2, 3, 4), 3, String::valueOf);
+
+        assertEquals(Arrays.asList(1, 2, 3), page.getRows());
+        assertTrue(page.isHasMore());
+        // 游标取本页最后一条，而不是多查的那一条
+        assertEquals("3", page.getNextCursor());
+    }
+
+    @Test
+    void lastPageHasNoCursor()
+    {
+        CursorPage<Integer> page = CursorPage.of(Arrays.asList(1, 2, 3), 3, String::valueOf);
+
+        assertEquals(Arrays.asList(1, 2, 3), page.getRows());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void emptyPage()
+    {
+        CursorPage<Integer> page = CursorPage.of(Collections.<Integer>emptyList(), 3, String::valueOf);
+
+        assertTrue(page.getRows().isEmpty());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+}
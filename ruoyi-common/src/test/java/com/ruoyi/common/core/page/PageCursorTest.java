@@ -0,0 +1,64 @@
+package com.ruoyi.common.core.page;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+import com.ruoyi.common.exception.ServiceException;
+
+/**
+ * 游标分页位置测试
+ * 
+ * @author ruoyi
+ */
+class PageCursorTest
+{
+    @Test
+    void formatAndParseRoundTrip()
+    {
+        String cursor = PageCursor.format(new Date(1700000000123L), 42L);
+        assertEquals("1700000000123,42", cursor);
+
+        PageCursor parsed = PageCursor.parse(cursor);
+        assertEquals(1700000000123L, parsed.getTime().getTime());
+        assertEquals(Long.valueOf(42), parsed.getId());
+    }
+
+    @Test
+    void parseTrimsWhitespace()
+    {
+        PageCursor parsed = PageCursor.parse(" 1000 , 7 ");
+        assertEquals(1000L, parsed.getTime().getTime());
+        assertEquals(Long.valueOf(7), parsed.getId());
+    }
+
+    @Test
+    void blankCursorStartsFromFirstPage()
+    {
+        assertNull(PageCursor.parse(null));
+        assertNull(PageCursor.parse(""));
+        assertNull(PageCursor.parse("  "));
+        assertNull(PageCursor.format(null, 1L));
+        assertNull(PageCursor.format(new Date(), null));
+    }
+
+    @Test
+    void rejectsMalformedCursor()
+    {
+        assertThrows(ServiceException.class, () -> PageCursor.parse("abc"));
+        assertThrows(ServiceException.class, () -> PageCursor.parse("1000"));
+        assertThrows(ServiceException.class, () -> PageCursor.parse("1000,x"));
+        assertThrows(ServiceException.class, () -> PageCursor.parse("1000,1,2"));
+    }
+
+    @Test
+    void limitIsClamped()
+    {
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.limit(null));
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.limit(0));
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.limit(-5));
+        assertEquals(10, PageCursor.limit(10));
+        assertEquals(PageCursor.MAX_LIMIT, PageCursor.limit(PageCursor.MAX_LIMIT + 1));
+    }
+}
@@ -42,6 +42,40 @@ public class ThreadPoolConfig
         return executor;
     }
 
+    /**
+     * RAG 问答流水线（检索、回表等阶段）及故事生成任务的图片预处理
+     * 有界队列，满载时直接拒绝，由调用方降级处理而不是占用请求线程
+     */
+    @Bean(name = "ragExecutor")
+    public ThreadPoolTaskExecutor ragExecutor()
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setMaxPoolSize(64);
+        executor.setCorePoolSize(16);
+        executor.setQueueCapacity(256);
+        executor.setKeepAliveSeconds(keepAliveSeconds);
+        executor.setThreadNamePrefix("rag-pipeline-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * 笔记批量导入
+     * 单个任务可能持续数分钟，与业务线程池隔离；满载时拒绝，由调用方返回繁忙而不是在请求线程中执行导入
+     */
+    @Bean(name = "noteImportExecutor")
+    public ThreadPoolTaskExecutor noteImportExecutor()
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setMaxPoolSize(4);
+        executor.setCorePoolSize(2);
+        executor.setQueueCapacity(16);
+        executor.setKeepAliveSeconds(keepAliveSeconds);
+        executor.setThreadNamePrefix("note-import-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
     /**
      * 执行周期性或定时任务
      */
@@ -0,0 +1,27 @@
+package com.ruoyi.quartz.task;
+
+import com.ruoyi.system.service.IEmbeddingMigrationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 向量存储格式迁移任务（JSON -> float32 二进制，执行一次即可）
+ * 
+ * @author ruoyi
+ */
+@Component("embeddingMigrationTask")
+public class EmbeddingMigrationTask
+{
+    @Autowired
+    private IEmbeddingMigrationService embeddingMigrationService;
+
+    public void migrate()
+    {
+        embeddingMigrationService.migrateLegacyEmbeddings(null);
+    }
+
+    public void migrate(Integer batchSize)
+    {
+        embeddingMigrationService.migrateLegacyEmbeddings(batchSize);
+    }
+}
@@ -28,8 +28,8 @@ public class EnglishNote extends BaseEntity
     @Excel(name = "笔记内容")
     private String content;
 
-    /** 向量嵌入(JSON格式存储) */
-    private String embedding;
+    /** 向量嵌入(float32二进制存储) */
+    private float[] embedding;
 
     /** 嵌入模型名称 */
     @Excel(name = "嵌入模型")
@@ -75,12 +75,12 @@ public class EnglishNote extends BaseEntity
         return content;
     }
 
-    public void setEmbedding(String embedding) 
+    public void setEmbedding(float[] embedding) 
     {
         this.embedding = embedding;
     }
 
-    public String getEmbedding() 
+    public float[] getEmbedding() 
     {
         return embedding;
     }
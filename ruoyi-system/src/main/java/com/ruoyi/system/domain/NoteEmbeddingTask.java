@@ -0,0 +1,157 @@
+package com.ruoyi.system.domain;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.Date;
+
+/**
+ * 笔记向量生成任务对象 note_embedding_task
+ * 笔记新增或内容变更时与笔记在同一事务中写入，由后台任务异步生成向量
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class NoteEmbeddingTask
+{
+    /** 待处理 */
+    public static final String STATUS_PENDING = "0";
+
+    /** 处理中 */
+    public static final String STATUS_PROCESSING = "1";
+
+    /** 重试次数用尽 */
+    public static final String STATUS_FAILED = "2";
+
+    /** 任务ID */
+    private Long id;
+
+    /** 笔记ID */
+    private Long noteId;
+
+    /** 状态(0待处理 1处理中 2失败) */
+    private String status;
+
+    /** 已失败次数 */
+    private Integer attempts;
+
+    /** 下次可执行时间 */
+    private Date nextAttemptAt;
+
+    /** 最近一次失败原因 */
+    private String lastError;
+
+    /** 领取标识，每次领取生成一个 */
+    private String claimToken;
+
+    /** 领取时间 */
+    private Date lockedAt;
+
+    /** 创建时间 */
+    private Date createdAt;
+
+    public void setId(Long id)
+    {
+        this.id = id;
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public void setNoteId(Long noteId)
+    {
+        this.noteId = noteId;
+    }
+
+    public Long getNoteId()
+    {
+        return noteId;
+    }
+
+    public void setStatus(String status)
+    {
+        this.status = status;
+    }
+
+    public String getStatus()
+    {
+        return status;
+    }
+
+    public void setAttempts(Integer attempts)
+    {
+        this.attempts = attempts;
+    }
+
+    public Integer getAttempts()
+    {
+        return attempts;
+    }
+
+    public void setNextAttemptAt(Date nextAttemptAt)
+    {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Date getNextAttemptAt()
+    {
+        return nextAttemptAt;
+    }
+
+    public void setLastError(String lastError)
+    {
+        this.lastError = lastError;
+    }
+
+    public String getLastError()
+    {
+        return lastError;
+    }
+
+    public void setClaimToken(String claimToken)
+    {
+        this.claimToken = claimToken;
+    }
+
+    public String getClaimToken()
+    {
+        return claimToken;
+    }
+
+    public void setLockedAt(Date lockedAt)
+    {
+        this.lockedAt = lockedAt;
+    }
+
+    public Date getLockedAt()
+    {
+        return lockedAt;
+    }
+
+    public void setCreatedAt(Date createdAt)
+    {
+        this.createdAt = createdAt;
+    }
+
+    public Date getCreatedAt()
+    {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE)
+            .append("id", getId())
+            .append("noteId", getNoteId())
+            .append("status", getStatus())
+            .append("attempts", getAttempts())
+            .append("nextAttemptAt", getNextAttemptAt())
+            .append("lastError", getLastError())
+            .append("claimToken", getClaimToken())
+            .append("lockedAt", getLockedAt())
+            .append("createdAt", getCreatedAt())
+            .toString();
+    }
+}
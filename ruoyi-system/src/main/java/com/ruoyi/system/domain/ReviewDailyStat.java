@@ -0,0 +1,94 @@
+package com.ruoyi.system.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.Date;
+
+/**
+ * 每日复习统计对象 review_daily_stat
+ * 每个用户每天一行，写入复习明细时累加，用于统计面板与历史图表
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class ReviewDailyStat
+{
+    /** 用户ID */
+    private Long userId;
+
+    /** 统计日期 */
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private Date statDate;
+
+    /** 复习次数 */
+    private Integer reviewCount;
+
+    /** 记住的次数(质量>=3) */
+    private Integer correctCount;
+
+    /** 更新时间 */
+    private Date updatedAt;
+
+    public void setUserId(Long userId)
+    {
+        this.userId = userId;
+    }
+
+    public Long getUserId()
+    {
+        return userId;
+    }
+
+    public void setStatDate(Date statDate)
+    {
+        this.statDate = statDate;
+    }
+
+    public Date getStatDate()
+    {
+        return statDate;
+    }
+
+    public void setReviewCount(Integer reviewCount)
+    {
+        this.reviewCount = reviewCount;
+    }
+
+    public Integer getReviewCount()
+    {
+        return reviewCount;
+    }
+
+    public void setCorrectCount(Integer correctCount)
+    {
+        this.correctCount = correctCount;
+    }
+
+    public Integer getCorrectCount()
+    {
+        return correctCount;
+    }
+
+    public void setUpdatedAt(Date updatedAt)
+    {
+        this.updatedAt = updatedAt;
+    }
+
+    public Date getUpdatedAt()
+    {
+        return updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE)
+            .append("userId", getUserId())
+            .append("statDate", getStatDate())
+            .append("reviewCount", getReviewCount())
+            .append("correctCount", getCorrectCount())
+            .append("updatedAt", getUpdatedAt())
+            .toString();
+    }
+}
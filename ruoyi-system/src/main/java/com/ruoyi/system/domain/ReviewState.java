@@ -0,0 +1,218 @@
+package com.ruoyi.system.domain;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 复习状态对象 review_state
+ * 每条笔记一行，保存当前的 SRS 调度状态，复习时原地更新；每次复习的明细仍追加到 review_record
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class ReviewState
+{
+    /** 状态ID */
+    private Long id;
+
+    /** 笔记ID */
+    private Long noteId;
+
+    /** 用户ID */
+    private Long userId;
+
+    /** 难度系数 */
+    private BigDecimal easinessFactor;
+
+    /** 复习间隔(天) */
+    private Integer intervalDays;
+
+    /** 连续成功复习次数 */
+    private Integer repetitions;
+
+    /** FSRS 记忆稳定性(天)，SM-2 调度时为空 */
+    private Double stability;
+
+    /** FSRS 难度(1-10)，SM-2 调度时为空 */
+    private Double difficulty;
+
+    /** 最近一次复习质量(0-5分)，未复习过为空 */
+    private Integer lastQuality;
+
+    /** 下次复习时间 */
+    private Date nextReviewDate;
+
+    /** 最近一次复习时间 */
+    private Date lastReviewedAt;
+
+    /** 创建时间 */
+    private Date createdAt;
+
+    /** 更新时间 */
+    private Date updatedAt;
+
+    /** 笔记内容(关联查询) */
+    private String noteContent;
+
+    public void setId(Long id)
+    {
+        this.id = id;
+    }
+
+    public Long getId()
+    {
+        return id;
+    }
+
+    public void setNoteId(Long noteId)
+    {
+        this.noteId = noteId;
+    }
+
+    public Long getNoteId()
+    {
+        return noteId;
+    }
+
+    public void setUserId(Long userId)
+    {
+        this.userId = userId;
+    }
+
+    public Long getUserId()
+    {
+        return userId;
+    }
+
+    public void setEasinessFactor(BigDecimal easinessFactor)
+    {
+        this.easinessFactor = easinessFactor;
+    }
+
+    public BigDecimal getEasinessFactor()
+    {
+        return easinessFactor;
+    }
+
+    public void setIntervalDays(Integer intervalDays)
+    {
+        this.intervalDays = intervalDays;
+    }
+
+    public Integer getIntervalDays()
+    {
+        return intervalDays;
+    }
+
+    public void setRepetitions(Integer repetitions)
+    {
+        this.repetitions = repetitions;
+    }
+
+    public Integer getRepetitions()
+    {
+        return repetitions;
+    }
+
+    public void setStability(Double stability)
+    {
+        this.stability = stability;
+    }
+
+    public Double getStability()
+    {
+        return stability;
+    }
+
+    public void setDifficulty(Double difficulty)
+    {
+        this.difficulty = difficulty;
+    }
+
+    public Double getDifficulty()
+    {
+        return difficulty;
+    }
+
+    public void setLastQuality(Integer lastQuality)
+    {
+        this.lastQuality = lastQuality;
+    }
+
+    public Integer getLastQuality()
+    {
+        return lastQuality;
+    }
+
+    public void setNextReviewDate(Date nextReviewDate)
+    {
+        this.nextReviewDate = nextReviewDate;
+    }
+
+    public Date getNextReviewDate()
+    {
+        return nextReviewDate;
+    }
+
+    public void setLastReviewedAt(Date lastReviewedAt)
+    {
+        this.lastReviewedAt = lastReviewedAt;
+    }
+
+    public Date getLastReviewedAt()
+    {
+        return lastReviewedAt;
+    }
+
+    public void setCreatedAt(Date createdAt)
+    {
+        this.createdAt = createdAt;
+    }
+
+    public Date getCreatedAt()
+    {
+        return createdAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt)
+    {
+        this.updatedAt = updatedAt;
+    }
+
+    public Date getUpdatedAt()
+    {
+        return updatedAt;
+    }
+
+    public void setNoteContent(String noteContent)
+    {
+        this.noteContent = noteContent;
+    }
+
+    public String getNoteContent()
+    {
+        return noteContent;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE)
+            .append("id", getId())
+            .append("noteId", getNoteId())
+            .append("userId", getUserId())
+            .append("easinessFactor", getEasinessFactor())
+            .append("intervalDays", getIntervalDays())
+            .append("repetitions", getRepetitions())
+            .append("stability", getStability())
+            .append("difficulty", getDifficulty())
+            .append("lastQuality", getLastQuality())
+            .append("nextReviewDate", getNextReviewDate())
+            .append("lastReviewedAt", getLastReviewedAt())
+            .append("createdAt", getCreatedAt())
+            .append("updatedAt", getUpdatedAt())
+            .toString();
+    }
+}
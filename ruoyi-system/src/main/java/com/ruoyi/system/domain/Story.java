@@ -13,7 +13,7 @@ public class Story extends BaseEntity {
     private String content;
     private String objects;
     private String imageUrl;
-    private String embedding;
+    private float[] embedding;
     private String embeddingModel;
     private Boolean isFavorite;
     private Integer viewCount;
@@ -51,8 +51,8 @@ public class Story extends BaseEntity {
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
 
-    public String getEmbedding() { return embedding; }
-    public void setEmbedding(String embedding) { this.embedding = embedding; }
+    public float[] getEmbedding() { return embedding; }
+    public void setEmbedding(float[] embedding) { this.embedding = embedding; }
 
     public String getEmbeddingModel() { return embeddingModel; }
     public void setEmbeddingModel(String embeddingModel) { this.embeddingModel = embeddingModel; }
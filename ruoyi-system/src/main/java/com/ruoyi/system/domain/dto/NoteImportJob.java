@@ -0,0 +1,154 @@
+package com.ruoyi.system.domain.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.Date;
+
+/**
+ * 笔记批量导入任务
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@ApiModel("笔记导入任务")
+public class NoteImportJob
+{
+    public static final String STATUS_RUNNING = "RUNNING";
+
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    public static final String STATUS_FAILED = "FAILED";
+
+    @ApiModelProperty("任务ID")
+    private String jobId;
+
+    @ApiModelProperty("用户ID")
+    private Long userId;
+
+    @ApiModelProperty("文件名")
+    private String fileName;
+
+    @ApiModelProperty("文件格式(csv/tsv/jsonl/xlsx)")
+    private String format;
+
+    @ApiModelProperty("状态(RUNNING/COMPLETED/FAILED)")
+    private String status;
+
+    @ApiModelProperty("已读取行数")
+    private Integer processedRows = 0;
+
+    @ApiModelProperty("已导入笔记数")
+    private Integer importedCount = 0;
+
+    @ApiModelProperty("跳过的行数(内容为空或过长)")
+    private Integer skippedCount = 0;
+
+    @ApiModelProperty("进度百分比，xlsx 在完成前无法估算")
+    private Integer progress;
+
+    @ApiModelProperty("提示或错误信息")
+    private String message;
+
+    @ApiModelProperty("开始时间")
+    private Date startTime;
+
+    @ApiModelProperty("结束时间")
+    private Date finishTime;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getProcessedRows() {
+        return processedRows;
+    }
+
+    public void setProcessedRows(Integer processedRows) {
+        this.processedRows = processedRows;
+    }
+
+    public Integer getImportedCount() {
+        return importedCount;
+    }
+
+    public void setImportedCount(Integer importedCount) {
+        this.importedCount = importedCount;
+    }
+
+    public Integer getSkippedCount() {
+        return skippedCount;
+    }
+
+    public void setSkippedCount(Integer skippedCount) {
+        this.skippedCount = skippedCount;
+    }
+
+    public Integer getProgress() {
+        return progress;
+    }
+
+    public void setProgress(Integer progress) {
+        this.progress = progress;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Date startTime) {
+        this.startTime = startTime;
+    }
+
+    public Date getFinishTime() {
+        return finishTime;
+    }
+
+    public void setFinishTime(Date finishTime) {
+        this.finishTime = finishTime;
+    }
+}
@@ -3,7 +3,9 @@ package com.ruoyi.system.domain.dto;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * RAG响应DTO
@@ -32,6 +34,15 @@ public class RAGResponse
     @ApiModelProperty("错误信息")
     private String errorMessage;
 
+    @ApiModelProperty("是否降级（检索超时或失败时不带上下文回答）")
+    private Boolean degraded;
+
+    @ApiModelProperty("是否命中回答缓存")
+    private Boolean cached;
+
+    @ApiModelProperty("各阶段耗时(毫秒)")
+    private Map<String, Long> stageTimings = new LinkedHashMap<>();
+
     public String getAnswer() {
         return answer;
     }
@@ -79,4 +90,28 @@ public class RAGResponse
     public void setErrorMessage(String errorMessage) {
         this.errorMessage = errorMessage;
     }
+
+    public Boolean getDegraded() {
+        return degraded;
+    }
+
+    public void setDegraded(Boolean degraded) {
+        this.degraded = degraded;
+    }
+
+    public Boolean getCached() {
+        return cached;
+    }
+
+    public void setCached(Boolean cached) {
+        this.cached = cached;
+    }
+
+    public Map<String, Long> getStageTimings() {
+        return stageTimings;
+    }
+
+    public void setStageTimings(Map<String, Long> stageTimings) {
+        this.stageTimings = stageTimings;
+    }
 }
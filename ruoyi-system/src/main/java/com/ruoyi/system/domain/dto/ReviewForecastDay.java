@@ -0,0 +1,50 @@
+package com.ruoyi.system.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.Date;
+
+/**
+ * 某一天到期的复习数量
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@ApiModel("复习量预测")
+public class ReviewForecastDay
+{
+    @ApiModelProperty("日期")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private Date date;
+
+    @ApiModelProperty("到期数量")
+    private Integer count;
+
+    public ReviewForecastDay()
+    {
+    }
+
+    public ReviewForecastDay(Date date, Integer count)
+    {
+        this.date = date;
+        this.count = count;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public void setDate(Date date) {
+        this.date = date;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+}
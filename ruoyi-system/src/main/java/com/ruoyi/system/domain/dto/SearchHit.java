@@ -0,0 +1,88 @@
+package com.ruoyi.system.domain.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * 统一搜索的一条结果
+ *
+ * @author ruoyi
+ * @date 2025-02-11
+ */
+@ApiModel("统一搜索结果")
+public class SearchHit
+{
+    public static final String TYPE_NOTE = "note";
+
+    public static final String TYPE_STORY = "story";
+
+    public static final String TYPE_CHARACTER = "character";
+
+    @ApiModelProperty("来源：note / story / character")
+    private String type;
+
+    @ApiModelProperty("来源记录ID")
+    private Long id;
+
+    @ApiModelProperty("标题")
+    private String title;
+
+    @ApiModelProperty("内容摘要")
+    private String snippet;
+
+    @ApiModelProperty("归一化得分(0-1)")
+    private Double score;
+
+    public SearchHit()
+    {
+    }
+
+    public SearchHit(String type, Long id, String title, String snippet, Double score)
+    {
+        this.type = type;
+        this.id = id;
+        this.title = title;
+        this.snippet = snippet;
+        this.score = score;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public void setScore(Double score) {
+        this.score = score;
+    }
+}
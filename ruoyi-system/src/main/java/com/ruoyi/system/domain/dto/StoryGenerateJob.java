@@ -0,0 +1,192 @@
+package com.ruoyi.system.domain.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 故事生成任务
+ *
+ * @author ruoyi
+ * @date 2025-02-11
+ */
+@ApiModel("故事生成任务")
+public class StoryGenerateJob
+{
+    public static final String STATUS_RUNNING = "RUNNING";
+
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    public static final String STATUS_FAILED = "FAILED";
+
+    /** 已提交，等待识图 */
+    public static final String STAGE_SUBMITTED = "SUBMITTED";
+
+    /** 已识别出图片中的物品 */
+    public static final String STAGE_OBJECTS_IDENTIFIED = "OBJECTS_IDENTIFIED";
+
+    /** 故事已写好 */
+    public static final String STAGE_STORY_DRAFTED = "STORY_DRAFTED";
+
+    /** 故事已向量化 */
+    public static final String STAGE_EMBEDDED = "EMBEDDED";
+
+    /** 故事已保存 */
+    public static final String STAGE_SAVED = "SAVED";
+
+    @ApiModelProperty("任务ID")
+    private String jobId;
+
+    @ApiModelProperty("用户ID")
+    private Long userId;
+
+    @ApiModelProperty("主角ID")
+    private Long characterId;
+
+    @ApiModelProperty("状态(RUNNING/COMPLETED/FAILED)")
+    private String status;
+
+    @ApiModelProperty("阶段(SUBMITTED/OBJECTS_IDENTIFIED/STORY_DRAFTED/EMBEDDED/SAVED)")
+    private String stage;
+
+    @ApiModelProperty("进度百分比")
+    private Integer progress;
+
+    @ApiModelProperty("识别出的物品")
+    private List<String> objects;
+
+    @ApiModelProperty("主角名称")
+    private String characterName;
+
+    @ApiModelProperty("故事ID，保存后才有")
+    private Long storyId;
+
+    @ApiModelProperty("故事标题")
+    private String title;
+
+    @ApiModelProperty("故事内容")
+    private String content;
+
+    @ApiModelProperty("错误信息")
+    private String message;
+
+    @ApiModelProperty("开始时间")
+    private Date startTime;
+
+    @ApiModelProperty("结束时间")
+    private Date finishTime;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getCharacterId() {
+        return characterId;
+    }
+
+    public void setCharacterId(Long characterId) {
+        this.characterId = characterId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public Integer getProgress() {
+        return progress;
+    }
+
+    public void setProgress(Integer progress) {
+        this.progress = progress;
+    }
+
+    public List<String> getObjects() {
+        return objects;
+    }
+
+    public void setObjects(List<String> objects) {
+        this.objects = objects;
+    }
+
+    public String getCharacterName() {
+        return characterName;
+    }
+
+    public void setCharacterName(String characterName) {
+        this.characterName = characterName;
+    }
+
+    public Long getStoryId() {
+        return storyId;
+    }
+
+    public void setStoryId(Long storyId) {
+        this.storyId = storyId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Date startTime) {
+        this.startTime = startTime;
+    }
+
+    public Date getFinishTime() {
+        return finishTime;
+    }
+
+    public void setFinishTime(Date finishTime) {
+        this.finishTime = finishTime;
+    }
+}
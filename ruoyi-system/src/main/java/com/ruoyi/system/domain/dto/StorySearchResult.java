@@ -0,0 +1,118 @@
+package com.ruoyi.system.domain.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * 故事搜索结果，只含列表展示需要的字段，不返回正文全文与向量
+ *
+ * @author ruoyi
+ * @date 2025-02-11
+ */
+@ApiModel("故事搜索结果")
+public class StorySearchResult
+{
+    /** 摘要长度，与查询中的 left(s.content, 200) 一致 */
+    public static final int EXCERPT_LENGTH = 200;
+
+    @ApiModelProperty("故事ID")
+    private Long id;
+
+    @ApiModelProperty("主角ID")
+    private Long characterId;
+
+    @ApiModelProperty("主角名称")
+    private String characterName;
+
+    @ApiModelProperty("标题")
+    private String title;
+
+    @ApiModelProperty("正文开头")
+    private String excerpt;
+
+    @ApiModelProperty("配图地址")
+    private String imageUrl;
+
+    @ApiModelProperty("是否收藏")
+    private Boolean isFavorite;
+
+    @ApiModelProperty("创建时间")
+    private LocalDateTime createdAt;
+
+    @ApiModelProperty("相似度，关键词匹配时为空")
+    private Double similarityScore;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCharacterId() {
+        return characterId;
+    }
+
+    public void setCharacterId(Long characterId) {
+        this.characterId = characterId;
+    }
+
+    public String getCharacterName() {
+        return characterName;
+    }
+
+    public void setCharacterName(String characterName) {
+        this.characterName = characterName;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public void setExcerpt(String excerpt) {
+        this.excerpt = excerpt;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public Boolean getIsFavorite() {
+        return isFavorite;
+    }
+
+    public void setIsFavorite(Boolean isFavorite) {
+        this.isFavorite = isFavorite;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Double getSimilarityScore() {
+        return similarityScore;
+    }
+
+    public void setSimilarityScore(Double similarityScore) {
+        this.similarityScore = similarityScore;
+    }
+}
@@ -0,0 +1,113 @@
+package com.ruoyi.system.mapper;
+
+import com.ruoyi.system.domain.NoteEmbeddingTask;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 笔记向量生成任务Mapper接口
+ * 
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public interface NoteEmbeddingTaskMapper
+{
+    /**
+     * 新增任务；该笔记已有任务时重置为立即待处理（重新计数）
+     * 
+     * @param noteId 笔记ID
+     * @return 结果
+     */
+    public int upsertTask(Long noteId);
+
+    /**
+     * 批量新增任务（用于批量导入的新笔记）
+     * 
+     * @param noteIds 笔记ID集合
+     * @return 结果
+     */
+    public int insertTaskBatch(List<Long> noteIds);
+
+    /**
+     * 领取到期的待处理任务，按下次执行时间先后最多领取 limit 条
+     * 
+     * @param claimToken 本次领取标识
+     * @param limit 最大数量
+     * @return 领取的数量
+     */
+    public int claimTasks(
+        @Param("claimToken") String claimToken,
+        @Param("limit") Integer limit
+    );
+
+    /**
+     * 查询本次领取的任务
+     * 
+     * @param claimToken 领取标识
+     * @return 任务集合
+     */
+    public List<NoteEmbeddingTask> selectTasksByClaimToken(String claimToken);
+
+    /**
+     * 写回笔记向量，仅当任务仍由本次领取持有时生效（领取后笔记再次变更会重置任务，旧内容的向量不再写入）
+     * 
+     * @param noteId 笔记ID
+     * @param embedding 向量
+     * @param embeddingModel 模型名称
+     * @param claimToken 领取标识
+     * @return 结果
+     */
+    public int updateNoteEmbeddingIfClaimed(
+        @Param("noteId") Long noteId,
+        @Param("embedding") float[] embedding,
+        @Param("embeddingModel") String embeddingModel,
+        @Param("claimToken") String claimToken
+    );
+
+    /**
+     * 删除已完成的任务
+     * 
+     * @param id 任务ID
+     * @param claimToken 领取标识
+     * @return 结果
+     */
+    public int deleteClaimedTask(
+        @Param("id") Long id,
+        @Param("claimToken") String claimToken
+    );
+
+    /**
+     * 记录失败并安排重试，失败次数达到上限时标记为失败
+     * 
+     * @param id 任务ID
+     * @param claimToken 领取标识
+     * @param delaySeconds 重试延迟(秒)
+     * @param maxAttempts 最大尝试次数
+     * @param lastError 失败原因
+     * @return 结果
+     */
+    public int failClaimedTask(
+        @Param("id") Long id,
+        @Param("claimToken") String claimToken,
+        @Param("delaySeconds") Integer delaySeconds,
+        @Param("maxAttempts") Integer maxAttempts,
+        @Param("lastError") String lastError
+    );
+
+    /**
+     * 释放领取超时的任务（处理中的实例异常退出）
+     * 
+     * @param timeoutSeconds 领取超时(秒)
+     * @return 释放的数量
+     */
+    public int releaseStaleTasks(Integer timeoutSeconds);
+
+    /**
+     * 按状态统计任务数量
+     * 
+     * @param status 状态
+     * @return 数量
+     */
+    public int countTasksByStatus(String status);
+}
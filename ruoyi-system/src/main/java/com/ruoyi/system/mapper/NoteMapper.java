@@ -1,8 +1,10 @@
 package com.ruoyi.system.mapper;
 
+import com.ruoyi.common.core.page.PageCursor;
 import com.ruoyi.system.domain.EnglishNote;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -37,6 +39,20 @@ public interface NoteMapper
      */
     public List<EnglishNote> selectNoteListByUserId(Long userId);
 
+    /**
+     * 按游标分页查询用户笔记(不含向量)，按创建时间、ID倒序
+     * 
+     * @param userId 用户ID
+     * @param cursor 上一页最后一条笔记的位置，为空时从第一页开始
+     * @param limit 查询数量
+     * @return 英语笔记集合
+     */
+    public List<EnglishNote> selectNotePageByUserId(
+        @Param("userId") Long userId,
+        @Param("cursor") PageCursor cursor,
+        @Param("limit") Integer limit
+    );
+
     /**
      * 新增英语笔记
      * 
@@ -45,6 +61,14 @@ public interface NoteMapper
      */
     public int insertNote(EnglishNote note);
 
+    /**
+     * 批量新增英语笔记(多行insert，回填ID)
+     * 
+     * @param notes 英语笔记集合
+     * @return 结果
+     */
+    public int insertNoteBatch(List<EnglishNote> notes);
+
     /**
      * 修改英语笔记
      * 
@@ -70,21 +94,75 @@ public interface NoteMapper
     public int deleteNoteByIds(Long[] ids);
 
     /**
-     * 向量相似度搜索
+     * 根据ID批量查询笔记(不含向量)
      * 
-     * @param userId 用户ID
-     * @param embedding 查询向量(JSON字符串)
-     * @param threshold 相似度阈值
-     * @param limit 返回结果数量
-     * @return 相似笔记集合
+     * @param ids 笔记ID集合
+     * @return 英语笔记集合
      */
-    public List<EnglishNote> searchSimilarNotes(
-        @Param("userId") Long userId,
-        @Param("embedding") String embedding,
-        @Param("threshold") Double threshold,
+    public List<EnglishNote> selectNoteByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 按ID顺序分批查询带向量的笔记(用于预热向量索引)
+     * 
+     * @param lastId 上一批最后一条笔记ID
+     * @param limit 每批数量
+     * @return 英语笔记集合(仅含id、user_id、embedding)
+     */
+    public List<EnglishNote> selectNoteEmbeddings(
+        @Param("lastId") Long lastId,
+        @Param("limit") Integer limit
+    );
+
+    /**
+     * 按ID顺序分批查询笔记文本(用于预热关键词索引)
+     * 
+     * @param lastId 上一批最后一条笔记ID
+     * @param limit 每批数量
+     * @return 英语笔记集合(仅含id、user_id、content、tags)
+     */
+    public List<EnglishNote> selectNoteTexts(
+        @Param("lastId") Long lastId,
+        @Param("limit") Integer limit
+    );
+
+    /**
+     * 按ID顺序分批查询指定时间之后变更过的笔记(含已删除，用于索引快照对账)
+     * 
+     * @param since 起始时间
+     * @param lastId 上一批最后一条笔记ID
+     * @param limit 每批数量
+     * @return 英语笔记集合(仅含id、user_id、embedding、del_flag)
+     */
+    public List<EnglishNote> selectNoteEmbeddingsSince(
+        @Param("since") Date since,
+        @Param("lastId") Long lastId,
         @Param("limit") Integer limit
     );
 
+    /**
+     * 按ID顺序分批查询仍为JSON格式向量的笔记(用于迁移)
+     * 
+     * @param lastId 上一批最后一条笔记ID
+     * @param limit 每批数量
+     * @return 英语笔记集合(仅含id、embedding)
+     */
+    public List<EnglishNote> selectLegacyNoteEmbeddings(
+        @Param("lastId") Long lastId,
+        @Param("limit") Integer limit
+    );
+
+    /**
+     * 更新笔记向量
+     * 
+     * @param id 笔记ID
+     * @param embedding 向量
+     * @return 结果
+     */
+    public int updateNoteEmbedding(
+        @Param("id") Long id,
+        @Param("embedding") float[] embedding
+    );
+
     /**
      * 统计用户笔记数量
      * 
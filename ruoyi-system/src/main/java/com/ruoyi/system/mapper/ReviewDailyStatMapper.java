@@ -0,0 +1,49 @@
+package com.ruoyi.system.mapper;
+
+import com.ruoyi.system.domain.ReviewDailyStat;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每日复习统计Mapper接口
+ * 
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public interface ReviewDailyStatMapper
+{
+    /**
+     * 批量累加每日统计，当天没有记录时新增
+     * 
+     * @param stats 每日统计增量集合
+     * @return 结果
+     */
+    public int upsertDailyStatBatch(List<ReviewDailyStat> stats);
+
+    /**
+     * 查询用户某日起的每日统计，按日期升序，没有复习的日期不返回
+     * 
+     * @param userId 用户ID
+     * @param since 起始日期(含)
+     * @return 每日统计集合
+     */
+    public List<ReviewDailyStat> selectDailyStats(
+        @Param("userId") Long userId,
+        @Param("since") Date since
+    );
+
+    /**
+     * 一次查询待复习数、笔记总数与复习总次数
+     * 
+     * @param userId 用户ID
+     * @param currentDate 当前时间
+     * @return dueCount、totalNotes、totalReviewCount
+     */
+    public Map<String, Object> selectReviewSummary(
+        @Param("userId") Long userId,
+        @Param("currentDate") Date currentDate
+    );
+}
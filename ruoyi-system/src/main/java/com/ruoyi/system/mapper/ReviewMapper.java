@@ -1,9 +1,9 @@
 package com.ruoyi.system.mapper;
 
+import com.ruoyi.common.core.page.PageCursor;
 import com.ruoyi.system.domain.ReviewRecord;
 import org.apache.ibatis.annotations.Param;
 
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -39,16 +39,18 @@ public interface ReviewMapper
     public ReviewRecord selectLatestRecordByNoteId(Long noteId);
 
     /**
-     * 查询需要复习的笔记
+     * 按游标分页查询复习历史，按复习时间、ID倒序
      * 
      * @param userId 用户ID
-     * @param currentDate 当前日期
-     * @param limit 返回结果数量
+     * @param noteId 笔记ID，为空时查询全部笔记
+     * @param cursor 上一页最后一条记录的位置，为空时从第一页开始
+     * @param limit 查询数量
      * @return 复习记录集合(包含笔记内容)
      */
-    public List<ReviewRecord> selectDueReviews(
+    public List<ReviewRecord> selectReviewHistoryPage(
         @Param("userId") Long userId,
-        @Param("currentDate") Date currentDate,
+        @Param("noteId") Long noteId,
+        @Param("cursor") PageCursor cursor,
         @Param("limit") Integer limit
     );
 
@@ -60,6 +62,14 @@ public interface ReviewMapper
      */
     public int insertReviewRecord(ReviewRecord reviewRecord);
 
+    /**
+     * 批量新增复习记录(多行insert)，复习时间取记录中的值
+     * 
+     * @param reviewRecords 复习记录集合
+     * @return 结果
+     */
+    public int insertReviewRecordBatch(List<ReviewRecord> reviewRecords);
+
     /**
      * 修改复习记录
      * 
@@ -83,16 +93,4 @@ public interface ReviewMapper
      * @return 结果
      */
     public int deleteReviewRecordByNoteId(Long noteId);
-
-    /**
-     * 统计待复习笔记数量
-     * 
-     * @param userId 用户ID
-     * @param currentDate 当前日期
-     * @return 待复习数量
-     */
-    public int countDueReviews(
-        @Param("userId") Long userId,
-        @Param("currentDate") Date currentDate
-    );
 }
@@ -0,0 +1,117 @@
+package com.ruoyi.system.mapper;
+
+import com.ruoyi.system.domain.ReviewState;
+import com.ruoyi.system.domain.dto.ReviewForecastDay;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 复习状态Mapper接口
+ * 
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public interface ReviewStateMapper
+{
+    /**
+     * 查询笔记的复习状态
+     * 
+     * @param noteId 笔记ID
+     * @return 复习状态
+     */
+    public ReviewState selectStateByNoteId(Long noteId);
+
+    /**
+     * 查询并锁定笔记的复习状态，用于在事务中读改写
+     * 
+     * @param noteId 笔记ID
+     * @return 复习状态
+     */
+    public ReviewState selectStateByNoteIdForUpdate(Long noteId);
+
+    /**
+     * 按ID顺序分段查询并锁定用户的复习状态，用于批量重排期
+     * 
+     * @param userId 用户ID
+     * @param afterId 上一段最后一条的ID，从头开始时为0
+     * @param limit 每段数量
+     * @return 复习状态集合(不含笔记内容)
+     */
+    public List<ReviewState> selectStateChunkForUpdate(
+        @Param("userId") Long userId,
+        @Param("afterId") Long afterId,
+        @Param("limit") Integer limit
+    );
+
+    /**
+     * 查询到期的复习状态，按下次复习时间升序
+     * 
+     * @param userId 用户ID
+     * @param currentDate 当前时间
+     * @param limit 返回结果数量
+     * @return 复习状态集合(包含笔记内容)
+     */
+    public List<ReviewState> selectDueStates(
+        @Param("userId") Long userId,
+        @Param("currentDate") Date currentDate,
+        @Param("limit") Integer limit
+    );
+
+    /**
+     * 统计到期的复习数量
+     * 
+     * @param userId 用户ID
+     * @param currentDate 当前时间
+     * @return 数量
+     */
+    public int countDueStates(
+        @Param("userId") Long userId,
+        @Param("currentDate") Date currentDate
+    );
+
+    /**
+     * 按天统计到期的复习数量
+     * 
+     * @param userId 用户ID
+     * @param until 截止时间(不含)
+     * @return 每天的到期数量，没有到期的日期不返回
+     */
+    public List<ReviewForecastDay> selectDueHistogram(
+        @Param("userId") Long userId,
+        @Param("until") Date until
+    );
+
+    /**
+     * 批量新增复习状态，已存在的笔记忽略
+     * 
+     * @param states 复习状态集合
+     * @return 结果
+     */
+    public int insertStateBatch(List<ReviewState> states);
+
+    /**
+     * 新增或覆盖复习状态
+     * 
+     * @param state 复习状态
+     * @return 结果
+     */
+    public int upsertState(ReviewState state);
+
+    /**
+     * 批量新增或覆盖复习状态(多行insert)
+     * 
+     * @param states 复习状态集合
+     * @return 结果
+     */
+    public int upsertStateBatch(List<ReviewState> states);
+
+    /**
+     * 删除笔记的复习状态
+     * 
+     * @param noteId 笔记ID
+     * @return 结果
+     */
+    public int deleteStateByNoteId(Long noteId);
+}
@@ -1,8 +1,11 @@
 package com.ruoyi.system.mapper;
 
+import com.ruoyi.common.core.page.PageCursor;
 import com.ruoyi.system.domain.Story;
+import com.ruoyi.system.domain.dto.StorySearchResult;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -37,6 +40,24 @@ public interface StoryMapper
      */
     public List<Story> selectStoryListByUserId(Long userId);
 
+    /**
+     * 按游标分页查询用户故事(不含正文与向量)，按创建时间、ID倒序
+     * 
+     * @param userId 用户ID
+     * @param characterId 主角ID，为空时不过滤
+     * @param isFavorite 是否收藏，为空时不过滤
+     * @param cursor 上一页最后一条故事的位置，为空时从第一页开始
+     * @param limit 查询数量
+     * @return 英语故事集合
+     */
+    public List<Story> selectStoryPageByUserId(
+        @Param("userId") Long userId,
+        @Param("characterId") Long characterId,
+        @Param("isFavorite") Boolean isFavorite,
+        @Param("cursor") PageCursor cursor,
+        @Param("limit") Integer limit
+    );
+
     /**
      * 根据主角ID查询故事列表
      * 
@@ -93,6 +114,64 @@ public interface StoryMapper
         @Param("limit") Integer limit
     );
 
+    /**
+     * 根据ID批量查询故事(不含向量)
+     * 
+     * @param ids 故事ID集合
+     * @return 故事集合
+     */
+    public List<Story> selectStoryByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 按ID顺序分批查询带向量的故事(用于预热向量索引)
+     * 
+     * @param lastId 上一批最后一条故事ID
+     * @param limit 每批数量
+     * @return 故事集合(仅含id、user_id、embedding)
+     */
+    public List<Story> selectStoryEmbeddings(
+        @Param("lastId") Long lastId,
+        @Param("limit") Integer limit
+    );
+
+    /**
+     * 按ID顺序分批查询指定时间之后变更过的故事(含已删除，用于索引快照对账)
+     * 
+     * @param since 起始时间
+     * @param lastId 上一批最后一条故事ID
+     * @param limit 每批数量
+     * @return 故事集合(仅含id、user_id、embedding、del_flag)
+     */
+    public List<Story> selectStoryEmbeddingsSince(
+        @Param("since") Date since,
+        @Param("lastId") Long lastId,
+        @Param("limit") Integer limit
+    );
+
+    /**
+     * 按ID顺序分批查询仍为JSON格式向量的故事(用于迁移)
+     * 
+     * @param lastId 上一批最后一个故事ID
+     * @param limit 每批数量
+     * @return 故事集合(仅含id、embedding)
+     */
+    public List<Story> selectLegacyStoryEmbeddings(
+        @Param("lastId") Long lastId,
+        @Param("limit") Integer limit
+    );
+
+    /**
+     * 更新故事向量
+     * 
+     * @param id 故事ID
+     * @param embedding 向量
+     * @return 结果
+     */
+    public int updateStoryEmbedding(
+        @Param("id") Long id,
+        @Param("embedding") float[] embedding
+    );
+
     /**
      * 统计用户故事数量
      * 
@@ -126,14 +205,28 @@ public interface StoryMapper
     public Story selectStoryByShareToken(String shareToken);
 
     /**
-     * 全文搜索故事
+     * 按关键词匹配标题、正文与主角名称搜索故事，关键词为空时返回最新的故事
      * 
      * @param userId 用户ID
      * @param keyword 搜索关键词
-     * @return 故事列表
+     * @param limit 最大结果数
+     * @return 搜索结果
+     */
+    public List<StorySearchResult> searchStories(
+        @Param("userId") Long userId,
+        @Param("keyword") String keyword,
+        @Param("limit") Integer limit
+    );
+
+    /**
+     * 按ID查询用户故事的搜索结果
+     * 
+     * @param userId 用户ID
+     * @param ids 故事ID集合
+     * @return 搜索结果(无序)
      */
-    public List<Story> searchStories(
+    public List<StorySearchResult> selectStorySearchResultsByIds(
         @Param("userId") Long userId,
-        @Param("keyword") String keyword
+        @Param("ids") List<Long> ids
     );
 }
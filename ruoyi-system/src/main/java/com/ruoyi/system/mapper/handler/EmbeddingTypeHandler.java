@@ -0,0 +1,57 @@
+package com.ruoyi.system.mapper.handler;
+
+import com.ruoyi.system.util.EmbeddingCodec;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 向量字段类型处理器
+ * float[] 与 BLOB(float32 小端序) 互转，读取时兼容旧版 JSON 文本
+ * 
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@MappedTypes(float[].class)
+public class EmbeddingTypeHandler extends BaseTypeHandler<float[]>
+{
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, float[] parameter, JdbcType jdbcType) throws SQLException
+    {
+        ps.setBytes(i, encode(parameter));
+    }
+
+    @Override
+    public float[] getNullableResult(ResultSet rs, String columnName) throws SQLException
+    {
+        return EmbeddingCodec.decode(rs.getBytes(columnName));
+    }
+
+    @Override
+    public float[] getNullableResult(ResultSet rs, int columnIndex) throws SQLException
+    {
+        return EmbeddingCodec.decode(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public float[] getNullableResult(CallableStatement cs, int columnIndex) throws SQLException
+    {
+        return EmbeddingCodec.decode(cs.getBytes(columnIndex));
+    }
+
+    /**
+     * 写入时的编码方式
+     * 
+     * @param vector 向量
+     * @return 二进制数据
+     */
+    protected byte[] encode(float[] vector)
+    {
+        return EmbeddingCodec.encode(vector);
+    }
+}
@@ -0,0 +1,19 @@
+package com.ruoyi.system.mapper.handler;
+
+import com.ruoyi.system.util.EmbeddingCodec;
+
+/**
+ * int8 量化向量字段类型处理器
+ * 写入为 int8 量化格式（体积约为 float32 的 1/4），读取与 {@link EmbeddingTypeHandler} 一致
+ * 
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class QuantizedEmbeddingTypeHandler extends EmbeddingTypeHandler
+{
+    @Override
+    protected byte[] encode(float[] vector)
+    {
+        return EmbeddingCodec.encodeInt8(vector);
+    }
+}
@@ -0,0 +1,266 @@
+package com.ruoyi.system.rag.cache;
+
+import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.util.VectorUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 语义回答缓存
+ *
+ * 按用户保存（问题向量, 检索到的笔记ID及版本, 回答）。新问题与某条缓存问题的余弦相似度不低于阈值，
+ * 且本次检索到的笔记集合（ID与更新时间）与缓存时完全一致时，直接返回缓存的回答。
+ * 笔记更新或删除时通过 {@link #invalidateNote(Long)} 清除引用了该笔记的条目；新增笔记会改变检索结果，自然不再命中。
+ * 条目总数有上限，超出时淘汰最久未使用的条目。缓存只在本机内存中。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Component
+public class AnswerCache {
+
+    @Value("${rag.answer-cache.enabled:true}")
+    private Boolean enabled;
+
+    /** 问题向量的最小余弦相似度 */
+    @Value("${rag.answer-cache.similarity-threshold:0.97}")
+    private Double similarityThreshold;
+
+    /** 全部用户合计的最大条目数 */
+    @Value("${rag.answer-cache.max-size:5000}")
+    private Integer maxSize;
+
+    @Value("${rag.answer-cache.ttl-hours:24}")
+    private Integer ttlHours;
+
+    /** 全部条目，按最近使用排序（最久未使用在前） */
+    private final LinkedHashSet<Entry> entries = new LinkedHashSet<>();
+
+    private final Map<Long, List<Entry>> entriesByUser = new HashMap<>();
+
+    private final Map<Long, Set<Entry>> entriesByNote = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * 查找可复用的回答
+     *
+     * @param userId 用户ID
+     * @param questionVector 问题向量
+     * @param includeContext 是否包含上下文
+     * @param notes 本次检索到的笔记
+     * @return 缓存的回答，未命中时返回null
+     */
+    public String get(Long userId, float[] questionVector, boolean includeContext, List<EnglishNote> notes) {
+        if (!enabled || userId == null) {
+            return null;
+        }
+        float[] normalized = VectorUtil.normalize(questionVector);
+        if (normalized == null) {
+            return null;
+        }
+        long[][] fingerprint = fingerprint(notes);
+        long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            List<Entry> candidates = entriesByUser.get(userId);
+            Entry best = null;
+            double bestScore = similarityThreshold;
+            if (candidates != null) {
+                for (Entry entry : new ArrayList<>(candidates)) {
+                    if (entry.expireAt <= now) {
+                        remove(entry);
+                        continue;
+                    }
+                    if (entry.includeContext != includeContext || entry.vector.length != normalized.length) {
+                        continue;
+                    }
+                    double score = VectorUtil.dot(normalized, 0, entry.vector, 0, normalized.length);
+                    if (score >= bestScore && Arrays.equals(entry.noteIds, fingerprint[0])
+                            && Arrays.equals(entry.noteVersions, fingerprint[1])) {
+                        best = entry;
+                        bestScore = score;
+                    }
+                }
+            }
+            if (best == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            // 移到末尾，标记为最近使用
+            entries.remove(best);
+            entries.add(best);
+            hits.incrementAndGet();
+            return best.answer;
+        }
+    }
+
+    /**
+     * 缓存回答
+     *
+     * @param userId 用户ID
+     * @param questionVector 问题向量
+     * @param includeContext 是否包含上下文
+     * @param notes 生成回答时检索到的笔记
+     * @param answer 回答
+     */
+    public void put(Long userId, float[] questionVector, boolean includeContext, List<EnglishNote> notes, String answer) {
+        if (!enabled || userId == null || answer == null) {
+            return;
+        }
+        float[] normalized = VectorUtil.normalize(questionVector);
+        if (normalized == null) {
+            return;
+        }
+        long[][] fingerprint = fingerprint(notes);
+        Entry entry = new Entry(userId, normalized, includeContext, fingerprint[0], fingerprint[1], answer,
+                System.currentTimeMillis() + TimeUnit.HOURS.toMillis(ttlHours));
+
+        synchronized (this) {
+            entries.add(entry);
+            entriesByUser.computeIfAbsent(userId, key -> new ArrayList<>()).add(entry);
+            for (long noteId : entry.noteIds) {
+                entriesByNote.computeIfAbsent(noteId, key -> new HashSet<>()).add(entry);
+            }
+            Iterator<Entry> eldest = entries.iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                unindex(evicted);
+            }
+        }
+    }
+
+    /**
+     * 笔记更新或删除后清除引用了该笔记的回答
+     *
+     * @param noteId 笔记ID
+     */
+    public void invalidateNote(Long noteId) {
+        if (noteId == null) {
+            return;
+        }
+        synchronized (this) {
+            Set<Entry> affected = entriesByNote.remove(noteId);
+            if (affected != null) {
+                for (Entry entry : affected) {
+                    remove(entry);
+                }
+                invalidations.addAndGet(affected.size());
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        entries.clear();
+        entriesByUser.clear();
+        entriesByNote.clear();
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> getStats() {
+        long hit = hits.get();
+        long miss = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (this) {
+            stats.put("size", entries.size());
+            stats.put("users", entriesByUser.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hit);
+        stats.put("misses", miss);
+        stats.put("invalidations", invalidations.get());
+        stats.put("hitRate", hit + miss == 0 ? 0.0 : (double) hit / (hit + miss));
+        return stats;
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry);
+        unindex(entry);
+    }
+
+    private void unindex(Entry entry) {
+        List<Entry> userEntries = entriesByUser.get(entry.userId);
+        if (userEntries != null) {
+            userEntries.remove(entry);
+            if (userEntries.isEmpty()) {
+                entriesByUser.remove(entry.userId);
+            }
+        }
+        for (long noteId : entry.noteIds) {
+            Set<Entry> noteEntries = entriesByNote.get(noteId);
+            if (noteEntries != null) {
+                noteEntries.remove(entry);
+                if (noteEntries.isEmpty()) {
+                    entriesByNote.remove(noteId);
+                }
+            }
+        }
+    }
+
+    /**
+     * 笔记集合指纹：按ID排序的 [ID数组, 更新时间数组]
+     */
+    private static long[][] fingerprint(List<EnglishNote> notes) {
+        List<EnglishNote> sorted = new ArrayList<>(notes);
+        sorted.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        long[] ids = new long[sorted.size()];
+        long[] versions = new long[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            EnglishNote note = sorted.get(i);
+            ids[i] = note.getId();
+            versions[i] = note.getUpdateTime() != null ? note.getUpdateTime().getTime() : 0L;
+        }
+        return new long[][] { ids, versions };
+    }
+
+    private static class Entry {
+
+        private final Long userId;
+
+        private final float[] vector;
+
+        private final boolean includeContext;
+
+        private final long[] noteIds;
+
+        private final long[] noteVersions;
+
+        private final String answer;
+
+        private final long expireAt;
+
+        Entry(Long userId, float[] vector, boolean includeContext, long[] noteIds, long[] noteVersions, String answer, long expireAt) {
+            this.userId = userId;
+            this.vector = vector;
+            this.includeContext = includeContext;
+            this.noteIds = noteIds;
+            this.noteVersions = noteVersions;
+            this.answer = answer;
+            this.expireAt = expireAt;
+        }
+    }
+}
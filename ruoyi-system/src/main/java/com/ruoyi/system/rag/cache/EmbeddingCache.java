@@ -0,0 +1,182 @@
+package com.ruoyi.system.rag.cache;
+
+import com.ruoyi.common.constant.CacheConstants;
+import com.ruoyi.common.core.redis.RedisCache;
+import com.ruoyi.common.utils.StringUtils;
+import com.ruoyi.system.util.EmbeddingCodec;
+import com.ruoyi.system.util.EmbeddingUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文本向量两级缓存
+ *
+ * 键为 模型 + 规范化文本的 SHA-256，L1 为本地有界 LRU，L2 为 Redis（float32 二进制的 Base64）。
+ * Redis 不可用时只降级为本地缓存，不影响向量生成。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Component
+public class EmbeddingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingCache.class);
+
+    @Autowired
+    private RedisCache redisCache;
+
+    @Value("${rag.embedding-cache.enabled:true}")
+    private Boolean enabled;
+
+    @Value("${rag.embedding-cache.max-size:10000}")
+    private Integer maxSize;
+
+    @Value("${rag.embedding-cache.ttl-hours:168}")
+    private Integer defaultTtlHours;
+
+    /** 按模型单独设置的存活时间，格式: model=hours,model=hours */
+    @Value("${rag.embedding-cache.model-ttl-hours:}")
+    private String modelTtlHours;
+
+    private LruCache<String, float[]> localCache;
+
+    private final Map<String, Integer> modelTtls = new HashMap<>();
+
+    private final AtomicLong localHits = new AtomicLong();
+
+    private final AtomicLong redisHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        localCache = new LruCache<>(maxSize);
+        if (StringUtils.isNotEmpty(modelTtlHours)) {
+            for (String item : modelTtlHours.split(",")) {
+                String[] pair = item.split("=");
+                if (pair.length == 2) {
+                    modelTtls.put(pair[0].trim(), Integer.valueOf(pair[1].trim()));
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取缓存向量
+     *
+     * @param model 嵌入模型
+     * @param text 文本
+     * @return 向量副本，未命中返回null
+     */
+    public float[] get(String model, String text) {
+        if (!enabled) {
+            return null;
+        }
+        String key = cacheKey(model, text);
+        float[] vector = localCache.get(key);
+        if (vector != null) {
+            localHits.incrementAndGet();
+            return vector.clone();
+        }
+        try {
+            String encoded = redisCache.getCacheObject(key);
+            if (encoded != null) {
+                vector = EmbeddingCodec.decode(Base64.getDecoder().decode(encoded));
+                localCache.put(key, vector, ttlMillis(model));
+                redisHits.incrementAndGet();
+                return vector.clone();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read embedding cache from redis: {}", e.getMessage());
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 写入缓存向量
+     *
+     * @param model 嵌入模型
+     * @param text 文本
+     * @param vector 向量
+     */
+    public void put(String model, String text, float[] vector) {
+        if (!enabled || vector == null) {
+            return;
+        }
+        String key = cacheKey(model, text);
+        int ttlHours = ttlHours(model);
+        localCache.put(key, vector.clone(), TimeUnit.HOURS.toMillis(ttlHours));
+        try {
+            redisCache.setCacheObject(key, Base64.getEncoder().encodeToString(EmbeddingCodec.encode(vector)), ttlHours, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("Failed to write embedding cache to redis: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 命中统计
+     */
+    public Map<String, Object> getStats() {
+        long local = localHits.get();
+        long redis = redisHits.get();
+        long miss = misses.get();
+        long total = local + redis + miss;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("localSize", localCache.size());
+        stats.put("localMaxSize", localCache.getMaxSize());
+        stats.put("localHits", local);
+        stats.put("redisHits", redis);
+        stats.put("misses", miss);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (local + redis) / total);
+        return stats;
+    }
+
+    /**
+     * 缓存键：前缀 + 模型 + 规范化文本的 SHA-256
+     *
+     * @param model 嵌入模型
+     * @param text 文本
+     * @return 缓存键
+     */
+    public static String cacheKey(String model, String text) {
+        return CacheConstants.RAG_EMBEDDING_KEY + model + ":" + sha256Hex(EmbeddingUtil.normalizeText(text));
+    }
+
+    private long ttlMillis(String model) {
+        return TimeUnit.HOURS.toMillis(ttlHours(model));
+    }
+
+    private int ttlHours(String model) {
+        Integer ttl = modelTtls.get(model);
+        return ttl != null ? ttl : defaultTtlHours;
+    }
+
+    private static String sha256Hex(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.ruoyi.system.rag.cache;
+
+import com.alibaba.fastjson2.JSON;
+import com.ruoyi.common.constant.CacheConstants;
+import com.ruoyi.common.core.redis.RedisCache;
+import com.ruoyi.system.rag.image.PreparedImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 图片识别结果缓存
+ *
+ * 以原图字节的 SHA-256 精确命中；另对预处理缩小后的图片算 64 位差值哈希（dHash），与最近识别过的图片汉明距离
+ * 不超过 rag.vision-cache.max-distance 时视为同一张图的重新编码（压缩、缩放、格式转换），
+ * 复用其识别结果。L1 为本地 LRU，L2 为 Redis（SHA-256 与 dHash 各一个键），Redis 不可用时只用本地缓存。
+ * 同一张图片正在识别时，后到的请求等待同一次调用而不是重复请求，客户端网络重试不会放大调用量。
+ * URL 图片的内容不在本地，不做缓存。
+ *
+ * @author ruoyi
+ * @date 2025-02-11
+ */
+@Component
+public class VisionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(VisionCache.class);
+
+    /** dHash 中置位数过少或过多（纯色、过曝的图片）时区分度不足，不参与近似匹配 */
+    private static final int MIN_HASH_BITS = 4;
+
+    @Autowired
+    private RedisCache redisCache;
+
+    @Value("${rag.vision-cache.enabled:true}")
+    private Boolean enabled;
+
+    @Value("${rag.vision-cache.max-size:5000}")
+    private Integer maxSize;
+
+    @Value("${rag.vision-cache.ttl-hours:720}")
+    private Integer ttlHours;
+
+    /** 近似匹配允许的最大汉明距离(0-64)，为0时只匹配 dHash 完全相同的图片 */
+    @Value("${rag.vision-cache.max-distance:4}")
+    private Integer maxDistance;
+
+    private LruCache<String, List<String>> localCache;
+
+    /** 最近识别过的图片的 dHash，按访问顺序淘汰 */
+    private LinkedHashMap<String, HashEntry> hashes;
+
+    private final Map<String, CompletableFuture<List<String>>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong exactHits = new AtomicLong();
+
+    private final AtomicLong nearHits = new AtomicLong();
+
+    private final AtomicLong sharedLoads = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        localCache = new LruCache<>(maxSize);
+        hashes = new LinkedHashMap<String, HashEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HashEntry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 计算图片的缓存键
+     *
+     * @param image 预处理后的图片
+     * @return 缓存键，URL 图片或未开启缓存时返回null；图片无法解码时只有 SHA-256
+     */
+    public ImageKey keyOf(PreparedImage image) {
+        if (!enabled || image == null || image.isUrl()) {
+            return null;
+        }
+        return new ImageKey(image.getSha256(), image.getImage() != null ? dHash(image.getImage()) : null);
+    }
+
+    /**
+     * 读取识别结果：先按 SHA-256 精确匹配，再按 dHash 近似匹配
+     *
+     * @param key 缓存键，为空时返回null
+     * @return 识别出的物品列表副本，未命中返回null
+     */
+    public List<String> get(ImageKey key) {
+        if (key == null) {
+            return null;
+        }
+        List<String> objects = getExact(key.sha256);
+        if (objects != null) {
+            exactHits.incrementAndGet();
+            return new ArrayList<>(objects);
+        }
+        if (key.dHash != null) {
+            objects = getNear(key.dHash);
+            if (objects != null) {
+                nearHits.incrementAndGet();
+                // 记录本次的字节哈希，同一份重新编码的图片下次直接精确命中
+                localCache.put(key.sha256, objects, TimeUnit.HOURS.toMillis(ttlHours));
+                return new ArrayList<>(objects);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 写入识别结果，空列表不缓存
+     *
+     * @param key 缓存键，为空时忽略
+     * @param objects 识别出的物品列表
+     */
+    public void put(ImageKey key, List<String> objects) {
+        if (key == null || objects == null || objects.isEmpty()) {
+            return;
+        }
+        List<String> copy = new ArrayList<>(objects);
+        long ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+        localCache.put(key.sha256, copy, ttlMillis);
+        if (key.dHash != null) {
+            synchronized (hashes) {
+                hashes.put(key.sha256, new HashEntry(key.dHash, copy, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+        try {
+            String value = JSON.toJSONString(copy);
+            redisCache.setCacheObject(CacheConstants.RAG_VISION_KEY + "sha:" + key.sha256, value, ttlHours, TimeUnit.HOURS);
+            if (key.dHash != null) {
+                redisCache.setCacheObject(dHashKey(key.dHash), value, ttlHours, TimeUnit.HOURS);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to write vision cache to redis: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 读取识别结果，未命中时调用 loader 并缓存结果；同一张图片并发的请求共用一次调用
+     *
+     * @param key 缓存键，为空时直接调用 loader
+     * @param loader 识别图片
+     * @return 识别出的物品列表
+     */
+    public CompletableFuture<List<String>> load(ImageKey key, Supplier<CompletableFuture<List<String>>> loader) {
+        if (key == null) {
+            return loader.get();
+        }
+        List<String> cached = get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<List<String>> result = new CompletableFuture<>();
+        CompletableFuture<List<String>> existing = inFlight.putIfAbsent(key.sha256, result);
+        if (existing != null) {
+            sharedLoads.incrementAndGet();
+            return existing.thenApply(ArrayList::new);
+        }
+        try {
+            loader.get().whenComplete((objects, e) -> {
+                if (e == null) {
+                    put(key, objects);
+                }
+                inFlight.remove(key.sha256, result);
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(objects);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key.sha256, result);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * 命中统计
+     */
+    public Map<String, Object> getStats() {
+        long exact = exactHits.get();
+        long near = nearHits.get();
+        long miss = misses.get();
+        long total = exact + near + miss;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("localSize", localCache.size());
+        stats.put("localMaxSize", localCache.getMaxSize());
+        stats.put("exactHits", exact);
+        stats.put("nearHits", near);
+        stats.put("sharedLoads", sharedLoads.get());
+        stats.put("misses", miss);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (exact + near) / total);
+        return stats;
+    }
+
+    private List<String> getExact(String sha256) {
+        List<String> objects = localCache.get(sha256);
+        if (objects != null) {
+            return objects;
+        }
+        objects = readRedis(CacheConstants.RAG_VISION_KEY + "sha:" + sha256);
+        if (objects != null) {
+            localCache.put(sha256, objects, TimeUnit.HOURS.toMillis(ttlHours));
+        }
+        return objects;
+    }
+
+    /**
+     * 在本地最近的 dHash 中找汉明距离最小且不超过阈值的一项，本地没有时再查 Redis 中 dHash 相同的项
+     */
+    private List<String> getNear(long dHash) {
+        if (Long.bitCount(dHash) < MIN_HASH_BITS || Long.bitCount(dHash) > 64 - MIN_HASH_BITS) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        List<String> best = null;
+        int bestDistance = maxDistance + 1;
+        synchronized (hashes) {
+            Iterator<HashEntry> iterator = hashes.values().iterator();
+            while (iterator.hasNext()) {
+                HashEntry entry = iterator.next();
+                if (entry.expireAt < now) {
+                    iterator.remove();
+                    continue;
+                }
+                int distance = Long.bitCount(entry.dHash ^ dHash);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = entry.objects;
+                }
+            }
+        }
+        return best != null ? best : readRedis(dHashKey(dHash));
+    }
+
+    private List<String> readRedis(String key) {
+        try {
+            String value = redisCache.getCacheObject(key);
+            return value != null ? JSON.parseArray(value, String.class) : null;
+        } catch (Exception e) {
+            log.warn("Failed to read vision cache from redis: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String dHashKey(long dHash) {
+        return CacheConstants.RAG_VISION_KEY + "dhash:" + Long.toHexString(dHash);
+    }
+
+    /**
+     * 差值哈希：缩小为 9x8 灰度图，每行相邻像素左亮于右记1，得到 64 位
+     * 先用双线性插值缩小到 72x64，再按 8x8 块取平均，避免大图直接缩到 9x8 时的混叠
+     *
+     * @param image 图片
+     * @return dHash
+     */
+    static long dHash(BufferedImage image) {
+        BufferedImage small = new BufferedImage(72, 64, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = small.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, 72, 64, null);
+        } finally {
+            graphics.dispose();
+        }
+        int[] pixels = small.getRaster().getPixels(0, 0, 72, 64, (int[]) null);
+        int[] cells = new int[9 * 8];
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 72; x++) {
+                cells[(y / 8) * 9 + x / 8] += pixels[y * 72 + x];
+            }
+        }
+        long hash = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                hash <<= 1;
+                if (cells[row * 9 + col] > cells[row * 9 + col + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 图片的缓存键
+     */
+    public static class ImageKey {
+
+        private final String sha256;
+
+        private final Long dHash;
+
+        ImageKey(String sha256, Long dHash) {
+            this.sha256 = sha256;
+            this.dHash = dHash;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public Long getDHash() {
+            return dHash;
+        }
+    }
+
+    private static class HashEntry {
+
+        final long dHash;
+
+        final List<String> objects;
+
+        final long expireAt;
+
+        HashEntry(long dHash, List<String> objects, long expireAt) {
+            this.dHash = dHash;
+            this.objects = objects;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.ruoyi.system.rag.embedding;
+
+import com.ruoyi.system.util.DeepseekApiClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 向量请求合并器
+ *
+ * 并发的向量请求先进入等待队列，队列中第一条请求到达后等待一个很短的窗口，
+ * 窗口结束或队列达到批量上限时合并为一次 Embedding API 请求（input 为数组），
+ * 再把 data[] 结果按位置分发给各调用方。同一批内相同的文本只请求一次。
+ * 调用方在发送前放弃（超时、取消）的请求不再发送；一次请求的调用方全部放弃后取消该请求。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Component
+public class EmbeddingBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingBatcher.class);
+
+    @Autowired
+    private DeepseekApiClient apiClient;
+
+    @Autowired
+    @Qualifier("scheduledExecutorService")
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Value("${rag.embedding-batch.enabled:true}")
+    private Boolean enabled;
+
+    /** 合并窗口(毫秒) */
+    @Value("${rag.embedding-batch.window-millis:10}")
+    private Integer windowMillis;
+
+    /** 单次请求最多包含的文本数 */
+    @Value("${rag.embedding-batch.max-size:32}")
+    private Integer maxBatchSize;
+
+    private final Object lock = new Object();
+
+    private List<PendingRequest> pending = new ArrayList<>();
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * 提交向量请求
+     *
+     * @param text 文本
+     * @param model 模型名称
+     * @return 向量结果
+     */
+    public CompletableFuture<float[]> submit(String text, String model) {
+        if (!enabled) {
+            return apiClient.createEmbeddingAsync(text, model);
+        }
+        CompletableFuture<float[]> future = new CompletableFuture<>();
+
+        List<PendingRequest> ready = null;
+        synchronized (lock) {
+            pending.add(new PendingRequest(text, model, future));
+            if (pending.size() >= maxBatchSize) {
+                ready = drain();
+            } else if (pending.size() == 1) {
+                scheduledFlush = scheduledExecutorService.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            List<PendingRequest> batch = ready;
+            scheduledExecutorService.execute(() -> send(batch));
+        }
+        return future;
+    }
+
+    /**
+     * 提交向量请求并等待结果
+     *
+     * @param text 文本
+     * @param model 模型名称
+     * @return 向量
+     */
+    public float[] embed(String text, String model) {
+        try {
+            return submit(text, model).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Embedding request interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    private void flush() {
+        List<PendingRequest> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    /**
+     * 取出当前队列，须在持有锁时调用
+     */
+    private List<PendingRequest> drain() {
+        List<PendingRequest> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    /**
+     * 异步发送批次，结果在 HTTP 回调中分发，不占用调度线程
+     */
+    private void send(List<PendingRequest> batch) {
+        Map<String, Map<String, List<PendingRequest>>> byModel = new LinkedHashMap<>();
+        for (PendingRequest request : batch) {
+            if (request.future.isDone()) {
+                continue;
+            }
+            byModel.computeIfAbsent(request.model, key -> new LinkedHashMap<>())
+                    .computeIfAbsent(request.text, key -> new ArrayList<>())
+                    .add(request);
+        }
+
+        for (Map.Entry<String, Map<String, List<PendingRequest>>> entry : byModel.entrySet()) {
+            Map<String, List<PendingRequest>> byText = entry.getValue();
+            List<String> inputs = new ArrayList<>(byText.keySet());
+            CompletableFuture<List<float[]>> call = apiClient.createEmbeddingsAsync(inputs, entry.getKey());
+            cancelWhenAbandoned(call, byText);
+            call.whenComplete((vectors, e) -> {
+                if (e != null) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    for (List<PendingRequest> waiters : byText.values()) {
+                        for (PendingRequest waiter : waiters) {
+                            waiter.future.completeExceptionally(cause);
+                        }
+                    }
+                    return;
+                }
+                for (int i = 0; i < inputs.size(); i++) {
+                    float[] vector = vectors.get(i);
+                    List<PendingRequest> waiters = byText.get(inputs.get(i));
+                    for (int j = 0; j < waiters.size(); j++) {
+                        waiters.get(j).future.complete(j == 0 ? vector : vector.clone());
+                    }
+                }
+                log.debug("Embedded {} inputs for {} callers in one request", inputs.size(), batch.size());
+            });
+        }
+    }
+
+    /**
+     * 请求合并了多个调用方，单个调用方超时不能取消；全部以异常完成后取消上游请求
+     */
+    private static void cancelWhenAbandoned(CompletableFuture<?> call, Map<String, List<PendingRequest>> byText) {
+        int callers = 0;
+        for (List<PendingRequest> waiters : byText.values()) {
+            callers += waiters.size();
+        }
+        AtomicInteger remaining = new AtomicInteger(callers);
+        for (List<PendingRequest> waiters : byText.values()) {
+            for (PendingRequest waiter : waiters) {
+                waiter.future.whenComplete((vector, e) -> {
+                    if (e != null && remaining.decrementAndGet() == 0) {
+                        call.cancel(false);
+                    }
+                });
+            }
+        }
+    }
+
+    private static class PendingRequest {
+
+        private final String text;
+
+        private final String model;
+
+        private final CompletableFuture<float[]> future;
+
+        PendingRequest(String text, String model, CompletableFuture<float[]> future) {
+            this.text = text;
+            this.model = model;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.ruoyi.system.rag.embedding;
+
+import com.ruoyi.common.utils.StringUtils;
+import com.ruoyi.common.utils.uuid.IdUtils;
+import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.domain.NoteEmbeddingTask;
+import com.ruoyi.system.mapper.NoteEmbeddingTaskMapper;
+import com.ruoyi.system.mapper.NoteMapper;
+import com.ruoyi.system.rag.index.NoteVectorIndex;
+import com.ruoyi.system.service.IDeepseekService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 笔记向量生成任务处理器
+ *
+ * 笔记新增或内容变更时，NoteServiceImpl 在同一事务中写入 note_embedding_task（发件箱），接口无需等待向量生成。
+ * 本处理器定时领取到期任务，每批合并为一次向量请求，写回 english_note（记录 embedded_at，不改变 updated_at）
+ * 并更新本实例的内存向量索引；其它实例与重启后的本实例通过按 embedded_at 的增量对账取得这些向量。
+ * 失败的任务按指数退避重新排期，达到最大次数后标记为失败。
+ * 领取通过 claim_token 完成，多实例部署时同一任务只会被一个实例处理；实例异常退出后，领取超时的任务会被释放。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Component
+public class NoteEmbeddingWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteEmbeddingWorker.class);
+
+    /** 失败原因最大长度，与 last_error 列一致 */
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Autowired
+    private NoteEmbeddingTaskMapper taskMapper;
+
+    @Autowired
+    private NoteMapper noteMapper;
+
+    @Autowired
+    private IDeepseekService deepseekService;
+
+    @Autowired
+    private NoteVectorIndex noteVectorIndex;
+
+    @Autowired
+    @Qualifier("scheduledExecutorService")
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Autowired
+    @Qualifier("threadPoolTaskExecutor")
+    private Executor threadPoolTaskExecutor;
+
+    @Value("${rag.deepseek.embedding-model}")
+    private String embeddingModel;
+
+    @Value("${rag.embedding-task.enabled:true}")
+    private Boolean enabled;
+
+    /** 轮询间隔(毫秒) */
+    @Value("${rag.embedding-task.poll-interval-millis:1000}")
+    private Long pollIntervalMillis;
+
+    /** 每批处理的任务数 */
+    @Value("${rag.embedding-task.batch-size:32}")
+    private Integer batchSize;
+
+    /** 同时处理的批次数 */
+    @Value("${rag.embedding-task.workers:2}")
+    private Integer workers;
+
+    /** 最大尝试次数 */
+    @Value("${rag.embedding-task.max-attempts:8}")
+    private Integer maxAttempts;
+
+    /** 首次重试延迟(秒)，之后每次翻倍 */
+    @Value("${rag.embedding-task.backoff-seconds:5}")
+    private Integer backoffSeconds;
+
+    /** 最大重试延迟(秒) */
+    @Value("${rag.embedding-task.max-backoff-seconds:3600}")
+    private Integer maxBackoffSeconds;
+
+    /** 领取超时(秒)，超过后视为处理实例已退出 */
+    @Value("${rag.embedding-task.lock-timeout-seconds:300}")
+    private Integer lockTimeoutSeconds;
+
+    private Semaphore permits;
+
+    private ScheduledFuture<?> pollTask;
+
+    private volatile long lastReleaseAt;
+
+    private final AtomicLong embedded = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * 项目启动时开始轮询
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Note embedding worker disabled");
+            return;
+        }
+        permits = new Semaphore(workers);
+        pollTask = scheduledExecutorService.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止轮询，已领取的任务在领取超时后由其他实例或下次启动重新处理
+     */
+    @PreDestroy
+    public void destroy() {
+        if (pollTask != null) {
+            pollTask.cancel(false);
+        }
+    }
+
+    /**
+     * 领取到期任务并分批交给线程池处理，直到没有空闲的处理槽或没有到期任务
+     */
+    void poll() {
+        try {
+            releaseStaleTasks();
+            while (permits.tryAcquire()) {
+                String claimToken = IdUtils.fastSimpleUUID();
+                if (taskMapper.claimTasks(claimToken, batchSize) == 0) {
+                    permits.release();
+                    return;
+                }
+                threadPoolTaskExecutor.execute(() -> {
+                    try {
+                        process(claimToken);
+                    } catch (Exception e) {
+                        // 未处理完的任务在领取超时后释放
+                        log.error("Failed to process note embedding batch {}: {}", claimToken, e.getMessage(), e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            // 异常不能抛出，否则定时任务会被取消
+            log.error("Failed to poll note embedding tasks: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 处理一批已领取的任务
+     */
+    void process(String claimToken) {
+        List<NoteEmbeddingTask> tasks = taskMapper.selectTasksByClaimToken(claimToken);
+        if (tasks.isEmpty()) {
+            return;
+        }
+        List<Long> noteIds = new ArrayList<>(tasks.size());
+        for (NoteEmbeddingTask task : tasks) {
+            noteIds.add(task.getNoteId());
+        }
+        Map<Long, EnglishNote> noteMap = new HashMap<>();
+        for (EnglishNote note : noteMapper.selectNoteByIds(noteIds)) {
+            noteMap.put(note.getId(), note);
+        }
+
+        // 笔记已删除或内容为空的任务直接完成
+        Map<NoteEmbeddingTask, EnglishNote> pending = new LinkedHashMap<>();
+        for (NoteEmbeddingTask task : tasks) {
+            EnglishNote note = noteMap.get(task.getNoteId());
+            if (note == null || StringUtils.isBlank(note.getContent())) {
+                taskMapper.deleteClaimedTask(task.getId(), claimToken);
+            } else {
+                pending.put(task, note);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<String> texts = new ArrayList<>(pending.size());
+        for (EnglishNote note : pending.values()) {
+            texts.add(note.getContent());
+        }
+        List<float[]> embeddings;
+        long startTime = System.currentTimeMillis();
+        try {
+            embeddings = deepseekService.embeddings(texts);
+        } catch (Exception e) {
+            failed.addAndGet(pending.size());
+            log.warn("Failed to embed {} notes, will retry: {}", pending.size(), e.getMessage());
+            for (NoteEmbeddingTask task : pending.keySet()) {
+                taskMapper.failClaimedTask(task.getId(), claimToken, backoffSeconds(task.getAttempts()),
+                        maxAttempts, StringUtils.substring(e.getMessage(), 0, MAX_ERROR_LENGTH));
+            }
+            return;
+        }
+
+        int written = 0;
+        int index = 0;
+        for (Map.Entry<NoteEmbeddingTask, EnglishNote> entry : pending.entrySet()) {
+            NoteEmbeddingTask task = entry.getKey();
+            EnglishNote note = entry.getValue();
+            float[] embedding = embeddings.get(index++);
+            // 领取后笔记又被修改时任务已被重置，这里不写回，由下一次领取处理新内容
+            if (taskMapper.updateNoteEmbeddingIfClaimed(note.getId(), embedding, embeddingModel, claimToken) > 0) {
+                noteVectorIndex.put(note.getUserId(), note.getId(), embedding);
+                taskMapper.deleteClaimedTask(task.getId(), claimToken);
+                written++;
+            }
+        }
+        embedded.addAndGet(written);
+        log.debug("Embedded {} of {} notes in {} ms", written, pending.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 任务统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pending", taskMapper.countTasksByStatus(NoteEmbeddingTask.STATUS_PENDING));
+        stats.put("processing", taskMapper.countTasksByStatus(NoteEmbeddingTask.STATUS_PROCESSING));
+        stats.put("failed", taskMapper.countTasksByStatus(NoteEmbeddingTask.STATUS_FAILED));
+        stats.put("embedded", embedded.get());
+        stats.put("failedAttempts", failed.get());
+        return stats;
+    }
+
+    /**
+     * 每个领取超时周期释放一次超时的任务
+     */
+    private void releaseStaleTasks() {
+        long now = System.currentTimeMillis();
+        if (now - lastReleaseAt < TimeUnit.SECONDS.toMillis(lockTimeoutSeconds)) {
+            return;
+        }
+        lastReleaseAt = now;
+        int released = taskMapper.releaseStaleTasks(lockTimeoutSeconds);
+        if (released > 0) {
+            log.warn("Released {} stale note embedding tasks", released);
+        }
+    }
+
+    /**
+     * 第 n 次失败后的重试延迟：backoff * 2^n，不超过上限
+     */
+    private int backoffSeconds(Integer attempts) {
+        int shift = Math.min(attempts != null ? attempts : 0, 20);
+        return (int) Math.min((long) backoffSeconds << shift, maxBackoffSeconds);
+    }
+}
@@ -0,0 +1,363 @@
+package com.ruoyi.system.rag.image;
+
+import com.ruoyi.common.config.RuoYiConfig;
+import com.ruoyi.common.utils.file.FileUploadUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+
+/**
+ * 故事图片预处理
+ *
+ * 客户端上传的是原图 Base64。识图前先解码（大图按倍数降采样读取，不在内存中展开整张原图），
+ * 按 EXIF 方向摆正，缩小到最长边不超过 rag.image.max-dimension，再以 rag.image.jpeg-quality
+ * 重新编码为 JPEG 发送给识图接口；重新编码只保留像素，EXIF（含拍摄位置）不会发给上游。
+ * 原图按 SHA-256 命名保存到上传目录，同一张图只存一份，故事只记录资源路径而不是整段 Base64。
+ * ImageIO 不能解码的格式（如 WebP）原样发送。
+ *
+ * @author ruoyi
+ * @date 2025-02-11
+ */
+@Component
+public class ImagePreprocessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagePreprocessor.class);
+
+    /** 原图在上传目录下的子目录 */
+    private static final String STORE_DIR = "story";
+
+    /** 重新编码发送给识图接口，关闭时原样发送 */
+    @Value("${rag.image.enabled:true}")
+    private Boolean enabled;
+
+    /** 发送给识图接口的最长边(像素) */
+    @Value("${rag.image.max-dimension:1024}")
+    private Integer maxDimension;
+
+    /** JPEG 质量(0-1) */
+    @Value("${rag.image.jpeg-quality:0.85}")
+    private Float jpegQuality;
+
+    /** 允许的最大像素数，超出的图片拒绝处理 */
+    @Value("${rag.image.max-pixels:50000000}")
+    private Long maxPixels;
+
+    /**
+     * 预处理图片
+     *
+     * @param image 图片Base64编码（可带 data:image 前缀）或URL
+     * @param imageType 图片类型: "base64" 或 "url"
+     * @return 预处理结果
+     */
+    public PreparedImage prepare(String image, String imageType) {
+        if ("url".equalsIgnoreCase(imageType)) {
+            return PreparedImage.ofUrl(image);
+        }
+        byte[] bytes;
+        try {
+            int comma = image.startsWith("data:") ? image.indexOf(',') : -1;
+            bytes = Base64.getMimeDecoder().decode(comma >= 0 ? image.substring(comma + 1) : image);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("图片不是有效的Base64编码");
+        }
+        String format = detectFormat(bytes);
+        if (format == null) {
+            throw new IllegalArgumentException("不支持的图片格式");
+        }
+        String sha256 = sha256Hex(bytes);
+        BufferedImage decoded = enabled ? read(bytes) : null;
+        if (decoded == null) {
+            return new PreparedImage(bytes, sha256, format, null, image, "base64");
+        }
+        BufferedImage scaled = downscale(decoded, maxDimension);
+        if ("jpg".equals(format)) {
+            scaled = rotate(scaled, orientationQuadrants(exifOrientation(bytes)));
+        }
+        try {
+            byte[] jpeg = encodeJpeg(scaled, jpegQuality);
+            log.debug("Prepared {}x{} {} image: {} -> {} bytes", decoded.getWidth(), decoded.getHeight(), format, bytes.length, jpeg.length);
+            return new PreparedImage(bytes, sha256, format, scaled, Base64.getEncoder().encodeToString(jpeg), "base64");
+        } catch (IOException e) {
+            log.warn("Failed to re-encode image, sending original: {}", e.getMessage());
+            return new PreparedImage(bytes, sha256, format, scaled, image, "base64");
+        }
+    }
+
+    /**
+     * 保存原图，已存在时不重复写入
+     *
+     * @param image 预处理结果
+     * @return 资源路径（/profile/upload/story/...），URL 图片返回原URL，保存失败返回null
+     */
+    public String store(PreparedImage image) {
+        if (image.isUrl()) {
+            return image.getVisionImage();
+        }
+        String uploadDir = RuoYiConfig.getUploadPath();
+        String fileName = STORE_DIR + "/" + image.getSha256().substring(0, 2) + "/" + image.getSha256() + "." + image.getFormat();
+        try {
+            File file = FileUploadUtils.getAbsoluteFile(uploadDir, fileName);
+            if (!file.exists()) {
+                // 先写临时文件再改名，并发保存同一张图时不会读到写了一半的文件
+                Path temp = Files.createTempFile(file.getParentFile().toPath(), image.getSha256(), ".tmp");
+                try {
+                    Files.write(temp, image.getOriginal());
+                    Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            return FileUploadUtils.getPathFileName(uploadDir, fileName);
+        } catch (IOException e) {
+            log.warn("Failed to store story image {}: {}", image.getSha256(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 解码图片，大图按整数倍降采样读取，保留不少于两倍目标尺寸的像素供后续插值
+     */
+    private BufferedImage read(byte[] bytes) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IllegalArgumentException("图片尺寸过大");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(width, height) / (maxDimension * 2);
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            log.debug("Image not decodable, sending original: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 缩小到最长边不超过 maxDimension，并转为不透明 RGB（透明区域填白）
+     * 每次最多缩小一半，避免一次大比例双线性插值的锯齿
+     */
+    static BufferedImage downscale(BufferedImage source, int maxDimension) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        BufferedImage current = source;
+        do {
+            int nextWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int nextHeight = Math.max(targetHeight, current.getHeight() / 2);
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, nextWidth, nextHeight);
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (current.getWidth() > targetWidth || current.getHeight() > targetHeight);
+        return current;
+    }
+
+    /**
+     * 顺时针旋转 quadrants 个 90 度
+     */
+    static BufferedImage rotate(BufferedImage source, int quadrants) {
+        if (quadrants == 0) {
+            return source;
+        }
+        int width = source.getWidth();
+        int height = source.getHeight();
+        boolean swap = quadrants % 2 == 1;
+        BufferedImage rotated = new BufferedImage(swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_RGB);
+        AffineTransform transform = new AffineTransform();
+        if (quadrants == 1) {
+            transform.translate(height, 0);
+        } else if (quadrants == 2) {
+            transform.translate(width, height);
+        } else {
+            transform.translate(0, width);
+        }
+        transform.quadrantRotate(quadrants);
+        Graphics2D graphics = rotated.createGraphics();
+        try {
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rotated;
+    }
+
+    /**
+     * EXIF 方向对应的顺时针旋转次数；镜像方向(2/4/5/7)只做旋转，不影响识别
+     */
+    static int orientationQuadrants(int orientation) {
+        switch (orientation) {
+            case 3:
+            case 4:
+                return 2;
+            case 5:
+            case 6:
+                return 1;
+            case 7:
+            case 8:
+                return 3;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * 读取 JPEG 中 EXIF 的方向标记(0x0112)，没有时返回1
+     */
+    static int exifOrientation(byte[] bytes) {
+        if (bytes.length < 4 || (bytes[0] & 0xFF) != 0xFF || (bytes[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int pos = 2;
+        while (pos + 4 <= bytes.length && (bytes[pos] & 0xFF) == 0xFF) {
+            int marker = bytes[pos + 1] & 0xFF;
+            int length = ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+            // 图像数据开始，之后不再有元数据段
+            if (marker == 0xDA || length < 2) {
+                break;
+            }
+            int start = pos + 4;
+            int end = Math.min(bytes.length, pos + 2 + length);
+            if (marker == 0xE1 && start + 6 <= end && bytes[start] == 'E' && bytes[start + 1] == 'x'
+                    && bytes[start + 2] == 'i' && bytes[start + 3] == 'f') {
+                return tiffOrientation(bytes, start + 6, end);
+            }
+            pos += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int tiffOrientation(byte[] bytes, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return 1;
+        }
+        boolean littleEndian = bytes[tiff] == 'I';
+        long ifd = tiff + (readInt(bytes, tiff + 4, littleEndian) & 0xFFFFFFFFL);
+        if (ifd + 2 > end) {
+            return 1;
+        }
+        int count = readShort(bytes, (int) ifd, littleEndian);
+        for (int i = 0; i < count; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readShort(bytes, entry, littleEndian) == 0x0112) {
+                int orientation = readShort(bytes, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] bytes, int pos, boolean littleEndian) {
+        int b0 = bytes[pos] & 0xFF;
+        int b1 = bytes[pos + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] bytes, int pos, boolean littleEndian) {
+        int high = readShort(bytes, littleEndian ? pos + 2 : pos, littleEndian);
+        int low = readShort(bytes, littleEndian ? pos : pos + 2, littleEndian);
+        return (high << 16) | low;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 按文件头识别图片格式
+     */
+    static String detectFormat(byte[] bytes) {
+        if (bytes.length >= 3 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8 && (bytes[2] & 0xFF) == 0xFF) {
+            return "jpg";
+        }
+        if (bytes.length >= 8 && (bytes[0] & 0xFF) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') {
+            return "png";
+        }
+        if (bytes.length >= 4 && bytes[0] == 'G' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == '8') {
+            return "gif";
+        }
+        if (bytes.length >= 12 && bytes[0] == 'R' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == 'F'
+                && bytes[8] == 'W' && bytes[9] == 'E' && bytes[10] == 'B' && bytes[11] == 'P') {
+            return "webp";
+        }
+        if (bytes.length >= 2 && bytes[0] == 'B' && bytes[1] == 'M') {
+            return "bmp";
+        }
+        return null;
+    }
+
+    static String sha256Hex(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
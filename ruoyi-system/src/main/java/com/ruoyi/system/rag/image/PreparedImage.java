@@ -0,0 +1,71 @@
+package com.ruoyi.system.rag.image;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * 预处理后的图片
+ *
+ * @author ruoyi
+ * @date 2025-02-11
+ */
+public class PreparedImage {
+
+    /** 原始图片字节，URL 图片为空 */
+    private final byte[] original;
+
+    /** 原始图片字节的 SHA-256，URL 图片为空 */
+    private final String sha256;
+
+    /** 原图格式(扩展名) */
+    private final String format;
+
+    /** 缩小后的图片，无法解码时为空 */
+    private final BufferedImage image;
+
+    /** 发送给识图接口的内容：重新编码后的 Base64，或原样的 Base64 / URL */
+    private final String visionImage;
+
+    /** 发送给识图接口的内容类型: base64 或 url */
+    private final String visionImageType;
+
+    PreparedImage(byte[] original, String sha256, String format, BufferedImage image, String visionImage, String visionImageType) {
+        this.original = original;
+        this.sha256 = sha256;
+        this.format = format;
+        this.image = image;
+        this.visionImage = visionImage;
+        this.visionImageType = visionImageType;
+    }
+
+    static PreparedImage ofUrl(String url) {
+        return new PreparedImage(null, null, null, null, url, "url");
+    }
+
+    public boolean isUrl() {
+        return original == null;
+    }
+
+    public byte[] getOriginal() {
+        return original;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public String getVisionImage() {
+        return visionImage;
+    }
+
+    public String getVisionImageType() {
+        return visionImageType;
+    }
+}
@@ -0,0 +1,297 @@
+package com.ruoyi.system.rag.importer;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.ruoyi.common.utils.StringUtils;
+import com.ruoyi.common.utils.poi.ExcelUtil;
+import org.apache.commons.io.input.CountingInputStream;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 笔记导入文件读取器
+ *
+ * 逐行读取，不把整个文件加载到内存：
+ * <ul>
+ *   <li>csv / tsv / txt：按 RFC 4180 解析（支持引号内的分隔符与换行），tsv 与 txt 以制表符分隔；
+ *       开头以 # 起始的行（如 Anki 导出的 #separator:tab）会被跳过</li>
+ *   <li>jsonl：每行一个 JSON 对象，字段 content、back、tags（tags 可以是数组）</li>
+ *   <li>xlsx：通过 {@link ExcelUtil#readXlsxRows} 以 SAX 方式读取第一个工作表</li>
+ * </ul>
+ * 表格类文件的第一行如果包含可识别的列名（content/内容/front、back/背面、tags/标签等）则按列名取值，
+ * 否则视为数据行，第一列为内容、第二列为标签。back 列的内容换行后追加到内容之后。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class NoteImportReader {
+
+    /**
+     * 行处理器
+     */
+    public interface RowHandler {
+
+        /**
+         * 处理一行
+         *
+         * @param content 笔记内容，无法解析时为null
+         * @param tags 标签，可能为null
+         */
+        void accept(String content, String tags);
+    }
+
+    private static final Set<String> CONTENT_HEADERS = new HashSet<>(Arrays.asList("content", "note", "text", "front", "内容", "笔记", "正面"));
+
+    private static final Set<String> BACK_HEADERS = new HashSet<>(Arrays.asList("back", "answer", "meaning", "背面", "答案", "释义"));
+
+    private static final Set<String> TAG_HEADERS = new HashSet<>(Arrays.asList("tags", "tag", "标签"));
+
+    private final File file;
+
+    private final String format;
+
+    private volatile CountingInputStream counter;
+
+    public NoteImportReader(File file, String format) {
+        this.file = file;
+        this.format = format;
+    }
+
+    /**
+     * 根据文件名判断导入格式
+     *
+     * @param fileName 文件名
+     * @return csv / tsv / jsonl / xlsx，不支持时返回null
+     */
+    public static String formatOf(String fileName) {
+        String extension = StringUtils.substringAfterLast(StringUtils.nvl(fileName, ""), ".").toLowerCase();
+        switch (extension) {
+            case "csv":
+                return "csv";
+            case "tsv":
+            case "txt":
+                return "tsv";
+            case "jsonl":
+            case "ndjson":
+                return "jsonl";
+            case "xlsx":
+                return "xlsx";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 读取全部行
+     *
+     * @param handler 行处理器
+     */
+    public void read(RowHandler handler) throws Exception {
+        if ("xlsx".equals(format)) {
+            ColumnMapper mapper = new ColumnMapper();
+            ExcelUtil.readXlsxRows(file, row -> mapper.accept(row, handler));
+            return;
+        }
+        try (CountingInputStream in = new CountingInputStream(new FileInputStream(file));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            counter = in;
+            if ("jsonl".equals(format)) {
+                readJsonLines(reader, handler);
+            } else {
+                readDelimited(reader, "csv".equals(format) ? ',' : '\t', handler);
+            }
+        }
+    }
+
+    /**
+     * 已读取的字节数，xlsx 返回-1
+     */
+    public long getBytesRead() {
+        CountingInputStream in = counter;
+        return in != null ? in.getByteCount() : -1;
+    }
+
+    private static void readJsonLines(BufferedReader reader, RowHandler handler) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = stripBom(line).trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            JSONObject object;
+            try {
+                object = JSON.parseObject(line);
+            } catch (Exception e) {
+                object = null;
+            }
+            if (object == null) {
+                handler.accept(null, null);
+                continue;
+            }
+            String content = firstNonBlank(object.getString("content"), object.getString("front"), object.getString("text"));
+            Object tags = object.get("tags");
+            String tagText = tags instanceof JSONArray ? StringUtils.join((JSONArray) tags, ",") : object.getString("tags");
+            handler.accept(appendBack(content, object.getString("back")), tagText);
+        }
+    }
+
+    private static void readDelimited(BufferedReader reader, char delimiter, RowHandler handler) throws IOException {
+        ColumnMapper mapper = new ColumnMapper();
+        boolean leading = true;
+        List<String> record;
+        while ((record = readRecord(reader, delimiter)) != null) {
+            if (leading && !record.isEmpty() && stripBom(record.get(0)).startsWith("#")) {
+                continue;
+            }
+            leading = false;
+            mapper.accept(record, handler);
+        }
+    }
+
+    /**
+     * 读取一条记录，文件结束时返回null
+     */
+    private static List<String> readRecord(Reader reader, char delimiter) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean read = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            read = true;
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                    continue;
+                }
+                // 引号内两个连续引号表示一个引号
+                reader.mark(1);
+                int next = reader.read();
+                if (next == '"') {
+                    field.append('"');
+                } else {
+                    quoted = false;
+                    if (next != -1) {
+                        reader.reset();
+                    }
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+        }
+        if (!read) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String appendBack(String content, String back) {
+        if (StringUtils.isBlank(back)) {
+            return content;
+        }
+        return StringUtils.isBlank(content) ? back : content + "\n" + back;
+    }
+
+    private static String firstNonBlank(String... values) {
+        for (String value : values) {
+            if (StringUtils.isNotBlank(value)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static String stripBom(String value) {
+        return value.startsWith("\uFEFF") ? value.substring(1) : value;
+    }
+
+    /**
+     * 表格行到笔记字段的映射，由第一行决定
+     */
+    private static class ColumnMapper {
+
+        private boolean initialized;
+
+        private int contentColumn = 0;
+
+        private int backColumn = -1;
+
+        private int tagsColumn = 1;
+
+        void accept(List<String> row, RowHandler handler) {
+            if (!initialized) {
+                initialized = true;
+                if (!row.isEmpty()) {
+                    row.set(0, stripBom(row.get(0)));
+                }
+                if (readHeader(row)) {
+                    return;
+                }
+            }
+            if (row.isEmpty() || (row.size() == 1 && row.get(0).isEmpty())) {
+                return;
+            }
+            handler.accept(appendBack(column(row, contentColumn), column(row, backColumn)), column(row, tagsColumn));
+        }
+
+        /**
+         * 识别表头，第一行不是表头时返回false
+         */
+        private boolean readHeader(List<String> row) {
+            int content = -1;
+            int back = -1;
+            int tags = -1;
+            for (int i = 0; i < row.size(); i++) {
+                String name = row.get(i).trim().toLowerCase();
+                if (content < 0 && CONTENT_HEADERS.contains(name)) {
+                    content = i;
+                } else if (back < 0 && BACK_HEADERS.contains(name)) {
+                    back = i;
+                } else if (tags < 0 && TAG_HEADERS.contains(name)) {
+                    tags = i;
+                }
+            }
+            if (content < 0) {
+                return false;
+            }
+            contentColumn = content;
+            backColumn = back;
+            tagsColumn = tags;
+            return true;
+        }
+
+        private static String column(List<String> row, int index) {
+            if (index < 0 || index >= row.size()) {
+                return null;
+            }
+            String value = row.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ruoyi.system.rag.index;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 单用户向量索引接口
+ * 写入与查询的向量均须已归一化，相似度即点积。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public interface AnnIndex {
+
+    /**
+     * 向量维度
+     */
+    int getDimension();
+
+    /**
+     * 有效向量数量
+     */
+    int size();
+
+    /**
+     * 全部有效记录ID
+     */
+    long[] ids();
+
+    /**
+     * 读取一条向量
+     *
+     * @param id 记录ID
+     * @return 已归一化的向量副本，不存在时返回null
+     */
+    float[] get(long id);
+
+    /**
+     * 新增或替换一条向量
+     *
+     * @param id 记录ID
+     * @param normalized 已归一化的向量
+     */
+    void put(long id, float[] normalized);
+
+    /**
+     * 删除一条向量
+     *
+     * @param id 记录ID
+     * @return 是否存在并已删除
+     */
+    boolean remove(long id);
+
+    /**
+     * Top-K 检索（近似索引可能不是精确结果）
+     *
+     * @param query 已归一化的查询向量
+     * @param threshold 相似度阈值
+     * @param k 最大返回数量
+     * @return 按相似度降序排列的命中结果
+     */
+    List<ScoredId> search(float[] query, double threshold, int k);
+
+    /**
+     * 精确 Top-K 检索，用于兜底及召回率评估
+     *
+     * @param query 已归一化的查询向量
+     * @param threshold 相似度阈值
+     * @param k 最大返回数量
+     * @return 按相似度降序排列的命中结果
+     */
+    default List<ScoredId> searchExact(float[] query, double threshold, int k) {
+        return search(query, threshold, k);
+    }
+
+    /**
+     * 写入快照
+     *
+     * @param out 输出流
+     */
+    void writeTo(DataOutputStream out) throws IOException;
+}
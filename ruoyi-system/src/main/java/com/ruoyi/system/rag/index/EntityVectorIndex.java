@@ -0,0 +1,503 @@
+package com.ruoyi.system.rag.index;
+
+import com.ruoyi.common.utils.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 业务实体向量索引基类
+ *
+ * 启动时依次尝试：索引快照（HNSW 模式下无需重新构图）、内存映射的向量段存储、数据库全量预热，
+ * 前两种方式再按 updated_at / embedded_at 增量对账之后的数据库变更。停机时写入快照。
+ * 运行期按 rag.vector.index.reconcile-interval-seconds 定时增量对账，多实例部署时
+ * 其它实例写入的记录（含后台生成的笔记向量）在一个周期内同步到本实例；未变化的记录直接跳过。
+ * 配置了段存储时，运行期的增删同时追加到段存储的日志，日志累计到阈值后在后台压缩。
+ * 段文件的内存映射只用于免解析的顺序读取：检索仍在按用户分区的堆内索引上进行，
+ * 从段存储启动时逐行复制到分区中（HNSW 模式需重新构图），耗时与向量数成正比，但不访问数据库。
+ * 子类负责提供数据库读取方式。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public abstract class EntityVectorIndex {
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    /** 对账时间回退量，容忍应用与数据库之间的时钟偏差 */
+    private static final long RECONCILE_MARGIN_MILLIS = 5 * 60 * 1000L;
+
+    @Value("${rag.vector.index.mode:exact}")
+    private String mode;
+
+    @Value("${rag.vector.index.hnsw.m:16}")
+    private Integer hnswM;
+
+    @Value("${rag.vector.index.hnsw.ef-construction:200}")
+    private Integer hnswEfConstruction;
+
+    @Value("${rag.vector.index.hnsw.ef-search:64}")
+    private Integer hnswEfSearch;
+
+    @Value("${rag.vector.index.snapshot-dir:}")
+    private String snapshotDir;
+
+    @Value("${rag.vector.index.segment-dir:}")
+    private String segmentDir;
+
+    @Value("${rag.vector.index.segment-compact-threshold:10000}")
+    private Integer segmentCompactThreshold;
+
+    @Value("${rag.vector.index.recall-sample-rate:0}")
+    private Double recallSampleRate;
+
+    @Value("${rag.vector.index.warm-batch-size:500}")
+    protected Integer warmBatchSize;
+
+    /** 运行期增量对账间隔(秒)，为0时只在启动时对账 */
+    @Value("${rag.vector.index.reconcile-interval-seconds:60}")
+    private Integer reconcileIntervalSeconds;
+
+    @Autowired
+    @Qualifier("scheduledExecutorService")
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private VectorIndex index = new VectorIndex();
+
+    /** 向量段存储，未配置时为空 */
+    private VectorSegmentStore store;
+
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    private ScheduledFuture<?> reconcileTask;
+
+    /** 上一次对账（或预热）开始的时间，下一次对账从这里回退 RECONCILE_MARGIN_MILLIS 开始 */
+    private volatile long lastReconcileAt;
+
+    /**
+     * 索引名称，用于日志及快照文件名
+     */
+    protected abstract String getName();
+
+    /**
+     * 按ID顺序分批读取有效向量
+     *
+     * @param lastId 上一批最后一条记录ID
+     * @param limit 每批数量
+     * @return 向量记录
+     */
+    protected abstract List<VectorRecord> loadVectors(long lastId, int limit);
+
+    /**
+     * 按ID顺序分批读取指定时间之后变更过的记录（含已删除）
+     *
+     * @param since 起始时间
+     * @param lastId 上一批最后一条记录ID
+     * @param limit 每批数量
+     * @return 向量记录
+     */
+    protected abstract List<VectorRecord> loadChangedVectors(Date since, long lastId, int limit);
+
+    /**
+     * 项目启动时加载索引
+     */
+    @PostConstruct
+    public void init() {
+        IndexMode indexMode = IndexMode.of(mode);
+        HnswConfig hnswConfig = indexMode == IndexMode.HNSW ? new HnswConfig(hnswM, hnswEfConstruction, hnswEfSearch) : null;
+        index = new VectorIndex(indexMode, hnswConfig);
+
+        store = openStore();
+        boolean seedStore = store != null && store.isEmpty();
+
+        long startTime = System.currentTimeMillis();
+        try {
+            String source = "snapshot";
+            Long since = loadSnapshot();
+            if (since == null && store != null && !seedStore) {
+                source = "segments";
+                since = loadSegments();
+            }
+            if (since != null) {
+                int changed = reconcile(new Date(since - RECONCILE_MARGIN_MILLIS));
+                log.info("{} vector index ({}) restored from {} with {} vectors, {} changes reconciled in {} ms",
+                        getName(), indexMode, source, index.size(), changed, System.currentTimeMillis() - startTime);
+                if (seedStore) {
+                    seedStore();
+                }
+            } else {
+                int loaded = warm();
+                log.info("{} vector index ({}) warmed with {} vectors in {} ms",
+                        getName(), indexMode, loaded, System.currentTimeMillis() - startTime);
+            }
+            compactIfNeeded();
+        } catch (Exception e) {
+            log.warn("Failed to warm {} vector index: {}", getName(), e.getMessage(), e);
+        }
+        lastReconcileAt = startTime;
+        if (reconcileIntervalSeconds != null && reconcileIntervalSeconds > 0) {
+            reconcileTask = scheduledExecutorService.scheduleWithFixedDelay(this::reconcileChanges,
+                    reconcileIntervalSeconds, reconcileIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 停机时写入快照
+     */
+    @PreDestroy
+    public void destroy() {
+        if (reconcileTask != null) {
+            reconcileTask.cancel(false);
+        }
+        saveSnapshot();
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * 写入或替换一条向量
+     *
+     * @param userId 用户ID
+     * @param id 记录ID
+     * @param vector 向量
+     * @return 是否写入
+     */
+    public boolean put(Long userId, Long id, float[] vector) {
+        if (!index.put(userId, id, vector)) {
+            return false;
+        }
+        if (store != null) {
+            try {
+                store.appendPut(userId, id, vector);
+                compactIfNeeded();
+            } catch (IOException e) {
+                log.warn("Failed to append {} vector {} to segment log: {}", getName(), id, e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 移除向量
+     *
+     * @param id 记录ID
+     */
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        index.remove(id);
+        if (store != null) {
+            try {
+                store.appendDelete(id);
+                compactIfNeeded();
+            } catch (IOException e) {
+                log.warn("Failed to append {} tombstone {} to segment log: {}", getName(), id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 检索用户最相似的记录
+     *
+     * @param userId 用户ID
+     * @param query 查询向量
+     * @param threshold 相似度阈值
+     * @param maxResults 最大返回数量
+     * @return 命中的记录ID及得分
+     */
+    public List<ScoredId> search(Long userId, float[] query, double threshold, int maxResults) {
+        List<ScoredId> hits = index.search(userId, query, threshold, maxResults);
+        if (index.getMode() == IndexMode.HNSW && recallSampleRate != null && recallSampleRate > 0
+                && ThreadLocalRandom.current().nextDouble() < recallSampleRate) {
+            List<ScoredId> exact = index.search(userId, query, threshold, maxResults, true);
+            log.info("{} vector index recall@{} = {} (user {}, {} vectors)",
+                    getName(), maxResults, recall(hits, exact), userId, index.size(userId));
+        }
+        return hits;
+    }
+
+    /**
+     * 以精确检索为基准计算近似检索的召回率
+     *
+     * @param userId 用户ID
+     * @param query 查询向量
+     * @param threshold 相似度阈值
+     * @param maxResults 最大返回数量
+     * @return 召回率（0-1），精确检索无结果时为1
+     */
+    public double measureRecall(Long userId, float[] query, double threshold, int maxResults) {
+        return recall(index.search(userId, query, threshold, maxResults),
+                index.search(userId, query, threshold, maxResults, true));
+    }
+
+    /**
+     * 用户索引中的向量数量
+     *
+     * @param userId 用户ID
+     */
+    public int size(Long userId) {
+        return index.size(userId);
+    }
+
+    /**
+     * 索引中的向量总数
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 写入快照（未配置快照目录时忽略）
+     */
+    public void saveSnapshot() {
+        File file = snapshotFile();
+        if (file == null) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            File dir = file.getParentFile();
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Cannot create directory " + dir);
+            }
+            Path tmp = Files.createTempFile(dir.toPath(), getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeLong(startTime);
+                index.writeTo(out);
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("{} vector index snapshot saved to {} in {} ms", getName(), file, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.warn("Failed to save {} vector index snapshot: {}", getName(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取快照
+     *
+     * @return 快照时间，无可用快照时返回null
+     */
+    private Long loadSnapshot() {
+        File file = snapshotFile();
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            long snapshotTime = in.readLong();
+            if (index.readFrom(in)) {
+                return snapshotTime;
+            }
+            log.info("{} vector index snapshot {} does not match current mode, rebuilding", getName(), file);
+        } catch (Exception e) {
+            log.warn("Failed to load {} vector index snapshot: {}", getName(), e.getMessage());
+        }
+        index.clear();
+        return null;
+    }
+
+    private VectorSegmentStore openStore() {
+        if (StringUtils.isEmpty(segmentDir)) {
+            return null;
+        }
+        VectorSegmentStore segmentStore = new VectorSegmentStore(new File(segmentDir, getName()), segmentCompactThreshold);
+        try {
+            segmentStore.open();
+            return segmentStore;
+        } catch (Exception e) {
+            log.warn("Failed to open {} vector segments, segment store disabled: {}", getName(), e.getMessage(), e);
+            segmentStore.close();
+            return null;
+        }
+    }
+
+    /**
+     * 从段存储回放向量
+     *
+     * @return 段存储的最后写入时间，读取失败时返回null并停用段存储
+     */
+    private Long loadSegments() {
+        try {
+            store.replay(new VectorSegmentStore.Visitor() {
+                @Override
+                public void put(long userId, long id, float[] vector) {
+                    index.put(userId, id, vector);
+                }
+
+                @Override
+                public void remove(long id) {
+                    index.remove(id);
+                }
+            });
+            return store.getWatermark();
+        } catch (Exception e) {
+            log.warn("Failed to load {} vector segments, segment store disabled: {}", getName(), e.getMessage(), e);
+            store.close();
+            store = null;
+            index.clear();
+            return null;
+        }
+    }
+
+    /**
+     * 索引由快照恢复而段存储为空时，从数据库补齐段存储
+     */
+    private void seedStore() throws IOException {
+        long lastId = 0L;
+        while (true) {
+            List<VectorRecord> batch = loadVectors(lastId, warmBatchSize);
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            for (VectorRecord record : batch) {
+                if (record.getVector() != null) {
+                    store.appendPut(record.getUserId(), record.getId(), record.getVector());
+                }
+                lastId = record.getId();
+            }
+            if (batch.size() < warmBatchSize) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 日志达到阈值时提交后台压缩
+     */
+    private void compactIfNeeded() {
+        if (store == null || !store.needsCompaction() || !compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        final VectorSegmentStore segmentStore = store;
+        scheduledExecutorService.execute(() -> {
+            long startTime = System.currentTimeMillis();
+            try {
+                int size = segmentStore.compact();
+                if (size >= 0) {
+                    log.info("{} vector segments compacted to {} vectors in {} ms", getName(), size, System.currentTimeMillis() - startTime);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to compact {} vector segments: {}", getName(), e.getMessage(), e);
+            } finally {
+                compactionScheduled.set(false);
+            }
+        });
+    }
+
+    private int warm() {
+        long lastId = 0L;
+        int loaded = 0;
+        while (true) {
+            List<VectorRecord> batch = loadVectors(lastId, warmBatchSize);
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            for (VectorRecord record : batch) {
+                if (index.put(record.getUserId(), record.getId(), record.getVector())) {
+                    loaded++;
+                }
+                lastId = record.getId();
+            }
+            if (batch.size() < warmBatchSize) {
+                break;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 定时增量对账，异常不能抛出，否则定时任务会被取消
+     */
+    private void reconcileChanges() {
+        long startTime = System.currentTimeMillis();
+        try {
+            int changed = reconcile(new Date(lastReconcileAt - RECONCILE_MARGIN_MILLIS));
+            lastReconcileAt = startTime;
+            if (changed > 0) {
+                log.debug("{} vector index reconciled {} changes in {} ms", getName(), changed, System.currentTimeMillis() - startTime);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to reconcile {} vector index: {}", getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * 应用指定时间之后的数据库变更，与索引一致的记录跳过；变更同时追加到段存储
+     *
+     * @return 实际变更的记录数
+     */
+    private int reconcile(Date since) {
+        long lastId = 0L;
+        int changed = 0;
+        while (true) {
+            List<VectorRecord> batch = loadChangedVectors(since, lastId, warmBatchSize);
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            for (VectorRecord record : batch) {
+                lastId = record.getId();
+                if (record.isDeleted() || record.getVector() == null) {
+                    if (index.contains(record.getId())) {
+                        remove(record.getId());
+                        changed++;
+                    }
+                } else if (!index.contains(record.getUserId(), record.getId(), record.getVector())) {
+                    put(record.getUserId(), record.getId(), record.getVector());
+                    changed++;
+                }
+            }
+            if (batch.size() < warmBatchSize) {
+                break;
+            }
+        }
+        return changed;
+    }
+
+    private File snapshotFile() {
+        if (StringUtils.isEmpty(snapshotDir)) {
+            return null;
+        }
+        return new File(snapshotDir, getName() + ".idx");
+    }
+
+    private static double recall(List<ScoredId> approximate, List<ScoredId> exact) {
+        if (exact.isEmpty()) {
+            return 1.0;
+        }
+        Set<Long> expected = new HashSet<>();
+        for (ScoredId hit : exact) {
+            expected.add(hit.getId());
+        }
+        int matched = 0;
+        for (ScoredId hit : approximate) {
+            if (expected.contains(hit.getId())) {
+                matched++;
+            }
+        }
+        return (double) matched / expected.size();
+    }
+}
@@ -0,0 +1,244 @@
+package com.ruoyi.system.rag.index;
+
+import com.ruoyi.system.util.VectorUtil;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单用户的精确（暴力）向量索引
+ * 所有向量以归一化后的 float32 形式连续存放在一个 float[] 矩阵中，
+ * 余弦相似度即为点积，检索时顺序扫描整块内存。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class FlatVectorIndex implements AnnIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int dimension;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 行主序向量矩阵，第 i 行位于 [i * dimension, (i + 1) * dimension) */
+    private float[] matrix;
+
+    /** 第 i 行对应的记录ID */
+    private long[] ids;
+
+    /** 记录ID -> 行号 */
+    private final Map<Long, Integer> slots = new HashMap<>();
+
+    private int size;
+
+    public FlatVectorIndex(int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive");
+        }
+        this.dimension = dimension;
+        this.matrix = new float[INITIAL_CAPACITY * dimension];
+        this.ids = new long[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            return Arrays.copyOf(ids, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public float[] get(long id) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(id);
+            return slot != null ? Arrays.copyOfRange(matrix, slot * dimension, (slot + 1) * dimension) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 新增或替换一条向量
+     *
+     * @param id 记录ID
+     * @param normalized 已归一化的向量
+     */
+    @Override
+    public void put(long id, float[] normalized) {
+        checkDimension(normalized);
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.get(id);
+            if (slot == null) {
+                ensureCapacity(size + 1);
+                slot = size++;
+                ids[slot] = id;
+                slots.put(id, slot);
+            }
+            System.arraycopy(normalized, 0, matrix, slot * dimension, dimension);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除一条向量（末行填补空位，保持矩阵连续）
+     *
+     * @param id 记录ID
+     * @return 是否存在并已删除
+     */
+    @Override
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(id);
+            if (slot == null) {
+                return false;
+            }
+            int last = --size;
+            if (slot != last) {
+                System.arraycopy(matrix, last * dimension, matrix, slot * dimension, dimension);
+                ids[slot] = ids[last];
+                slots.put(ids[slot], slot);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Top-K 检索
+     *
+     * @param query 已归一化的查询向量
+     * @param threshold 相似度阈值
+     * @param k 最大返回数量
+     * @return 按相似度降序排列的命中结果
+     */
+    @Override
+    public List<ScoredId> search(float[] query, double threshold, int k) {
+        checkDimension(query);
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+
+        long[] topIds = new long[k];
+        double[] topScores = new double[k];
+        int found = 0;
+
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                double score = VectorUtil.dot(query, 0, matrix, row * dimension, dimension);
+                if (score < threshold || (found == k && score <= topScores[k - 1])) {
+                    continue;
+                }
+                // 插入排序维护降序的 top-k 数组
+                int pos = found < k ? found++ : k - 1;
+                while (pos > 0 && topScores[pos - 1] < score) {
+                    topScores[pos] = topScores[pos - 1];
+                    topIds[pos] = topIds[pos - 1];
+                    pos--;
+                }
+                topScores[pos] = score;
+                topIds[pos] = ids[row];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<ScoredId> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(new ScoredId(topIds[i], topScores[i]));
+        }
+        return result;
+    }
+
+    /**
+     * 写入快照：[dimension][size][id * size][float32 * size * dimension]
+     */
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(dimension);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(ids[i]);
+            }
+            for (int i = 0, n = size * dimension; i < n; i++) {
+                out.writeFloat(matrix[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从快照恢复
+     *
+     * @param in 输入流
+     * @return 索引
+     */
+    public static FlatVectorIndex readFrom(DataInputStream in) throws IOException {
+        int dimension = in.readInt();
+        int size = in.readInt();
+        FlatVectorIndex index = new FlatVectorIndex(dimension);
+        index.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            index.ids[i] = in.readLong();
+            index.slots.put(index.ids[i], i);
+        }
+        for (int i = 0, n = size * dimension; i < n; i++) {
+            index.matrix[i] = in.readFloat();
+        }
+        index.size = size;
+        return index;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length * 2);
+        float[] newMatrix = new float[capacity * dimension];
+        System.arraycopy(matrix, 0, newMatrix, 0, size * dimension);
+        long[] newIds = new long[capacity];
+        System.arraycopy(ids, 0, newIds, 0, size);
+        matrix = newMatrix;
+        ids = newIds;
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector == null || vector.length != dimension) {
+            throw new IllegalArgumentException("Vector dimension mismatch, expected " + dimension);
+        }
+    }
+}
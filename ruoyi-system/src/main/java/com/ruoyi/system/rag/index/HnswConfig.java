@@ -0,0 +1,40 @@
+package com.ruoyi.system.rag.index;
+
+/**
+ * HNSW 索引参数
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class HnswConfig {
+
+    /** 每层最大邻居数（第 0 层为 2M） */
+    private final int m;
+
+    /** 构建时的候选集大小 */
+    private final int efConstruction;
+
+    /** 查询时的候选集大小 */
+    private final int efSearch;
+
+    public HnswConfig(int m, int efConstruction, int efSearch) {
+        if (m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("Invalid HNSW parameters");
+        }
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+    }
+
+    public int getM() {
+        return m;
+    }
+
+    public int getEfConstruction() {
+        return efConstruction;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+}
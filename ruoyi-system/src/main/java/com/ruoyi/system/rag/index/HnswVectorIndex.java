@@ -0,0 +1,606 @@
+package com.ruoyi.system.rag.index;
+
+import com.ruoyi.system.util.VectorUtil;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单用户的 HNSW（分层可导航小世界图）近似最近邻索引
+ *
+ * 节点按指数分布随机分配层级，查询从最高层入口贪心下降，在第 0 层以 efSearch 大小的候选集做束搜索。
+ * 删除采用标记方式：被删节点仍参与图导航，但不占用第 0 层结果集的名额，召回率不随删除比例下降。
+ * 已删除节点超过一半时整体重建：在锁外用有效节点构建新图，期间的写入同时记录下来，
+ * 最后在写锁内补上这些写入并替换，重建过程中查询不受阻塞。
+ * 更新同一记录时先标记旧节点删除再插入新节点。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class HnswVectorIndex implements AnnIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** 重建的最小节点数，避免小索引频繁重建 */
+    private static final int MIN_REBUILD_NODES = 64;
+
+    private final int dimension;
+
+    private final int m;
+
+    /** 第 0 层最大邻居数 */
+    private final int maxM0;
+
+    private final int efConstruction;
+
+    private final int efSearch;
+
+    /** 层级分布参数 1 / ln(M) */
+    private final double levelMultiplier;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 节点向量（已归一化） */
+    private float[][] vectors;
+
+    /** 节点对应的记录ID */
+    private long[] ids;
+
+    /** 节点各层的邻居表 links[node][level] */
+    private int[][][] links;
+
+    private boolean[] deleted;
+
+    /** 记录ID -> 有效节点 */
+    private final Map<Long, Integer> nodes = new HashMap<>();
+
+    private int nodeCount;
+
+    private int entryPoint = -1;
+
+    private int maxLevel = -1;
+
+    /** 重建期间的写入，记录ID -> 新向量，删除时为null；未在重建时为null */
+    private Map<Long, float[]> pendingChanges;
+
+    public HnswVectorIndex(int dimension, HnswConfig config) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive");
+        }
+        this.dimension = dimension;
+        this.m = config.getM();
+        this.maxM0 = config.getM() * 2;
+        this.efConstruction = config.getEfConstruction();
+        this.efSearch = config.getEfSearch();
+        this.levelMultiplier = 1.0 / Math.log(config.getM());
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            long[] result = new long[nodes.size()];
+            int i = 0;
+            for (Long id : nodes.keySet()) {
+                result[i++] = id;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public float[] get(long id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodes.get(id);
+            return node != null ? vectors[node].clone() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(long id, float[] normalized) {
+        checkDimension(normalized);
+        float[] vector = normalized.clone();
+        Snapshot snapshot;
+        lock.writeLock().lock();
+        try {
+            Integer previous = nodes.remove(id);
+            if (previous != null) {
+                deleted[previous] = true;
+            }
+            insert(id, vector);
+            if (pendingChanges != null) {
+                pendingChanges.put(id, vector);
+            }
+            snapshot = startRebuildIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuild(snapshot);
+    }
+
+    @Override
+    public boolean remove(long id) {
+        Snapshot snapshot;
+        lock.writeLock().lock();
+        try {
+            Integer node = nodes.remove(id);
+            if (node == null) {
+                return false;
+            }
+            deleted[node] = true;
+            if (pendingChanges != null) {
+                pendingChanges.put(id, null);
+            }
+            snapshot = startRebuildIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuild(snapshot);
+        return true;
+    }
+
+    @Override
+    public List<ScoredId> search(float[] query, double threshold, int k) {
+        checkDimension(query);
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return new ArrayList<>();
+            }
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedyClosest(query, current, level);
+            }
+            NodeHeap candidates = searchLayer(query, current, Math.max(efSearch, k), 0, true);
+
+            // 结果堆为最小堆，依次弹出得到升序，倒序填充后即为降序
+            int count = candidates.size();
+            int[] order = new int[count];
+            float[] scores = new float[count];
+            for (int i = count - 1; i >= 0; i--) {
+                scores[i] = candidates.peekScore();
+                order[i] = candidates.pop();
+            }
+            List<ScoredId> result = new ArrayList<>(Math.min(k, count));
+            for (int i = 0; i < count && result.size() < k; i++) {
+                if (scores[i] < threshold) {
+                    break;
+                }
+                result.add(new ScoredId(ids[order[i]], scores[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 精确检索：顺序扫描所有有效节点
+     */
+    @Override
+    public List<ScoredId> searchExact(float[] query, double threshold, int k) {
+        checkDimension(query);
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        NodeHeap top = new NodeHeap(k + 1, false);
+        lock.readLock().lock();
+        try {
+            for (int node = 0; node < nodeCount; node++) {
+                if (deleted[node]) {
+                    continue;
+                }
+                float score = VectorUtil.dot(query, 0, vectors[node], 0, dimension);
+                if (score < threshold || (top.size() == k && score <= top.peekScore())) {
+                    continue;
+                }
+                top.push(node, score);
+                if (top.size() > k) {
+                    top.pop();
+                }
+            }
+            ScoredId[] result = new ScoredId[top.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                float score = top.peekScore();
+                result[i] = new ScoredId(ids[top.pop()], score);
+            }
+            return new ArrayList<>(Arrays.asList(result));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写入快照：参数、节点向量及各层邻居表
+     */
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(dimension);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(nodeCount);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < nodeCount; node++) {
+                out.writeLong(ids[node]);
+                out.writeBoolean(deleted[node]);
+                for (float value : vectors[node]) {
+                    out.writeFloat(value);
+                }
+                out.writeInt(links[node].length);
+                for (int[] neighbours : links[node]) {
+                    out.writeInt(neighbours.length);
+                    for (int neighbour : neighbours) {
+                        out.writeInt(neighbour);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从快照恢复，无需重新构图
+     * M 与 efConstruction 决定图结构，沿用快照中的值；efSearch 只影响查询，使用当前配置。
+     *
+     * @param in 输入流
+     * @param efSearch 查询候选集大小
+     * @return 索引
+     */
+    public static HnswVectorIndex readFrom(DataInputStream in, int efSearch) throws IOException {
+        int dimension = in.readInt();
+        HnswConfig config = new HnswConfig(in.readInt(), in.readInt(), efSearch);
+        HnswVectorIndex index = new HnswVectorIndex(dimension, config);
+        int nodeCount = in.readInt();
+        index.allocate(Math.max(nodeCount, INITIAL_CAPACITY));
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        for (int node = 0; node < nodeCount; node++) {
+            index.ids[node] = in.readLong();
+            index.deleted[node] = in.readBoolean();
+            float[] vector = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                vector[i] = in.readFloat();
+            }
+            index.vectors[node] = vector;
+            int[][] levels = new int[in.readInt()][];
+            for (int level = 0; level < levels.length; level++) {
+                int[] neighbours = new int[in.readInt()];
+                for (int i = 0; i < neighbours.length; i++) {
+                    neighbours[i] = in.readInt();
+                }
+                levels[level] = neighbours;
+            }
+            index.links[node] = levels;
+            if (!index.deleted[node]) {
+                index.nodes.put(index.ids[node], node);
+            }
+        }
+        index.nodeCount = nodeCount;
+        return index;
+    }
+
+    private void insert(long id, float[] vector) {
+        ensureCapacity(nodeCount + 1);
+        int node = nodeCount++;
+        int level = randomLevel();
+        ids[node] = id;
+        vectors[node] = vector;
+        deleted[node] = false;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[0];
+        }
+        nodes.put(id, node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap candidates = searchLayer(vector, current, efConstruction, l, false);
+            int[] sorted = drainDescending(candidates);
+            current = sorted[0];
+            int[] neighbours = selectNeighbours(vector, sorted, l == 0 ? maxM0 : m);
+            links[node][l] = neighbours;
+            for (int neighbour : neighbours) {
+                connect(neighbour, node, l);
+            }
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * 为已有节点追加反向边，超出上限时按启发式裁剪
+     */
+    private void connect(int node, int neighbour, int level) {
+        int[] current = links[node][level];
+        int[] expanded = Arrays.copyOf(current, current.length + 1);
+        expanded[current.length] = neighbour;
+        int limit = level == 0 ? maxM0 : m;
+        if (expanded.length <= limit) {
+            links[node][level] = expanded;
+            return;
+        }
+        float[] base = vectors[node];
+        NodeHeap heap = new NodeHeap(expanded.length, true);
+        for (int candidate : expanded) {
+            heap.push(candidate, VectorUtil.dot(base, 0, vectors[candidate], 0, dimension));
+        }
+        int[] sorted = new int[heap.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = heap.pop();
+        }
+        links[node][level] = selectNeighbours(base, sorted, limit);
+    }
+
+    /**
+     * 启发式邻居选择：候选按相似度降序遍历，仅当候选与基准点比与已选邻居更近时才选入，
+     * 使邻居分布在不同方向上；不足上限时再用被跳过的候选补齐。
+     *
+     * @param base 基准向量
+     * @param sorted 按相似度降序排列的候选节点
+     * @param limit 邻居上限
+     * @return 选中的邻居
+     */
+    private int[] selectNeighbours(float[] base, int[] sorted, int limit) {
+        if (sorted.length <= limit) {
+            return sorted;
+        }
+        int[] selected = new int[limit];
+        int count = 0;
+        int[] skipped = new int[sorted.length];
+        int skippedCount = 0;
+        for (int candidate : sorted) {
+            if (count == limit) {
+                break;
+            }
+            float toBase = VectorUtil.dot(base, 0, vectors[candidate], 0, dimension);
+            boolean diverse = true;
+            for (int i = 0; i < count; i++) {
+                if (VectorUtil.dot(vectors[selected[i]], 0, vectors[candidate], 0, dimension) > toBase) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = candidate;
+            } else {
+                skipped[skippedCount++] = candidate;
+            }
+        }
+        for (int i = 0; i < skippedCount && count < limit; i++) {
+            selected[count++] = skipped[i];
+        }
+        return count == limit ? selected : Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * 在指定层贪心移动到与查询最相似的节点
+     */
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = VectorUtil.dot(query, 0, vectors[current], 0, dimension);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int neighbour : links[current][level]) {
+                float score = VectorUtil.dot(query, 0, vectors[neighbour], 0, dimension);
+                if (score > best) {
+                    best = score;
+                    current = neighbour;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在指定层做束搜索，返回最多 ef 个最相似节点（最小堆，堆顶为其中最差者）
+     * 跳过已删除节点时，已删除节点仍作为候选继续扩展，只是不进入结果集
+     */
+    private NodeHeap searchLayer(float[] query, int start, int ef, int level, boolean skipDeleted) {
+        BitSet visited = new BitSet(nodeCount);
+        NodeHeap candidates = new NodeHeap(ef, true);
+        NodeHeap results = new NodeHeap(ef + 1, false);
+
+        float score = VectorUtil.dot(query, 0, vectors[start], 0, dimension);
+        visited.set(start);
+        candidates.push(start, score);
+        if (!skipDeleted || !deleted[start]) {
+            results.push(start, score);
+        }
+
+        while (!candidates.isEmpty()) {
+            if (results.size() >= ef && candidates.peekScore() < results.peekScore()) {
+                break;
+            }
+            int current = candidates.pop();
+            for (int neighbour : links[current][level]) {
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float s = VectorUtil.dot(query, 0, vectors[neighbour], 0, dimension);
+                if (results.size() < ef || s > results.peekScore()) {
+                    candidates.push(neighbour, s);
+                    if (skipDeleted && deleted[neighbour]) {
+                        continue;
+                    }
+                    results.push(neighbour, s);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private static int[] drainDescending(NodeHeap minHeap) {
+        int[] sorted = new int[minHeap.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = minHeap.pop();
+        }
+        return sorted;
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(r) * levelMultiplier);
+    }
+
+    /**
+     * 已删除节点超过一半且没有进行中的重建时，在写锁内复制有效节点并开始记录之后的写入
+     *
+     * @return 需要重建时返回有效节点，否则返回null
+     */
+    private Snapshot startRebuildIfSparse() {
+        if (pendingChanges != null || nodeCount < MIN_REBUILD_NODES || nodes.size() * 2 > nodeCount) {
+            return null;
+        }
+        Snapshot snapshot = new Snapshot(nodes.size());
+        for (int node = 0; node < nodeCount; node++) {
+            if (!deleted[node]) {
+                snapshot.ids[snapshot.count] = ids[node];
+                // 节点向量写入后不再修改，可与新图共用
+                snapshot.vectors[snapshot.count++] = vectors[node];
+            }
+        }
+        pendingChanges = new LinkedHashMap<>();
+        return snapshot;
+    }
+
+    /**
+     * 在锁外用有效节点构建新图，再在写锁内补上构建期间的写入并替换当前图
+     */
+    private void rebuild(Snapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        HnswVectorIndex fresh = null;
+        try {
+            fresh = new HnswVectorIndex(dimension, new HnswConfig(m, efConstruction, efSearch));
+            fresh.allocate(Math.max(snapshot.count, INITIAL_CAPACITY));
+            for (int i = 0; i < snapshot.count; i++) {
+                fresh.insert(snapshot.ids[i], snapshot.vectors[i]);
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (fresh != null) {
+                    for (Map.Entry<Long, float[]> change : pendingChanges.entrySet()) {
+                        Integer node = fresh.nodes.remove(change.getKey());
+                        if (node != null) {
+                            fresh.deleted[node] = true;
+                        }
+                        if (change.getValue() != null) {
+                            fresh.insert(change.getKey(), change.getValue());
+                        }
+                    }
+                    vectors = fresh.vectors;
+                    ids = fresh.ids;
+                    links = fresh.links;
+                    deleted = fresh.deleted;
+                    nodes.clear();
+                    nodes.putAll(fresh.nodes);
+                    nodeCount = fresh.nodeCount;
+                    entryPoint = fresh.entryPoint;
+                    maxLevel = fresh.maxLevel;
+                }
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        vectors = new float[capacity][];
+        ids = new long[capacity];
+        links = new int[capacity][][];
+        deleted = new boolean[capacity];
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        links = Arrays.copyOf(links, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector == null || vector.length != dimension) {
+            throw new IllegalArgumentException("Vector dimension mismatch, expected " + dimension);
+        }
+    }
+
+    /**
+     * 重建时复制的有效节点
+     */
+    private static class Snapshot {
+
+        final long[] ids;
+
+        final float[][] vectors;
+
+        int count;
+
+        Snapshot(int capacity) {
+            this.ids = new long[capacity];
+            this.vectors = new float[capacity][];
+        }
+    }
+}
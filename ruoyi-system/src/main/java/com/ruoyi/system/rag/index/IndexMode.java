@@ -0,0 +1,29 @@
+package com.ruoyi.system.rag.index;
+
+/**
+ * 向量索引模式
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public enum IndexMode {
+
+    /** 精确检索（暴力扫描） */
+    EXACT,
+
+    /** HNSW 近似最近邻 */
+    HNSW;
+
+    /**
+     * 解析配置值，无法识别时回退为精确检索
+     *
+     * @param value 配置值
+     * @return 索引模式
+     */
+    public static IndexMode of(String value) {
+        if (value != null && "hnsw".equalsIgnoreCase(value.trim())) {
+            return HNSW;
+        }
+        return EXACT;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ruoyi.system.rag.index;
+
+import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.mapper.NoteMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 笔记向量索引
+ * 常驻内存，启动时从快照或 english_note 预热，由 NoteServiceImpl 的增删改保持同步。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Component
+public class NoteVectorIndex extends EntityVectorIndex {
+
+    @Autowired
+    private NoteMapper noteMapper;
+
+    @Override
+    protected String getName() {
+        return "note";
+    }
+
+    @Override
+    protected List<VectorRecord> loadVectors(long lastId, int limit) {
+        return toRecords(noteMapper.selectNoteEmbeddings(lastId, limit));
+    }
+
+    @Override
+    protected List<VectorRecord> loadChangedVectors(Date since, long lastId, int limit) {
+        return toRecords(noteMapper.selectNoteEmbeddingsSince(since, lastId, limit));
+    }
+
+    /**
+     * 写入笔记向量（无向量时忽略）
+     *
+     * @param note 笔记对象
+     * @return 是否写入
+     */
+    public boolean put(EnglishNote note) {
+        if (note == null || note.getId() == null || note.getUserId() == null) {
+            return false;
+        }
+        return put(note.getUserId(), note.getId(), note.getEmbedding());
+    }
+
+    private static List<VectorRecord> toRecords(List<EnglishNote> notes) {
+        List<VectorRecord> records = new ArrayList<>(notes.size());
+        for (EnglishNote note : notes) {
+            records.add(new VectorRecord(note.getId(), note.getUserId(), note.getEmbedding(), "1".equals(note.getDelFlag())));
+        }
+        return records;
+    }
+}
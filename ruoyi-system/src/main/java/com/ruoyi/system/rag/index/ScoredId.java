@@ -0,0 +1,32 @@
+package com.ruoyi.system.rag.index;
+
+/**
+ * 向量检索命中结果（记录ID + 相似度得分）
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class ScoredId {
+
+    private final long id;
+
+    private final double score;
+
+    public ScoredId(long id, double score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "ScoredId{id=" + id + ", score=" + score + "}";
+    }
+}
@@ -0,0 +1,60 @@
+package com.ruoyi.system.rag.index;
+
+import com.ruoyi.system.domain.Story;
+import com.ruoyi.system.mapper.StoryMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 故事向量索引
+ * 常驻内存，启动时从快照或 story 表预热，由 StoryServiceImpl 的生成与删除保持同步。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Component
+public class StoryVectorIndex extends EntityVectorIndex {
+
+    @Autowired
+    private StoryMapper storyMapper;
+
+    @Override
+    protected String getName() {
+        return "story";
+    }
+
+    @Override
+    protected List<VectorRecord> loadVectors(long lastId, int limit) {
+        return toRecords(storyMapper.selectStoryEmbeddings(lastId, limit));
+    }
+
+    @Override
+    protected List<VectorRecord> loadChangedVectors(Date since, long lastId, int limit) {
+        return toRecords(storyMapper.selectStoryEmbeddingsSince(since, lastId, limit));
+    }
+
+    /**
+     * 写入故事向量（无向量时忽略）
+     *
+     * @param story 故事对象
+     * @return 是否写入
+     */
+    public boolean put(Story story) {
+        if (story == null || story.getId() == null || story.getUserId() == null) {
+            return false;
+        }
+        return put(story.getUserId(), story.getId(), story.getEmbedding());
+    }
+
+    private static List<VectorRecord> toRecords(List<Story> stories) {
+        List<VectorRecord> records = new ArrayList<>(stories.size());
+        for (Story story : stories) {
+            records.add(new VectorRecord(story.getId(), story.getUserId(), story.getEmbedding(), Boolean.TRUE.equals(story.getDelFlag())));
+        }
+        return records;
+    }
+}
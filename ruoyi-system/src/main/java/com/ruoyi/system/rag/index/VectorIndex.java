@@ -0,0 +1,241 @@
+package com.ruoyi.system.rag.index;
+
+import com.ruoyi.system.util.VectorUtil;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按用户分区的内存向量索引
+ * 每个用户拥有独立的 {@link AnnIndex}，检索只访问该用户自己的向量。
+ * 分区实现由 {@link IndexMode} 决定：EXACT 为 {@link FlatVectorIndex}，HNSW 为 {@link HnswVectorIndex}。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class VectorIndex {
+
+    /** 快照文件标识 "RAGI" */
+    private static final int SNAPSHOT_MAGIC = 0x52414749;
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final IndexMode mode;
+
+    private final HnswConfig hnswConfig;
+
+    /** 用户ID -> 用户索引 */
+    private final ConcurrentMap<Long, AnnIndex> partitions = new ConcurrentHashMap<>();
+
+    /** 记录ID -> 用户ID，删除时无需调用方提供用户ID */
+    private final ConcurrentMap<Long, Long> owners = new ConcurrentHashMap<>();
+
+    public VectorIndex() {
+        this(IndexMode.EXACT, null);
+    }
+
+    public VectorIndex(IndexMode mode, HnswConfig hnswConfig) {
+        if (mode == IndexMode.HNSW && hnswConfig == null) {
+            throw new IllegalArgumentException("HNSW mode requires HnswConfig");
+        }
+        this.mode = mode;
+        this.hnswConfig = hnswConfig;
+    }
+
+    public IndexMode getMode() {
+        return mode;
+    }
+
+    /**
+     * 新增或替换一条向量
+     *
+     * @param userId 用户ID
+     * @param id 记录ID
+     * @param vector 原始向量（内部会复制并归一化）
+     * @return 是否写入成功（零向量或维度不一致时返回false）
+     */
+    public boolean put(Long userId, Long id, float[] vector) {
+        if (userId == null || id == null || vector == null || vector.length == 0) {
+            return false;
+        }
+        float[] normalized = VectorUtil.normalize(vector);
+        if (normalized == null) {
+            return false;
+        }
+
+        Long previousOwner = owners.put(id, userId);
+        if (previousOwner != null && !previousOwner.equals(userId)) {
+            AnnIndex previous = partitions.get(previousOwner);
+            if (previous != null) {
+                previous.remove(id);
+            }
+        }
+
+        AnnIndex partition = partitions.computeIfAbsent(userId, key -> createPartition(normalized.length));
+        if (partition.getDimension() != normalized.length) {
+            owners.remove(id, userId);
+            return false;
+        }
+        partition.put(id, normalized);
+        return true;
+    }
+
+    /**
+     * 索引中是否已有该记录且归属与向量均相同，用于对账时跳过未变化的记录
+     *
+     * @param userId 用户ID
+     * @param id 记录ID
+     * @param vector 原始向量
+     * @return 是否相同
+     */
+    public boolean contains(Long userId, Long id, float[] vector) {
+        if (userId == null || id == null || vector == null || vector.length == 0 || !userId.equals(owners.get(id))) {
+            return false;
+        }
+        AnnIndex partition = partitions.get(userId);
+        float[] current = partition != null ? partition.get(id) : null;
+        return current != null && Arrays.equals(current, VectorUtil.normalize(vector));
+    }
+
+    /**
+     * 索引中是否有该记录
+     *
+     * @param id 记录ID
+     */
+    public boolean contains(Long id) {
+        return id != null && owners.containsKey(id);
+    }
+
+    /**
+     * 删除一条向量
+     *
+     * @param id 记录ID
+     */
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        Long userId = owners.remove(id);
+        if (userId != null) {
+            AnnIndex partition = partitions.get(userId);
+            if (partition != null) {
+                partition.remove(id);
+            }
+        }
+    }
+
+    /**
+     * 检索用户最相似的向量
+     *
+     * @param userId 用户ID
+     * @param query 查询向量
+     * @param threshold 相似度阈值
+     * @param k 最大返回数量
+     * @return 按相似度降序排列的命中结果
+     */
+    public List<ScoredId> search(Long userId, float[] query, double threshold, int k) {
+        return search(userId, query, threshold, k, false);
+    }
+
+    /**
+     * 检索用户最相似的向量
+     *
+     * @param userId 用户ID
+     * @param query 查询向量
+     * @param threshold 相似度阈值
+     * @param k 最大返回数量
+     * @param exact 是否强制精确检索
+     * @return 按相似度降序排列的命中结果
+     */
+    public List<ScoredId> search(Long userId, float[] query, double threshold, int k, boolean exact) {
+        AnnIndex partition = partitions.get(userId);
+        if (partition == null || query == null || query.length != partition.getDimension()) {
+            return new ArrayList<>();
+        }
+        float[] normalized = VectorUtil.normalize(query);
+        if (normalized == null) {
+            return new ArrayList<>();
+        }
+        return exact ? partition.searchExact(normalized, threshold, k) : partition.search(normalized, threshold, k);
+    }
+
+    /**
+     * 用户索引中的向量数量
+     */
+    public int size(Long userId) {
+        AnnIndex partition = partitions.get(userId);
+        return partition != null ? partition.size() : 0;
+    }
+
+    /**
+     * 全部向量数量
+     */
+    public int size() {
+        return owners.size();
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        partitions.clear();
+        owners.clear();
+    }
+
+    /**
+     * 写入快照
+     *
+     * @param out 输出流
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        List<Map.Entry<Long, AnnIndex>> entries = new ArrayList<>(partitions.entrySet());
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(mode.ordinal());
+        out.writeInt(entries.size());
+        for (Map.Entry<Long, AnnIndex> entry : entries) {
+            out.writeLong(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    /**
+     * 从快照恢复（会先清空当前内容）
+     *
+     * @param in 输入流
+     * @return 是否恢复成功；快照格式或索引模式与当前不一致时返回false
+     */
+    public boolean readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION || in.readInt() != mode.ordinal()) {
+            return false;
+        }
+        clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Long userId = in.readLong();
+            AnnIndex partition = mode == IndexMode.HNSW ? HnswVectorIndex.readFrom(in, hnswConfig.getEfSearch()) : FlatVectorIndex.readFrom(in);
+            partitions.put(userId, partition);
+        }
+        // 由分区反查记录归属
+        for (Map.Entry<Long, AnnIndex> entry : partitions.entrySet()) {
+            for (long id : entry.getValue().ids()) {
+                owners.put(id, entry.getKey());
+            }
+        }
+        return true;
+    }
+
+    private AnnIndex createPartition(int dimension) {
+        if (mode == IndexMode.HNSW) {
+            return new HnswVectorIndex(dimension, hnswConfig);
+        }
+        return new FlatVectorIndex(dimension);
+    }
+}
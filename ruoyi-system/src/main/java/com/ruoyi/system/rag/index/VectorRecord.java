@@ -0,0 +1,42 @@
+package com.ruoyi.system.rag.index;
+
+/**
+ * 索引加载用的向量记录
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class VectorRecord {
+
+    private final Long id;
+
+    private final Long userId;
+
+    private final float[] vector;
+
+    /** 是否已删除（对账时据此移除） */
+    private final boolean deleted;
+
+    public VectorRecord(Long id, Long userId, float[] vector, boolean deleted) {
+        this.id = id;
+        this.userId = userId;
+        this.vector = vector;
+        this.deleted = deleted;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public float[] getVector() {
+        return vector;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+}
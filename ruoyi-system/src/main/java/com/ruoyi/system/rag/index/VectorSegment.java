@@ -0,0 +1,220 @@
+package com.ruoyi.system.rag.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 只读的内存映射向量段文件
+ *
+ * 文件格式（小端序）：
+ * <pre>
+ *   header: [magic "RAGS"][version][createdAt long][blockCount]
+ *   block : [dimension][count][id long * count][userId long * count][float32 * count * dimension]
+ * </pre>
+ * 同一维度的向量存放在同一个 block 中，矩阵按行主序连续存放，可直接按偏移读取。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class VectorSegment {
+
+    static final int MAGIC = 0x52414753;
+
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = Integer.BYTES * 3 + Long.BYTES;
+
+    private final File file;
+
+    private final long createdAt;
+
+    private final List<Block> blocks;
+
+    private VectorSegment(File file, long createdAt, List<Block> blocks) {
+        this.file = file;
+        this.createdAt = createdAt;
+        this.blocks = blocks;
+    }
+
+    /**
+     * 以只读方式映射段文件
+     *
+     * @param file 段文件
+     * @return 段
+     */
+    public static VectorSegment open(File file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a vector segment: " + file);
+        }
+        long createdAt = buffer.getLong();
+        int blockCount = buffer.getInt();
+        List<Block> blocks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            int dimension = buffer.getInt();
+            int count = buffer.getInt();
+            long idBytes = (long) count * Long.BYTES;
+            long matrixBytes = (long) count * dimension * Float.BYTES;
+            if (buffer.remaining() < idBytes * 2 + matrixBytes) {
+                throw new IOException("Truncated vector segment: " + file);
+            }
+            LongBuffer ids = slice(buffer, (int) idBytes).asLongBuffer();
+            LongBuffer userIds = slice(buffer, (int) idBytes).asLongBuffer();
+            FloatBuffer matrix = slice(buffer, (int) matrixBytes).asFloatBuffer();
+            blocks.add(new Block(dimension, count, ids, userIds, matrix));
+        }
+        return new VectorSegment(file, createdAt, blocks);
+    }
+
+    /**
+     * 写入段文件
+     *
+     * @param file 目标文件
+     * @param createdAt 段所覆盖数据的截止时间
+     * @param blocks 各维度的数据块
+     */
+    public static void write(File file, long createdAt, List<BlockData> blocks) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(createdAt).putInt(blocks.size());
+            for (BlockData block : blocks) {
+                int count = block.ids.length;
+                buffer = ensure(channel, buffer, Integer.BYTES * 2);
+                buffer.putInt(block.dimension).putInt(count);
+                for (long id : block.ids) {
+                    buffer = ensure(channel, buffer, Long.BYTES);
+                    buffer.putLong(id);
+                }
+                for (long userId : block.userIds) {
+                    buffer = ensure(channel, buffer, Long.BYTES);
+                    buffer.putLong(userId);
+                }
+                for (float[] vector : block.vectors) {
+                    for (float value : vector) {
+                        buffer = ensure(channel, buffer, Float.BYTES);
+                        buffer.putFloat(value);
+                    }
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * 依次回放段内所有向量
+     * 每个数据块只分配一个行缓冲区，逐行从映射内存读入后回调，回调方需要保留向量时自行复制
+     *
+     * @param visitor 回放目标
+     */
+    public void replay(VectorSegmentStore.Visitor visitor) {
+        for (Block block : blocks) {
+            float[] row = new float[block.dimension];
+            FloatBuffer matrix = block.matrix.duplicate();
+            for (int i = 0; i < block.count; i++) {
+                matrix.get(row);
+                visitor.put(block.userIds.get(i), block.ids.get(i), row);
+            }
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * 段内向量数量
+     */
+    public int size() {
+        int size = 0;
+        for (Block block : blocks) {
+            size += block.count;
+        }
+        return size;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(view.position() + length);
+        buffer.position(buffer.position() + length);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int required) throws IOException {
+        if (buffer.remaining() >= required) {
+            return buffer;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 映射后的数据块
+     */
+    private static class Block {
+
+        private final int dimension;
+
+        private final int count;
+
+        private final LongBuffer ids;
+
+        private final LongBuffer userIds;
+
+        private final FloatBuffer matrix;
+
+        Block(int dimension, int count, LongBuffer ids, LongBuffer userIds, FloatBuffer matrix) {
+            this.dimension = dimension;
+            this.count = count;
+            this.ids = ids;
+            this.userIds = userIds;
+            this.matrix = matrix;
+        }
+    }
+
+    /**
+     * 待写入的数据块
+     */
+    public static class BlockData {
+
+        private final int dimension;
+
+        private final long[] ids;
+
+        private final long[] userIds;
+
+        private final float[][] vectors;
+
+        public BlockData(int dimension, long[] ids, long[] userIds, float[][] vectors) {
+            this.dimension = dimension;
+            this.ids = ids;
+            this.userIds = userIds;
+            this.vectors = vectors;
+        }
+    }
+}
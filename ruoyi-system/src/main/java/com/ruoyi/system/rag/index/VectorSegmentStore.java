@@ -0,0 +1,444 @@
+package com.ruoyi.system.rag.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * 向量段存储
+ *
+ * 目录下至多一个只读的内存映射基础段（{@code <seq>.seg}，见 {@link VectorSegment}），
+ * 以及若干序号更大的追加日志（{@code <seq>.log}），新写入与删除标记只追加到当前日志。
+ * 加载时先回放基础段再按序回放日志，后写覆盖先写。
+ * 压缩时先切换到新日志，再把基础段与旧日志合并为新的基础段，序号取被合并的最后一个日志，
+ * 因此序号不大于基础段的文件都已被合并，即使压缩中途退出也不会重复或丢失数据。
+ *
+ * 日志记录格式（小端序）：[length int][crc32 int][op][payload]，crc32 覆盖 op 与 payload。
+ * 日志不做逐条 fsync，切换日志、关闭及压缩时才 fsync；异常退出可能留下不完整或损坏的尾部记录，
+ * 回放时校验长度与 crc32，遇到第一条无效记录即停止读取该日志。
+ * 数据库仍是向量的权威来源，丢失的尾部由启动对账补齐。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class VectorSegmentStore {
+
+    /**
+     * 回放目标
+     */
+    public interface Visitor {
+
+        /**
+         * 回放一条向量，vector 可能是回放方复用的缓冲区，只在本次回调内有效
+         */
+        void put(long userId, long id, float[] vector);
+
+        void remove(long id);
+    }
+
+    private static final byte OP_PUT = 1;
+
+    private static final byte OP_DELETE = 2;
+
+    /** 记录头：长度与校验和 */
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d+)\\.(seg|log)");
+
+    private final File dir;
+
+    private final int compactThreshold;
+
+    /** 基础段，可能为空 */
+    private VectorSegment base;
+
+    private long baseSeq = -1;
+
+    /** 待合并的日志（含当前日志之前已封存的日志），按序号排列 */
+    private final TreeMap<Long, File> sealedLogs = new TreeMap<>();
+
+    private FileChannel activeLog;
+
+    private long activeSeq;
+
+    /** 基础段之后累计的日志记录数 */
+    private int pendingRecords;
+
+    private boolean compacting;
+
+    private long watermark;
+
+    public VectorSegmentStore(File dir, int compactThreshold) {
+        this.dir = dir;
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * 打开存储：映射基础段，清理已被合并的旧文件，并新建当前日志
+     */
+    public synchronized void open() throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        TreeMap<Long, File> segments = new TreeMap<>();
+        TreeMap<Long, File> logs = new TreeMap<>();
+        File[] files = dir.listFiles();
+        for (File file : files != null ? files : new File[0]) {
+            Matcher matcher = FILE_NAME.matcher(file.getName());
+            if (matcher.matches()) {
+                (matcher.group(2).equals("seg") ? segments : logs).put(Long.parseLong(matcher.group(1)), file);
+            } else if (file.getName().endsWith(".tmp")) {
+                deleteQuietly(file);
+            }
+        }
+
+        long maxSeq = 0;
+        if (!segments.isEmpty()) {
+            baseSeq = segments.lastKey();
+            base = VectorSegment.open(segments.lastEntry().getValue());
+            watermark = base.getCreatedAt();
+            maxSeq = baseSeq;
+        }
+        for (Map.Entry<Long, File> entry : segments.entrySet()) {
+            if (entry.getKey() < baseSeq) {
+                deleteQuietly(entry.getValue());
+            }
+        }
+        for (Map.Entry<Long, File> entry : logs.entrySet()) {
+            if (entry.getKey() <= baseSeq || entry.getValue().length() == 0) {
+                deleteQuietly(entry.getValue());
+            } else {
+                sealedLogs.put(entry.getKey(), entry.getValue());
+                watermark = Math.max(watermark, entry.getValue().lastModified());
+            }
+            maxSeq = Math.max(maxSeq, entry.getKey());
+        }
+        openActiveLog(maxSeq + 1);
+    }
+
+    /**
+     * 是否没有任何数据
+     */
+    public synchronized boolean isEmpty() {
+        return base == null && pendingRecords == 0 && totalLogBytes() == 0;
+    }
+
+    /**
+     * 存储最后一次写入的时间，之后的数据库变更需要对账
+     */
+    public synchronized long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * 回放全部数据
+     *
+     * @param visitor 回放目标
+     * @return 回放的记录数
+     */
+    public int replay(Visitor visitor) throws IOException {
+        VectorSegment segment;
+        List<File> logs;
+        synchronized (this) {
+            segment = base;
+            logs = new ArrayList<>(sealedLogs.values());
+        }
+        int records = 0;
+        if (segment != null) {
+            segment.replay(visitor);
+            records += segment.size();
+        }
+        int logRecords = 0;
+        for (File log : logs) {
+            logRecords += replayLog(log, visitor);
+        }
+        synchronized (this) {
+            pendingRecords += logRecords;
+        }
+        return records + logRecords;
+    }
+
+    /**
+     * 追加写入记录
+     */
+    public synchronized void appendPut(long userId, long id, float[] vector) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES * 2 + Integer.BYTES + vector.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(OP_PUT).putLong(id).putLong(userId).putInt(vector.length);
+        for (float value : vector) {
+            buffer.putFloat(value);
+        }
+        append(buffer);
+    }
+
+    /**
+     * 追加删除标记
+     */
+    public synchronized void appendDelete(long id) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(OP_DELETE).putLong(id);
+        append(buffer);
+    }
+
+    /**
+     * 日志累计记录数是否达到压缩阈值
+     */
+    public synchronized boolean needsCompaction() {
+        return !compacting && pendingRecords >= compactThreshold;
+    }
+
+    /**
+     * 将基础段与已有日志合并为新的基础段，期间写入继续追加到新日志
+     *
+     * @return 新基础段中的向量数，无需压缩时返回-1
+     */
+    public int compact() throws IOException {
+        VectorSegment inputBase;
+        List<File> inputLogs;
+        long outputSeq;
+        long cutoff;
+        int inputRecords;
+        synchronized (this) {
+            if (compacting) {
+                return -1;
+            }
+            if (activeLog.size() > 0) {
+                sealActiveLog();
+            }
+            if (sealedLogs.isEmpty()) {
+                return -1;
+            }
+            compacting = true;
+            inputBase = base;
+            inputLogs = new ArrayList<>(sealedLogs.values());
+            outputSeq = sealedLogs.lastKey();
+            cutoff = System.currentTimeMillis();
+            inputRecords = pendingRecords;
+        }
+
+        try {
+            // 回放得到每条记录的最终状态
+            final Map<Long, Long> owners = new LinkedHashMap<>();
+            final Map<Long, float[]> vectors = new LinkedHashMap<>();
+            Visitor collector = new Visitor() {
+                @Override
+                public void put(long userId, long id, float[] vector) {
+                    owners.put(id, userId);
+                    vectors.put(id, vector.clone());
+                }
+
+                @Override
+                public void remove(long id) {
+                    owners.remove(id);
+                    vectors.remove(id);
+                }
+            };
+            if (inputBase != null) {
+                inputBase.replay(collector);
+            }
+            for (File log : inputLogs) {
+                replayLog(log, collector);
+            }
+
+            File tmp = new File(dir, outputSeq + ".seg.tmp");
+            File output = new File(dir, fileName(outputSeq, "seg"));
+            VectorSegment.write(tmp, cutoff, toBlocks(owners, vectors));
+            Files.move(tmp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // 新基础段的重命名落盘后才删除被合并的文件
+            forceDirectory();
+            VectorSegment segment = VectorSegment.open(output);
+
+            synchronized (this) {
+                base = segment;
+                baseSeq = outputSeq;
+                for (File log : inputLogs) {
+                    sealedLogs.values().remove(log);
+                    deleteQuietly(log);
+                }
+                if (inputBase != null) {
+                    deleteQuietly(inputBase.getFile());
+                }
+                pendingRecords -= inputRecords;
+            }
+            return segment.size();
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * 关闭当前日志
+     */
+    public synchronized void close() {
+        try {
+            if (activeLog != null) {
+                activeLog.force(false);
+                activeLog.close();
+            }
+        } catch (IOException ignored) {
+            // 关闭失败不影响已写入的数据
+        }
+    }
+
+    /**
+     * 为记录加上长度与校验和后追加到当前日志
+     */
+    private void append(ByteBuffer record) throws IOException {
+        record.flip();
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(record.remaining()).putInt((int) crc.getValue()).flip();
+        ByteBuffer[] buffers = {header, record};
+        while (record.hasRemaining()) {
+            activeLog.write(buffers);
+        }
+        pendingRecords++;
+        watermark = System.currentTimeMillis();
+    }
+
+    private void sealActiveLog() throws IOException {
+        activeLog.force(false);
+        activeLog.close();
+        sealedLogs.put(activeSeq, new File(dir, fileName(activeSeq, "log")));
+        openActiveLog(activeSeq + 1);
+    }
+
+    private void openActiveLog(long seq) throws IOException {
+        activeSeq = seq;
+        activeLog = FileChannel.open(new File(dir, fileName(seq, "log")).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        sealedLogs.remove(seq);
+    }
+
+    private long totalLogBytes() {
+        long bytes = 0;
+        for (File log : sealedLogs.values()) {
+            bytes += log.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * 回放一个日志文件，遇到不完整或校验失败的记录（异常退出时可能出现）即停止
+     */
+    private static int replayLog(File file, Visitor visitor) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return 0;
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        int records = 0;
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || buffer.remaining() < length) {
+                break;
+            }
+            ByteBuffer record = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            record.limit(length);
+            buffer.position(buffer.position() + length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != checksum || !replayRecord(record, visitor)) {
+                break;
+            }
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * 回放一条已通过校验的记录
+     *
+     * @return 记录格式是否有效
+     */
+    private static boolean replayRecord(ByteBuffer record, Visitor visitor) {
+        byte op = record.get();
+        if (op == OP_PUT) {
+            if (record.remaining() < Long.BYTES * 2 + Integer.BYTES) {
+                return false;
+            }
+            long id = record.getLong();
+            long userId = record.getLong();
+            int dimension = record.getInt();
+            if (dimension <= 0 || record.remaining() != dimension * Float.BYTES) {
+                return false;
+            }
+            float[] vector = new float[dimension];
+            record.asFloatBuffer().get(vector);
+            visitor.put(userId, id, vector);
+            return true;
+        }
+        if (op == OP_DELETE && record.remaining() == Long.BYTES) {
+            visitor.remove(record.getLong());
+            return true;
+        }
+        return false;
+    }
+
+    private static List<VectorSegment.BlockData> toBlocks(Map<Long, Long> owners, Map<Long, float[]> vectors) {
+        Map<Integer, List<Long>> byDimension = new TreeMap<>();
+        for (Map.Entry<Long, float[]> entry : vectors.entrySet()) {
+            byDimension.computeIfAbsent(entry.getValue().length, key -> new ArrayList<>()).add(entry.getKey());
+        }
+        List<VectorSegment.BlockData> blocks = new ArrayList<>(byDimension.size());
+        for (Map.Entry<Integer, List<Long>> entry : byDimension.entrySet()) {
+            List<Long> ids = entry.getValue();
+            long[] idColumn = new long[ids.size()];
+            long[] userColumn = new long[ids.size()];
+            float[][] matrix = new float[ids.size()][];
+            for (int i = 0; i < ids.size(); i++) {
+                Long id = ids.get(i);
+                idColumn[i] = id;
+                userColumn[i] = owners.get(id);
+                matrix[i] = vectors.get(id);
+            }
+            blocks.add(new VectorSegment.BlockData(entry.getKey(), idColumn, userColumn, matrix));
+        }
+        return blocks;
+    }
+
+    /**
+     * 同步目录项，使重命名在断电后仍然有效；不支持打开目录的平台上忽略
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // 部分平台（如 Windows）不支持同步目录
+        }
+    }
+
+    private static String fileName(long seq, String extension) {
+        return String.format("%012d.%s", seq, extension);
+    }
+
+    private static void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ignored) {
+            // 映射中的文件在部分平台上无法删除，下次打开时会再次清理
+        }
+    }
+}
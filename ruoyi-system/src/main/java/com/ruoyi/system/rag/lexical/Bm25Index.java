@@ -0,0 +1,185 @@
+package com.ruoyi.system.rag.lexical;
+
+import com.ruoyi.system.rag.index.ScoredId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个用户的 BM25 倒排索引
+ *
+ * 倒排表为 词元 -> (文档ID -> 词频)，另记录每篇文档的词元集合与长度，用于增量替换与删除。
+ * 查询只遍历查询词元对应的倒排表，与文档总数无关。读多写少，使用读写锁保护。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class Bm25Index {
+
+    /** 词频饱和参数 */
+    private static final double K1 = 1.2;
+
+    /** 文档长度归一化参数 */
+    private static final double B = 0.75;
+
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+
+    private final Map<Long, Document> documents = new HashMap<>();
+
+    private long totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 新增或替换一篇文档
+     *
+     * @param id 文档ID
+     * @param tokens 分词结果
+     */
+    public void put(long id, List<String> tokens) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            if (frequencies.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), key -> new HashMap<>()).put(id, entry.getValue());
+            }
+            documents.put(id, new Document(frequencies.keySet().toArray(new String[0]), tokens.size()));
+            totalLength += tokens.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除一篇文档
+     *
+     * @param id 文档ID
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * BM25 检索
+     *
+     * @param queryTokens 查询分词结果
+     * @param k 最大返回数量
+     * @return 按得分降序排列的命中结果
+     */
+    public List<ScoredId> search(List<String> queryTokens, int k) {
+        if (queryTokens.isEmpty() || k <= 0) {
+            return new ArrayList<>();
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return new ArrayList<>();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            // 查询中重复的词元只计一次
+            for (String token : new LinkedHashSet<>(queryTokens)) {
+                Map<Long, Integer> posting = postings.get(token);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                    int tf = entry.getValue();
+                    int length = documents.get(entry.getKey()).length;
+                    double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+                    scores.merge(entry.getKey(), score, Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // 小顶堆保留得分最高的 k 个
+        PriorityQueue<ScoredId> heap = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(a.getScore(), b.getScore()));
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            if (heap.size() < k) {
+                heap.add(new ScoredId(entry.getKey(), entry.getValue()));
+            } else if (entry.getValue() > heap.peek().getScore()) {
+                heap.poll();
+                heap.add(new ScoredId(entry.getKey(), entry.getValue()));
+            }
+        }
+        List<ScoredId> hits = new ArrayList<>(heap);
+        hits.sort(Collections.reverseOrder((a, b) -> Double.compare(a.getScore(), b.getScore())));
+        return hits;
+    }
+
+    /**
+     * 文档数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 不同词元数量
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeDocument(long id) {
+        Document previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= previous.length;
+    }
+
+    private static class Document {
+
+        private final String[] terms;
+
+        private final int length;
+
+        Document(String[] terms, int length) {
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+}
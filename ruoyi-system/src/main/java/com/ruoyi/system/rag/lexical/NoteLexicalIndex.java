@@ -0,0 +1,143 @@
+package com.ruoyi.system.rag.lexical;
+
+import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.mapper.NoteMapper;
+import com.ruoyi.system.rag.index.ScoredId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 笔记关键词索引
+ * 按用户分区的内存 BM25 倒排索引，索引笔记内容与标签。启动时从 english_note 预热，
+ * 由 NoteServiceImpl 的增删改保持同步；不依赖向量，笔记未生成向量时也能检索。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Component
+public class NoteLexicalIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteLexicalIndex.class);
+
+    @Value("${rag.search.lexical.warm-batch-size:1000}")
+    private Integer warmBatchSize;
+
+    @Autowired
+    private NoteMapper noteMapper;
+
+    /** 用户ID -> 用户索引 */
+    private final ConcurrentMap<Long, Bm25Index> partitions = new ConcurrentHashMap<>();
+
+    /** 笔记ID -> 用户ID，删除时无需调用方提供用户ID */
+    private final ConcurrentMap<Long, Long> owners = new ConcurrentHashMap<>();
+
+    /**
+     * 项目启动时加载索引
+     */
+    @PostConstruct
+    public void init() {
+        long startTime = System.currentTimeMillis();
+        try {
+            int loaded = 0;
+            long lastId = 0;
+            while (true) {
+                List<EnglishNote> batch = noteMapper.selectNoteTexts(lastId, warmBatchSize);
+                for (EnglishNote note : batch) {
+                    put(note);
+                }
+                loaded += batch.size();
+                if (batch.size() < warmBatchSize) {
+                    break;
+                }
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            log.info("note lexical index warmed with {} notes in {} ms", loaded, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.warn("Failed to warm note lexical index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 写入或替换笔记
+     *
+     * @param note 笔记对象（需包含用户ID、内容与标签）
+     * @return 是否写入
+     */
+    public boolean put(EnglishNote note) {
+        if (note == null || note.getId() == null || note.getUserId() == null) {
+            return false;
+        }
+        Long id = note.getId();
+        Long previousOwner = owners.put(id, note.getUserId());
+        if (previousOwner != null && !previousOwner.equals(note.getUserId())) {
+            Bm25Index previous = partitions.get(previousOwner);
+            if (previous != null) {
+                previous.remove(id);
+            }
+        }
+        List<String> tokens = TextTokenizer.tokenize(note.getContent());
+        tokens.addAll(TextTokenizer.tokenize(note.getTags()));
+        partitions.computeIfAbsent(note.getUserId(), key -> new Bm25Index()).put(id, tokens);
+        return true;
+    }
+
+    /**
+     * 移除笔记
+     *
+     * @param id 笔记ID
+     */
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        Long userId = owners.remove(id);
+        if (userId != null) {
+            Bm25Index partition = partitions.get(userId);
+            if (partition != null) {
+                partition.remove(id);
+            }
+        }
+    }
+
+    /**
+     * 关键词检索用户笔记
+     *
+     * @param userId 用户ID
+     * @param query 查询文本
+     * @param k 最大返回数量
+     * @return 按 BM25 得分降序排列的命中结果
+     */
+    public List<ScoredId> search(Long userId, String query, int k) {
+        Bm25Index partition = partitions.get(userId);
+        if (partition == null) {
+            return new ArrayList<>();
+        }
+        return partition.search(TextTokenizer.tokenize(query), k);
+    }
+
+    /**
+     * 索引统计
+     */
+    public Map<String, Object> getStats() {
+        int terms = 0;
+        for (Bm25Index partition : partitions.values()) {
+            terms += partition.termCount();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", partitions.size());
+        stats.put("notes", owners.size());
+        stats.put("terms", terms);
+        return stats;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ruoyi.system.rag.lexical;
+
+import com.ruoyi.system.rag.index.ScoredId;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 倒数排名融合（Reciprocal Rank Fusion）
+ *
+ * 每个结果的融合得分为其在各路结果中 1 / (k + 排名) 之和，排名从1开始。
+ * 只依赖排名，不需要把 BM25 得分与余弦相似度换算到同一尺度。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public final class RankFusion {
+
+    private RankFusion() {
+    }
+
+    /**
+     * 融合多路检索结果
+     *
+     * @param rankings 各路结果，均按得分降序排列
+     * @param k 平滑常数，越大各排名之间的差距越小（通常取60）
+     * @param limit 最大返回数量
+     * @return 按融合得分降序排列的结果
+     */
+    public static List<ScoredId> fuse(List<List<ScoredId>> rankings, int k, int limit) {
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (List<ScoredId> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                scores.merge(ranking.get(rank).getId(), 1.0 / (k + rank + 1), Double::sum);
+            }
+        }
+        List<ScoredId> fused = new ArrayList<>(scores.size());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            fused.add(new ScoredId(entry.getKey(), entry.getValue()));
+        }
+        // 稳定排序，同分时先出现的（靠前一路中排名更高的）在前
+        fused.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return fused.size() > limit ? new ArrayList<>(fused.subList(0, limit)) : fused;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ruoyi.system.rag.lexical;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 检索分词器
+ *
+ * 拉丁字母与数字按连续片段切分并转为小写；中日韩文字没有空格分隔，按相邻两字切分为二元组，
+ * 单独一个汉字时保留单字。其他字符（空白、标点等）作为分隔符。
+ * 索引与查询使用同一分词规则，因此 "look up" 能命中 "Look-up"，"固定搭配" 能命中 "常见的固定搭配"。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public final class TextTokenizer {
+
+    /** 单个词元的最大长度，过长的片段（如URL、乱码）截断 */
+    private static final int MAX_TOKEN_LENGTH = 40;
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * 分词
+     *
+     * @param text 文本
+     * @return 词元列表（保留重复，用于计算词频）
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                if (previousCjk >= 0) {
+                    tokens.add(new StringBuilder().appendCodePoint(previousCjk).appendCodePoint(codePoint).toString());
+                } else if (i >= text.length() || !isCjk(text.codePointAt(i))) {
+                    // 孤立的单字
+                    tokens.add(new StringBuilder().appendCodePoint(codePoint).toString());
+                }
+                previousCjk = codePoint;
+                continue;
+            }
+            previousCjk = -1;
+
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (word.length() < MAX_TOKEN_LENGTH) {
+                    word.appendCodePoint(Character.toLowerCase(codePoint));
+                }
+            } else if ((codePoint == '\'' || codePoint == '\u2019') && word.length() > 0) {
+                // 撇号视为词内字符，输出时再去掉：don't -> dont, student's -> student
+                word.append('\'');
+            } else {
+                flushWord(word, tokens);
+            }
+        }
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() == 0) {
+            return;
+        }
+        String token = word.toString();
+        word.setLength(0);
+        if (token.endsWith("'s")) {
+            token = token.substring(0, token.length() - 2);
+        }
+        token = token.replace("'", "");
+        if (!token.isEmpty()) {
+            tokens.add(token);
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,539 @@
+package com.ruoyi.system.rag.review;
+
+import com.ruoyi.system.domain.ReviewRecord;
+import com.ruoyi.system.domain.ReviewState;
+import com.ruoyi.system.mapper.ReviewDailyStatMapper;
+import com.ruoyi.system.mapper.ReviewMapper;
+import com.ruoyi.system.mapper.ReviewStateMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 复习会话的内存到期队列
+ *
+ * 用户第一次请求待复习项目时，从 review_state 加载一个时间窗口内到期的状态（含笔记内容），
+ * 按下次复习时间建立最小堆；之后的 /next 与 /record 只读写内存。
+ * 复习结果先更新内存中的状态，复习明细和新状态由后台定时批量写回（write-behind），
+ * 停机时同步写回剩余数据。空闲超时的用户队列在写回完成后淘汰。
+ *
+ * 队列只在本机内存中，多实例部署时需要按用户会话粘滞，否则应关闭 rag.review-queue.enabled。
+ * 统计接口直接查询数据库，最多滞后一个写回周期。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Component
+public class ReviewDueQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewDueQueue.class);
+
+    @Autowired
+    private ReviewStateMapper reviewStateMapper;
+
+    @Autowired
+    private ReviewMapper reviewMapper;
+
+    @Autowired
+    private ReviewDailyStatMapper reviewDailyStatMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("scheduledExecutorService")
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Value("${rag.review-queue.enabled:true}")
+    private Boolean enabled;
+
+    /** 每个用户最多加载的状态数 */
+    @Value("${rag.review-queue.preload-size:500}")
+    private Integer preloadSize;
+
+    /** 加载窗口(分钟)，加载此时间内到期的状态 */
+    @Value("${rag.review-queue.horizon-minutes:720}")
+    private Integer horizonMinutes;
+
+    /** 空闲超时(分钟)，超过后淘汰用户队列 */
+    @Value("${rag.review-queue.idle-minutes:30}")
+    private Integer idleMinutes;
+
+    /** 写回间隔(毫秒) */
+    @Value("${rag.review-queue.flush-interval-millis:1000}")
+    private Long flushIntervalMillis;
+
+    /** 每条写回语句的最大行数 */
+    @Value("${rag.review-queue.flush-batch-size:500}")
+    private Integer flushBatchSize;
+
+    private final Map<Long, UserQueue> queues = new ConcurrentHashMap<>();
+
+    /** 暂停使用内存队列的用户（重排进行中），值为进行中的重排数 */
+    private final Map<Long, Integer> suspendedUsers = new ConcurrentHashMap<>();
+
+    /** 待写回的状态，按笔记ID保留最新一份 */
+    private Map<Long, ReviewState> pendingStates = new LinkedHashMap<>();
+
+    /** 待写回的复习明细，按复习顺序 */
+    private List<ReviewRecord> pendingRecords = new ArrayList<>();
+
+    private final Object pendingLock = new Object();
+
+    /** 写回互斥，定时任务与停机写回不并发执行 */
+    private final Object flushLock = new Object();
+
+    private ScheduledFuture<?> flushTask;
+
+    private ScheduledFuture<?> evictTask;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong loads = new AtomicLong();
+
+    private final AtomicLong flushedRecords = new AtomicLong();
+
+    /**
+     * 启动写回与淘汰任务
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Review due queue disabled");
+            return;
+        }
+        flushTask = scheduledExecutorService.scheduleWithFixedDelay(this::flushQuietly,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        evictTask = scheduledExecutorService.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 停止定时任务并写回剩余数据
+     */
+    @PreDestroy
+    public void destroy() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        if (evictTask != null) {
+            evictTask.cancel(false);
+        }
+        if (enabled) {
+            flushQuietly();
+        }
+    }
+
+    /**
+     * 取到期的复习状态，不移出队列
+     *
+     * @param userId 用户ID
+     * @param limit 最大数量
+     * @return 按下次复习时间升序的状态副本，未启用时返回null
+     */
+    public List<ReviewState> next(Long userId, int limit) {
+        if (!enabled || userId == null) {
+            return null;
+        }
+        UserQueue queue = queues.computeIfAbsent(userId, UserQueue::new);
+        synchronized (queue) {
+            if (!isActive(queue)) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            queue.lastAccess = now;
+            if (now > queue.expiresAt) {
+                load(queue, now);
+            }
+            List<ReviewState> due = queue.peekDue(now, limit);
+            // 加载被截断且内存中的到期项不够时，重新加载补齐
+            if (due.size() < limit && queue.truncated && queue.reviewedSinceLoad) {
+                load(queue, now);
+                due = queue.peekDue(now, limit);
+            } else {
+                hits.incrementAndGet();
+            }
+            List<ReviewState> copies = new ArrayList<>(due.size());
+            for (ReviewState state : due) {
+                copies.add(copyOf(state));
+            }
+            return copies;
+        }
+    }
+
+    /**
+     * 在内存中记录一次复习
+     *
+     * @param userId 用户ID
+     * @param noteId 笔记ID
+     * @param review 根据当前状态计算复习结果，并原地更新状态
+     * @return 复习明细，用户队列未加载、已暂停或不包含该笔记时返回null，由调用方直接写库
+     */
+    public ReviewRecord record(Long userId, Long noteId, Function<ReviewState, ReviewRecord> review) {
+        if (!enabled || userId == null) {
+            return null;
+        }
+        UserQueue queue = queues.get(userId);
+        if (queue == null) {
+            return null;
+        }
+        synchronized (queue) {
+            ReviewState state = isActive(queue) ? queue.states.get(noteId) : null;
+            if (state == null) {
+                return null;
+            }
+            queue.lastAccess = System.currentTimeMillis();
+            ReviewRecord record = review.apply(state);
+            queue.reviewed.add(noteId);
+            queue.reviewedSinceLoad = true;
+            queue.offer(state);
+            ReviewState snapshot = copyOf(state);
+            snapshot.setNoteContent(null);
+            // 在队列锁内进入写回队列，suspend 之后的 flush 一定能写回此前在内存中的复习
+            synchronized (pendingLock) {
+                pendingRecords.add(record);
+                pendingStates.put(noteId, snapshot);
+            }
+            return record;
+        }
+    }
+
+    /**
+     * 用户新增了复习状态（初始化、导入），下次访问时重新加载
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        UserQueue queue = userId != null ? queues.get(userId) : null;
+        if (queue != null) {
+            synchronized (queue) {
+                queue.expiresAt = 0;
+            }
+        }
+    }
+
+    /**
+     * 暂停用户的内存队列并整体丢弃，包括已复习笔记的内存状态
+     * 暂停期间 next 与 record 返回null，由调用方直接读写数据库；已进入写回队列的数据仍由 flush 写入。
+     * 用于重排等批量改写用户全部状态的操作：调用后先 flush，再改写数据库，最后调用 resume
+     *
+     * @param userId 用户ID
+     */
+    public void suspend(Long userId) {
+        suspendedUsers.merge(userId, 1, Integer::sum);
+        drop(userId);
+    }
+
+    /**
+     * 恢复用户的内存队列，下次访问时从数据库重新加载
+     *
+     * @param userId 用户ID
+     */
+    public void resume(Long userId) {
+        // 暂停期间访问创建的空队列一并丢弃
+        drop(userId);
+        suspendedUsers.computeIfPresent(userId, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * 笔记删除时移出所有用户队列，并丢弃尚未写回的状态与复习明细
+     *
+     * @param noteId 笔记ID
+     */
+    public void removeNote(Long noteId) {
+        for (UserQueue queue : queues.values()) {
+            synchronized (queue) {
+                if (queue.states.remove(noteId) != null) {
+                    queue.reviewed.remove(noteId);
+                }
+            }
+        }
+        synchronized (pendingLock) {
+            pendingStates.remove(noteId);
+            pendingRecords.removeIf(record -> noteId.equals(record.getNoteId()));
+        }
+    }
+
+    /**
+     * 把待写回的复习明细与状态批量写入数据库
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<ReviewRecord> records;
+            Map<Long, ReviewState> states;
+            synchronized (pendingLock) {
+                if (pendingRecords.isEmpty() && pendingStates.isEmpty()) {
+                    return;
+                }
+                records = pendingRecords;
+                states = pendingStates;
+                pendingRecords = new ArrayList<>();
+                pendingStates = new LinkedHashMap<>();
+            }
+
+            List<ReviewState> stateList = new ArrayList<>(states.values());
+            int stateOffset = 0;
+            int recordOffset = 0;
+            try {
+                for (; stateOffset < stateList.size(); stateOffset += flushBatchSize) {
+                    reviewStateMapper.upsertStateBatch(stateList.subList(stateOffset, Math.min(stateOffset + flushBatchSize, stateList.size())));
+                }
+                for (; recordOffset < records.size(); recordOffset += flushBatchSize) {
+                    List<ReviewRecord> chunk = records.subList(recordOffset, Math.min(recordOffset + flushBatchSize, records.size()));
+                    // 明细与每日统计在同一事务中写入，失败重试时不会重复累加
+                    transactionTemplate.executeWithoutResult(status -> {
+                        reviewMapper.insertReviewRecordBatch(chunk);
+                        reviewDailyStatMapper.upsertDailyStatBatch(ReviewStatRollup.of(chunk));
+                    });
+                }
+                flushedRecords.addAndGet(records.size());
+            } catch (RuntimeException e) {
+                requeue(stateList.subList(Math.min(stateOffset, stateList.size()), stateList.size()),
+                        records.subList(Math.min(recordOffset, records.size()), records.size()));
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 队列统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("activeUsers", queues.size());
+        stats.put("hits", hits.get());
+        stats.put("loads", loads.get());
+        stats.put("flushedRecords", flushedRecords.get());
+        synchronized (pendingLock) {
+            stats.put("pendingRecords", pendingRecords.size());
+            stats.put("pendingStates", pendingStates.size());
+        }
+        return stats;
+    }
+
+    /**
+     * 从数据库加载窗口内到期的状态；内存中已复习过的状态比数据库新，保留内存中的
+     */
+    private void load(UserQueue queue, long now) {
+        loads.incrementAndGet();
+        Date until = new Date(now + TimeUnit.MINUTES.toMillis(horizonMinutes));
+        // 已复习的笔记在数据库中可能还是旧状态，多取相应行数，保证能补充 preloadSize 条新的状态
+        int limit = preloadSize + queue.reviewed.size();
+        List<ReviewState> rows = reviewStateMapper.selectDueStates(queue.userId, until, limit + 1);
+        queue.truncated = rows.size() > limit;
+        if (queue.truncated) {
+            rows = rows.subList(0, limit);
+            // 与最后一条同时到期的状态可能未加载完，窗口截止到它之前
+            queue.loadedUntil = rows.get(rows.size() - 1).getNextReviewDate().getTime() - 1;
+        } else {
+            queue.loadedUntil = until.getTime();
+        }
+        queue.expiresAt = until.getTime();
+        queue.reviewedSinceLoad = false;
+
+        Map<Long, ReviewState> states = new HashMap<>(rows.size() + queue.reviewed.size());
+        for (ReviewState row : rows) {
+            if (row.getNextReviewDate().getTime() <= queue.loadedUntil) {
+                states.put(row.getNoteId(), row);
+            }
+        }
+        for (Long noteId : queue.reviewed) {
+            ReviewState state = queue.states.get(noteId);
+            if (state != null) {
+                states.put(noteId, state);
+            }
+        }
+        queue.states = states;
+        queue.heap.clear();
+        for (ReviewState state : states.values()) {
+            queue.offer(state);
+        }
+    }
+
+    private void requeue(List<ReviewState> states, List<ReviewRecord> records) {
+        synchronized (pendingLock) {
+            List<ReviewRecord> merged = new ArrayList<>(records.size() + pendingRecords.size());
+            merged.addAll(records);
+            merged.addAll(pendingRecords);
+            pendingRecords = merged;
+            // 写回失败期间又复习过的笔记以新状态为准
+            Map<Long, ReviewState> mergedStates = new LinkedHashMap<>();
+            for (ReviewState state : states) {
+                mergedStates.put(state.getNoteId(), state);
+            }
+            mergedStates.putAll(pendingStates);
+            pendingStates = mergedStates;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // 异常不能抛出，否则定时任务会被取消；未写入的数据已放回，下个周期重试
+            log.error("Failed to flush review queue: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 淘汰空闲的用户队列，有未写回数据的用户暂不淘汰
+     */
+    private void evictIdle() {
+        try {
+            flush();
+            long deadline = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleMinutes);
+            Set<Long> pendingUsers = new HashSet<>();
+            synchronized (pendingLock) {
+                for (ReviewState state : pendingStates.values()) {
+                    pendingUsers.add(state.getUserId());
+                }
+            }
+            Iterator<UserQueue> iterator = queues.values().iterator();
+            while (iterator.hasNext()) {
+                UserQueue queue = iterator.next();
+                if (queue.lastAccess < deadline && !pendingUsers.contains(queue.userId)) {
+                    iterator.remove();
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to evict idle review queues: {}", e.getMessage(), e);
+        }
+    }
+
+    private void drop(Long userId) {
+        UserQueue queue = queues.remove(userId);
+        if (queue != null) {
+            synchronized (queue) {
+                queue.dropped = true;
+            }
+        }
+    }
+
+    /**
+     * 队列未被丢弃且用户未暂停，调用方需持有队列锁
+     */
+    private boolean isActive(UserQueue queue) {
+        return !queue.dropped && !suspendedUsers.containsKey(queue.userId);
+    }
+
+    private static ReviewState copyOf(ReviewState state) {
+        ReviewState copy = new ReviewState();
+        copy.setId(state.getId());
+        copy.setNoteId(state.getNoteId());
+        copy.setUserId(state.getUserId());
+        copy.setEasinessFactor(state.getEasinessFactor());
+        copy.setIntervalDays(state.getIntervalDays());
+        copy.setRepetitions(state.getRepetitions());
+        copy.setStability(state.getStability());
+        copy.setDifficulty(state.getDifficulty());
+        copy.setLastQuality(state.getLastQuality());
+        copy.setNextReviewDate(state.getNextReviewDate());
+        copy.setLastReviewedAt(state.getLastReviewedAt());
+        copy.setNoteContent(state.getNoteContent());
+        return copy;
+    }
+
+    /**
+     * 单个用户的到期队列，所有访问在该对象上同步
+     */
+    private static class UserQueue {
+
+        final Long userId;
+
+        /** 已加载的状态，按笔记ID */
+        Map<Long, ReviewState> states = new HashMap<>();
+
+        /** 按下次复习时间排序的堆，状态更新后压入新条目，旧条目在出堆时跳过 */
+        final PriorityQueue<HeapEntry> heap = new PriorityQueue<>();
+
+        /** 本次会话在内存中复习过的笔记，其状态比数据库新 */
+        final Set<Long> reviewed = new HashSet<>();
+
+        /** 下次复习时间不晚于此时刻的状态都已加载 */
+        long loadedUntil;
+
+        /** 加载窗口结束时刻，之后需要重新加载 */
+        long expiresAt;
+
+        /** 上次加载是否达到数量上限 */
+        boolean truncated;
+
+        boolean reviewedSinceLoad;
+
+        /** 已从队列表中移除，持有旧引用的调用方不能再使用 */
+        boolean dropped;
+
+        volatile long lastAccess;
+
+        UserQueue(Long userId) {
+            this.userId = userId;
+        }
+
+        void offer(ReviewState state) {
+            long due = state.getNextReviewDate().getTime();
+            if (due <= loadedUntil) {
+                heap.offer(new HeapEntry(state, due));
+            }
+        }
+
+        /**
+         * 取出到期的有效条目后放回，过期条目直接丢弃
+         */
+        List<ReviewState> peekDue(long now, int limit) {
+            List<HeapEntry> taken = new ArrayList<>(limit);
+            List<ReviewState> due = new ArrayList<>(limit);
+            while (due.size() < limit && !heap.isEmpty() && heap.peek().due <= now) {
+                HeapEntry entry = heap.poll();
+                ReviewState state = states.get(entry.state.getNoteId());
+                if (state != entry.state || state.getNextReviewDate().getTime() != entry.due) {
+                    continue;
+                }
+                taken.add(entry);
+                due.add(state);
+            }
+            heap.addAll(taken);
+            return due;
+        }
+    }
+
+    private static class HeapEntry implements Comparable<HeapEntry> {
+
+        final ReviewState state;
+
+        final long due;
+
+        HeapEntry(ReviewState state, long due) {
+            this.state = state;
+            this.due = due;
+        }
+
+        @Override
+        public int compareTo(HeapEntry other) {
+            int result = Long.compare(due, other.due);
+            return result != 0 ? result : Long.compare(state.getNoteId(), other.state.getNoteId());
+        }
+    }
+}
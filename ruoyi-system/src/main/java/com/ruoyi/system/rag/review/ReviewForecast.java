@@ -0,0 +1,241 @@
+package com.ruoyi.system.rag.review;
+
+import com.ruoyi.system.domain.dto.ReviewForecastDay;
+import com.ruoyi.system.mapper.ReviewStateMapper;
+import com.ruoyi.system.rag.cache.LruCache;
+import com.ruoyi.system.rag.review.srs.SrsCard;
+import com.ruoyi.system.rag.review.srs.SrsScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 复习量预测与排期负载均衡
+ *
+ * 一次分组查询得到用户未来若干天每天到期的复习数，用于预测接口，并在本地缓存一段时间。
+ * 记录复习时，间隔不少于3天的卡片按到期日附近的浮动窗口（与 Anki 相同：2.5-7天 ±15%，
+ * 7-20天 ±10%，20天以上 ±5%，另加1天）重新选择到期日：开启负载均衡时选窗口内到期最少的一天，
+ * 否则在窗口内随机选择，避免同一天复习的卡片之后一直扎堆到期。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Component
+public class ReviewForecast {
+
+    /** 参与浮动的最小间隔(天) */
+    private static final int MIN_FUZZ_INTERVAL = 3;
+
+    @Autowired
+    private ReviewStateMapper reviewStateMapper;
+
+    /** 间隔随机浮动 */
+    @Value("${rag.srs.fuzz.enabled:true}")
+    private Boolean fuzzEnabled;
+
+    /** 在浮动窗口内选择到期最少的一天 */
+    @Value("${rag.srs.load-balance.enabled:true}")
+    private Boolean loadBalanceEnabled;
+
+    /** 负载均衡参考的天数，更远的到期日只做随机浮动 */
+    @Value("${rag.srs.load-balance.days:365}")
+    private Integer loadBalanceDays;
+
+    /** 每日到期数的缓存时间(分钟) */
+    @Value("${rag.srs.load-balance.cache-minutes:10}")
+    private Integer cacheMinutes;
+
+    /** 最多缓存的用户数 */
+    @Value("${rag.srs.load-balance.cache-size:10000}")
+    private Integer cacheSize;
+
+    private LruCache<Long, Histogram> histograms;
+
+    @PostConstruct
+    public void init() {
+        histograms = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * 预测未来若干天每天到期的复习数
+     *
+     * @param userId 用户ID
+     * @param days 天数(含今天)
+     * @return overdue 为今天之前已到期的数量，days 为从今天起每天的到期数量
+     */
+    public Map<String, Object> forecast(Long userId, int days) {
+        Histogram histogram = load(userId, Math.max(days, loadBalanceDays));
+        List<ReviewForecastDay> list = new ArrayList<>(days);
+        int overdue;
+        int total;
+        synchronized (histogram) {
+            overdue = histogram.overdue;
+            total = overdue;
+            for (int i = 0; i < days; i++) {
+                list.add(new ReviewForecastDay(ReviewStatRollup.toDate(histogram.start.plusDays(i)), histogram.counts[i]));
+                total += histogram.counts[i];
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("overdue", overdue);
+        result.put("total", total);
+        result.put("days", list);
+        return result;
+    }
+
+    /**
+     * 对调度算法算出的间隔做浮动与负载均衡，并同步更新缓存的每日到期数
+     *
+     * @param userId 用户ID
+     * @param card 已完成本次复习计算的卡片
+     * @param previousDue 本次复习前的下次复习时间，没有时为0
+     * @param maximumInterval 最大间隔(天)
+     */
+    public void adjust(Long userId, SrsCard card, long previousDue, int maximumInterval) {
+        Histogram histogram = loadBalanceEnabled ? cached(userId) : null;
+        int interval = card.intervalDays;
+        if (interval >= MIN_FUZZ_INTERVAL && (fuzzEnabled || loadBalanceEnabled)) {
+            double delta = fuzzDelta(interval);
+            int min = (int) Math.max(2, Math.round(interval - delta));
+            int max = (int) Math.min(maximumInterval, Math.round(interval + delta));
+            if (min < max) {
+                LocalDate reviewDate = toLocalDate(card.lastReviewedAt);
+                int chosen = histogram != null ? leastLoaded(histogram, reviewDate, min, max) : -1;
+                if (chosen < 0) {
+                    chosen = fuzzEnabled ? ThreadLocalRandom.current().nextInt(min, max + 1) : interval;
+                }
+                card.intervalDays = chosen;
+                card.due = card.lastReviewedAt + chosen * SrsScheduler.DAY_MILLIS;
+            }
+        }
+        if (histogram != null) {
+            histogram.move(previousDue > 0 ? toLocalDate(previousDue) : null, toLocalDate(card.due));
+        }
+    }
+
+    /**
+     * 用户的到期分布有批量变化（重排期等）时丢弃缓存
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        histograms.remove(userId);
+    }
+
+    /**
+     * 浮动窗口半径(天)
+     */
+    static double fuzzDelta(int interval) {
+        double delta = 1.0;
+        delta += 0.15 * (Math.min(interval, 7) - 2.5);
+        if (interval > 7) {
+            delta += 0.1 * (Math.min(interval, 20) - 7);
+        }
+        if (interval > 20) {
+            delta += 0.05 * (interval - 20);
+        }
+        return delta;
+    }
+
+    /**
+     * 窗口内到期最少的间隔，数量相同时随机选择；窗口超出缓存范围时返回-1
+     */
+    private static int leastLoaded(Histogram histogram, LocalDate reviewDate, int min, int max) {
+        int chosen = -1;
+        int best = Integer.MAX_VALUE;
+        int ties = 0;
+        synchronized (histogram) {
+            for (int interval = min; interval <= max; interval++) {
+                int count = histogram.count(reviewDate.plusDays(interval));
+                if (count < 0) {
+                    continue;
+                }
+                if (count < best) {
+                    best = count;
+                    chosen = interval;
+                    ties = 1;
+                } else if (count == best && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                    chosen = interval;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    private Histogram cached(Long userId) {
+        Histogram histogram = histograms.get(userId);
+        if (histogram == null || !histogram.start.equals(LocalDate.now())) {
+            histogram = load(userId, loadBalanceDays);
+        }
+        return histogram;
+    }
+
+    private Histogram load(Long userId, int days) {
+        LocalDate today = LocalDate.now();
+        Histogram histogram = new Histogram(today, days);
+        for (ReviewForecastDay day : reviewStateMapper.selectDueHistogram(userId, ReviewStatRollup.toDate(today.plusDays(days)))) {
+            histogram.add(ReviewStatRollup.toLocalDate(day.getDate()), day.getCount());
+        }
+        histograms.put(userId, histogram, TimeUnit.MINUTES.toMillis(cacheMinutes));
+        return histogram;
+    }
+
+    private static LocalDate toLocalDate(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * 从某天起每天到期的数量，之前到期的计入 overdue
+     */
+    private static class Histogram {
+
+        final LocalDate start;
+
+        final int[] counts;
+
+        int overdue;
+
+        Histogram(LocalDate start, int days) {
+            this.start = start;
+            this.counts = new int[days];
+        }
+
+        synchronized void add(LocalDate date, int count) {
+            int index = (int) ChronoUnit.DAYS.between(start, date);
+            if (index < 0) {
+                overdue += count;
+            } else if (index < counts.length) {
+                counts[index] += count;
+            }
+        }
+
+        synchronized int count(LocalDate date) {
+            int index = (int) ChronoUnit.DAYS.between(start, date);
+            return index >= 0 && index < counts.length ? counts[index] : -1;
+        }
+
+        synchronized void move(LocalDate from, LocalDate to) {
+            if (from != null) {
+                int index = (int) ChronoUnit.DAYS.between(start, from);
+                if (index < 0) {
+                    overdue = Math.max(0, overdue - 1);
+                } else if (index < counts.length && counts[index] > 0) {
+                    counts[index]--;
+                }
+            }
+            add(to, 1);
+        }
+    }
+}
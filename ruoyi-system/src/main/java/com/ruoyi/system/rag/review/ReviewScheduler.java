@@ -0,0 +1,226 @@
+package com.ruoyi.system.rag.review;
+
+import com.ruoyi.common.utils.StringUtils;
+import com.ruoyi.system.domain.ReviewState;
+import com.ruoyi.system.mapper.ReviewStateMapper;
+import com.ruoyi.system.rag.review.srs.FsrsScheduler;
+import com.ruoyi.system.rag.review.srs.Sm2Scheduler;
+import com.ruoyi.system.rag.review.srs.SrsAlgorithm;
+import com.ruoyi.system.rag.review.srs.SrsCard;
+import com.ruoyi.system.rag.review.srs.SrsScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 复习排期
+ *
+ * 按 rag.srs.algorithm 选择调度算法（sm2 / fsrs），负责单次复习的状态计算和整个用户卡组的批量重排期。
+ * 单次复习算出的间隔再经 {@link ReviewForecast} 浮动与负载均衡；批量重排期不做浮动，保持结果可重复。
+ * 批量重排期按ID分段读取 review_state，每段在一个短事务中锁定、计算并以多行 upsert 写回，
+ * 只写有变化的行；计算复用同一个 {@link SrsCard}，内存占用与卡组大小无关。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Component
+public class ReviewScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewScheduler.class);
+
+    @Autowired
+    private ReviewStateMapper reviewStateMapper;
+
+    @Autowired
+    private ReviewDueQueue reviewDueQueue;
+
+    @Autowired
+    private ReviewForecast reviewForecast;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${rag.srs.algorithm:sm2}")
+    private String algorithm;
+
+    @Value("${rag.srs.initial-interval:1}")
+    private Integer initialInterval;
+
+    @Value("${rag.srs.min-easiness:1.3}")
+    private Double minEasiness;
+
+    @Value("${rag.srs.max-easiness:2.5}")
+    private Double maxEasiness;
+
+    @Value("${rag.srs.default-easiness:2.5}")
+    private Double defaultEasiness;
+
+    /** FSRS 目标保持率 */
+    @Value("${rag.srs.desired-retention:0.9}")
+    private Double desiredRetention;
+
+    /** 最大间隔(天) */
+    @Value("${rag.srs.maximum-interval:36500}")
+    private Integer maximumInterval;
+
+    /** FSRS 参数，逗号分隔的17个数，为空时使用默认参数 */
+    @Value("${rag.srs.fsrs-weights:}")
+    private String fsrsWeights;
+
+    /** 批量重排期每段的行数 */
+    @Value("${rag.srs.reschedule-batch-size:1000}")
+    private Integer rescheduleBatchSize;
+
+    private SrsScheduler scheduler;
+
+    /**
+     * 根据配置创建调度算法
+     */
+    @PostConstruct
+    public void init() {
+        if (SrsAlgorithm.of(algorithm) == SrsAlgorithm.FSRS) {
+            scheduler = new FsrsScheduler(parseWeights(fsrsWeights), desiredRetention, maximumInterval);
+        } else {
+            scheduler = new Sm2Scheduler(initialInterval, minEasiness, maxEasiness, defaultEasiness);
+        }
+        log.info("Review scheduler: {}", scheduler.getAlgorithm());
+    }
+
+    /**
+     * 当前调度算法
+     */
+    public SrsScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * 记录一次复习，原地更新复习状态
+     *
+     * @param state 复习状态
+     * @param quality 复习质量(0-5分)
+     * @param reviewedAt 复习时间
+     */
+    public void review(ReviewState state, int quality, Date reviewedAt) {
+        SrsCard card = new SrsCard();
+        toCard(state, card);
+        long previousDue = card.due;
+        scheduler.review(card, quality, reviewedAt.getTime());
+        reviewForecast.adjust(state.getUserId(), card, previousDue, maximumInterval);
+        fromCard(card, state);
+        state.setLastQuality(quality);
+    }
+
+    /**
+     * 按当前算法和参数重新计算用户全部卡片的间隔与下次复习时间
+     *
+     * @param userId 用户ID
+     * @return 变化的卡片数
+     */
+    public int reschedule(Long userId) {
+        // 重排期间不使用内存队列：先丢弃队列并写回已有的复习结果，期间的复习直接写库，
+        // 避免内存中的旧状态在重排后写回覆盖新计划
+        reviewDueQueue.suspend(userId);
+        long startTime = System.currentTimeMillis();
+        SrsCard card = new SrsCard();
+        long afterId = 0;
+        int scanned = 0;
+        int updated = 0;
+        try {
+            reviewDueQueue.flush();
+            while (true) {
+                Chunk chunk = rescheduleChunk(userId, afterId, card);
+                scanned += chunk.size;
+                updated += chunk.updated;
+                if (chunk.size < rescheduleBatchSize) {
+                    break;
+                }
+                afterId = chunk.lastId;
+            }
+        } finally {
+            reviewDueQueue.resume(userId);
+        }
+        reviewForecast.invalidate(userId);
+
+        log.info("Rescheduled {} of {} review states for user {} with {} in {} ms", updated, scanned, userId,
+                scheduler.getAlgorithm(), System.currentTimeMillis() - startTime);
+        return updated;
+    }
+
+    /**
+     * 在一个事务中处理一段复习状态
+     */
+    private Chunk rescheduleChunk(Long userId, long afterId, SrsCard card) {
+        return transactionTemplate.execute(status -> {
+            List<ReviewState> states = reviewStateMapper.selectStateChunkForUpdate(userId, afterId, rescheduleBatchSize);
+            List<ReviewState> changed = new ArrayList<>();
+            for (ReviewState state : states) {
+                toCard(state, card);
+                if (scheduler.reschedule(card)) {
+                    fromCard(card, state);
+                    changed.add(state);
+                }
+            }
+            if (!changed.isEmpty()) {
+                reviewStateMapper.upsertStateBatch(changed);
+            }
+            Chunk chunk = new Chunk();
+            chunk.size = states.size();
+            chunk.updated = changed.size();
+            chunk.lastId = states.isEmpty() ? afterId : states.get(states.size() - 1).getId();
+            return chunk;
+        });
+    }
+
+    static void toCard(ReviewState state, SrsCard card) {
+        card.reset();
+        card.easiness = state.getEasinessFactor() != null ? state.getEasinessFactor().doubleValue() : 0;
+        card.stability = state.getStability() != null ? state.getStability() : 0;
+        card.difficulty = state.getDifficulty() != null ? state.getDifficulty() : 0;
+        card.intervalDays = state.getIntervalDays() != null ? state.getIntervalDays() : 0;
+        card.repetitions = state.getRepetitions() != null ? state.getRepetitions() : 0;
+        card.lastReviewedAt = state.getLastReviewedAt() != null ? state.getLastReviewedAt().getTime() : 0;
+        card.due = state.getNextReviewDate() != null ? state.getNextReviewDate().getTime() : 0;
+    }
+
+    static void fromCard(SrsCard card, ReviewState state) {
+        if (card.easiness > 0) {
+            state.setEasinessFactor(BigDecimal.valueOf(card.easiness));
+        }
+        state.setStability(card.stability > 0 ? card.stability : null);
+        state.setDifficulty(card.difficulty > 0 ? card.difficulty : null);
+        state.setIntervalDays(card.intervalDays);
+        state.setRepetitions(card.repetitions);
+        state.setLastReviewedAt(card.lastReviewedAt > 0 ? new Date(card.lastReviewedAt) : null);
+        state.setNextReviewDate(new Date(card.due));
+    }
+
+    private static double[] parseWeights(String value) {
+        if (StringUtils.isBlank(value)) {
+            return FsrsScheduler.DEFAULT_WEIGHTS;
+        }
+        String[] parts = value.split(",");
+        double[] weights = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            weights[i] = Double.parseDouble(parts[i].trim());
+        }
+        return weights;
+    }
+
+    private static class Chunk {
+
+        int size;
+
+        int updated;
+
+        long lastId;
+    }
+}
@@ -0,0 +1,94 @@
+package com.ruoyi.system.rag.review;
+
+import com.ruoyi.system.domain.ReviewDailyStat;
+import com.ruoyi.system.domain.ReviewRecord;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 复习明细到每日统计增量的汇总
+ *
+ * 写入 review_record 的同时把同一批明细按 (用户, 日期) 汇总后累加到 review_daily_stat，
+ * 统计接口只读汇总表，不再扫描复习明细。日期按应用服务器时区划分。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class ReviewStatRollup {
+
+    /** 质量不低于此值视为记住，与 SM-2 的成功判定一致 */
+    public static final int CORRECT_QUALITY = 3;
+
+    private ReviewStatRollup() {
+    }
+
+    /**
+     * 汇总一批复习明细
+     *
+     * @param records 复习明细
+     * @return 每个用户每天一条增量
+     */
+    public static List<ReviewDailyStat> of(List<ReviewRecord> records) {
+        Map<Key, ReviewDailyStat> stats = new LinkedHashMap<>();
+        for (ReviewRecord record : records) {
+            LocalDate date = toLocalDate(record.getReviewedAt() != null ? record.getReviewedAt() : new Date());
+            ReviewDailyStat stat = stats.computeIfAbsent(new Key(record.getUserId(), date), key -> {
+                ReviewDailyStat created = new ReviewDailyStat();
+                created.setUserId(key.userId);
+                created.setStatDate(toDate(key.date));
+                created.setReviewCount(0);
+                created.setCorrectCount(0);
+                return created;
+            });
+            stat.setReviewCount(stat.getReviewCount() + 1);
+            if (record.getQuality() != null && record.getQuality() >= CORRECT_QUALITY) {
+                stat.setCorrectCount(stat.getCorrectCount() + 1);
+            }
+        }
+        return new ArrayList<>(stats.values());
+    }
+
+    public static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    public static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static class Key {
+
+        final Long userId;
+
+        final LocalDate date;
+
+        Key(Long userId, LocalDate date) {
+            this.userId = userId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(userId, other.userId) && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, date);
+        }
+    }
+}
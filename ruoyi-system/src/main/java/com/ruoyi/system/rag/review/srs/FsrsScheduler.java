@@ -0,0 +1,151 @@
+package com.ruoyi.system.rag.review.srs;
+
+/**
+ * FSRS-4.5 调度
+ *
+ * 记忆状态由稳定性 S（保持率降到 90% 所需天数）和难度 D（1-10）描述，距上次复习 t 天时的
+ * 可提取概率 R = (1 + F * t / S)^C，C = -0.5，F = 19/81；间隔取 R 降到目标保持率的天数。
+ * 复习质量映射为 FSRS 评分：0-2 忘记(1)、3 困难(2)、4 良好(3)、5 简单(4)。
+ * 从 SM-2 切换过来、尚无 S/D 的卡片按原间隔和难度系数估算初始状态。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class FsrsScheduler implements SrsScheduler {
+
+    /** FSRS-4.5 默认参数 */
+    public static final double[] DEFAULT_WEIGHTS = {
+            0.4872, 1.4003, 3.7145, 13.8206, 5.1618, 1.2298, 0.8975, 0.031, 1.6474,
+            0.1367, 1.0461, 2.1072, 0.0793, 0.3246, 1.587, 0.2272, 2.8755
+    };
+
+    private static final double DECAY = -0.5;
+
+    private static final double FACTOR = 19.0 / 81;
+
+    private static final double MIN_STABILITY = 0.01;
+
+    private final double[] w;
+
+    private final int maximumInterval;
+
+    /** 目标保持率对应的间隔系数：I = S * intervalFactor */
+    private final double intervalFactor;
+
+    public FsrsScheduler(double[] weights, double desiredRetention, int maximumInterval) {
+        if (weights.length != DEFAULT_WEIGHTS.length) {
+            throw new IllegalArgumentException("FSRS weights must have " + DEFAULT_WEIGHTS.length + " values");
+        }
+        if (desiredRetention <= 0 || desiredRetention >= 1) {
+            throw new IllegalArgumentException("Desired retention must be between 0 and 1");
+        }
+        this.w = weights.clone();
+        this.maximumInterval = maximumInterval;
+        this.intervalFactor = (Math.pow(desiredRetention, 1 / DECAY) - 1) / FACTOR;
+    }
+
+    @Override
+    public SrsAlgorithm getAlgorithm() {
+        return SrsAlgorithm.FSRS;
+    }
+
+    @Override
+    public void review(SrsCard card, int quality, long now) {
+        int rating = rating(quality);
+        if (card.stability <= 0 && card.lastReviewedAt > 0) {
+            seedFromInterval(card);
+        }
+
+        if (card.stability <= 0) {
+            // 首次复习
+            card.stability = Math.max(w[rating - 1], MIN_STABILITY);
+            card.difficulty = initDifficulty(rating);
+        } else {
+            double elapsedDays = Math.max(0, (now - card.lastReviewedAt) / (double) DAY_MILLIS);
+            double retrievability = retrievability(elapsedDays, card.stability);
+            double difficulty = card.difficulty;
+            card.stability = rating == 1
+                    ? forgetStability(difficulty, card.stability, retrievability)
+                    : recallStability(difficulty, card.stability, retrievability, rating);
+            card.difficulty = nextDifficulty(difficulty, rating);
+        }
+
+        card.repetitions = rating == 1 ? 0 : card.repetitions + 1;
+        card.intervalDays = nextInterval(card.stability);
+        card.lastReviewedAt = now;
+        card.due = now + card.intervalDays * DAY_MILLIS;
+    }
+
+    /**
+     * 按目标保持率重新计算间隔，下次复习时间从最近复习时间算起
+     */
+    @Override
+    public boolean reschedule(SrsCard card) {
+        if (card.lastReviewedAt <= 0) {
+            return false;
+        }
+        if (card.stability <= 0) {
+            seedFromInterval(card);
+        }
+        int interval = nextInterval(card.stability);
+        long due = card.lastReviewedAt + interval * DAY_MILLIS;
+        if (interval == card.intervalDays && Math.abs(due - card.due) < RESCHEDULE_TOLERANCE_MILLIS) {
+            return false;
+        }
+        card.intervalDays = interval;
+        card.due = due;
+        return true;
+    }
+
+    /**
+     * 由 SM-2 状态估算：90% 保持率下间隔约等于稳定性，难度系数 [1.3, 2.5] 线性映射到难度 [10, 1]
+     */
+    private void seedFromInterval(SrsCard card) {
+        card.stability = Math.max(card.intervalDays, 1);
+        double easiness = card.easiness > 0 ? card.easiness : 2.5;
+        card.difficulty = clampDifficulty(1 + (2.5 - easiness) / 1.2 * 9);
+    }
+
+    private static int rating(int quality) {
+        if (quality <= 2) {
+            return 1;
+        }
+        return Math.min(quality - 1, 4);
+    }
+
+    private static double retrievability(double elapsedDays, double stability) {
+        return Math.pow(1 + FACTOR * elapsedDays / stability, DECAY);
+    }
+
+    private int nextInterval(double stability) {
+        long interval = Math.round(stability * intervalFactor);
+        return (int) Math.max(1, Math.min(interval, maximumInterval));
+    }
+
+    private double initDifficulty(int rating) {
+        return clampDifficulty(w[4] - (rating - 3) * w[5]);
+    }
+
+    private double nextDifficulty(double difficulty, int rating) {
+        double next = difficulty - w[6] * (rating - 3);
+        // 向“良好”的初始难度均值回归
+        return clampDifficulty(w[7] * initDifficulty(3) + (1 - w[7]) * next);
+    }
+
+    private double recallStability(double difficulty, double stability, double retrievability, int rating) {
+        double hardPenalty = rating == 2 ? w[15] : 1;
+        double easyBonus = rating == 4 ? w[16] : 1;
+        return stability * (1 + Math.exp(w[8]) * (11 - difficulty) * Math.pow(stability, -w[9])
+                * (Math.exp((1 - retrievability) * w[10]) - 1) * hardPenalty * easyBonus);
+    }
+
+    private double forgetStability(double difficulty, double stability, double retrievability) {
+        double next = w[11] * Math.pow(difficulty, -w[12]) * (Math.pow(stability + 1, w[13]) - 1)
+                * Math.exp((1 - retrievability) * w[14]);
+        return Math.max(MIN_STABILITY, Math.min(next, stability));
+    }
+
+    private static double clampDifficulty(double difficulty) {
+        return Math.max(1, Math.min(10, difficulty));
+    }
+}
@@ -0,0 +1,82 @@
+package com.ruoyi.system.rag.review.srs;
+
+/**
+ * SuperMemo SM-2 调度
+ *
+ * EF' = EF + (0.1 - (5 - q) * (0.08 + (5 - q) * 0.02))，限制在 [minEasiness, maxEasiness]；
+ * 质量 >= 3 时复习次数加一，间隔依次为 1、6、I * EF'，否则复习次数清零、间隔回到初始间隔。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class Sm2Scheduler implements SrsScheduler {
+
+    private final int initialInterval;
+
+    private final double minEasiness;
+
+    private final double maxEasiness;
+
+    private final double defaultEasiness;
+
+    public Sm2Scheduler(int initialInterval, double minEasiness, double maxEasiness, double defaultEasiness) {
+        this.initialInterval = initialInterval;
+        this.minEasiness = minEasiness;
+        this.maxEasiness = maxEasiness;
+        this.defaultEasiness = defaultEasiness;
+    }
+
+    @Override
+    public SrsAlgorithm getAlgorithm() {
+        return SrsAlgorithm.SM2;
+    }
+
+    @Override
+    public void review(SrsCard card, int quality, long now) {
+        double easiness = card.easiness > 0 ? card.easiness : defaultEasiness;
+        int interval = card.intervalDays > 0 ? card.intervalDays : initialInterval;
+        int repetitions = card.repetitions;
+
+        // 更新难度系数
+        double newEasiness = easiness + (0.1 - (5 - quality) * (0.08 + (5 - quality) * 0.02));
+        newEasiness = Math.max(minEasiness, Math.min(maxEasiness, newEasiness));
+
+        if (quality >= 3) {
+            // 复习成功
+            repetitions++;
+            if (repetitions == 1) {
+                interval = 1;
+            } else if (repetitions == 2) {
+                interval = 6;
+            } else {
+                interval = (int) Math.round(interval * newEasiness);
+            }
+        } else {
+            // 复习失败，重置
+            repetitions = 0;
+            interval = initialInterval;
+        }
+
+        card.easiness = newEasiness;
+        card.repetitions = repetitions;
+        card.intervalDays = interval;
+        card.lastReviewedAt = now;
+        card.due = now + interval * DAY_MILLIS;
+    }
+
+    /**
+     * SM-2 没有可调参数，间隔保持不变，只按最近复习时间校正下次复习时间
+     */
+    @Override
+    public boolean reschedule(SrsCard card) {
+        if (card.lastReviewedAt <= 0 || card.intervalDays <= 0) {
+            return false;
+        }
+        long due = card.lastReviewedAt + card.intervalDays * DAY_MILLIS;
+        if (Math.abs(due - card.due) < RESCHEDULE_TOLERANCE_MILLIS) {
+            return false;
+        }
+        card.due = due;
+        return true;
+    }
+}
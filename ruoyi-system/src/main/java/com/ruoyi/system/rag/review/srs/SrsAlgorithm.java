@@ -0,0 +1,29 @@
+package com.ruoyi.system.rag.review.srs;
+
+/**
+ * 间隔重复调度算法
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public enum SrsAlgorithm {
+
+    /** SuperMemo SM-2 */
+    SM2,
+
+    /** Free Spaced Repetition Scheduler (FSRS-4.5) */
+    FSRS;
+
+    /**
+     * 解析配置值，无法识别时回退为 SM-2
+     *
+     * @param value 配置值
+     * @return 调度算法
+     */
+    public static SrsAlgorithm of(String value) {
+        if (value != null && "fsrs".equalsIgnoreCase(value.trim())) {
+            return FSRS;
+        }
+        return SM2;
+    }
+}
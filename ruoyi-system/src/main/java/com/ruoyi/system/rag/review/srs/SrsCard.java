@@ -0,0 +1,47 @@
+package com.ruoyi.system.rag.review.srs;
+
+/**
+ * 调度算法使用的卡片状态
+ *
+ * 只含基本类型字段，批量重排期时可复用同一个实例，避免每行创建 BigDecimal、Calendar 等对象。
+ * 时间均为毫秒时间戳，0 表示没有。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class SrsCard {
+
+    /** SM-2 难度系数，0 表示未设置 */
+    public double easiness;
+
+    /** FSRS 记忆稳定性(天)，0 表示未设置 */
+    public double stability;
+
+    /** FSRS 难度(1-10)，0 表示未设置 */
+    public double difficulty;
+
+    /** 复习间隔(天) */
+    public int intervalDays;
+
+    /** 连续成功复习次数 */
+    public int repetitions;
+
+    /** 最近一次复习时间 */
+    public long lastReviewedAt;
+
+    /** 下次复习时间 */
+    public long due;
+
+    /**
+     * 清空状态以便复用
+     */
+    public void reset() {
+        easiness = 0;
+        stability = 0;
+        difficulty = 0;
+        intervalDays = 0;
+        repetitions = 0;
+        lastReviewedAt = 0;
+        due = 0;
+    }
+}
@@ -0,0 +1,39 @@
+package com.ruoyi.system.rag.review.srs;
+
+/**
+ * 间隔重复调度算法接口
+ * 实现类无状态且线程安全，只读写传入的卡片。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public interface SrsScheduler {
+
+    /** 一天的毫秒数 */
+    long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    /** 重排期时下次复习时间变化小于此值视为不变（DATETIME 精度、夏令时等造成的误差） */
+    long RESCHEDULE_TOLERANCE_MILLIS = 60L * 60 * 1000;
+
+    /**
+     * 算法
+     */
+    SrsAlgorithm getAlgorithm();
+
+    /**
+     * 记录一次复习，更新卡片的记忆状态、间隔与下次复习时间
+     *
+     * @param card 卡片状态
+     * @param quality 复习质量(0-5分)
+     * @param now 复习时间
+     */
+    void review(SrsCard card, int quality, long now);
+
+    /**
+     * 不经复习，按当前参数重新计算间隔与下次复习时间（切换算法或调整目标保持率后使用）
+     *
+     * @param card 卡片状态
+     * @return 是否有变化，未复习过的卡片不变
+     */
+    boolean reschedule(SrsCard card);
+}
@@ -2,6 +2,8 @@ package com.ruoyi.system.service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Deepseek Service接口
@@ -15,9 +17,25 @@ public interface IDeepseekService {
      * 生成文本的向量表示
      * 
      * @param text 输入文本
-     * @return 向量列表
+     * @return 向量
      */
-    List<Double> embedding(String text);
+    float[] embedding(String text);
+    
+    /**
+     * 异步生成文本的向量表示
+     * 
+     * @param text 输入文本
+     * @return 向量
+     */
+    CompletableFuture<float[]> embeddingAsync(String text);
+    
+    /**
+     * 批量生成文本的向量表示
+     * 
+     * @param texts 输入文本列表
+     * @return 与输入顺序一致的向量列表
+     */
+    List<float[]> embeddings(List<String> texts);
     
     /**
      * 调用Chat API生成回答
@@ -27,6 +45,14 @@ public interface IDeepseekService {
      */
     String chat(List<Map<String, String>> messages);
     
+    /**
+     * 异步调用Chat API生成回答
+     * 
+     * @param messages 对话消息列表
+     * @return AI生成的回答
+     */
+    CompletableFuture<String> chatAsync(List<Map<String, String>> messages);
+    
     /**
      * 生成带上下文的回答
      * 
@@ -35,4 +61,23 @@ public interface IDeepseekService {
      * @return AI生成的回答
      */
     String chatWithContext(String context, String question);
+    
+    /**
+     * 异步生成带上下文的回答
+     * 
+     * @param context 上下文文本
+     * @param question 用户问题
+     * @return AI生成的回答
+     */
+    CompletableFuture<String> chatWithContextAsync(String context, String question);
+    
+    /**
+     * 流式生成带上下文的回答
+     * 
+     * @param context 上下文文本
+     * @param question 用户问题
+     * @param onToken 增量内容回调
+     * @return 完整回答，取消时同时取消上游请求
+     */
+    CompletableFuture<String> chatWithContextStream(String context, String question, Consumer<String> onToken);
 }
@@ -0,0 +1,18 @@
+package com.ruoyi.system.service;
+
+/**
+ * 向量存储格式迁移Service接口
+ * 
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public interface IEmbeddingMigrationService {
+    
+    /**
+     * 将 english_note 与 story 中的 JSON 向量迁移为 float32 二进制格式
+     * 
+     * @param batchSize 每批处理数量
+     * @return 迁移的记录数
+     */
+    int migrateLegacyEmbeddings(Integer batchSize);
+}
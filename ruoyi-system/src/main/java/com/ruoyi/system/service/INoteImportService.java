@@ -0,0 +1,34 @@
+package com.ruoyi.system.service;
+
+import com.ruoyi.system.domain.dto.NoteImportJob;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 笔记批量导入Service接口
+ * 
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public interface INoteImportService {
+    
+    /**
+     * 开始导入：文件先写入临时文件，再在后台逐行解析、分批入库
+     * 
+     * @param userId 用户ID
+     * @param fileName 原始文件名(用于判断格式)
+     * @param in 文件内容
+     * @return 导入任务ID
+     */
+    String startImport(Long userId, String fileName, InputStream in) throws IOException;
+    
+    /**
+     * 查询导入任务
+     * 
+     * @param userId 用户ID
+     * @param jobId 任务ID
+     * @return 导入任务，不存在、已过期或不属于该用户时返回null
+     */
+    NoteImportJob getJob(Long userId, String jobId);
+}
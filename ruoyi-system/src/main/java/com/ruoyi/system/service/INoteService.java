@@ -1,5 +1,6 @@
 package com.ruoyi.system.service;
 
+import com.ruoyi.common.core.page.CursorPage;
 import com.ruoyi.system.domain.EnglishNote;
 
 import java.util.List;
@@ -20,6 +21,14 @@ public interface INoteService {
      */
     EnglishNote createNote(EnglishNote note);
     
+    /**
+     * 批量创建笔记（一次多行插入），同时初始化复习记录并登记向量生成任务
+     * 
+     * @param notes 笔记列表(需包含用户ID与内容)
+     * @return 创建的笔记数，笔记对象回填ID
+     */
+    int insertNotes(List<EnglishNote> notes);
+    
     /**
      * 更新笔记
      * 
@@ -52,6 +61,16 @@ public interface INoteService {
      */
     List<EnglishNote> listNotes(Long userId);
     
+    /**
+     * 按游标分页列出用户笔记(不含向量)
+     * 
+     * @param userId 用户ID
+     * @param after 上一页返回的游标，为空时返回第一页
+     * @param limit 每页数量
+     * @return 笔记分页
+     */
+    CursorPage<EnglishNote> listNotes(Long userId, String after, Integer limit);
+    
     /**
      * 批量删除笔记
      * 
@@ -68,5 +87,16 @@ public interface INoteService {
      */
     int countNotes(Long userId);
 
-//    public List<EnglishNote> searchNotes(Long userId, String keyword);
+    /**
+     * 检索用户笔记
+     * 关键词检索走内存倒排索引（BM25）；混合模式下再与向量检索结果做倒数排名融合，
+     * 查询向量获取失败或用户没有向量时退化为纯关键词检索
+     * 
+     * @param userId 用户ID
+     * @param keyword 查询文本
+     * @param hybrid 是否融合向量检索
+     * @param limit 最大返回数量
+     * @return 按相关度排序的笔记列表（similarityScore 为融合得分或 BM25 得分）
+     */
+    List<EnglishNote> searchNotes(Long userId, String keyword, boolean hybrid, Integer limit);
 }
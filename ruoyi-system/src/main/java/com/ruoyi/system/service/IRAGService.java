@@ -1,9 +1,12 @@
 package com.ruoyi.system.service;
 
 import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.domain.dto.NoteDTO;
 import com.ruoyi.system.domain.dto.RAGResponse;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * RAG Service接口
@@ -24,6 +27,17 @@ public interface IRAGService {
      */
     List<EnglishNote> searchNotes(Long userId, String query, Double threshold, Integer maxResults);
     
+    /**
+     * 使用已算好的查询向量检索相关笔记，供多个检索源共用同一个查询向量
+     * 
+     * @param userId 用户ID
+     * @param queryVector 查询向量
+     * @param threshold 相似度阈值
+     * @param maxResults 最大返回结果数
+     * @return 相关笔记列表
+     */
+    List<EnglishNote> searchNotes(Long userId, float[] queryVector, Double threshold, Integer maxResults);
+    
     /**
      * 使用检索结果生成回答
      * 
@@ -35,4 +49,31 @@ public interface IRAGService {
      * @return RAG响应
      */
     RAGResponse generateAnswer(Long userId, String question, Double threshold, Integer maxResults, Boolean includeContext);
+    
+    /**
+     * 异步使用检索结果生成回答，等待大模型期间不占用调用线程
+     * 
+     * @param userId 用户ID
+     * @param question 用户问题
+     * @param threshold 相似度阈值
+     * @param maxResults 最大返回结果数
+     * @param includeContext 是否包含上下文
+     * @return RAG响应，失败时 success 为 false
+     */
+    CompletableFuture<RAGResponse> generateAnswerAsync(Long userId, String question, Double threshold, Integer maxResults, Boolean includeContext);
+    
+    /**
+     * 流式生成回答：先回调检索到的笔记，再逐段回调大模型输出
+     * 
+     * @param userId 用户ID
+     * @param question 用户问题
+     * @param threshold 相似度阈值
+     * @param maxResults 最大返回结果数
+     * @param includeContext 是否包含上下文
+     * @param onNotes 相关笔记回调，在输出回答前调用一次
+     * @param onToken 增量内容回调
+     * @return 完整的RAG响应，失败时 success 为 false；取消时同时取消上游请求
+     */
+    CompletableFuture<RAGResponse> generateAnswerStream(Long userId, String question, Double threshold, Integer maxResults,
+            Boolean includeContext, Consumer<List<NoteDTO>> onNotes, Consumer<String> onToken);
 }
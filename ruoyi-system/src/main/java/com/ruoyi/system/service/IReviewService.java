@@ -1,5 +1,8 @@
 package com.ruoyi.system.service;
 
+import com.ruoyi.common.core.page.CursorPage;
+import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.domain.ReviewDailyStat;
 import com.ruoyi.system.domain.ReviewRecord;
 
 import java.util.List;
@@ -40,6 +43,43 @@ public interface IReviewService {
      */
     Map<String, Object> getReviewStats(Long userId);
     
+    /**
+     * 获取最近若干天的每日复习统计
+     * 
+     * @param userId 用户ID
+     * @param days 天数(含今天)
+     * @return 每日统计，按日期升序，没有复习的日期不返回
+     */
+    List<ReviewDailyStat> getDailyStats(Long userId, Integer days);
+    
+    /**
+     * 预测未来若干天每天到期的复习数
+     * 
+     * @param userId 用户ID
+     * @param days 天数(含今天)
+     * @return overdue、total 与每天的到期数量
+     */
+    Map<String, Object> getForecast(Long userId, Integer days);
+    
+    /**
+     * 按当前调度算法重新排期用户的全部复习状态
+     * 
+     * @param userId 用户ID
+     * @return 变化的复习状态数
+     */
+    int rescheduleReviews(Long userId);
+    
+    /**
+     * 按游标分页获取复习历史
+     * 
+     * @param userId 用户ID
+     * @param noteId 笔记ID，为空时返回全部笔记的历史
+     * @param after 上一页返回的游标，为空时返回第一页
+     * @param limit 每页数量
+     * @return 复习记录分页
+     */
+    CursorPage<ReviewRecord> getReviewHistory(Long userId, Long noteId, String after, Integer limit);
+    
     /**
      * 初始化笔记的复习记录
      * 
@@ -48,4 +88,12 @@ public interface IReviewService {
      * @return 初始化的复习记录
      */
     ReviewRecord initializeReview(Long noteId, Long userId);
+    
+    /**
+     * 批量初始化新笔记的复习状态（已有状态的笔记忽略）
+     * 
+     * @param notes 笔记列表(需包含ID与用户ID)
+     * @return 初始化的记录数
+     */
+    int initializeReviews(List<EnglishNote> notes);
 }
@@ -0,0 +1,24 @@
+package com.ruoyi.system.service;
+
+import java.util.Map;
+
+/**
+ * 统一搜索Service接口
+ * 
+ * @author ruoyi
+ * @date 2025-02-11
+ */
+public interface ISearchService {
+    
+    /**
+     * 同时检索笔记、故事和主角，合并为一个按归一化得分排序的列表
+     * 
+     * @param userId 用户ID
+     * @param keyword 搜索关键词
+     * @param threshold 向量检索的相似度阈值
+     * @param maxResults 每个来源及合并列表的最大结果数
+     * @return results 为合并排序后的结果，notes / stories / characters 为各来源的原始结果，
+     *         partial 为超时或失败而缺失的来源
+     */
+    Map<String, Object> searchAll(Long userId, String keyword, Double threshold, Integer maxResults);
+}
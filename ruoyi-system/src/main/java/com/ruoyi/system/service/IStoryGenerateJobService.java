@@ -0,0 +1,43 @@
+package com.ruoyi.system.service;
+
+import com.ruoyi.system.domain.dto.GenerateStoryRequest;
+import com.ruoyi.system.domain.dto.StoryGenerateJob;
+
+import java.util.function.Consumer;
+
+/**
+ * 故事生成任务Service接口
+ * 
+ * @author ruoyi
+ * @date 2025-02-11
+ */
+public interface IStoryGenerateJobService {
+    
+    /**
+     * 提交故事生成任务，立即返回任务ID，识图、写故事、向量化与保存在后台依次执行
+     * 
+     * @param userId 用户ID
+     * @param request 生成请求
+     * @return 任务ID
+     */
+    String submit(Long userId, GenerateStoryRequest request);
+    
+    /**
+     * 查询故事生成任务
+     * 
+     * @param userId 用户ID
+     * @param jobId 任务ID
+     * @return 任务，不存在、已过期或不属于该用户时返回null
+     */
+    StoryGenerateJob getJob(Long userId, String jobId);
+    
+    /**
+     * 订阅任务进度：先回调一次当前状态，之后每个阶段完成时回调，任务结束后不再回调
+     * 
+     * @param userId 用户ID
+     * @param jobId 任务ID
+     * @param listener 进度回调，抛出异常时取消订阅
+     * @return 取消订阅，任务不存在时返回null
+     */
+    Runnable subscribe(Long userId, String jobId, Consumer<StoryGenerateJob> listener);
+}
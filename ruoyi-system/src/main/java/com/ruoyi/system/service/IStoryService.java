@@ -1,23 +1,32 @@
 package com.ruoyi.system.service;
 
+import com.ruoyi.common.core.page.CursorPage;
 import com.ruoyi.system.domain.Story;
 import com.ruoyi.system.domain.dto.GenerateStoryRequest;
 import com.ruoyi.system.domain.dto.GenerateStoryResponse;
+import com.ruoyi.system.domain.dto.StorySearchResult;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 public interface IStoryService {
     public Story selectStoryById(Long id);
     public List<Story> selectStoryList(Story story);
     public List<Story> selectStoryListByUserId(Long userId);
+    public CursorPage<Story> selectStoryPage(Long userId, Long characterId, Boolean isFavorite, String after, Integer limit);
     public List<Story> selectStoryListByCharacterId(Long characterId);
     public int insertStory(Story story);
     public int updateStory(Story story);
     public int deleteStoryById(Long id);
     public int deleteStoryByIds(Long[] ids);
     public GenerateStoryResponse generateStory(Long userId, GenerateStoryRequest request);
+    public CompletableFuture<GenerateStoryResponse> generateStoryAsync(Long userId, GenerateStoryRequest request);
+    public CompletableFuture<GenerateStoryResponse> generateStoryAsync(Long userId, GenerateStoryRequest request, BiConsumer<String, GenerateStoryResponse> onStage);
+    public int insertGeneratedStory(Story story);
     public int favoriteStory(Long userId, Long storyId);
     public int unfavoriteStory(Long userId, Long storyId);
-    public List<Story> searchStories(Long userId, String keyword, Double similarityThreshold, Integer maxResults);
+    public List<StorySearchResult> searchStories(Long userId, String keyword, Double similarityThreshold, Integer maxResults);
+    public List<StorySearchResult> searchStories(Long userId, String keyword, float[] queryVector, Double similarityThreshold, Integer maxResults);
     public Story getStoryByShareToken(String shareToken);
     public String generateShareToken(Long storyId);
 }
\ No newline at end of file
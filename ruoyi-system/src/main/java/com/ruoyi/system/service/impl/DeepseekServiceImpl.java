@@ -1,7 +1,11 @@
 package com.ruoyi.system.service.impl;
 
+import com.ruoyi.system.rag.cache.EmbeddingCache;
+import com.ruoyi.system.rag.embedding.EmbeddingBatcher;
 import com.ruoyi.system.service.IDeepseekService;
 import com.ruoyi.system.util.DeepseekApiClient;
+import com.ruoyi.system.util.EmbeddingUtil;
+import com.ruoyi.system.util.FutureUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +16,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Deepseek Service实现
@@ -27,6 +34,12 @@ public class DeepseekServiceImpl implements IDeepseekService {
     @Autowired
     private DeepseekApiClient apiClient;
     
+    @Autowired
+    private EmbeddingCache embeddingCache;
+    
+    @Autowired
+    private EmbeddingBatcher embeddingBatcher;
+    
     @Value("${rag.deepseek.embedding-model}")
     private String embeddingModel;
     
@@ -41,20 +54,28 @@ public class DeepseekServiceImpl implements IDeepseekService {
     
     /**
      * 生成文本的向量表示
+     * 文本先规范化空白，命中缓存时不再调用远程接口；未命中时经合并器与并发请求合并发送
      * 
      * @param text 输入文本
-     * @return 向量列表
+     * @return 向量
      */
     @Override
-    public List<Double> embedding(String text) {
+    public float[] embedding(String text) {
         if (text == null || text.trim().isEmpty()) {
             throw new IllegalArgumentException("Text cannot be null or empty");
         }
         
+        String normalized = EmbeddingUtil.normalizeText(text);
+        float[] cached = embeddingCache.get(embeddingModel, normalized);
+        if (cached != null) {
+            return cached;
+        }
+        
         try {
-            log.debug("Generating embedding for text: {}", text.substring(0, Math.min(50, text.length())));
-            List<Double> embedding = apiClient.createEmbedding(text, embeddingModel);
-            log.debug("Successfully generated embedding with dimension: {}", embedding.size());
+            log.debug("Generating embedding for text: {}", normalized.substring(0, Math.min(50, normalized.length())));
+            float[] embedding = embeddingBatcher.embed(normalized, embeddingModel);
+            log.debug("Successfully generated embedding with dimension: {}", embedding.length);
+            embeddingCache.put(embeddingModel, normalized, embedding);
             return embedding;
         } catch (Exception e) {
             log.error("Failed to generate embedding: {}", e.getMessage(), e);
@@ -62,6 +83,74 @@ public class DeepseekServiceImpl implements IDeepseekService {
         }
     }
     
+    /**
+     * 异步生成文本的向量表示
+     * 
+     * @param text 输入文本
+     * @return 向量
+     */
+    @Override
+    public CompletableFuture<float[]> embeddingAsync(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Text cannot be null or empty");
+        }
+        
+        String normalized = EmbeddingUtil.normalizeText(text);
+        float[] cached = embeddingCache.get(embeddingModel, normalized);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<float[]> submitted = embeddingBatcher.submit(normalized, embeddingModel);
+        return FutureUtil.propagateFailure(submitted, submitted.thenApply(embedding -> {
+            embeddingCache.put(embeddingModel, normalized, embedding);
+            return embedding;
+        }));
+    }
+    
+    /**
+     * 批量生成文本的向量表示
+     * 命中缓存的文本直接返回，其余文本一次性提交给合并器，按批量上限拆分为少量请求
+     * 
+     * @param texts 输入文本列表
+     * @return 与输入顺序一致的向量列表
+     */
+    @Override
+    public List<float[]> embeddings(List<String> texts) {
+        if (texts == null || texts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        List<float[]> result = new ArrayList<>(texts.size());
+        List<CompletableFuture<float[]>> futures = new ArrayList<>(texts.size());
+        List<String> normalizedTexts = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            if (text == null || text.trim().isEmpty()) {
+                throw new IllegalArgumentException("Text cannot be null or empty");
+            }
+            String normalized = EmbeddingUtil.normalizeText(text);
+            float[] cached = embeddingCache.get(embeddingModel, normalized);
+            normalizedTexts.add(normalized);
+            result.add(cached);
+            futures.add(cached == null ? embeddingBatcher.submit(normalized, embeddingModel) : null);
+        }
+        
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                CompletableFuture<float[]> future = futures.get(i);
+                if (future != null) {
+                    float[] embedding = future.join();
+                    embeddingCache.put(embeddingModel, normalizedTexts.get(i), embedding);
+                    result.set(i, embedding);
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Failed to generate embeddings: {}", cause.getMessage(), cause);
+            throw new RuntimeException("Failed to generate embeddings: " + cause.getMessage(), cause);
+        }
+    }
+    
     /**
      * 调用Chat API生成回答
      * 
@@ -85,6 +174,22 @@ public class DeepseekServiceImpl implements IDeepseekService {
         }
     }
     
+    /**
+     * 异步调用Chat API生成回答
+     * 
+     * @param messages 对话消息列表
+     * @return AI生成的回答
+     */
+    @Override
+    public CompletableFuture<String> chatAsync(List<Map<String, String>> messages) {
+        if (messages == null || messages.isEmpty()) {
+            throw new IllegalArgumentException("Messages cannot be null or empty");
+        }
+        
+        log.debug("Calling chat API asynchronously with {} messages", messages.size());
+        return apiClient.createChatCompletionAsync(messages, chatModel);
+    }
+    
     /**
      * 生成带上下文的回答
      * 
@@ -94,6 +199,42 @@ public class DeepseekServiceImpl implements IDeepseekService {
      */
     @Override
     public String chatWithContext(String context, String question) {
+        return chat(buildContextMessages(context, question));
+    }
+    
+    /**
+     * 异步生成带上下文的回答
+     * 
+     * @param context 上下文文本
+     * @param question 用户问题
+     * @return AI生成的回答
+     */
+    @Override
+    public CompletableFuture<String> chatWithContextAsync(String context, String question) {
+        return chatAsync(buildContextMessages(context, question));
+    }
+    
+    /**
+     * 流式生成带上下文的回答
+     * 
+     * @param context 上下文文本
+     * @param question 用户问题
+     * @param onToken 增量内容回调
+     * @return 完整回答
+     */
+    @Override
+    public CompletableFuture<String> chatWithContextStream(String context, String question, Consumer<String> onToken) {
+        return apiClient.createChatCompletionStream(buildContextMessages(context, question), chatModel, onToken);
+    }
+    
+    /**
+     * 组装系统提示词与用户消息
+     * 
+     * @param context 上下文文本
+     * @param question 用户问题
+     * @return 对话消息列表
+     */
+    private List<Map<String, String>> buildContextMessages(String context, String question) {
         if (question == null || question.trim().isEmpty()) {
             throw new IllegalArgumentException("Question cannot be null or empty");
         }
@@ -123,6 +264,6 @@ public class DeepseekServiceImpl implements IDeepseekService {
         userMessage.put("content", userContent);
         messages.add(userMessage);
         
-        return chat(messages);
+        return messages;
     }
 }
@@ -0,0 +1,91 @@
+package com.ruoyi.system.service.impl;
+
+import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.domain.Story;
+import com.ruoyi.system.mapper.NoteMapper;
+import com.ruoyi.system.mapper.StoryMapper;
+import com.ruoyi.system.service.IEmbeddingMigrationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 向量存储格式迁移Service实现
+ * 按ID分批读取仍为JSON文本的向量（由类型处理器兼容解析），再以二进制格式写回。
+ * 
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Service
+public class EmbeddingMigrationServiceImpl implements IEmbeddingMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingMigrationServiceImpl.class);
+    
+    private static final int DEFAULT_BATCH_SIZE = 200;
+    
+    @Autowired
+    private NoteMapper noteMapper;
+    
+    @Autowired
+    private StoryMapper storyMapper;
+    
+    /**
+     * 将 english_note 与 story 中的 JSON 向量迁移为 float32 二进制格式
+     * 
+     * @param batchSize 每批处理数量
+     * @return 迁移的记录数
+     */
+    @Override
+    public int migrateLegacyEmbeddings(Integer batchSize) {
+        int size = batchSize != null && batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+        long startTime = System.currentTimeMillis();
+        
+        int notes = migrateNotes(size);
+        int stories = migrateStories(size);
+        
+        log.info("Migrated {} note embeddings and {} story embeddings in {} ms",
+                notes, stories, System.currentTimeMillis() - startTime);
+        return notes + stories;
+    }
+    
+    private int migrateNotes(int batchSize) {
+        int migrated = 0;
+        long lastId = 0L;
+        List<EnglishNote> batch;
+        do {
+            batch = noteMapper.selectLegacyNoteEmbeddings(lastId, batchSize);
+            for (EnglishNote note : batch) {
+                lastId = note.getId();
+                try {
+                    noteMapper.updateNoteEmbedding(note.getId(), note.getEmbedding());
+                    migrated++;
+                } catch (Exception e) {
+                    log.warn("Failed to migrate embedding of note {}: {}", note.getId(), e.getMessage());
+                }
+            }
+        } while (batch.size() == batchSize);
+        return migrated;
+    }
+    
+    private int migrateStories(int batchSize) {
+        int migrated = 0;
+        long lastId = 0L;
+        List<Story> batch;
+        do {
+            batch = storyMapper.selectLegacyStoryEmbeddings(lastId, batchSize);
+            for (Story story : batch) {
+                lastId = story.getId();
+                try {
+                    storyMapper.updateStoryEmbedding(story.getId(), story.getEmbedding());
+                    migrated++;
+                } catch (Exception e) {
+                    log.warn("Failed to migrate embedding of story {}: {}", story.getId(), e.getMessage());
+                }
+            }
+        } while (batch.size() == batchSize);
+        return migrated;
+    }
+}
@@ -0,0 +1,207 @@
+package com.ruoyi.system.service.impl;
+
+import com.ruoyi.common.constant.CacheConstants;
+import com.ruoyi.common.core.redis.RedisCache;
+import com.ruoyi.common.exception.ServiceException;
+import com.ruoyi.common.utils.StringUtils;
+import com.ruoyi.common.utils.uuid.IdUtils;
+import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.domain.dto.NoteImportJob;
+import com.ruoyi.system.rag.importer.NoteImportReader;
+import com.ruoyi.system.service.INoteImportService;
+import com.ruoyi.system.service.INoteService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 笔记批量导入Service实现
+ *
+ * 上传内容先写入临时文件，接口立即返回任务ID；后台线程逐行解析，每满一批调用
+ * {@link INoteService#insertNotes} 在一个事务中写入笔记、复习记录和向量任务，向量由 NoteEmbeddingWorker 异步批量生成。
+ * 进度保存在 Redis 中，每批提交后更新一次；失败时已提交的批次保留。
+ * 导入在独立的有界线程池 noteImportExecutor 中执行，满载时直接返回繁忙，不在请求线程中执行。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+@Service
+public class NoteImportServiceImpl implements INoteImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteImportServiceImpl.class);
+
+    /** 标签最大长度，与 english_note.tags 列一致 */
+    private static final int MAX_TAGS_LENGTH = 500;
+
+    @Autowired
+    private INoteService noteService;
+
+    @Autowired
+    private RedisCache redisCache;
+
+    @Autowired
+    @Qualifier("noteImportExecutor")
+    private Executor noteImportExecutor;
+
+    /** 每批写入的笔记数 */
+    @Value("${rag.import.batch-size:1000}")
+    private Integer batchSize;
+
+    /** 单个文件最多导入的笔记数 */
+    @Value("${rag.import.max-rows:200000}")
+    private Integer maxRows;
+
+    /** 单条笔记内容最大长度 */
+    @Value("${rag.import.max-content-length:10000}")
+    private Integer maxContentLength;
+
+    /** 导入进度保留时间(小时) */
+    @Value("${rag.import.job-ttl-hours:24}")
+    private Integer jobTtlHours;
+
+    /**
+     * 开始导入
+     *
+     * @param userId 用户ID
+     * @param fileName 原始文件名
+     * @param in 文件内容
+     * @return 导入任务ID
+     */
+    @Override
+    public String startImport(Long userId, String fileName, InputStream in) throws IOException {
+        String format = NoteImportReader.formatOf(fileName);
+        if (format == null) {
+            throw new ServiceException("不支持的文件格式，请上传 csv、tsv、txt、jsonl 或 xlsx 文件");
+        }
+
+        File file = File.createTempFile("note-import-", "." + format);
+        try {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+
+        NoteImportJob job = new NoteImportJob();
+        job.setJobId(IdUtils.fastSimpleUUID());
+        job.setUserId(userId);
+        job.setFileName(fileName);
+        job.setFormat(format);
+        job.setStatus(NoteImportJob.STATUS_RUNNING);
+        job.setProgress(0);
+        job.setStartTime(new Date());
+        try {
+            saveJob(job);
+            noteImportExecutor.execute(() -> runImport(job, file));
+        } catch (RejectedExecutionException e) {
+            Files.deleteIfExists(file.toPath());
+            redisCache.deleteObject(CacheConstants.NOTE_IMPORT_JOB_KEY + job.getJobId());
+            throw new ServiceException("系统繁忙，请稍后再试");
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+        return job.getJobId();
+    }
+
+    /**
+     * 查询导入任务
+     *
+     * @param userId 用户ID
+     * @param jobId 任务ID
+     * @return 导入任务
+     */
+    @Override
+    public NoteImportJob getJob(Long userId, String jobId) {
+        NoteImportJob job = redisCache.getCacheObject(CacheConstants.NOTE_IMPORT_JOB_KEY + jobId);
+        if (job == null || !job.getUserId().equals(userId)) {
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * 解析文件并分批写入
+     */
+    private void runImport(NoteImportJob job, File file) {
+        long startTime = System.currentTimeMillis();
+        long fileLength = file.length();
+        NoteImportReader reader = new NoteImportReader(file, job.getFormat());
+        List<EnglishNote> batch = new ArrayList<>(batchSize);
+        try {
+            reader.read((content, tags) -> {
+                // 超出上限后继续读完文件但不再写入，文件大小受上传限制
+                if (job.getImportedCount() + batch.size() >= maxRows) {
+                    return;
+                }
+                job.setProcessedRows(job.getProcessedRows() + 1);
+                if (StringUtils.isBlank(content) || content.length() > maxContentLength) {
+                    job.setSkippedCount(job.getSkippedCount() + 1);
+                    return;
+                }
+                EnglishNote note = new EnglishNote();
+                note.setUserId(job.getUserId());
+                note.setContent(content);
+                note.setTags(StringUtils.substring(tags, 0, MAX_TAGS_LENGTH));
+                batch.add(note);
+                if (batch.size() >= batchSize) {
+                    flush(job, batch, reader.getBytesRead(), fileLength);
+                }
+            });
+            flush(job, batch, reader.getBytesRead(), fileLength);
+            job.setStatus(NoteImportJob.STATUS_COMPLETED);
+            job.setProgress(100);
+            if (job.getImportedCount() >= maxRows) {
+                job.setMessage("超过单次导入上限 " + maxRows + " 条，其余内容未导入");
+            }
+            log.info("Imported {} notes for user {} from {} in {} ms, skipped {}", job.getImportedCount(), job.getUserId(),
+                    job.getFileName(), System.currentTimeMillis() - startTime, job.getSkippedCount());
+        } catch (Exception e) {
+            log.error("Failed to import notes for user {} from {}: {}", job.getUserId(), job.getFileName(), e.getMessage(), e);
+            job.setStatus(NoteImportJob.STATUS_FAILED);
+            job.setMessage("导入失败，已导入 " + job.getImportedCount() + " 条: " + e.getMessage());
+        } finally {
+            job.setFinishTime(new Date());
+            saveJob(job);
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * 写入一批笔记并更新进度
+     */
+    private void flush(NoteImportJob job, List<EnglishNote> batch, long bytesRead, long fileLength) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        noteService.insertNotes(batch);
+        job.setImportedCount(job.getImportedCount() + batch.size());
+        batch.clear();
+        // xlsx 无法按字节估算进度，完成前保持为0
+        if (bytesRead >= 0 && fileLength > 0) {
+            job.setProgress((int) Math.min(99, bytesRead * 100 / fileLength));
+        }
+        saveJob(job);
+    }
+
+    private void saveJob(NoteImportJob job) {
+        redisCache.setCacheObject(CacheConstants.NOTE_IMPORT_JOB_KEY + job.getJobId(), job, jobTtlHours, TimeUnit.HOURS);
+    }
+}
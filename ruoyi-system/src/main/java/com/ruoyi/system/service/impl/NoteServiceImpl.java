@@ -1,11 +1,24 @@
 package com.ruoyi.system.service.impl;
 
+import com.ruoyi.common.core.page.CursorPage;
+import com.ruoyi.common.core.page.PageCursor;
+import com.ruoyi.common.utils.StringUtils;
 import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.mapper.NoteEmbeddingTaskMapper;
 import com.ruoyi.system.mapper.NoteMapper;
 import com.ruoyi.system.mapper.ReviewMapper;
+import com.ruoyi.system.mapper.ReviewStateMapper;
+import com.ruoyi.system.rag.cache.AnswerCache;
+import com.ruoyi.system.rag.index.NoteVectorIndex;
+import com.ruoyi.system.rag.index.ScoredId;
+import com.ruoyi.system.rag.lexical.NoteLexicalIndex;
+import com.ruoyi.system.rag.lexical.RankFusion;
+import com.ruoyi.system.rag.review.ReviewDueQueue;
 import com.ruoyi.system.service.IDeepseekService;
 import com.ruoyi.system.service.INoteService;
+import com.ruoyi.system.service.IReviewService;
 import com.ruoyi.system.util.EmbeddingUtil;
+import com.ruoyi.system.util.TransactionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,8 +26,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Note Service实现
@@ -33,14 +53,58 @@ public class NoteServiceImpl implements INoteService {
     @Autowired
     private ReviewMapper reviewMapper;
     
+    @Autowired
+    private ReviewStateMapper reviewStateMapper;
+    
+    @Autowired
+    private ReviewDueQueue reviewDueQueue;
+    
+    @Autowired
+    private NoteEmbeddingTaskMapper noteEmbeddingTaskMapper;
+    
     @Autowired
     private IDeepseekService deepseekService;
     
-    @Value("${rag.deepseek.embedding-model}")
-    private String embeddingModel;
+    @Autowired
+    private IReviewService reviewService;
+    
+    @Autowired
+    private NoteVectorIndex noteVectorIndex;
+    
+    @Autowired
+    private NoteLexicalIndex noteLexicalIndex;
+    
+    @Autowired
+    private AnswerCache answerCache;
+    
+    /** 检索默认返回数量 */
+    @Value("${rag.search.default-limit:20}")
+    private Integer searchDefaultLimit;
+    
+    /** 检索最大返回数量 */
+    @Value("${rag.search.max-limit:100}")
+    private Integer searchMaxLimit;
+    
+    /** 混合检索时每一路参与融合的候选数量 */
+    @Value("${rag.search.candidates:50}")
+    private Integer searchCandidates;
+    
+    /** 倒数排名融合的平滑常数 */
+    @Value("${rag.search.rrf-k:60}")
+    private Integer rrfK;
+    
+    /** 向量检索候选的最低相似度 */
+    @Value("${rag.search.vector-threshold:0.5}")
+    private Double vectorThreshold;
+    
+    /** 等待查询向量的时限(毫秒)，超时只返回关键词结果 */
+    @Value("${rag.search.embedding-timeout-millis:1500}")
+    private Long embeddingTimeoutMillis;
     
     /**
-     * 创建笔记（包含向量生成）
+     * 创建笔记
+     * 向量生成任务与笔记在同一事务中写入，由 NoteEmbeddingWorker 异步生成向量；
+     * 内存索引与缓存只在事务提交后更新，回滚时与数据库保持一致
      * 
      * @param note 笔记对象
      * @return 创建的笔记
@@ -51,14 +115,13 @@ public class NoteServiceImpl implements INoteService {
         try {
             log.debug("Creating note: {}", note.getContent());
 
-            // ⚠️ 暂时禁用嵌入，用全文搜索代替
-            // note.setEmbedding(deepseekService.embedding(note.getContent()));
-
             note.setDelFlag("0");
             note.setCreateTime(new Date());
 
             int result = noteMapper.insertNote(note);
             if (result > 0) {
+                noteEmbeddingTaskMapper.upsertTask(note.getId());
+                TransactionUtil.afterCommit(() -> noteLexicalIndex.put(note));
                 return note;
             }
             throw new RuntimeException("Failed to insert note");
@@ -67,8 +130,38 @@ public class NoteServiceImpl implements INoteService {
         }
     }
     
+    /**
+     * 批量创建笔记
+     * 
+     * @param notes 笔记列表
+     * @return 创建的笔记数
+     */
+    @Override
+    @Transactional
+    public int insertNotes(List<EnglishNote> notes) {
+        if (notes == null || notes.isEmpty()) {
+            return 0;
+        }
+        
+        int result = noteMapper.insertNoteBatch(notes);
+        List<Long> ids = new ArrayList<>(notes.size());
+        for (EnglishNote note : notes) {
+            note.setDelFlag("0");
+            ids.add(note.getId());
+        }
+        reviewService.initializeReviews(notes);
+        noteEmbeddingTaskMapper.insertTaskBatch(ids);
+        TransactionUtil.afterCommit(() -> {
+            for (EnglishNote note : notes) {
+                noteLexicalIndex.put(note);
+            }
+        });
+        return result;
+    }
+    
     /**
      * 更新笔记
+     * 内容变化时登记向量生成任务，不在事务中调用向量接口
      * 
      * @param note 笔记对象
      * @return 更新的笔记
@@ -87,20 +180,26 @@ public class NoteServiceImpl implements INoteService {
         }
         
         try {
-            // 如果内容有变化，重新生成向量
-            if (note.getContent() != null && !note.getContent().equals(existingNote.getContent())) {
-                log.debug("Content changed, regenerating embedding");
-                List<Double> embedding = deepseekService.embedding(note.getContent());
-                String embeddingJson = EmbeddingUtil.embeddingToJson(embedding);
-                note.setEmbedding(embeddingJson);
-                note.setEmbeddingModel(embeddingModel);
-            }
+            // 向量只由后台任务写入
+            note.setEmbedding(null);
+            note.setEmbeddingModel(null);
             
             // 更新笔记
             int result = noteMapper.updateNote(note);
             if (result > 0) {
                 log.info("Successfully updated note with ID: {}", note.getId());
-                return noteMapper.selectNoteById(note.getId());
+                // 如果内容有变化（仅空白不同不算），重新生成向量；完成前向量索引保留旧向量
+                if (note.getContent() != null && !EmbeddingUtil.normalizeText(note.getContent())
+                        .equals(EmbeddingUtil.normalizeText(existingNote.getContent()))) {
+                    log.debug("Content changed, scheduling embedding");
+                    noteEmbeddingTaskMapper.upsertTask(note.getId());
+                }
+                EnglishNote updatedNote = noteMapper.selectNoteById(note.getId());
+                TransactionUtil.afterCommit(() -> {
+                    noteLexicalIndex.put(updatedNote);
+                    answerCache.invalidateNote(note.getId());
+                });
+                return updatedNote;
             } else {
                 throw new RuntimeException("Failed to update note");
             }
@@ -124,12 +223,19 @@ public class NoteServiceImpl implements INoteService {
         }
         
         try {
-            // 删除相关的复习记录
+            // 删除相关的复习记录与复习状态，先丢弃内存中未写回的部分
+            reviewDueQueue.removeNote(id);
             reviewMapper.deleteReviewRecordByNoteId(id);
+            reviewStateMapper.deleteStateByNoteId(id);
             
             // 软删除笔记
             int result = noteMapper.deleteNoteById(id);
             if (result > 0) {
+                TransactionUtil.afterCommit(() -> {
+                    noteVectorIndex.remove(id);
+                    noteLexicalIndex.remove(id);
+                    answerCache.invalidateNote(id);
+                });
                 log.info("Successfully deleted note with ID: {}", id);
                 return true;
             }
@@ -170,6 +276,25 @@ public class NoteServiceImpl implements INoteService {
         return noteMapper.selectNoteListByUserId(userId);
     }
     
+    /**
+     * 按游标分页列出用户笔记，多查一条判断是否还有下一页
+     * 
+     * @param userId 用户ID
+     * @param after 上一页返回的游标
+     * @param limit 每页数量
+     * @return 笔记分页
+     */
+    @Override
+    public CursorPage<EnglishNote> listNotes(Long userId, String after, Integer limit) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        
+        int pageSize = PageCursor.limit(limit);
+        List<EnglishNote> notes = noteMapper.selectNotePageByUserId(userId, PageCursor.parse(after), pageSize + 1);
+        return CursorPage.of(notes, pageSize, note -> PageCursor.format(note.getCreateTime(), note.getId()));
+    }
+    
     /**
      * 批量删除笔记
      * 
@@ -184,14 +309,23 @@ public class NoteServiceImpl implements INoteService {
         }
         
         try {
-            // 删除相关的复习记录
+            // 删除相关的复习记录与复习状态，先丢弃内存中未写回的部分
             for (Long id : ids) {
+                reviewDueQueue.removeNote(id);
                 reviewMapper.deleteReviewRecordByNoteId(id);
+                reviewStateMapper.deleteStateByNoteId(id);
             }
             
             // 批量软删除笔记
             int result = noteMapper.deleteNoteByIds(ids);
             if (result > 0) {
+                TransactionUtil.afterCommit(() -> {
+                    for (Long id : ids) {
+                        noteVectorIndex.remove(id);
+                        noteLexicalIndex.remove(id);
+                        answerCache.invalidateNote(id);
+                    }
+                });
                 log.info("Successfully deleted {} notes", result);
                 return true;
             }
@@ -216,12 +350,84 @@ public class NoteServiceImpl implements INoteService {
         
         return noteMapper.countNotesByUserId(userId);
     }
-
-//    public List<EnglishNote> searchNotes(Long userId, String keyword) {
-//        QueryWrapper<EnglishNote> wrapper = new QueryWrapper<>();
-//        wrapper.eq("user_id", userId)
-//                .eq("del_flag", "0")
-//                .and(w -> w.like("content", keyword).or().like("tags", keyword));
-//        return englishNoteMapper.selectList(wrapper);
-//    }
+    
+    /**
+     * 检索用户笔记
+     * 混合模式下先发出查询向量请求，与关键词检索并行；用户没有向量时不调用向量接口
+     * 
+     * @param userId 用户ID
+     * @param keyword 查询文本
+     * @param hybrid 是否融合向量检索
+     * @param limit 最大返回数量
+     * @return 按相关度排序的笔记列表
+     */
+    @Override
+    public List<EnglishNote> searchNotes(Long userId, String keyword, boolean hybrid, Integer limit) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        if (StringUtils.isBlank(keyword)) {
+            return new ArrayList<>();
+        }
+        int maxResults = limit != null && limit > 0 ? Math.min(limit, searchMaxLimit) : searchDefaultLimit;
+        
+        CompletableFuture<float[]> queryVector = hybrid && noteVectorIndex.size(userId) > 0
+                ? deepseekService.embeddingAsync(keyword) : null;
+        
+        List<ScoredId> hits = noteLexicalIndex.search(userId, keyword,
+                queryVector != null ? Math.max(maxResults, searchCandidates) : maxResults);
+        if (queryVector != null) {
+            List<ScoredId> vectorHits = searchVectors(userId, queryVector);
+            if (!vectorHits.isEmpty()) {
+                hits = RankFusion.fuse(Arrays.asList(hits, vectorHits), rrfK, maxResults);
+            }
+        }
+        if (hits.size() > maxResults) {
+            hits = hits.subList(0, maxResults);
+        }
+        return loadNotes(userId, hits);
+    }
+    
+    /**
+     * 等待查询向量并检索向量索引，失败或超时返回空结果
+     */
+    private List<ScoredId> searchVectors(Long userId, CompletableFuture<float[]> queryVector) {
+        try {
+            float[] vector = queryVector.get(embeddingTimeoutMillis, TimeUnit.MILLISECONDS);
+            return noteVectorIndex.search(userId, vector, vectorThreshold, searchCandidates);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Vector search skipped for user {}, using keyword results only: {}", userId,
+                    e instanceof TimeoutException ? "embedding timed out" : e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+    
+    /**
+     * 按命中顺序回表读取笔记
+     */
+    private List<EnglishNote> loadNotes(Long userId, List<ScoredId> hits) {
+        if (hits.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (ScoredId hit : hits) {
+            ids.add(hit.getId());
+        }
+        Map<Long, EnglishNote> noteMap = new HashMap<>();
+        for (EnglishNote note : noteMapper.selectNoteByIds(ids)) {
+            noteMap.put(note.getId(), note);
+        }
+        
+        List<EnglishNote> notes = new ArrayList<>(hits.size());
+        for (ScoredId hit : hits) {
+            EnglishNote note = noteMap.get(hit.getId());
+            if (note != null && userId.equals(note.getUserId())) {
+                note.setSimilarityScore(hit.getScore());
+                notes.add(note);
+            }
+        }
+        return notes;
+    }
 }
@@ -4,18 +4,31 @@ import com.ruoyi.system.domain.EnglishNote;
 import com.ruoyi.system.domain.dto.NoteDTO;
 import com.ruoyi.system.domain.dto.RAGResponse;
 import com.ruoyi.system.mapper.NoteMapper;
+import com.ruoyi.system.rag.cache.AnswerCache;
+import com.ruoyi.system.rag.index.NoteVectorIndex;
+import com.ruoyi.system.rag.index.ScoredId;
 import com.ruoyi.system.service.IDeepseekService;
 import com.ruoyi.system.service.IRAGService;
-import com.ruoyi.system.util.EmbeddingUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * RAG Service实现
@@ -34,12 +47,34 @@ public class RAGServiceImpl implements IRAGService {
     @Autowired
     private NoteMapper noteMapper;
     
+    @Autowired
+    private NoteVectorIndex noteVectorIndex;
+    
+    @Autowired
+    private AnswerCache answerCache;
+    
+    @Autowired
+    @Qualifier("ragExecutor")
+    private Executor ragExecutor;
+    
     @Value("${rag.vector.similarity-threshold:0.7}")
     private Double defaultThreshold;
     
     @Value("${rag.vector.max-results:5}")
     private Integer defaultMaxResults;
     
+    /** 查询向量化阶段时限(毫秒)，超时降级为不带上下文回答 */
+    @Value("${rag.pipeline.embedding-timeout-millis:3000}")
+    private long embeddingTimeoutMillis;
+    
+    /** 检索回表阶段时限(毫秒)，超时降级为不带上下文回答 */
+    @Value("${rag.pipeline.retrieval-timeout-millis:2000}")
+    private long retrievalTimeoutMillis;
+    
+    /** 生成回答阶段时限(毫秒)，超时则请求失败 */
+    @Value("${rag.pipeline.generation-timeout-millis:120000}")
+    private long generationTimeoutMillis;
+    
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
     
     /**
@@ -53,36 +88,16 @@ public class RAGServiceImpl implements IRAGService {
      */
     @Override
     public List<EnglishNote> searchNotes(Long userId, String query, Double threshold, Integer maxResults) {
-        if (query == null || query.trim().isEmpty()) {
-            throw new IllegalArgumentException("Query cannot be null or empty");
-        }
-        
-        if (userId == null) {
-            throw new IllegalArgumentException("User ID cannot be null");
-        }
-        
-        // 使用默认值
-        if (threshold == null) {
-            threshold = defaultThreshold;
-        }
-        if (maxResults == null) {
-            maxResults = defaultMaxResults;
-        }
+        checkQuery(userId, query);
         
         log.debug("Searching notes for user {} with query: {}", userId, query);
         
         try {
             // 1. 生成查询向量
-            List<Double> queryEmbedding = deepseekService.embedding(query);
-            String queryEmbeddingJson = EmbeddingUtil.embeddingToJson(queryEmbedding);
+            float[] queryVector = deepseekService.embedding(query);
             
-            // 2. 使用向量检索相关笔记
-            List<EnglishNote> notes = noteMapper.searchSimilarNotes(
-                    userId, 
-                    queryEmbeddingJson, 
-                    threshold, 
-                    maxResults
-            );
+            // 2. 检索并回表
+            List<EnglishNote> notes = findNotes(userId, queryVector, threshold, maxResults);
             
             log.debug("Found {} similar notes", notes.size());
             
@@ -93,6 +108,26 @@ public class RAGServiceImpl implements IRAGService {
         }
     }
     
+    /**
+     * 使用已算好的查询向量检索相关笔记
+     * 
+     * @param userId 用户ID
+     * @param queryVector 查询向量
+     * @param threshold 相似度阈值
+     * @param maxResults 最大返回结果数
+     * @return 相关笔记列表
+     */
+    @Override
+    public List<EnglishNote> searchNotes(Long userId, float[] queryVector, Double threshold, Integer maxResults) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        if (queryVector == null) {
+            throw new IllegalArgumentException("Query vector cannot be null");
+        }
+        return findNotes(userId, queryVector, threshold, maxResults);
+    }
+    
     /**
      * 使用检索结果生成回答
      * 
@@ -105,50 +140,274 @@ public class RAGServiceImpl implements IRAGService {
      */
     @Override
     public RAGResponse generateAnswer(Long userId, String question, Double threshold, Integer maxResults, Boolean includeContext) {
+        return generateAnswerAsync(userId, question, threshold, maxResults, includeContext).join();
+    }
+    
+    /**
+     * 异步使用检索结果生成回答
+     * 流水线执行：查询向量先于参数校验发出，检索回表在独立的有界线程池中执行，
+     * 向量化与检索各有时限，超时或失败时降级为不带上下文回答；各阶段耗时记录在 stageTimings 中。
+     * 向量化与生成超时会传递到 DeepseekApiClient，取消进行中的 HTTP 请求及后续重试
+     * 
+     * @param userId 用户ID
+     * @param question 用户问题
+     * @param threshold 相似度阈值
+     * @param maxResults 最大返回结果数
+     * @param includeContext 是否包含上下文
+     * @return RAG响应
+     */
+    @Override
+    public CompletableFuture<RAGResponse> generateAnswerAsync(Long userId, String question, Double threshold, Integer maxResults, Boolean includeContext) {
         long startTime = System.currentTimeMillis();
         RAGResponse response = new RAGResponse();
         
+        CompletableFuture<String> answer;
         try {
-            // 1. 检索相关笔记
-            List<EnglishNote> relatedNotes = searchNotes(userId, question, threshold, maxResults);
-            
-            // 2. 转换为DTO
-            List<NoteDTO> noteDTOs = convertToNoteDTOs(relatedNotes);
-            response.setRelatedNotes(noteDTOs);
-            response.setNoteCount(noteDTOs.size());
-            
-            // 3. 生成回答
-            String answer;
-            if (includeContext != null && includeContext && !relatedNotes.isEmpty()) {
-                // 构建上下文
-                StringBuilder context = new StringBuilder();
-                for (int i = 0; i < relatedNotes.size(); i++) {
-                    EnglishNote note = relatedNotes.get(i);
-                    context.append(String.format("[笔记%d] %s\n", i + 1, note.getContent()));
-                }
-                
-                // 带上下文生成回答
-                answer = deepseekService.chatWithContext(context.toString(), question);
+            answer = retrieve(userId, question, threshold, maxResults, response)
+                    .thenCompose(retrieval -> {
+                        String cached = getCachedAnswer(userId, retrieval, includeContext, response);
+                        if (cached != null) {
+                            return CompletableFuture.completedFuture(cached);
+                        }
+                        long generationStart = System.nanoTime();
+                        return deepseekService.chatWithContextAsync(buildContext(retrieval.notes, includeContext), question)
+                                .orTimeout(generationTimeoutMillis, TimeUnit.MILLISECONDS)
+                                .whenComplete((content, e) -> recordStage(response, "generation", generationStart))
+                                .thenApply(content -> cacheAnswer(userId, retrieval, includeContext, content));
+                    });
+        } catch (Exception e) {
+            answer = new CompletableFuture<>();
+            answer.completeExceptionally(e);
+        }
+        
+        return answer.handle((content, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                log.error("Failed to generate answer: {}", cause.getMessage(), cause);
+                response.setSuccess(false);
+                response.setErrorMessage(cause instanceof TimeoutException ? "Answer generation timed out" : cause.getMessage());
+                response.setRelatedNotes(new ArrayList<>());
+                response.setNoteCount(0);
             } else {
-                // 不带上下文，直接生成回答
-                answer = deepseekService.chatWithContext(null, question);
+                response.setAnswer(content);
+                response.setSuccess(true);
             }
-            
-            response.setAnswer(answer);
-            response.setSuccess(true);
-            
+            response.setProcessingTime(System.currentTimeMillis() - startTime);
+            return response;
+        });
+    }
+    
+    /**
+     * 流式生成回答
+     * 检索完成后先回调相关笔记，再把大模型的增量输出逐段回调给调用方
+     * 
+     * @param userId 用户ID
+     * @param question 用户问题
+     * @param threshold 相似度阈值
+     * @param maxResults 最大返回结果数
+     * @param includeContext 是否包含上下文
+     * @param onNotes 相关笔记回调
+     * @param onToken 增量内容回调
+     * @return RAG响应
+     */
+    @Override
+    public CompletableFuture<RAGResponse> generateAnswerStream(Long userId, String question, Double threshold, Integer maxResults,
+            Boolean includeContext, Consumer<List<NoteDTO>> onNotes, Consumer<String> onToken) {
+        long startTime = System.currentTimeMillis();
+        RAGResponse response = new RAGResponse();
+        CompletableFuture<RAGResponse> result = new CompletableFuture<>();
+        
+        // 调用方取消（如客户端断开）时取消上游流式请求
+        AtomicReference<CompletableFuture<String>> stream = new AtomicReference<>();
+        result.whenComplete((r, e) -> {
+            CompletableFuture<String> upstream = stream.get();
+            if (result.isCancelled() && upstream != null) {
+                upstream.cancel(true);
+            }
+        });
+        
+        CompletableFuture<String> answer;
+        try {
+            answer = retrieve(userId, question, threshold, maxResults, response)
+                    .thenCompose(retrieval -> {
+                        onNotes.accept(response.getRelatedNotes());
+                        
+                        String cached = getCachedAnswer(userId, retrieval, includeContext, response);
+                        if (cached != null) {
+                            // 命中缓存时整段作为一个增量输出
+                            onToken.accept(cached);
+                            return CompletableFuture.completedFuture(cached);
+                        }
+                        long generationStart = System.nanoTime();
+                        CompletableFuture<String> upstream = deepseekService.chatWithContextStream(
+                                buildContext(retrieval.notes, includeContext), question, onToken);
+                        stream.set(upstream);
+                        if (result.isCancelled()) {
+                            upstream.cancel(true);
+                        }
+                        return upstream
+                                .whenComplete((content, e) -> recordStage(response, "generation", generationStart))
+                                .thenApply(content -> cacheAnswer(userId, retrieval, includeContext, content));
+                    });
         } catch (Exception e) {
-            log.error("Failed to generate answer: {}", e.getMessage(), e);
-            response.setSuccess(false);
-            response.setErrorMessage(e.getMessage());
-            response.setRelatedNotes(new ArrayList<>());
-            response.setNoteCount(0);
+            answer = new CompletableFuture<>();
+            answer.completeExceptionally(e);
+        }
+        
+        answer.whenComplete((content, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof CancellationException) {
+                    log.debug("Answer stream cancelled for user {}", userId);
+                } else {
+                    log.error("Failed to stream answer: {}", cause.getMessage(), cause);
+                }
+                response.setSuccess(false);
+                response.setErrorMessage(cause.getMessage());
+            } else {
+                response.setAnswer(content);
+                response.setSuccess(true);
+            }
+            response.setProcessingTime(System.currentTimeMillis() - startTime);
+            result.complete(response);
+        });
+        return result;
+    }
+    
+    /**
+     * 检索阶段：向量化（有时限）后在 ragExecutor 中检索回表（有时限）
+     * 向量化可缓存且无副作用，在参数校验之前发出；校验失败直接抛出，
+     * 其余失败或超时降级为空笔记列表并标记 degraded，由后续阶段不带上下文回答
+     * 
+     * @param response 写入相关笔记、降级标记与阶段耗时
+     * @return 检索结果，降级时查询向量为空
+     */
+    private CompletableFuture<Retrieval> retrieve(Long userId, String question, Double threshold, Integer maxResults, RAGResponse response) {
+        long embeddingStart = System.nanoTime();
+        CompletableFuture<float[]> embedding = question != null && !question.trim().isEmpty()
+                ? deepseekService.embeddingAsync(question) : null;
+        checkQuery(userId, question);
+        
+        return embedding
+                .orTimeout(embeddingTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((vector, e) -> recordStage(response, "embedding", embeddingStart))
+                .thenCompose(queryVector -> {
+                    long retrievalStart = System.nanoTime();
+                    return CompletableFuture
+                            .supplyAsync(() -> new Retrieval(queryVector, findNotes(userId, queryVector, threshold, maxResults)), ragExecutor)
+                            .orTimeout(retrievalTimeoutMillis, TimeUnit.MILLISECONDS)
+                            .whenComplete((retrieval, e) -> recordStage(response, "retrieval", retrievalStart));
+                })
+                .handle((retrieval, e) -> {
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        log.warn("Retrieval degraded for user {}, answering without context: {}", userId,
+                                cause instanceof TimeoutException ? "timed out" : cause.getMessage());
+                        response.setDegraded(true);
+                        retrieval = new Retrieval(null, new ArrayList<>());
+                    } else {
+                        response.setDegraded(false);
+                    }
+                    List<NoteDTO> noteDTOs = convertToNoteDTOs(retrieval.notes);
+                    response.setRelatedNotes(noteDTOs);
+                    response.setNoteCount(noteDTOs.size());
+                    return retrieval;
+                });
+    }
+    
+    /**
+     * 查找语义相近且检索结果未变的缓存回答，降级时不使用缓存
+     */
+    private String getCachedAnswer(Long userId, Retrieval retrieval, Boolean includeContext, RAGResponse response) {
+        String cached = retrieval.queryVector != null
+                ? answerCache.get(userId, retrieval.queryVector, Boolean.TRUE.equals(includeContext), retrieval.notes) : null;
+        response.setCached(cached != null);
+        return cached;
+    }
+    
+    /**
+     * 缓存生成的回答，降级时的回答不缓存
+     */
+    private String cacheAnswer(Long userId, Retrieval retrieval, Boolean includeContext, String answer) {
+        if (retrieval.queryVector != null) {
+            answerCache.put(userId, retrieval.queryVector, Boolean.TRUE.equals(includeContext), retrieval.notes, answer);
+        }
+        return answer;
+    }
+    
+    /**
+     * 记录阶段耗时
+     */
+    private static void recordStage(RAGResponse response, String stage, long startNanos) {
+        response.getStageTimings().put(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+    
+    /**
+     * 校验检索参数
+     */
+    private void checkQuery(Long userId, String query) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Query cannot be null or empty");
         }
         
-        long endTime = System.currentTimeMillis();
-        response.setProcessingTime(endTime - startTime);
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+    }
+    
+    /**
+     * 在内存向量索引中检索 top-k，回表加载笔记内容并按相似度顺序返回
+     * 
+     * @param userId 用户ID
+     * @param queryVector 查询向量
+     * @param threshold 相似度阈值，为空时使用默认值
+     * @param maxResults 最大返回结果数，为空时使用默认值
+     * @return 相关笔记列表
+     */
+    private List<EnglishNote> findNotes(Long userId, float[] queryVector, Double threshold, Integer maxResults) {
+        List<ScoredId> hits = noteVectorIndex.search(userId, queryVector,
+                threshold != null ? threshold : defaultThreshold,
+                maxResults != null ? maxResults : defaultMaxResults);
+        if (hits.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (ScoredId hit : hits) {
+            ids.add(hit.getId());
+        }
+        Map<Long, EnglishNote> noteMap = new HashMap<>();
+        for (EnglishNote note : noteMapper.selectNoteByIds(ids)) {
+            noteMap.put(note.getId(), note);
+        }
         
-        return response;
+        List<EnglishNote> notes = new ArrayList<>(hits.size());
+        for (ScoredId hit : hits) {
+            EnglishNote note = noteMap.get(hit.getId());
+            if (note != null && userId.equals(note.getUserId())) {
+                note.setSimilarityScore(hit.getScore());
+                notes.add(note);
+            }
+        }
+        return notes;
+    }
+    
+    /**
+     * 构建上下文，不包含上下文或没有相关笔记时返回null
+     * 
+     * @param relatedNotes 相关笔记
+     * @param includeContext 是否包含上下文
+     * @return 上下文文本
+     */
+    private String buildContext(List<EnglishNote> relatedNotes, Boolean includeContext) {
+        if (includeContext == null || !includeContext || relatedNotes.isEmpty()) {
+            return null;
+        }
+        StringBuilder context = new StringBuilder();
+        for (int i = 0; i < relatedNotes.size(); i++) {
+            context.append("[笔记").append(i + 1).append("] ").append(relatedNotes.get(i).getContent()).append('\n');
+        }
+        return context.toString();
     }
     
     /**
@@ -176,4 +435,19 @@ public class RAGServiceImpl implements IRAGService {
         
         return dtos;
     }
+    
+    /**
+     * 检索阶段结果
+     */
+    private static class Retrieval {
+        
+        private final float[] queryVector;
+        
+        private final List<EnglishNote> notes;
+        
+        Retrieval(float[] queryVector, List<EnglishNote> notes) {
+            this.queryVector = queryVector;
+            this.notes = notes;
+        }
+    }
 }
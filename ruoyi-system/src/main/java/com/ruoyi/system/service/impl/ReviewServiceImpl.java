@@ -1,8 +1,19 @@
 package com.ruoyi.system.service.impl;
 
+import com.ruoyi.common.core.page.CursorPage;
+import com.ruoyi.common.core.page.PageCursor;
+import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.domain.ReviewDailyStat;
 import com.ruoyi.system.domain.ReviewRecord;
+import com.ruoyi.system.domain.ReviewState;
 import com.ruoyi.system.mapper.NoteMapper;
+import com.ruoyi.system.mapper.ReviewDailyStatMapper;
 import com.ruoyi.system.mapper.ReviewMapper;
+import com.ruoyi.system.mapper.ReviewStateMapper;
+import com.ruoyi.system.rag.review.ReviewDueQueue;
+import com.ruoyi.system.rag.review.ReviewForecast;
+import com.ruoyi.system.rag.review.ReviewScheduler;
+import com.ruoyi.system.rag.review.ReviewStatRollup;
 import com.ruoyi.system.service.IReviewService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,17 +21,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Review Service实现
- * 基于SuperMemo SM-2算法的SRS实现
+ * 间隔重复调度由 ReviewScheduler 按配置选择 SM-2 或 FSRS
+ * 当前调度状态保存在 review_state（每条笔记一行，原地更新），review_record 只追加复习明细
+ * 复习会话优先经过 ReviewDueQueue 在内存中读写，不在队列中的笔记直接读写数据库
  * 
  * @author ruoyi
  * @date 2025-02-10
@@ -30,20 +49,38 @@ public class ReviewServiceImpl implements IReviewService {
 
     private static final Logger log = LoggerFactory.getLogger(ReviewServiceImpl.class);
     
+    /** 记忆保持率的统计天数 */
+    private static final int RETENTION_DAYS = 30;
+    
+    /** 连续天数最多回溯的天数 */
+    private static final int STREAK_DAYS = 365;
+    
+    @Autowired
+    private NoteMapper noteMapper;
+    
     @Autowired
     private ReviewMapper reviewMapper;
     
     @Autowired
-    private NoteMapper noteMapper;
+    private ReviewStateMapper reviewStateMapper;
     
-    @Value("${rag.srs.initial-interval:1}")
-    private Integer initialInterval;
+    @Autowired
+    private ReviewDailyStatMapper reviewDailyStatMapper;
+    
+    @Autowired
+    private ReviewDueQueue reviewDueQueue;
+    
+    @Autowired
+    private ReviewScheduler reviewScheduler;
     
-    @Value("${rag.srs.min-easiness:1.3}")
-    private Double minEasiness;
+    @Autowired
+    private ReviewForecast reviewForecast;
     
-    @Value("${rag.srs.max-easiness:2.5}")
-    private Double maxEasiness;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Value("${rag.srs.initial-interval:1}")
+    private Integer initialInterval;
     
     @Value("${rag.srs.default-easiness:2.5}")
     private Double defaultEasiness;
@@ -65,8 +102,16 @@ public class ReviewServiceImpl implements IReviewService {
             limit = 10; // 默认返回10个
         }
         
-        Date currentDate = new Date();
-        return reviewMapper.selectDueReviews(userId, currentDate, limit);
+        // 优先从内存到期队列读取，未启用时查库
+        List<ReviewState> states = reviewDueQueue.next(userId, limit);
+        if (states == null) {
+            states = reviewStateMapper.selectDueStates(userId, new Date(), limit);
+        }
+        List<ReviewRecord> items = new ArrayList<>(states.size());
+        for (ReviewState state : states) {
+            items.add(toRecord(state));
+        }
+        return items;
     }
     
     /**
@@ -78,7 +123,6 @@ public class ReviewServiceImpl implements IReviewService {
      * @return 更新后的复习记录
      */
     @Override
-    @Transactional
     public ReviewRecord recordReview(Long noteId, Long userId, Integer quality) {
         if (noteId == null || userId == null) {
             throw new IllegalArgumentException("Note ID and User ID cannot be null");
@@ -88,33 +132,13 @@ public class ReviewServiceImpl implements IReviewService {
             throw new IllegalArgumentException("Quality must be between 0 and 5");
         }
         
-        // 获取最新的复习记录
-        ReviewRecord latestRecord = reviewMapper.selectLatestRecordByNoteId(noteId);
-        
-        ReviewRecord newRecord = new ReviewRecord();
-        newRecord.setNoteId(noteId);
-        newRecord.setUserId(userId);
-        newRecord.setQuality(quality);
-        newRecord.setReviewedAt(new Date());
-        
-        if (latestRecord == null) {
-            // 首次复习
-            newRecord.setRepetitions(1);
-            newRecord.setEasinessFactor(BigDecimal.valueOf(defaultEasiness));
-            newRecord.setIntervalDays(initialInterval);
-        } else {
-            // 更新复习数据
-            updateReviewStats(newRecord, latestRecord, quality);
+        // 笔记在用户的到期队列中时只更新内存，由队列批量写回
+        ReviewRecord newRecord = reviewDueQueue.record(userId, noteId, state -> applyReview(state, quality));
+        if (newRecord == null) {
+            newRecord = transactionTemplate.execute(status -> recordReviewInDb(noteId, userId, quality));
         }
         
-        // 计算下次复习时间
-        Date nextReviewDate = calculateNextReviewDate(newRecord.getIntervalDays());
-        newRecord.setNextReviewDate(nextReviewDate);
-        
-        // 保存新记录
-        reviewMapper.insertReviewRecord(newRecord);
-        
-        log.info("Recorded review for note {} with quality {}, next review in {} days", 
+        log.debug("Recorded review for note {} with quality {}, next review in {} days", 
                 noteId, quality, newRecord.getIntervalDays());
         
         return newRecord;
@@ -123,6 +147,9 @@ public class ReviewServiceImpl implements IReviewService {
     /**
      * 获取复习统计
      * 
+     * 待复习数、笔记总数、复习总次数由一条聚合查询返回；今日复习数、连续天数与记忆保持率
+     * 由最近一年的每日统计（每天最多一行）计算，不再读取复习明细
+     * 
      * @param userId 用户ID
      * @return 复习统计信息
      */
@@ -132,41 +159,116 @@ public class ReviewServiceImpl implements IReviewService {
             throw new IllegalArgumentException("User ID cannot be null");
         }
         
-        Map<String, Object> stats = new HashMap<>();
+        Map<String, Object> stats = new HashMap<>(reviewDailyStatMapper.selectReviewSummary(userId, new Date()));
         
-        // 待复习数量
-        int dueCount = reviewMapper.countDueReviews(userId, new Date());
-        stats.put("dueCount", dueCount);
-        
-        // 总笔记数
-        int totalNotes = noteMapper.countNotesByUserId(userId);
-        stats.put("totalNotes", totalNotes);
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, ReviewDailyStat> daily = new HashMap<>();
+        for (ReviewDailyStat stat : reviewDailyStatMapper.selectDailyStats(userId, ReviewStatRollup.toDate(today.minusDays(STREAK_DAYS)))) {
+            daily.put(ReviewStatRollup.toLocalDate(stat.getStatDate()), stat);
+        }
         
         // 今日复习记录
-        ReviewRecord record = new ReviewRecord();
-        record.setUserId(userId);
-        List<ReviewRecord> todayReviews = reviewMapper.selectReviewRecordList(record);
+        ReviewDailyStat todayStat = daily.get(today);
+        stats.put("todayReviewCount", todayStat != null ? todayStat.getReviewCount() : 0);
         
-        // 过滤今日的记录
-        Date today = new Date();
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(today);
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        Date todayStart = cal.getTime();
-        
-        long todayCount = todayReviews.stream()
-                .filter(r -> r.getReviewedAt() != null && r.getReviewedAt().after(todayStart))
-                .count();
-        stats.put("todayReviewCount", todayCount);
+        // 连续复习天数，今天还没复习时从昨天算起
+        LocalDate day = todayStat != null ? today : today.minusDays(1);
+        int streak = 0;
+        while (daily.containsKey(day)) {
+            streak++;
+            day = day.minusDays(1);
+        }
+        stats.put("streakDays", streak);
         
-        // 总复习次数
-        stats.put("totalReviewCount", todayReviews.size());
+        // 最近 RETENTION_DAYS 天的记忆保持率(质量>=3的比例)，没有复习时为空
+        int reviewCount = 0;
+        int correctCount = 0;
+        LocalDate retentionStart = today.minusDays(RETENTION_DAYS - 1);
+        for (Map.Entry<LocalDate, ReviewDailyStat> entry : daily.entrySet()) {
+            if (!entry.getKey().isBefore(retentionStart)) {
+                reviewCount += entry.getValue().getReviewCount();
+                correctCount += entry.getValue().getCorrectCount();
+            }
+        }
+        stats.put("retentionRate", reviewCount > 0 ? Math.round(correctCount * 1000.0 / reviewCount) / 1000.0 : null);
         
         return stats;
     }
     
+    /**
+     * 获取最近若干天的每日复习统计
+     * 
+     * @param userId 用户ID
+     * @param days 天数(含今天)
+     * @return 每日统计
+     */
+    @Override
+    public List<ReviewDailyStat> getDailyStats(Long userId, Integer days) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        
+        if (days == null || days <= 0) {
+            days = RETENTION_DAYS;
+        }
+        days = Math.min(days, STREAK_DAYS + 1);
+        return reviewDailyStatMapper.selectDailyStats(userId, ReviewStatRollup.toDate(LocalDate.now().minusDays(days - 1)));
+    }
+    
+    /**
+     * 预测未来若干天每天到期的复习数
+     * 
+     * @param userId 用户ID
+     * @param days 天数(含今天)
+     * @return 复习量预测
+     */
+    @Override
+    public Map<String, Object> getForecast(Long userId, Integer days) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        
+        if (days == null || days <= 0) {
+            days = RETENTION_DAYS;
+        }
+        return reviewForecast.forecast(userId, Math.min(days, STREAK_DAYS));
+    }
+    
+    /**
+     * 按当前调度算法重新排期用户的全部复习状态
+     * 
+     * @param userId 用户ID
+     * @return 变化的复习状态数
+     */
+    @Override
+    public int rescheduleReviews(Long userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        
+        return reviewScheduler.reschedule(userId);
+    }
+    
+    /**
+     * 按游标分页获取复习历史
+     * 
+     * @param userId 用户ID
+     * @param noteId 笔记ID
+     * @param after 上一页返回的游标
+     * @param limit 每页数量
+     * @return 复习记录分页
+     */
+    @Override
+    public CursorPage<ReviewRecord> getReviewHistory(Long userId, Long noteId, String after, Integer limit) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        
+        int pageSize = PageCursor.limit(limit);
+        List<ReviewRecord> records = reviewMapper.selectReviewHistoryPage(userId, noteId, PageCursor.parse(after), pageSize + 1);
+        return CursorPage.of(records, pageSize, record -> PageCursor.format(record.getReviewedAt(), record.getId()));
+    }
+    
     /**
      * 初始化笔记的复习记录
      * 
@@ -181,75 +283,134 @@ public class ReviewServiceImpl implements IReviewService {
             throw new IllegalArgumentException("Note ID and User ID cannot be null");
         }
         
-        // 检查是否已有复习记录
-        ReviewRecord existing = reviewMapper.selectLatestRecordByNoteId(noteId);
+        // 检查是否已有复习状态
+        ReviewState existing = reviewStateMapper.selectStateByNoteId(noteId);
         if (existing != null) {
-            return existing;
+            if (!userId.equals(existing.getUserId())) {
+                throw new IllegalArgumentException("Note does not belong to user");
+            }
+            return toRecord(existing);
         }
         
-        // 创建初始复习记录
-        ReviewRecord record = new ReviewRecord();
-        record.setNoteId(noteId);
-        record.setUserId(userId);
-        record.setQuality(0);
-        record.setRepetitions(0);
-        record.setEasinessFactor(BigDecimal.valueOf(defaultEasiness));
-        record.setIntervalDays(initialInterval);
-        record.setReviewedAt(new Date());
-        record.setNextReviewDate(calculateNextReviewDate(initialInterval));
+        checkNoteOwner(noteId, userId);
         
-        reviewMapper.insertReviewRecord(record);
+        // 创建初始复习状态，尚未复习，不写复习明细
+        ReviewState state = newState(noteId, userId, calculateNextReviewDate(initialInterval));
+        reviewStateMapper.insertStateBatch(Collections.singletonList(state));
+        reviewDueQueue.invalidate(userId);
         
-        log.info("Initialized review record for note {}", noteId);
+        log.info("Initialized review state for note {}", noteId);
         
-        return record;
+        return toRecord(state);
     }
     
     /**
-     * 更新复习统计数据（基于SM-2算法）
+     * 批量初始化新笔记的复习状态
      * 
-     * @param newRecord 新记录
-     * @param latestRecord 最新记录
-     * @param quality 复习质量
+     * @param notes 笔记列表
+     * @return 初始化的记录数
      */
-    private void updateReviewStats(ReviewRecord newRecord, ReviewRecord latestRecord, Integer quality) {
-        int repetitions = latestRecord.getRepetitions() != null ? latestRecord.getRepetitions() : 0;
-        double easiness = latestRecord.getEasinessFactor() != null ? 
-                latestRecord.getEasinessFactor().doubleValue() : defaultEasiness;
-        int interval = latestRecord.getIntervalDays() != null ? latestRecord.getIntervalDays() : initialInterval;
+    @Override
+    @Transactional
+    public int initializeReviews(List<EnglishNote> notes) {
+        if (notes == null || notes.isEmpty()) {
+            return 0;
+        }
         
-        // SM-2算法：更新难度系数
-        // EF' = EF + (0.1 - (5 - q) * (0.08 + (5 - q) * 0.02))
-        double newEasiness = easiness + (0.1 - (5 - quality) * (0.08 + (5 - quality) * 0.02));
+        Date nextReviewDate = calculateNextReviewDate(initialInterval);
+        List<ReviewState> states = new ArrayList<>(notes.size());
+        Set<Long> userIds = new HashSet<>();
+        for (EnglishNote note : notes) {
+            states.add(newState(note.getId(), note.getUserId(), nextReviewDate));
+            userIds.add(note.getUserId());
+        }
+        int rows = reviewStateMapper.insertStateBatch(states);
+        for (Long userId : userIds) {
+            reviewDueQueue.invalidate(userId);
+        }
+        return rows;
+    }
+    
+    /**
+     * 在事务中读取、计算并写回复习状态
+     */
+    private ReviewRecord recordReviewInDb(Long noteId, Long userId, Integer quality) {
+        // 锁定当前复习状态，同一笔记的并发复习按顺序计算
+        ReviewState state = reviewStateMapper.selectStateByNoteIdForUpdate(noteId);
+        if (state != null && !userId.equals(state.getUserId())) {
+            throw new IllegalArgumentException("Note does not belong to user");
+        }
         
-        // 限制难度系数范围
-        if (newEasiness < minEasiness) {
-            newEasiness = minEasiness;
-        } else if (newEasiness > maxEasiness) {
-            newEasiness = maxEasiness;
+        if (state == null) {
+            checkNoteOwner(noteId, userId);
+            state = newState(noteId, userId, new Date());
         }
+        ReviewRecord newRecord = applyReview(state, quality);
         
-        // 更新复习次数和间隔
-        if (quality >= 3) {
-            // 复习成功
-            repetitions++;
-            
-            if (repetitions == 1) {
-                interval = 1;
-            } else if (repetitions == 2) {
-                interval = 6;
-            } else {
-                interval = (int) Math.round(interval * newEasiness);
-            }
-        } else {
-            // 复习失败，重置
-            repetitions = 0;
-            interval = initialInterval;
+        // 追加复习明细，原地更新复习状态，累加每日统计
+        reviewMapper.insertReviewRecord(newRecord);
+        reviewStateMapper.upsertState(state);
+        reviewDailyStatMapper.upsertDailyStatBatch(ReviewStatRollup.of(Collections.singletonList(newRecord)));
+        return newRecord;
+    }
+    
+    /**
+     * 创建复习状态前校验笔记存在、未删除且属于该用户
+     * 复习状态按笔记唯一，不校验时其他用户可以抢先占用该笔记的复习状态
+     */
+    private void checkNoteOwner(Long noteId, Long userId) {
+        EnglishNote note = noteMapper.selectNoteById(noteId);
+        if (note == null || !userId.equals(note.getUserId())) {
+            throw new IllegalArgumentException("Note does not belong to user");
         }
+    }
+    
+    /**
+     * 根据复习质量更新复习状态，并生成复习记录
+     * 
+     * @param state 当前复习状态
+     * @param quality 复习质量
+     * @return 复习记录
+     */
+    private ReviewRecord applyReview(ReviewState state, Integer quality) {
+        Date reviewedAt = new Date();
+        reviewScheduler.review(state, quality, reviewedAt);
         
-        newRecord.setRepetitions(repetitions);
-        newRecord.setEasinessFactor(BigDecimal.valueOf(newEasiness));
-        newRecord.setIntervalDays(interval);
+        ReviewRecord newRecord = toRecord(state);
+        newRecord.setQuality(quality);
+        newRecord.setReviewedAt(reviewedAt);
+        return newRecord;
+    }
+    
+    /**
+     * 新笔记的初始复习状态
+     */
+    private ReviewState newState(Long noteId, Long userId, Date nextReviewDate) {
+        ReviewState state = new ReviewState();
+        state.setNoteId(noteId);
+        state.setUserId(userId);
+        state.setRepetitions(0);
+        state.setEasinessFactor(BigDecimal.valueOf(defaultEasiness));
+        state.setIntervalDays(initialInterval);
+        state.setNextReviewDate(nextReviewDate);
+        return state;
+    }
+    
+    /**
+     * 复习状态转换为接口返回的复习记录格式
+     */
+    private ReviewRecord toRecord(ReviewState state) {
+        ReviewRecord record = new ReviewRecord();
+        record.setNoteId(state.getNoteId());
+        record.setUserId(state.getUserId());
+        record.setQuality(state.getLastQuality() != null ? state.getLastQuality() : 0);
+        record.setEasinessFactor(state.getEasinessFactor());
+        record.setIntervalDays(state.getIntervalDays());
+        record.setRepetitions(state.getRepetitions());
+        record.setNextReviewDate(state.getNextReviewDate());
+        record.setReviewedAt(state.getLastReviewedAt());
+        record.setNoteContent(state.getNoteContent());
+        return record;
     }
     
     /**
@@ -0,0 +1,291 @@
+package com.ruoyi.system.service.impl;
+
+import com.ruoyi.common.utils.StringUtils;
+import com.ruoyi.system.domain.EnglishNote;
+import com.ruoyi.system.domain.StoryCharacter;
+import com.ruoyi.system.domain.dto.SearchHit;
+import com.ruoyi.system.domain.dto.StorySearchResult;
+import com.ruoyi.system.service.IDeepseekService;
+import com.ruoyi.system.service.INoteService;
+import com.ruoyi.system.service.IRAGService;
+import com.ruoyi.system.service.ISearchService;
+import com.ruoyi.system.service.IStoryCharacterService;
+import com.ruoyi.system.service.IStoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 统一搜索Service实现
+ *
+ * 查询向量只计算一次，由笔记和故事两路共用；主角检索不需要向量，与向量化同时开始。
+ * 三路在 ragExecutor 中并行执行，各自从请求开始计时的时限内未完成的来源记入 partial，
+ * 整体耗时取决于最慢的一路而不是各路之和。查询向量超时或失败时笔记和故事退化为关键词检索。
+ *
+ * 向量检索的得分是余弦相似度，可直接比较；关键词检索的得分按来源内的相对相关度映射到
+ * [阈值, 1]，与通过阈值的向量结果处于同一区间后再合并排序。
+ *
+ * @author ruoyi
+ * @date 2025-02-11
+ */
+@Service
+public class SearchServiceImpl implements ISearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchServiceImpl.class);
+
+    /** 单次搜索每个来源最多返回的结果数 */
+    private static final int MAX_SEARCH_RESULTS = 50;
+
+    /** 摘要长度 */
+    private static final int SNIPPET_LENGTH = 200;
+
+    /** 笔记没有标题，取内容开头作为标题 */
+    private static final int TITLE_LENGTH = 50;
+
+    @Autowired
+    private IDeepseekService deepseekService;
+
+    @Autowired
+    private IRAGService ragService;
+
+    @Autowired
+    private INoteService noteService;
+
+    @Autowired
+    private IStoryService storyService;
+
+    @Autowired
+    private IStoryCharacterService characterService;
+
+    @Autowired
+    @Qualifier("ragExecutor")
+    private Executor ragExecutor;
+
+    @Value("${rag.vector.similarity-threshold:0.7}")
+    private Double defaultThreshold;
+
+    @Value("${rag.vector.max-results:5}")
+    private Integer defaultMaxResults;
+
+    /** 等待查询向量的时限(毫秒)，超时笔记和故事改用关键词检索 */
+    @Value("${rag.search.federated.embedding-timeout-millis:1500}")
+    private long embeddingTimeoutMillis;
+
+    /** 每个来源的时限(毫秒)，从请求开始计时，超时的来源不返回结果 */
+    @Value("${rag.search.federated.source-timeout-millis:3000}")
+    private long sourceTimeoutMillis;
+
+    @Override
+    public Map<String, Object> searchAll(Long userId, String keyword, Double threshold, Integer maxResults) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        long startTime = System.currentTimeMillis();
+        double minScore = Math.max(0.0, Math.min(1.0, threshold != null ? threshold : defaultThreshold));
+        int limit = Math.min(maxResults != null && maxResults > 0 ? maxResults : defaultMaxResults, MAX_SEARCH_RESULTS);
+
+        Source<EnglishNote> notes;
+        Source<StorySearchResult> stories;
+        Source<StoryCharacter> characters;
+        if (StringUtils.isBlank(keyword)) {
+            notes = new Source<>();
+            stories = new Source<>();
+            characters = new Source<>();
+        } else {
+            String query = keyword.trim();
+            CompletableFuture<float[]> queryVector = deepseekService.embeddingAsync(query)
+                    .completeOnTimeout(null, embeddingTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> {
+                        log.warn("Query embedding unavailable for user {}, using keyword search: {}", userId, e.getMessage());
+                        return null;
+                    });
+            CompletableFuture<Source<EnglishNote>> noteBranch = guard("notes", userId, queryVector
+                    .thenApplyAsync(vector -> searchNotes(userId, query, vector, minScore, limit), ragExecutor));
+            CompletableFuture<Source<StorySearchResult>> storyBranch = guard("stories", userId, queryVector
+                    .thenApplyAsync(vector -> searchStories(userId, query, vector, minScore, limit), ragExecutor));
+            CompletableFuture<Source<StoryCharacter>> characterBranch = guard("characters", userId,
+                    supplyAsync(() -> searchCharacters(userId, query, minScore, limit)));
+            CompletableFuture.allOf(noteBranch, storyBranch, characterBranch).join();
+            notes = noteBranch.join();
+            stories = storyBranch.join();
+            characters = characterBranch.join();
+        }
+
+        List<SearchHit> results = new ArrayList<>();
+        List<String> partial = new ArrayList<>();
+        merge("notes", notes, results, partial);
+        merge("stories", stories, results, partial);
+        merge("characters", characters, results, partial);
+        // List.sort 是稳定排序，得分相同时保持笔记、故事、主角的顺序
+        results.sort(Comparator.comparing(SearchHit::getScore).reversed());
+        if (results.size() > limit) {
+            results = new ArrayList<>(results.subList(0, limit));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("results", results);
+        result.put("notes", notes.items);
+        result.put("stories", stories.items);
+        result.put("characters", characters.items);
+        result.put("totalNotes", notes.items.size());
+        result.put("totalStories", stories.items.size());
+        result.put("totalCharacters", characters.items.size());
+        result.put("partial", partial);
+        result.put("processingTime", System.currentTimeMillis() - startTime);
+        return result;
+    }
+
+    /**
+     * 笔记：有查询向量时走向量检索，否则走内存倒排索引（BM25）
+     */
+    private Source<EnglishNote> searchNotes(Long userId, String keyword, float[] queryVector, double minScore, int limit) {
+        Source<EnglishNote> source = new Source<>();
+        if (queryVector != null) {
+            source.items = ragService.searchNotes(userId, queryVector, minScore, limit);
+        } else {
+            source.items = noteService.searchNotes(userId, keyword, false, limit);
+        }
+        double maxLexical = 0;
+        for (EnglishNote note : source.items) {
+            if (note.getSimilarityScore() != null) {
+                maxLexical = Math.max(maxLexical, note.getSimilarityScore());
+            }
+        }
+        for (EnglishNote note : source.items) {
+            double score = note.getSimilarityScore() != null ? note.getSimilarityScore() : 0;
+            if (queryVector == null) {
+                score = lexicalScore(maxLexical > 0 ? score / maxLexical : 0, minScore);
+            }
+            String content = note.getContent();
+            source.hits.add(new SearchHit(SearchHit.TYPE_NOTE, note.getId(),
+                    StringUtils.substring(firstLine(content), 0, TITLE_LENGTH),
+                    StringUtils.substring(content, 0, SNIPPET_LENGTH), score));
+        }
+        return source;
+    }
+
+    /**
+     * 故事：有查询向量时走向量检索，否则按标题、主角名称、正文匹配
+     */
+    private Source<StorySearchResult> searchStories(Long userId, String keyword, float[] queryVector, double minScore, int limit) {
+        Source<StorySearchResult> source = new Source<>();
+        source.items = storyService.searchStories(userId, keyword, queryVector, minScore, limit);
+        for (StorySearchResult story : source.items) {
+            double score;
+            if (story.getSimilarityScore() != null) {
+                score = story.getSimilarityScore();
+            } else {
+                score = lexicalScore(contains(story.getTitle(), keyword) || contains(story.getCharacterName(), keyword) ? 0.8 : 0.6, minScore);
+            }
+            source.hits.add(new SearchHit(SearchHit.TYPE_STORY, story.getId(), story.getTitle(), story.getExcerpt(), score));
+        }
+        return source;
+    }
+
+    /**
+     * 主角：按名称和描述匹配，名称完全相同 > 名称开头 > 名称包含 > 仅描述包含
+     */
+    private Source<StoryCharacter> searchCharacters(Long userId, String keyword, double minScore, int limit) {
+        Source<StoryCharacter> source = new Source<>();
+        List<StoryCharacter> characters = characterService.searchCharacters(userId, keyword);
+        source.items = characters.size() > limit ? new ArrayList<>(characters.subList(0, limit)) : characters;
+        String lowerKeyword = keyword.toLowerCase();
+        for (StoryCharacter character : source.items) {
+            String name = character.getName() != null ? character.getName().toLowerCase() : "";
+            double relevance;
+            if (name.equals(lowerKeyword)) {
+                relevance = 1.0;
+            } else if (name.startsWith(lowerKeyword)) {
+                relevance = 0.9;
+            } else if (name.contains(lowerKeyword)) {
+                relevance = 0.8;
+            } else {
+                relevance = 0.6;
+            }
+            source.hits.add(new SearchHit(SearchHit.TYPE_CHARACTER, character.getId(), character.getName(),
+                    StringUtils.substring(character.getDescription(), 0, SNIPPET_LENGTH), lexicalScore(relevance, minScore)));
+        }
+        return source;
+    }
+
+    /**
+     * 在 ragExecutor 中执行，线程池拒绝时返回失败的 future 而不是直接抛出
+     */
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, ragExecutor);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 为一路检索加上时限，超时或失败时结果为空并记录原因
+     */
+    private <T> CompletableFuture<Source<T>> guard(String name, Long userId, CompletableFuture<Source<T>> branch) {
+        return branch
+                .orTimeout(sourceTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    log.warn("Search source {} skipped for user {}: {}", name, userId,
+                            cause instanceof TimeoutException ? "timed out" : cause.getMessage());
+                    Source<T> source = new Source<>();
+                    source.complete = false;
+                    return source;
+                });
+    }
+
+    private static void merge(String name, Source<?> source, List<SearchHit> results, List<String> partial) {
+        if (!source.complete) {
+            partial.add(name);
+        }
+        results.addAll(source.hits);
+    }
+
+    /**
+     * 将来源内的相对相关度(0-1)映射到 [minScore, 1]
+     */
+    private static double lexicalScore(double relevance, double minScore) {
+        return minScore + (1 - minScore) * relevance;
+    }
+
+    private static boolean contains(String text, String keyword) {
+        return text != null && text.toLowerCase().contains(keyword.toLowerCase());
+    }
+
+    private static String firstLine(String content) {
+        if (content == null) {
+            return null;
+        }
+        int end = content.indexOf('\n');
+        return end >= 0 ? content.substring(0, end).trim() : content;
+    }
+
+    /**
+     * 一个来源的原始结果与对应的统一结果
+     */
+    private static class Source<T> {
+
+        List<T> items = Collections.emptyList();
+
+        final List<SearchHit> hits = new ArrayList<>();
+
+        boolean complete = true;
+    }
+}
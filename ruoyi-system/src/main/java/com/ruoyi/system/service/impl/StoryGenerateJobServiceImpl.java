@@ -0,0 +1,303 @@
+package com.ruoyi.system.service.impl;
+
+import com.ruoyi.common.constant.CacheConstants;
+import com.ruoyi.common.core.redis.RedisCache;
+import com.ruoyi.common.exception.ServiceException;
+import com.ruoyi.common.utils.uuid.IdUtils;
+import com.ruoyi.system.domain.dto.GenerateStoryRequest;
+import com.ruoyi.system.domain.dto.GenerateStoryResponse;
+import com.ruoyi.system.domain.dto.StoryGenerateJob;
+import com.ruoyi.system.service.IStoryGenerateJobService;
+import com.ruoyi.system.service.IStoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 故事生成任务Service实现
+ *
+ * 提交后立即返回任务ID，生成流程由 {@link IStoryService#generateStoryAsync} 在后台推进，
+ * 远程调用期间不占用数据库连接，只在最后保存时开启短事务。每个阶段完成后任务写入 Redis 供轮询，
+ * 并回调本实例上的订阅者；任务在其它实例上执行时，订阅改为定时读取 Redis。
+ * 每个用户的并发任务数按实例限制，多实例部署时总上限为实例数乘以配置值。
+ * 线程池满载时提交直接返回繁忙，不在请求线程中执行图片处理。
+ *
+ * @author ruoyi
+ * @date 2025-02-11
+ */
+@Service
+public class StoryGenerateJobServiceImpl implements IStoryGenerateJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(StoryGenerateJobServiceImpl.class);
+
+    /** 订阅其它实例上的任务时读取 Redis 的间隔(毫秒) */
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    @Autowired
+    private IStoryService storyService;
+
+    @Autowired
+    private RedisCache redisCache;
+
+    @Autowired
+    @Qualifier("ragExecutor")
+    private Executor ragExecutor;
+
+    @Autowired
+    @Qualifier("scheduledExecutorService")
+    private ScheduledExecutorService scheduledExecutorService;
+
+    /** 任务保留时间(小时) */
+    @Value("${rag.story-job.ttl-hours:24}")
+    private Integer jobTtlHours;
+
+    /** 每个用户在单个实例上同时进行的任务数上限 */
+    @Value("${rag.story-job.max-running-per-user:3}")
+    private Integer maxRunningPerUser;
+
+    /** 本实例正在执行的任务 */
+    private final Map<String, StoryGenerateJob> activeJobs = new ConcurrentHashMap<>();
+
+    private final Map<String, List<Consumer<StoryGenerateJob>>> listeners = new ConcurrentHashMap<>();
+
+    /** 每个用户在本实例上进行中的任务数 */
+    private final Map<Long, Integer> runningCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 提交故事生成任务
+     *
+     * @param userId 用户ID
+     * @param request 生成请求
+     * @return 任务ID
+     */
+    @Override
+    public String submit(Long userId, GenerateStoryRequest request) {
+        if (runningCounts.merge(userId, 1, Integer::sum) > maxRunningPerUser) {
+            release(userId);
+            throw new ServiceException("正在生成的故事过多，请稍后再试");
+        }
+
+        StoryGenerateJob job = new StoryGenerateJob();
+        job.setJobId(IdUtils.fastSimpleUUID());
+        job.setUserId(userId);
+        job.setCharacterId(request.getCharacterId());
+        job.setStatus(StoryGenerateJob.STATUS_RUNNING);
+        job.setStage(StoryGenerateJob.STAGE_SUBMITTED);
+        job.setProgress(0);
+        job.setStartTime(new Date());
+        activeJobs.put(job.getJobId(), job);
+
+        try {
+            saveJob(job);
+            // 图片解码与缩放在有界的 ragExecutor 中进行，满载时拒绝而不是占用请求线程；之后的阶段在 HTTP 回调中推进
+            ragExecutor.execute(() -> {
+                try {
+                    storyService.generateStoryAsync(userId, request, (stage, response) -> onStage(job, stage, response))
+                            .whenComplete((response, e) -> finish(job, response, e));
+                } catch (RuntimeException e) {
+                    finish(job, null, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(job.getJobId());
+            release(userId);
+            redisCache.deleteObject(CacheConstants.STORY_GENERATE_JOB_KEY + job.getJobId());
+            throw new ServiceException("系统繁忙，请稍后再试");
+        } catch (RuntimeException e) {
+            // 写入 Redis 失败时任务未启动，归还计数
+            activeJobs.remove(job.getJobId());
+            release(userId);
+            throw e;
+        }
+        return job.getJobId();
+    }
+
+    /**
+     * 查询故事生成任务
+     *
+     * @param userId 用户ID
+     * @param jobId 任务ID
+     * @return 任务
+     */
+    @Override
+    public StoryGenerateJob getJob(Long userId, String jobId) {
+        StoryGenerateJob job = redisCache.getCacheObject(CacheConstants.STORY_GENERATE_JOB_KEY + jobId);
+        if (job == null || !job.getUserId().equals(userId)) {
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * 订阅任务进度
+     *
+     * @param userId 用户ID
+     * @param jobId 任务ID
+     * @param listener 进度回调
+     * @return 取消订阅
+     */
+    @Override
+    public Runnable subscribe(Long userId, String jobId, Consumer<StoryGenerateJob> listener) {
+        StoryGenerateJob job = getJob(userId, jobId);
+        if (job == null) {
+            return null;
+        }
+        if (isFinished(job)) {
+            listener.accept(job);
+            return () -> {
+            };
+        }
+        if (activeJobs.containsKey(jobId)) {
+            List<Consumer<StoryGenerateJob>> jobListeners = listeners.computeIfAbsent(jobId, k -> new CopyOnWriteArrayList<>());
+            jobListeners.add(listener);
+            // 注册之前任务可能已结束，重新读取一次，结束时直接回调最终状态
+            StoryGenerateJob latest = getJob(userId, jobId);
+            if (latest == null || isFinished(latest)) {
+                jobListeners.remove(listener);
+            }
+            deliver(jobId, listener, latest != null ? latest : job);
+            return () -> removeListener(jobId, listener);
+        }
+        return poll(userId, jobId, job, listener);
+    }
+
+    /**
+     * 阶段完成：更新进度并通知订阅者
+     */
+    private void onStage(StoryGenerateJob job, String stage, GenerateStoryResponse response) {
+        job.setStage(stage);
+        job.setProgress(progressOf(stage));
+        job.setObjects(response.getObjects());
+        job.setCharacterName(response.getCharacterName());
+        job.setContent(response.getContent());
+        publish(job);
+    }
+
+    /**
+     * 任务结束：写入结果，通知订阅者后移除
+     */
+    private void finish(StoryGenerateJob job, GenerateStoryResponse response, Throwable e) {
+        release(job.getUserId());
+        if (e == null && response.isSuccess()) {
+            job.setStatus(StoryGenerateJob.STATUS_COMPLETED);
+            job.setStage(StoryGenerateJob.STAGE_SAVED);
+            job.setProgress(100);
+            job.setStoryId(response.getStoryId());
+            job.setTitle(response.getTitle());
+            job.setContent(response.getContent());
+            log.info("Generated story {} for user {} in {} ms", response.getStoryId(), job.getUserId(), response.getProcessingTime());
+        } else {
+            job.setStatus(StoryGenerateJob.STATUS_FAILED);
+            job.setMessage("生成故事失败: " + (e != null ? e.getMessage() : response.getErrorMessage()));
+        }
+        job.setFinishTime(new Date());
+        publish(job);
+        activeJobs.remove(job.getJobId());
+        listeners.remove(job.getJobId());
+    }
+
+    private void publish(StoryGenerateJob job) {
+        try {
+            saveJob(job);
+        } catch (Exception e) {
+            log.warn("Failed to save story generate job {}: {}", job.getJobId(), e.getMessage());
+        }
+        List<Consumer<StoryGenerateJob>> jobListeners = listeners.get(job.getJobId());
+        if (jobListeners != null) {
+            for (Consumer<StoryGenerateJob> listener : jobListeners) {
+                deliver(job.getJobId(), listener, job);
+            }
+        }
+    }
+
+    /**
+     * 定时读取 Redis 中其它实例上执行的任务，状态变化时回调，结束后停止
+     */
+    private Runnable poll(Long userId, String jobId, StoryGenerateJob job, Consumer<StoryGenerateJob> listener) {
+        listener.accept(job);
+        AtomicReference<String> lastState = new AtomicReference<>(job.getStatus() + ":" + job.getStage());
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        task.set(scheduledExecutorService.scheduleWithFixedDelay(() -> {
+            try {
+                StoryGenerateJob latest = getJob(userId, jobId);
+                if (latest == null) {
+                    task.get().cancel(false);
+                    return;
+                }
+                String state = latest.getStatus() + ":" + latest.getStage();
+                if (!Objects.equals(state, lastState.getAndSet(state))) {
+                    listener.accept(latest);
+                }
+                if (isFinished(latest)) {
+                    task.get().cancel(false);
+                }
+            } catch (Exception e) {
+                task.get().cancel(false);
+            }
+        }, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+        return () -> task.get().cancel(false);
+    }
+
+    /**
+     * 回调订阅者，订阅者抛出异常（如客户端已断开）时取消其订阅
+     */
+    private void deliver(String jobId, Consumer<StoryGenerateJob> listener, StoryGenerateJob job) {
+        try {
+            listener.accept(job);
+        } catch (Exception e) {
+            log.debug("Story generate job {} listener removed: {}", jobId, e.getMessage());
+            removeListener(jobId, listener);
+        }
+    }
+
+    private void removeListener(String jobId, Consumer<StoryGenerateJob> listener) {
+        List<Consumer<StoryGenerateJob>> jobListeners = listeners.get(jobId);
+        if (jobListeners != null) {
+            jobListeners.remove(listener);
+        }
+    }
+
+    private void release(Long userId) {
+        runningCounts.computeIfPresent(userId, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void saveJob(StoryGenerateJob job) {
+        redisCache.setCacheObject(CacheConstants.STORY_GENERATE_JOB_KEY + job.getJobId(), job, jobTtlHours, TimeUnit.HOURS);
+    }
+
+    private static boolean isFinished(StoryGenerateJob job) {
+        return StoryGenerateJob.STATUS_COMPLETED.equals(job.getStatus()) || StoryGenerateJob.STATUS_FAILED.equals(job.getStatus());
+    }
+
+    private static int progressOf(String stage) {
+        switch (stage) {
+            case StoryGenerateJob.STAGE_OBJECTS_IDENTIFIED:
+                return 30;
+            case StoryGenerateJob.STAGE_STORY_DRAFTED:
+                return 70;
+            case StoryGenerateJob.STAGE_EMBEDDED:
+                return 85;
+            case StoryGenerateJob.STAGE_SAVED:
+                return 100;
+            default:
+                return 0;
+        }
+    }
+}
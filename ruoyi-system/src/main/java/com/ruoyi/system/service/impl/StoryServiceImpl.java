@@ -1,29 +1,47 @@
 package com.ruoyi.system.service.impl;
 
 import com.alibaba.fastjson2.JSON;
+import com.ruoyi.common.core.page.CursorPage;
+import com.ruoyi.common.core.page.PageCursor;
 import com.ruoyi.system.domain.Story;
 import com.ruoyi.system.domain.StoryCharacter;
 import com.ruoyi.system.domain.dto.GenerateStoryRequest;
 import com.ruoyi.system.domain.dto.GenerateStoryResponse;
+import com.ruoyi.system.domain.dto.StoryGenerateJob;
+import com.ruoyi.system.domain.dto.StorySearchResult;
 import com.ruoyi.system.mapper.StoryCharacterMapper;
 import com.ruoyi.system.mapper.StoryFavoriteMapper;
 import com.ruoyi.system.mapper.StoryMapper;
+import com.ruoyi.system.rag.cache.VisionCache;
+import com.ruoyi.system.rag.image.ImagePreprocessor;
+import com.ruoyi.system.rag.image.PreparedImage;
+import com.ruoyi.system.rag.index.ScoredId;
+import com.ruoyi.system.rag.index.StoryVectorIndex;
 import com.ruoyi.system.service.IDeepseekService;
 import com.ruoyi.system.service.IStoryService;
 import com.ruoyi.system.util.DeepseekApiClient;
-import com.ruoyi.system.util.EmbeddingUtil;
+import com.ruoyi.system.util.TransactionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 
 @Service
 public class StoryServiceImpl implements IStoryService {
     private static final Logger log = LoggerFactory.getLogger(StoryServiceImpl.class);
+    /** 单次搜索最多返回的故事数 */
+    private static final int MAX_SEARCH_RESULTS = 50;
 
     @Autowired
     private StoryMapper storyMapper;
@@ -35,10 +53,25 @@ public class StoryServiceImpl implements IStoryService {
     private DeepseekApiClient deepseekApiClient;
     @Autowired
     private IDeepseekService deepseekService;
+    @Autowired
+    private StoryVectorIndex storyVectorIndex;
+    @Autowired
+    private VisionCache visionCache;
+    @Autowired
+    private ImagePreprocessor imagePreprocessor;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    @Qualifier("threadPoolTaskExecutor")
+    private Executor threadPoolTaskExecutor;
     @Value("${rag.deepseek.embedding-model:}")
     private String embeddingModel;
     @Value("${rag.deepseek.chat-model:}")
     private String chatModel;
+    @Value("${rag.vector.similarity-threshold:0.7}")
+    private Double defaultThreshold;
+    @Value("${rag.vector.max-results:5}")
+    private Integer defaultMaxResults;
 
     @Override
     public Story selectStoryById(Long id) {
@@ -55,6 +88,14 @@ public class StoryServiceImpl implements IStoryService {
         return storyMapper.selectStoryListByUserId(userId);
     }
 
+    @Override
+    public CursorPage<Story> selectStoryPage(Long userId, Long characterId, Boolean isFavorite, String after, Integer limit) {
+        int pageSize = PageCursor.limit(limit);
+        List<Story> stories = storyMapper.selectStoryPageByUserId(userId, characterId, isFavorite, PageCursor.parse(after), pageSize + 1);
+        return CursorPage.of(stories, pageSize, story -> story.getCreatedAt() == null ? null
+                : PageCursor.format(Date.from(story.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant()), story.getId()));
+    }
+
     @Override
     public List<Story> selectStoryListByCharacterId(Long characterId) {
         return storyMapper.selectStoryListByCharacterId(characterId);
@@ -90,7 +131,9 @@ public class StoryServiceImpl implements IStoryService {
         if (story != null && story.getCharacterId() != null) {
             storyCharacterMapper.decrementStoryCount(story.getCharacterId());
         }
-        return storyMapper.deleteStoryById(id);
+        int rows = storyMapper.deleteStoryById(id);
+        TransactionUtil.afterCommit(() -> storyVectorIndex.remove(id));
+        return rows;
     }
 
     @Override
@@ -102,56 +145,91 @@ public class StoryServiceImpl implements IStoryService {
         return ids.length;
     }
 
+    /**
+     * 同步生成故事：等待异步流程完成，远程调用期间不占用数据库连接
+     */
     @Override
-    @Transactional
     public GenerateStoryResponse generateStory(Long userId, GenerateStoryRequest request) {
+        return generateStoryAsync(userId, request).join();
+    }
+
+    @Override
+    public CompletableFuture<GenerateStoryResponse> generateStoryAsync(Long userId, GenerateStoryRequest request) {
+        return generateStoryAsync(userId, request, (stage, response) -> {
+        });
+    }
+
+    /**
+     * 异步生成故事：识图、写故事、向量化均在 HTTP 回调中推进，每完成一个阶段回调一次，
+     * 最后在业务线程池中以短事务保存；事务只包含插入故事和更新主角故事数，不跨越任何远程调用
+     */
+    @Override
+    public CompletableFuture<GenerateStoryResponse> generateStoryAsync(Long userId, GenerateStoryRequest request,
+            BiConsumer<String, GenerateStoryResponse> onStage) {
         long startTime = System.currentTimeMillis();
         GenerateStoryResponse response = new GenerateStoryResponse();
+        CompletableFuture<Story> saved;
         try {
-            StoryCharacter storyCharacter = storyCharacterMapper.selectStoryCharacterById(request.getCharacterId());
-            if (storyCharacter == null) {
-                throw new RuntimeException("Character not found");
-            }
-            if (!storyCharacter.getUserId().equals(userId)) {
-                throw new RuntimeException("Character does not belong to the user");
-            }
-            List<String> objects = deepseekApiClient.analyzeImage(request.getImage(), request.getImageType());
-            if (objects == null || objects.isEmpty()) {
-                throw new RuntimeException("No objects identified");
-            }
-            String storyContent = generateStoryFromObjects(objects, storyCharacter.getName());
-            List<Double> embedding = deepseekService.embedding(storyContent);
-            String embeddingJson = EmbeddingUtil.embeddingToJson(embedding);
-            Story story = new Story();
-            story.setUserId(userId);
-            story.setCharacterId(request.getCharacterId());
-            story.setTitle(request.getTitle() != null ? request.getTitle() : "Story");
-            story.setContent(storyContent);
-            story.setObjects(JSON.toJSONString(objects));
-            story.setImageUrl(request.getImage());
-            story.setEmbedding(embeddingJson);
-            story.setEmbeddingModel(embeddingModel);
-            story.setDelFlag(false);  // ✅ Boolean
-            story.setIsFavorite(false);  // ✅ Boolean
-            story.setViewCount(0);
-            story.setShareCount(0);
-            story.setCreatedAt(LocalDateTime.now());  // ✅ LocalDateTime
-            story.setUpdatedAt(LocalDateTime.now());  // ✅ LocalDateTime
-            storyMapper.insertStory(story);
-            storyCharacterMapper.incrementStoryCount(request.getCharacterId());
-            response.setStoryId(story.getId());
-            response.setTitle(story.getTitle());
-            response.setContent(storyContent);
-            response.setObjects(objects);
+            StoryCharacter storyCharacter = checkCharacter(userId, request.getCharacterId());
             response.setCharacterName(storyCharacter.getName());
-            response.setSuccess(true);
+            PreparedImage image = imagePreprocessor.prepare(request.getImage(), request.getImageType());
+            saved = identifyObjectsAsync(image)
+                    .thenCompose(objects -> {
+                        if (objects == null || objects.isEmpty()) {
+                            throw new RuntimeException("No objects identified");
+                        }
+                        response.setObjects(objects);
+                        onStage.accept(StoryGenerateJob.STAGE_OBJECTS_IDENTIFIED, response);
+                        return deepseekService.chatWithContextAsync(null, buildStoryPrompt(objects, storyCharacter.getName()));
+                    })
+                    .thenCompose(storyContent -> {
+                        response.setContent(storyContent);
+                        onStage.accept(StoryGenerateJob.STAGE_STORY_DRAFTED, response);
+                        return deepseekService.embeddingAsync(storyContent)
+                                .thenApply(embedding -> newStory(userId, request, response.getObjects(), storyContent, embedding));
+                    })
+                    .thenApplyAsync(story -> {
+                        onStage.accept(StoryGenerateJob.STAGE_EMBEDDED, response);
+                        story.setImageUrl(imagePreprocessor.store(image));
+                        transactionTemplate.executeWithoutResult(status -> {
+                            storyMapper.insertStory(story);
+                            storyCharacterMapper.incrementStoryCount(story.getCharacterId());
+                        });
+                        storyVectorIndex.put(story);
+                        return story;
+                    }, threadPoolTaskExecutor);
         } catch (Exception e) {
-            log.error("Failed to generate story: {}", e.getMessage());
-            response.setSuccess(false);
-            response.setErrorMessage(e.getMessage());
+            saved = new CompletableFuture<>();
+            saved.completeExceptionally(e);
         }
-        response.setProcessingTime(System.currentTimeMillis() - startTime);
-        return response;
+        return saved.handle((story, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                log.error("Failed to generate story: {}", cause.getMessage());
+                response.setSuccess(false);
+                response.setErrorMessage(cause.getMessage());
+            } else {
+                response.setStoryId(story.getId());
+                response.setTitle(story.getTitle());
+                response.setContent(story.getContent());
+                response.setImageUrl(story.getImageUrl());
+                response.setSuccess(true);
+            }
+            response.setProcessingTime(System.currentTimeMillis() - startTime);
+            return response;
+        });
+    }
+
+    /**
+     * 保存已生成的故事并更新主角故事数
+     */
+    @Override
+    @Transactional
+    public int insertGeneratedStory(Story story) {
+        int rows = storyMapper.insertStory(story);
+        storyCharacterMapper.incrementStoryCount(story.getCharacterId());
+        TransactionUtil.afterCommit(() -> storyVectorIndex.put(story));
+        return rows;
     }
 
     @Override
@@ -172,11 +250,71 @@ public class StoryServiceImpl implements IStoryService {
         return storyMapper.updateStory(story);
     }
 
+    /**
+     * 识别图片中的物品，相同或重新编码的近似图片复用缓存结果，不再调用识图接口
+     */
+    private CompletableFuture<List<String>> identifyObjectsAsync(PreparedImage image) {
+        VisionCache.ImageKey key = visionCache.keyOf(image);
+        return visionCache.load(key, () -> deepseekApiClient.analyzeImageAsync(image.getVisionImage(), image.getVisionImageType()));
+    }
+
+    /**
+     * 搜索故事：关键词向量化后在用户的故事向量索引中取相似度不低于阈值的前 maxResults 条，
+     * 再按ID回表取展示字段；向量化失败时退化为关键词匹配，关键词为空时返回最新的故事。
+     */
     @Override
-    public List<Story> searchStories(Long userId, String keyword, Double similarityThreshold, Integer maxResults) {
-        List<Story> allStories = storyMapper.selectStoryListByUserId(userId);
-        if (allStories == null) return new ArrayList<>();
-        return allStories;
+    public List<StorySearchResult> searchStories(Long userId, String keyword, Double similarityThreshold, Integer maxResults) {
+        float[] queryVector = null;
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            try {
+                queryVector = deepseekService.embedding(keyword);
+            } catch (Exception e) {
+                log.warn("Story vector search unavailable, falling back to keyword search: {}", e.getMessage());
+            }
+        }
+        return searchStories(userId, keyword, queryVector, similarityThreshold, maxResults);
+    }
+
+    /**
+     * 使用已算好的查询向量搜索故事，供多个检索源共用同一个查询向量；queryVector 为空时按关键词匹配
+     */
+    @Override
+    public List<StorySearchResult> searchStories(Long userId, String keyword, float[] queryVector, Double similarityThreshold, Integer maxResults) {
+        if (similarityThreshold == null) {
+            similarityThreshold = defaultThreshold;
+        }
+        similarityThreshold = Math.max(0.0, Math.min(1.0, similarityThreshold));
+        if (maxResults == null || maxResults <= 0) {
+            maxResults = defaultMaxResults;
+        }
+        maxResults = Math.min(maxResults, MAX_SEARCH_RESULTS);
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return storyMapper.searchStories(userId, null, maxResults);
+        }
+        if (queryVector == null) {
+            return storyMapper.searchStories(userId, keyword.trim(), maxResults);
+        }
+        List<ScoredId> hits = storyVectorIndex.search(userId, queryVector, similarityThreshold, maxResults);
+        if (hits.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (ScoredId hit : hits) {
+            ids.add(hit.getId());
+        }
+        Map<Long, StorySearchResult> resultMap = new HashMap<>();
+        for (StorySearchResult result : storyMapper.selectStorySearchResultsByIds(userId, ids)) {
+            resultMap.put(result.getId(), result);
+        }
+        List<StorySearchResult> results = new ArrayList<>(hits.size());
+        for (ScoredId hit : hits) {
+            StorySearchResult result = resultMap.get(hit.getId());
+            if (result != null) {
+                result.setSimilarityScore(hit.getScore());
+                results.add(result);
+            }
+        }
+        return results;
     }
 
     @Override
@@ -195,13 +333,41 @@ public class StoryServiceImpl implements IStoryService {
         return token;
     }
 
-    private String generateStoryFromObjects(List<String> objects, String characterName) {
+    private StoryCharacter checkCharacter(Long userId, Long characterId) {
+        StoryCharacter storyCharacter = storyCharacterMapper.selectStoryCharacterById(characterId);
+        if (storyCharacter == null) {
+            throw new RuntimeException("Character not found");
+        }
+        if (!storyCharacter.getUserId().equals(userId)) {
+            throw new RuntimeException("Character does not belong to the user");
+        }
+        return storyCharacter;
+    }
+
+    private Story newStory(Long userId, GenerateStoryRequest request, List<String> objects, String storyContent, float[] embedding) {
+        Story story = new Story();
+        story.setUserId(userId);
+        story.setCharacterId(request.getCharacterId());
+        story.setTitle(request.getTitle() != null ? request.getTitle() : "Story");
+        story.setContent(storyContent);
+        story.setObjects(JSON.toJSONString(objects));
+        story.setEmbedding(embedding);
+        story.setEmbeddingModel(embeddingModel);
+        story.setDelFlag(false);  // ✅ Boolean
+        story.setIsFavorite(false);  // ✅ Boolean
+        story.setViewCount(0);
+        story.setShareCount(0);
+        story.setCreatedAt(LocalDateTime.now());  // ✅ LocalDateTime
+        story.setUpdatedAt(LocalDateTime.now());  // ✅ LocalDateTime
+        return story;
+    }
+
+    private String buildStoryPrompt(List<String> objects, String characterName) {
         String objectsText = String.join(", ", objects);
-        String prompt = String.format(
+        return String.format(
                 "Please write a creative fairy tale in English featuring a character named %s. " +
                         "The story should incorporate the following objects: %s.",
                 characterName, objectsText
         );
-        return deepseekService.chatWithContext(null, prompt);
     }
-}
\ No newline at end of file
+}
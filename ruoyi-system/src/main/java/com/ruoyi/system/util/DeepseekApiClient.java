@@ -4,22 +4,35 @@ import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Deepseek API HTTP客户端
  * 提供embedding和chat接口调用
  * 
+ * 请求通过 OkHttp 异步 enqueue 发出，由共享的 Dispatcher 线程处理响应，重试退避交给调度线程池定时触发，
+ * 调用方线程不会因等待或退避被占用。同步方法仅是在异步结果上等待，供定时任务等场景使用。
+ * 
  * @author ruoyi
  * @date 2025-02-10
  */
@@ -51,20 +64,52 @@ public class DeepseekApiClient {
     @Value("${rag.deepseek.multimodal-model:deepseek-chat}")
     private String multimodalModel;
     
+    /** 同时进行的最大请求数 */
+    @Value("${rag.deepseek.http.max-requests:128}")
+    private int maxRequests;
+    
+    /** 同一主机同时进行的最大请求数（OkHttp 默认仅为5，所有请求都发往同一主机） */
+    @Value("${rag.deepseek.http.max-requests-per-host:64}")
+    private int maxRequestsPerHost;
+    
+    /** 连接池最大空闲连接数 */
+    @Value("${rag.deepseek.http.max-idle-connections:32}")
+    private int maxIdleConnections;
+    
+    /** 空闲连接保活时间(秒) */
+    @Value("${rag.deepseek.http.keep-alive-seconds:300}")
+    private int keepAliveSeconds;
+    
+    @Autowired
+    @Qualifier("scheduledExecutorService")
+    private ScheduledExecutorService scheduledExecutorService;
+    
     private OkHttpClient client;
     
     /**
-     * 初始化HTTP客户端
+     * 初始化HTTP客户端，所有调用共享同一个连接池与调度器
      */
-    private OkHttpClient getClient() {
-        if (client == null) {
-            client = new OkHttpClient.Builder()
-                    .connectTimeout(timeout, TimeUnit.SECONDS)
-                    .readTimeout(timeout, TimeUnit.SECONDS)
-                    .writeTimeout(timeout, TimeUnit.SECONDS)
-                    .build();
-        }
-        return client;
+    @PostConstruct
+    public void init() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .connectTimeout(timeout, TimeUnit.SECONDS)
+                .readTimeout(timeout, TimeUnit.SECONDS)
+                .writeTimeout(timeout, TimeUnit.SECONDS)
+                .build();
+    }
+    
+    /**
+     * 释放调度线程与空闲连接
+     */
+    @PreDestroy
+    public void destroy() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
     }
     
     /**
@@ -74,34 +119,91 @@ public class DeepseekApiClient {
      * @param model 模型名称
      * @return 向量数组
      */
-    public List<Double> createEmbedding(String text, String model) {
+    public float[] createEmbedding(String text, String model) {
+        return join(createEmbeddingAsync(text, model));
+    }
+    
+    /**
+     * 异步调用Embedding API生成向量
+     * 
+     * @param text 输入文本
+     * @param model 模型名称
+     * @return 向量数组
+     */
+    public CompletableFuture<float[]> createEmbeddingAsync(String text, String model) {
+        CompletableFuture<List<float[]>> vectors = createEmbeddingsAsync(Collections.singletonList(text), model);
+        return FutureUtil.propagateFailure(vectors, vectors.thenApply(list -> list.get(0)));
+    }
+    
+    /**
+     * 调用Embedding API批量生成向量（一次请求，input 为数组）
+     * 
+     * @param texts 输入文本列表
+     * @param model 模型名称
+     * @return 与输入顺序一致的向量列表
+     */
+    public List<float[]> createEmbeddings(List<String> texts, String model) {
+        return join(createEmbeddingsAsync(texts, model));
+    }
+    
+    /**
+     * 异步调用Embedding API批量生成向量
+     * 
+     * @param texts 输入文本列表
+     * @param model 模型名称
+     * @return 与输入顺序一致的向量列表
+     */
+    public CompletableFuture<List<float[]>> createEmbeddingsAsync(List<String> texts, String model) {
+        if (texts == null || texts.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("model", model);
-        requestBody.put("input", text);
+        requestBody.put("input", texts);
         
         String url = apiEndpoint + embeddingPath;
-        String responseBody = executeWithRetry(url, requestBody);
-        
+        CompletableFuture<String> call = executeAsync(url, requestBody);
+        return FutureUtil.propagateFailure(call, call.thenApply(responseBody -> parseEmbeddings(responseBody, texts.size())));
+    }
+    
+    /**
+     * 解析Embedding响应，data[] 按 index 对应输入位置
+     */
+    private List<float[]> parseEmbeddings(String responseBody, int count) {
         if (responseBody == null) {
             throw new RuntimeException("Failed to get embedding from Deepseek API");
         }
         
-        // 解析响应
         JSONObject response = JSON.parseObject(responseBody);
         JSONArray data = response.getJSONArray("data");
-        if (data == null || data.isEmpty()) {
-            throw new RuntimeException("Empty embedding data in response");
+        if (data == null || data.size() != count) {
+            throw new RuntimeException("Expected " + count + " embeddings in response but got "
+                    + (data == null ? 0 : data.size()));
         }
         
-        JSONObject embeddingObj = data.getJSONObject(0);
-        JSONArray embeddingArray = embeddingObj.getJSONArray("embedding");
-        
-        List<Double> embedding = new ArrayList<>();
-        for (int i = 0; i < embeddingArray.size(); i++) {
-            embedding.add(embeddingArray.getDouble(i));
+        float[][] embeddings = new float[count][];
+        for (int i = 0; i < data.size(); i++) {
+            JSONObject embeddingObj = data.getJSONObject(i);
+            int index = embeddingObj.containsKey("index") ? embeddingObj.getIntValue("index") : i;
+            JSONArray embeddingArray = embeddingObj.getJSONArray("embedding");
+            if (index < 0 || index >= embeddings.length || embeddingArray == null) {
+                throw new RuntimeException("Invalid embedding entry at position " + i);
+            }
+            float[] embedding = new float[embeddingArray.size()];
+            for (int j = 0; j < embedding.length; j++) {
+                embedding[j] = embeddingArray.getFloatValue(j);
+            }
+            embeddings[index] = embedding;
         }
         
-        return embedding;
+        List<float[]> result = new ArrayList<>(embeddings.length);
+        for (float[] embedding : embeddings) {
+            if (embedding == null) {
+                throw new RuntimeException("Missing embedding in response");
+            }
+            result.add(embedding);
+        }
+        return result;
     }
     
     /**
@@ -112,29 +214,53 @@ public class DeepseekApiClient {
      * @return 生成的回答
      */
     public String createChatCompletion(List<Map<String, String>> messages, String model) {
+        return join(createChatCompletionAsync(messages, model));
+    }
+    
+    /**
+     * 异步调用Chat API生成回答
+     * 
+     * @param messages 对话消息列表
+     * @param model 模型名称
+     * @return 生成的回答
+     */
+    public CompletableFuture<String> createChatCompletionAsync(List<Map<String, String>> messages, String model) {
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("model", model);
         requestBody.put("messages", messages);
         requestBody.put("temperature", 0.7);
         
         String url = apiEndpoint + chatPath;
-        String responseBody = executeWithRetry(url, requestBody);
-        
-        if (responseBody == null) {
-            throw new RuntimeException("Failed to get chat completion from Deepseek API");
-        }
+        CompletableFuture<String> call = executeAsync(url, requestBody);
+        return FutureUtil.propagateFailure(call, call.thenApply(responseBody -> parseChatContent(responseBody, "chat completion")));
+    }
+    
+    /**
+     * 流式调用Chat API（stream: true），逐段解析上游 SSE 数据并回调增量内容
+     * 在收到响应前失败会按退避重试；开始输出后失败不再重试，已输出的内容无法撤回。
+     * 返回的 future 被取消或以异常完成（如调用方超时）时会同时取消上游请求。
+     * 
+     * @param messages 对话消息列表
+     * @param model 模型名称
+     * @param onToken 增量内容回调，在 Dispatcher 线程中按顺序调用
+     * @return 完整回答
+     */
+    public CompletableFuture<String> createChatCompletionStream(List<Map<String, String>> messages, String model, Consumer<String> onToken) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("messages", messages);
+        requestBody.put("temperature", 0.7);
+        requestBody.put("stream", true);
         
-        // 解析响应
-        JSONObject response = JSON.parseObject(responseBody);
-        JSONArray choices = response.getJSONArray("choices");
-        if (choices == null || choices.isEmpty()) {
-            throw new RuntimeException("Empty choices in chat completion response");
+        String url = apiEndpoint + chatPath;
+        log.info("Requesting URL (stream): {}", url);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            enqueueStream(buildRequest(url, requestBody), 1, future, onToken);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
         }
-        
-        JSONObject choice = choices.getJSONObject(0);
-        JSONObject message = choice.getJSONObject("message");
-        
-        return message.getString("content");
+        return future;
     }
     
     /**
@@ -145,6 +271,17 @@ public class DeepseekApiClient {
      * @return 识别出的物品列表
      */
     public List<String> analyzeImage(String imageBase64, String imageType) {
+        return join(analyzeImageAsync(imageBase64, imageType));
+    }
+    
+    /**
+     * 异步调用Vision API识别图片中的物品
+     * 
+     * @param imageBase64 图片Base64编码（不含data:image前缀）或URL
+     * @param imageType 图片类型: "base64" 或 "url"
+     * @return 识别出的物品列表
+     */
+    public CompletableFuture<List<String>> analyzeImageAsync(String imageBase64, String imageType) {
         // 构建消息
         List<Map<String, Object>> messages = new ArrayList<>();
         Map<String, Object> message = new HashMap<>();
@@ -196,24 +333,15 @@ public class DeepseekApiClient {
         requestBody.put("max_tokens", 500);
         
         String url = apiEndpoint + chatPath;
-        String responseBody = executeWithRetry(url, requestBody);
-        
-        if (responseBody == null) {
-            throw new RuntimeException("Failed to get vision analysis from Deepseek API");
-        }
-        
-        // 解析响应
-        JSONObject response = JSON.parseObject(responseBody);
-        JSONArray choices = response.getJSONArray("choices");
-        if (choices == null || choices.isEmpty()) {
-            throw new RuntimeException("Empty choices in vision response");
-        }
-        
-        JSONObject choice = choices.getJSONObject(0);
-        JSONObject responseMessage = choice.getJSONObject("message");
-        String responseContent = responseMessage.getString("content");
-        
-        // 解析物品列表（假设返回的是逗号分隔的列表）
+        CompletableFuture<String> call = executeAsync(url, requestBody);
+        return FutureUtil.propagateFailure(call,
+                call.thenApply(responseBody -> parseObjects(parseChatContent(responseBody, "vision analysis"))));
+    }
+    
+    /**
+     * 解析物品列表（假设返回的是逗号分隔的列表）
+     */
+    private List<String> parseObjects(String responseContent) {
         List<String> objects = new ArrayList<>();
         if (responseContent != null && !responseContent.trim().isEmpty()) {
             String[] items = responseContent.split(",");
@@ -238,6 +366,18 @@ public class DeepseekApiClient {
      * @return 生成的故事
      */
     public String generateStory(List<String> objects, String characterName, String model) {
+        return join(generateStoryAsync(objects, characterName, model));
+    }
+    
+    /**
+     * 异步基于物品列表生成故事
+     * 
+     * @param objects 物品列表
+     * @param characterName 主角名字
+     * @param model 模型名称
+     * @return 生成的故事
+     */
+    public CompletableFuture<String> generateStoryAsync(List<String> objects, String characterName, String model) {
         String objectsStr = String.join(", ", objects);
         
         List<Map<String, String>> messages = new ArrayList<>();
@@ -260,53 +400,216 @@ public class DeepseekApiClient {
         ));
         messages.add(userMessage);
         
-        return createChatCompletion(messages, model);
+        return createChatCompletionAsync(messages, model);
     }
     
     /**
-     * 带重试机制的HTTP请求执行
+     * 解析Chat响应中第一条回答的内容
+     * 
+     * @param responseBody 响应内容
+     * @param operation 调用名称，用于错误信息
+     * @return 回答内容
+     */
+    private String parseChatContent(String responseBody, String operation) {
+        if (responseBody == null) {
+            throw new RuntimeException("Failed to get " + operation + " from Deepseek API");
+        }
+        
+        JSONObject response = JSON.parseObject(responseBody);
+        JSONArray choices = response.getJSONArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            throw new RuntimeException("Empty choices in " + operation + " response");
+        }
+        
+        JSONObject choice = choices.getJSONObject(0);
+        JSONObject message = choice.getJSONObject("message");
+        
+        return message.getString("content");
+    }
+    
+    /**
+     * 等待异步结果，失败时抛出原始异常
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        }
+    }
+    
+    /**
+     * 带重试机制的异步HTTP请求执行
+     * 返回的 future 以异常完成时取消进行中的请求与后续重试；公开方法由它派生结果时
+     * 用 {@link FutureUtil#propagateFailure} 关联，调用方对派生结果的超时同样能取消请求
      * 
      * @param url 请求URL
      * @param requestBody 请求体
      * @return 响应内容
      */
-    private String executeWithRetry(String url, Map<String, Object> requestBody) {
-        log.info("Requesting URL: {}", url);  // ← 添加这行
-        int retries = 0;
-        Exception lastException = null;
-        
-        while (retries < maxRetries) {
-            try {
-                return execute(url, requestBody);
-            } catch (Exception e) {
-                lastException = e;
-                retries++;
-                log.warn("Request failed (attempt {}/{}): {}", retries, maxRetries, e.getMessage());
-                
-                if (retries < maxRetries) {
-                    try {
-                        // 指数退避
-                        Thread.sleep((long) Math.pow(2, retries) * 1000);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Request interrupted", ie);
+    private CompletableFuture<String> executeAsync(String url, Map<String, Object> requestBody) {
+        log.info("Requesting URL: {}", url);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            enqueue(buildRequest(url, requestBody), 1, future);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    /**
+     * 发出一次请求，响应在 Dispatcher 线程中处理
+     * 调用方放弃结果（取消、超时）时取消进行中的请求，且不再重试
+     * 
+     * @param request 请求
+     * @param attempt 当前尝试次数（从1开始）
+     * @param future 最终结果
+     */
+    private void enqueue(Request request, int attempt, CompletableFuture<String> future) {
+        Call httpCall = client.newCall(request);
+        future.whenComplete((result, e) -> {
+            if (e != null) {
+                httpCall.cancel();
+            }
+        });
+        httpCall.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (!future.isDone()) {
+                    retry(attempt, e, future, () -> enqueue(request, attempt + 1, future));
+                }
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    log.info("📡 Response Status: {}", response.code());
+                    String result = body != null ? body.string() : null;
+                    if (!response.isSuccessful()) {
+                        log.error("❌ API Error ({}): {}", response.code(), result != null ? result : "No error body");
+                        throw new IOException("Unexpected response code: " + response.code() + ", body: " + result);
+                    }
+                    log.info("✅ Success Response: {}", result);
+                    future.complete(result);
+                } catch (IOException e) {
+                    if (!future.isDone()) {
+                        retry(attempt, e, future, () -> enqueue(request, attempt + 1, future));
+                    }
+                }
+            }
+        });
+    }
+    
+    /**
+     * 发出一次流式请求，按行读取响应体中的 "data:" 事件直到 [DONE]
+     */
+    private void enqueueStream(Request request, int attempt, CompletableFuture<String> future, Consumer<String> onToken) {
+        Call streamCall = client.newCall(request);
+        future.whenComplete((result, e) -> {
+            if (e != null) {
+                streamCall.cancel();
+            }
+        });
+        streamCall.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (!future.isDone()) {
+                    retry(attempt, e, future, () -> enqueueStream(request, attempt + 1, future, onToken));
+                }
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    log.info("📡 Stream Response Status: {}", response.code());
+                    if (!response.isSuccessful() || body == null) {
+                        String errorBody = body != null ? body.string() : "No error body";
+                        log.error("❌ API Error ({}): {}", response.code(), errorBody);
+                        if (future.isDone()) {
+                            return;
+                        }
+                        retry(attempt, new IOException("Unexpected response code: " + response.code() + ", body: " + errorBody),
+                                future, () -> enqueueStream(request, attempt + 1, future, onToken));
+                        return;
+                    }
+                    
+                    StringBuilder content = new StringBuilder();
+                    BufferedSource source = body.source();
+                    String line;
+                    while (!future.isDone() && (line = source.readUtf8Line()) != null) {
+                        // 空行为事件分隔，":" 开头为注释（心跳）
+                        if (!line.startsWith("data:")) {
+                            continue;
+                        }
+                        String data = line.substring(5).trim();
+                        if ("[DONE]".equals(data)) {
+                            break;
+                        }
+                        String token = parseDeltaContent(data);
+                        if (token != null && !token.isEmpty()) {
+                            content.append(token);
+                            onToken.accept(token);
+                        }
                     }
+                    future.complete(content.toString());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
                 }
             }
+        });
+    }
+    
+    /**
+     * 解析流式响应片段中的增量内容 choices[0].delta.content
+     */
+    private String parseDeltaContent(String data) {
+        JSONObject chunk = JSON.parseObject(data);
+        JSONArray choices = chunk.getJSONArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            return null;
         }
-        
-        log.error("Request failed after {} retries", maxRetries, lastException);
-        throw new RuntimeException("Request failed after " + maxRetries + " retries", lastException);
+        JSONObject delta = choices.getJSONObject(0).getJSONObject("delta");
+        return delta != null ? delta.getString("content") : null;
     }
     
     /**
-     * 执行HTTP POST请求
+     * 失败后按指数退避在调度线程池中安排下一次尝试，不阻塞任何线程
+     * 退避期间调用方放弃结果时不再发出下一次尝试
+     * 
+     * @param attempt 已尝试次数
+     * @param e 本次失败原因
+     * @param future 最终结果，次数用尽时以异常完成
+     * @param nextAttempt 下一次尝试
+     */
+    private void retry(int attempt, Exception e, CompletableFuture<?> future, Runnable nextAttempt) {
+        log.warn("Request failed (attempt {}/{}): {}", attempt, maxRetries, e.getMessage());
+        if (attempt >= maxRetries) {
+            log.error("Request failed after {} retries", maxRetries, e);
+            future.completeExceptionally(new RuntimeException("Request failed after " + maxRetries + " retries", e));
+            return;
+        }
+        // 指数退避
+        long delay = (long) Math.pow(2, attempt) * 1000;
+        scheduledExecutorService.schedule(() -> {
+            if (!future.isDone()) {
+                nextAttempt.run();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 构建HTTP POST请求
      * 
      * @param url 请求URL
      * @param requestBody 请求体
-     * @return 响应内容
+     * @return 请求
      */
-    private String execute(String url, Map<String, Object> requestBody) throws IOException {
+    private Request buildRequest(String url, Map<String, Object> requestBody) {
         String jsonBody = JSON.toJSONString(requestBody);
 
         log.info("🔍 Deepseek API Request:");
@@ -315,25 +618,11 @@ public class DeepseekApiClient {
         log.info("   Body: {}", jsonBody);
         log.info("   API Key: {}", apiKey != null ? apiKey.substring(0, 10) + "..." : "null");
 
-        Request request = new Request.Builder()
+        return new Request.Builder()
                 .url(url)
                 .addHeader("Authorization", "Bearer " + apiKey)
                 .addHeader("Content-Type", "application/json")
                 .post(RequestBody.create(JSON_MEDIA_TYPE, jsonBody))
                 .build();
-
-        try (Response response = getClient().newCall(request).execute()) {
-            log.info("📡 Response Status: {}", response.code());
-
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error body";
-                log.error("❌ API Error ({}): {}", response.code(), errorBody);
-                throw new IOException("Unexpected response code: " + response.code() + ", body: " + errorBody);
-            }
-
-            String result = response.body() != null ? response.body().string() : null;
-            log.info("✅ Success Response: {}", result);
-            return result;
-        }
     }
 }
@@ -0,0 +1,125 @@
+package com.ruoyi.system.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 向量二进制编解码工具类
+ *
+ * 存储格式（小端序）：
+ * <pre>
+ *   FLOAT32: [0x01][float32 * dim]
+ *   INT8   : [0x02][float32 scale][int8 * dim]，还原值 = q * scale
+ * </pre>
+ * 首字节为格式标记，旧版 JSON 文本以 '[' 开头，可据此兼容读取历史数据。
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class EmbeddingCodec {
+
+    /** float32 格式 */
+    public static final byte FORMAT_FLOAT32 = 0x01;
+
+    /** int8 量化格式 */
+    public static final byte FORMAT_INT8 = 0x02;
+
+    private EmbeddingCodec() {
+    }
+
+    /**
+     * 编码为 float32 二进制
+     *
+     * @param vector 向量
+     * @return 二进制数据
+     */
+    public static byte[] encode(float[] vector) {
+        if (vector == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(FORMAT_FLOAT32);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    /**
+     * 编码为 int8 量化二进制（对称量化，体积约为 float32 的 1/4）
+     *
+     * @param vector 向量
+     * @return 二进制数据
+     */
+    public static byte[] encodeInt8(float[] vector) {
+        if (vector == null) {
+            return null;
+        }
+        float maxAbs = 0f;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        float scale = maxAbs == 0f ? 1f : maxAbs / 127f;
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Float.BYTES + vector.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(FORMAT_INT8);
+        buffer.putFloat(scale);
+        for (float value : vector) {
+            buffer.put((byte) Math.round(value / scale));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解码二进制向量，兼容旧版 JSON 文本
+     *
+     * @param data 二进制数据
+     * @return 向量
+     */
+    public static float[] decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (isLegacyJson(data)) {
+            return EmbeddingUtil.jsonToFloatArray(new String(data, StandardCharsets.UTF_8));
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        byte format = buffer.get();
+        if (format == FORMAT_FLOAT32) {
+            if ((data.length - 1) % Float.BYTES != 0) {
+                throw new IllegalArgumentException("Corrupted float32 embedding of length " + data.length);
+            }
+            float[] vector = new float[(data.length - 1) / Float.BYTES];
+            buffer.asFloatBuffer().get(vector);
+            return vector;
+        }
+        if (format == FORMAT_INT8) {
+            float scale = buffer.getFloat();
+            float[] vector = new float[buffer.remaining()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = buffer.get() * scale;
+            }
+            return vector;
+        }
+        throw new IllegalArgumentException("Unknown embedding format: " + format);
+    }
+
+    /**
+     * 是否为旧版 JSON 文本格式
+     *
+     * @param data 二进制数据
+     * @return 是否为JSON
+     */
+    public static boolean isLegacyJson(byte[] data) {
+        if (data == null) {
+            return false;
+        }
+        for (byte b : data) {
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                continue;
+            }
+            return b == '[';
+        }
+        return false;
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * 向量处理工具类
@@ -18,6 +19,8 @@ import java.util.List;
 @Component
 public class EmbeddingUtil {
 
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     /**
      * 将向量列表转换为JSON字符串
      * 
@@ -54,29 +57,44 @@ public class EmbeddingUtil {
         }
     }
     
+    /**
+     * 将JSON字符串直接解析为float数组
+     * 
+     * @param json JSON字符串
+     * @return float向量
+     */
+    public static float[] jsonToFloatArray(String json) {
+        if (json == null || json.trim().isEmpty()) {
+            return null;
+        }
+        
+        try {
+            JSONArray jsonArray = JSON.parseArray(json);
+            float[] vector = new float[jsonArray.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = jsonArray.getFloatValue(i);
+            }
+            return vector;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse embedding JSON: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * 计算查询向量与笔记列表的相似度，并设置到笔记对象中
      * 
      * @param queryEmbedding 查询向量
      * @param notes 笔记列表
      */
-    public static void calculateAndSetSimilarityScores(List<Double> queryEmbedding, List<EnglishNote> notes) {
+    public static void calculateAndSetSimilarityScores(float[] queryEmbedding, List<EnglishNote> notes) {
         if (queryEmbedding == null || notes == null || notes.isEmpty()) {
             return;
         }
         
         for (EnglishNote note : notes) {
-            if (note.getEmbedding() != null && !note.getEmbedding().trim().isEmpty()) {
-                try {
-                    List<Double> noteEmbedding = jsonToEmbedding(note.getEmbedding());
-                    if (noteEmbedding != null && noteEmbedding.size() == queryEmbedding.size()) {
-                        double similarity = VectorUtil.cosineSimilarity(queryEmbedding, noteEmbedding);
-                        note.setSimilarityScore(similarity);
-                    }
-                } catch (Exception e) {
-                    // 忽略解析失败的向量，继续处理其他笔记
-                    note.setSimilarityScore(0.0);
-                }
+            float[] noteEmbedding = note.getEmbedding();
+            if (noteEmbedding != null && noteEmbedding.length == queryEmbedding.length) {
+                note.setSimilarityScore(VectorUtil.cosineSimilarity(queryEmbedding, noteEmbedding));
             } else {
                 note.setSimilarityScore(0.0);
             }
@@ -154,4 +172,18 @@ public class EmbeddingUtil {
     public static boolean validateDimension(List<Double> embedding, int expectedDimension) {
         return embedding != null && embedding.size() == expectedDimension;
     }
+    
+    /**
+     * 规范化待向量化的文本：去除首尾空白，连续空白合并为一个空格
+     * 仅空白不同的文本规范化后相同，可共用同一个向量
+     * 
+     * @param text 原始文本
+     * @return 规范化后的文本
+     */
+    public static String normalizeText(String text) {
+        if (text == null) {
+            return null;
+        }
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ");
+    }
 }
@@ -0,0 +1,30 @@
+package com.ruoyi.system.util;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步结果工具类
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class FutureUtil {
+
+    /**
+     * 下游以异常完成（超时、取消）时，以同一异常结束上游
+     * CompletableFuture 的取消与 orTimeout 不会沿 thenApply 等派生关系向上传递，
+     * 上游持有远程请求时需要显式关联，否则调用方放弃后请求与重试仍会继续
+     *
+     * @param upstream 上游结果
+     * @param downstream 由上游派生的结果
+     * @return downstream
+     */
+    public static <T> CompletableFuture<T> propagateFailure(CompletableFuture<?> upstream, CompletableFuture<T> downstream) {
+        downstream.whenComplete((result, e) -> {
+            if (e != null) {
+                upstream.completeExceptionally(e);
+            }
+        });
+        return downstream;
+    }
+}
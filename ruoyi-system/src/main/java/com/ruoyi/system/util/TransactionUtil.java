@@ -0,0 +1,32 @@
+package com.ruoyi.system.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+public class TransactionUtil {
+
+    /**
+     * 在当前事务提交后执行，回滚时不执行；没有事务时立即执行
+     * 用于内存索引、缓存等不随数据库回滚的修改
+     *
+     * @param action 提交后执行的操作
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,14 +1,16 @@
 package com.ruoyi.system.util;
 
-import org.apache.commons.math3.linear.ArrayRealVector;
-import org.apache.commons.math3.linear.RealVector;
-
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 向量计算工具类
  * 提供余弦相似度、向量归一化等功能
  * 
+ * 基础内核直接在 float[]/double[] 上计算：点积与两个范数在同一次遍历中完成，
+ * 循环展开为多个累加器以缩短依赖链，计算过程不分配任何对象。
+ * 对于已归一化的向量，余弦相似度即点积，可直接使用 {@link #dot}。
+ * 
  * @author ruoyi
  * @date 2025-02-10
  */
@@ -22,29 +24,24 @@ public class VectorUtil {
      * @return 余弦相似度 (范围: -1 到 1)
      */
     public static double cosineSimilarity(List<Double> vector1, List<Double> vector2) {
-        if (vector1 == null || vector2 == null || vector1.isEmpty() || vector2.isEmpty()) {
-            throw new IllegalArgumentException("Vectors cannot be null or empty");
-        }
+        checkVectors(vector1, vector2);
         
-        if (vector1.size() != vector2.size()) {
-            throw new IllegalArgumentException("Vectors must have the same dimension");
+        double dot = 0.0;
+        double norm1 = 0.0;
+        double norm2 = 0.0;
+        for (int i = 0; i < vector1.size(); i++) {
+            double a = vector1.get(i);
+            double b = vector2.get(i);
+            dot += a * b;
+            norm1 += a * a;
+            norm2 += b * b;
         }
         
-        double[] array1 = vector1.stream().mapToDouble(Double::doubleValue).toArray();
-        double[] array2 = vector2.stream().mapToDouble(Double::doubleValue).toArray();
-        
-        RealVector v1 = new ArrayRealVector(array1);
-        RealVector v2 = new ArrayRealVector(array2);
-        
-        double dotProduct = v1.dotProduct(v2);
-        double norm1 = v1.getNorm();
-        double norm2 = v2.getNorm();
-        
         if (norm1 == 0 || norm2 == 0) {
             return 0.0;
         }
         
-        return dotProduct / (norm1 * norm2);
+        return dot / Math.sqrt(norm1 * norm2);
     }
     
     /**
@@ -63,18 +60,153 @@ public class VectorUtil {
             throw new IllegalArgumentException("Vectors must have the same dimension");
         }
         
-        RealVector v1 = new ArrayRealVector(vector1);
-        RealVector v2 = new ArrayRealVector(vector2);
+        double d0 = 0, d1 = 0, n10 = 0, n11 = 0, n20 = 0, n21 = 0;
+        int length = vector1.length;
+        int upper = length & ~1;
+        int i = 0;
+        for (; i < upper; i += 2) {
+            double a0 = vector1[i], a1 = vector1[i + 1];
+            double b0 = vector2[i], b1 = vector2[i + 1];
+            d0 += a0 * b0;
+            d1 += a1 * b1;
+            n10 += a0 * a0;
+            n11 += a1 * a1;
+            n20 += b0 * b0;
+            n21 += b1 * b1;
+        }
+        for (; i < length; i++) {
+            d0 += vector1[i] * vector2[i];
+            n10 += vector1[i] * vector1[i];
+            n20 += vector2[i] * vector2[i];
+        }
         
-        double dotProduct = v1.dotProduct(v2);
-        double norm1 = v1.getNorm();
-        double norm2 = v2.getNorm();
+        double norm1 = n10 + n11;
+        double norm2 = n20 + n21;
+        if (norm1 == 0 || norm2 == 0) {
+            return 0.0;
+        }
         
+        return (d0 + d1) / Math.sqrt(norm1 * norm2);
+    }
+    
+    /**
+     * 计算两个向量的余弦相似度（float数组版本，单次遍历）
+     * 
+     * @param vector1 向量1
+     * @param vector2 向量2
+     * @return 余弦相似度
+     */
+    public static double cosineSimilarity(float[] vector1, float[] vector2) {
+        checkVectors(vector1, vector2);
+        
+        float d0 = 0, d1 = 0, n10 = 0, n11 = 0, n20 = 0, n21 = 0;
+        int length = vector1.length;
+        int upper = length & ~1;
+        int i = 0;
+        for (; i < upper; i += 2) {
+            float a0 = vector1[i], a1 = vector1[i + 1];
+            float b0 = vector2[i], b1 = vector2[i + 1];
+            d0 += a0 * b0;
+            d1 += a1 * b1;
+            n10 += a0 * a0;
+            n11 += a1 * a1;
+            n20 += b0 * b0;
+            n21 += b1 * b1;
+        }
+        for (; i < length; i++) {
+            d0 += vector1[i] * vector2[i];
+            n10 += vector1[i] * vector1[i];
+            n20 += vector2[i] * vector2[i];
+        }
+        
+        double norm1 = (double) n10 + n11;
+        double norm2 = (double) n20 + n21;
         if (norm1 == 0 || norm2 == 0) {
             return 0.0;
         }
         
-        return dotProduct / (norm1 * norm2);
+        return ((double) d0 + d1) / Math.sqrt(norm1 * norm2);
+    }
+    
+    /**
+     * 计算点积（float数组版本）
+     * 
+     * @param vector1 向量1
+     * @param vector2 向量2
+     * @return 点积
+     */
+    public static float dot(float[] vector1, float[] vector2) {
+        checkVectors(vector1, vector2);
+        return dot(vector1, 0, vector2, 0, vector1.length);
+    }
+    
+    /**
+     * 计算点积内核：a[aOffset..aOffset+length) 与 b[bOffset..bOffset+length)
+     * 不做参数校验，供索引扫描等热点路径使用
+     * 
+     * @param a 向量a
+     * @param aOffset a的起始下标
+     * @param b 向量b
+     * @param bOffset b的起始下标
+     * @param length 维度
+     * @return 点积
+     */
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int upper = length & ~3;
+        int i = 0;
+        for (; i < upper; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+    
+    /**
+     * 计算向量的L2范数（float数组版本）
+     * 
+     * @param vector 输入向量
+     * @return 向量的模
+     */
+    public static double norm(float[] vector) {
+        if (vector == null || vector.length == 0) {
+            throw new IllegalArgumentException("Vector cannot be null or empty");
+        }
+        return Math.sqrt(dot(vector, 0, vector, 0, vector.length));
+    }
+    
+    /**
+     * 原地归一化向量
+     * 
+     * @param vector 输入向量（会被修改）
+     * @return 是否成功（零向量返回false且不修改）
+     */
+    public static boolean normalizeInPlace(float[] vector) {
+        double norm = norm(vector);
+        if (norm == 0) {
+            return false;
+        }
+        float inv = (float) (1.0 / norm);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= inv;
+        }
+        return true;
+    }
+    
+    /**
+     * 归一化向量（返回副本）
+     * 
+     * @param vector 输入向量
+     * @return 归一化后的向量，零向量返回null
+     */
+    public static float[] normalize(float[] vector) {
+        float[] copy = vector.clone();
+        return normalizeInPlace(copy) ? copy : null;
     }
     
     /**
@@ -84,24 +216,14 @@ public class VectorUtil {
      * @return 归一化后的向量
      */
     public static List<Double> normalizeVector(List<Double> vector) {
-        if (vector == null || vector.isEmpty()) {
-            throw new IllegalArgumentException("Vector cannot be null or empty");
-        }
-        
-        double[] array = vector.stream().mapToDouble(Double::doubleValue).toArray();
-        RealVector v = new ArrayRealVector(array);
-        
-        double norm = v.getNorm();
+        double norm = norm(vector);
         if (norm == 0) {
             throw new IllegalArgumentException("Cannot normalize a zero vector");
         }
         
-        RealVector normalized = v.mapDivide(norm);
-        
-        double[] normalizedArray = normalized.toArray();
-        List<Double> result = new java.util.ArrayList<>();
-        for (double value : normalizedArray) {
-            result.add(value);
+        List<Double> result = new ArrayList<>(vector.size());
+        for (Double value : vector) {
+            result.add(value / norm);
         }
         
         return result;
@@ -115,21 +237,43 @@ public class VectorUtil {
      * @return 欧几里得距离
      */
     public static double euclideanDistance(List<Double> vector1, List<Double> vector2) {
-        if (vector1 == null || vector2 == null || vector1.isEmpty() || vector2.isEmpty()) {
-            throw new IllegalArgumentException("Vectors cannot be null or empty");
-        }
+        checkVectors(vector1, vector2);
         
-        if (vector1.size() != vector2.size()) {
-            throw new IllegalArgumentException("Vectors must have the same dimension");
+        double sum = 0.0;
+        for (int i = 0; i < vector1.size(); i++) {
+            double diff = vector1.get(i) - vector2.get(i);
+            sum += diff * diff;
         }
         
-        double[] array1 = vector1.stream().mapToDouble(Double::doubleValue).toArray();
-        double[] array2 = vector2.stream().mapToDouble(Double::doubleValue).toArray();
+        return Math.sqrt(sum);
+    }
+    
+    /**
+     * 计算向量的欧几里得距离（float数组版本）
+     * 
+     * @param vector1 向量1
+     * @param vector2 向量2
+     * @return 欧几里得距离
+     */
+    public static double euclideanDistance(float[] vector1, float[] vector2) {
+        checkVectors(vector1, vector2);
         
-        RealVector v1 = new ArrayRealVector(array1);
-        RealVector v2 = new ArrayRealVector(array2);
+        float s0 = 0, s1 = 0;
+        int length = vector1.length;
+        int upper = length & ~1;
+        int i = 0;
+        for (; i < upper; i += 2) {
+            float diff0 = vector1[i] - vector2[i];
+            float diff1 = vector1[i + 1] - vector2[i + 1];
+            s0 += diff0 * diff0;
+            s1 += diff1 * diff1;
+        }
+        for (; i < length; i++) {
+            float diff = vector1[i] - vector2[i];
+            s0 += diff * diff;
+        }
         
-        return v1.getDistance(v2);
+        return Math.sqrt((double) s0 + s1);
     }
     
     /**
@@ -140,21 +284,14 @@ public class VectorUtil {
      * @return 点积
      */
     public static double dotProduct(List<Double> vector1, List<Double> vector2) {
-        if (vector1 == null || vector2 == null || vector1.isEmpty() || vector2.isEmpty()) {
-            throw new IllegalArgumentException("Vectors cannot be null or empty");
-        }
+        checkVectors(vector1, vector2);
         
-        if (vector1.size() != vector2.size()) {
-            throw new IllegalArgumentException("Vectors must have the same dimension");
+        double sum = 0.0;
+        for (int i = 0; i < vector1.size(); i++) {
+            sum += vector1.get(i) * vector2.get(i);
         }
         
-        double[] array1 = vector1.stream().mapToDouble(Double::doubleValue).toArray();
-        double[] array2 = vector2.stream().mapToDouble(Double::doubleValue).toArray();
-        
-        RealVector v1 = new ArrayRealVector(array1);
-        RealVector v2 = new ArrayRealVector(array2);
-        
-        return v1.dotProduct(v2);
+        return sum;
     }
     
     /**
@@ -168,9 +305,31 @@ public class VectorUtil {
             throw new IllegalArgumentException("Vector cannot be null or empty");
         }
         
-        double[] array = vector.stream().mapToDouble(Double::doubleValue).toArray();
-        RealVector v = new ArrayRealVector(array);
+        double sum = 0.0;
+        for (Double value : vector) {
+            sum += value * value;
+        }
+        
+        return Math.sqrt(sum);
+    }
+    
+    private static void checkVectors(List<Double> vector1, List<Double> vector2) {
+        if (vector1 == null || vector2 == null || vector1.isEmpty() || vector2.isEmpty()) {
+            throw new IllegalArgumentException("Vectors cannot be null or empty");
+        }
+        
+        if (vector1.size() != vector2.size()) {
+            throw new IllegalArgumentException("Vectors must have the same dimension");
+        }
+    }
+    
+    private static void checkVectors(float[] vector1, float[] vector2) {
+        if (vector1 == null || vector2 == null || vector1.length == 0 || vector2.length == 0) {
+            throw new IllegalArgumentException("Vectors cannot be null or empty");
+        }
         
-        return v.getNorm();
+        if (vector1.length != vector2.length) {
+            throw new IllegalArgumentException("Vectors must have the same dimension");
+        }
     }
 }
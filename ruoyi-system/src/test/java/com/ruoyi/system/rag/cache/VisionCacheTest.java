@@ -0,0 +1,113 @@
+package com.ruoyi.system.rag.cache;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 图片差值哈希测试
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+class VisionCacheTest {
+
+    /** 与 rag.vision-cache.max-distance 默认值一致 */
+    private static final int MAX_DISTANCE = 4;
+
+    @Test
+    void gradientDirectionSetsAllOrNoBits() {
+        assertEquals(-1L, VisionCache.dHash(gradient(true)));
+        assertEquals(0L, VisionCache.dHash(gradient(false)));
+    }
+
+    @Test
+    void rescaledImageIsNear() {
+        BufferedImage image = scene(1);
+        long hash = VisionCache.dHash(image);
+
+        assertEquals(hash, VisionCache.dHash(scene(1)));
+        assertTrue(distance(hash, VisionCache.dHash(resize(image, 200, 150))) <= MAX_DISTANCE);
+        assertTrue(distance(hash, VisionCache.dHash(resize(image, 1200, 900))) <= MAX_DISTANCE);
+    }
+
+    @Test
+    void reencodedImageIsNear() throws IOException {
+        BufferedImage image = scene(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertTrue(distance(VisionCache.dHash(image), VisionCache.dHash(decoded)) <= MAX_DISTANCE);
+    }
+
+    @Test
+    void differentImagesAreFar() {
+        int distance = distance(VisionCache.dHash(scene(3)), VisionCache.dHash(scene(4)));
+
+        assertTrue(distance > MAX_DISTANCE * 2, "distance = " + distance);
+    }
+
+    private static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * 水平渐变，leftBright 为 true 时左亮右暗
+     */
+    private static BufferedImage gradient(boolean leftBright) {
+        BufferedImage image = new BufferedImage(360, 240, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            int level = x * 255 / (image.getWidth() - 1);
+            int gray = leftBright ? 255 - level : level;
+            int rgb = new Color(gray, gray, gray).getRGB();
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * 由随机色块组成的图片，相同种子生成相同图片
+     */
+    private static BufferedImage scene(long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.GRAY);
+            graphics.fillRect(0, 0, 400, 300);
+            for (int i = 0; i < 12; i++) {
+                graphics.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+                graphics.fillOval(random.nextInt(400) - 50, random.nextInt(300) - 50, 60 + random.nextInt(120), 60 + random.nextInt(120));
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+}
@@ -0,0 +1,130 @@
+package com.ruoyi.system.rag.embedding;
+
+import com.ruoyi.system.util.DeepseekApiClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 向量请求合并器测试：合并发送，以及调用方全部超时后取消上游请求
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+class EmbeddingBatcherTest {
+
+    private ScheduledExecutorService scheduler;
+
+    private FakeApiClient apiClient;
+
+    private EmbeddingBatcher batcher;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        apiClient = new FakeApiClient();
+        batcher = new EmbeddingBatcher();
+        ReflectionTestUtils.setField(batcher, "apiClient", apiClient);
+        ReflectionTestUtils.setField(batcher, "scheduledExecutorService", scheduler);
+        ReflectionTestUtils.setField(batcher, "enabled", true);
+        ReflectionTestUtils.setField(batcher, "windowMillis", 5);
+        ReflectionTestUtils.setField(batcher, "maxBatchSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void mergesConcurrentRequests() throws InterruptedException {
+        CompletableFuture<float[]> first = batcher.submit("a", "m");
+        CompletableFuture<float[]> second = batcher.submit("b", "m");
+
+        Call call = apiClient.nextCall();
+        assertEquals(Arrays.asList("a", "b"), call.inputs);
+        call.future.complete(Arrays.asList(new float[] { 1f }, new float[] { 2f }));
+
+        assertEquals(1f, first.join()[0], 0f);
+        assertEquals(2f, second.join()[0], 0f);
+    }
+
+    @Test
+    void cancelsUpstreamWhenEveryCallerTimesOut() throws InterruptedException {
+        CompletableFuture<float[]> first = batcher.submit("a", "m");
+        CompletableFuture<float[]> second = batcher.submit("b", "m");
+        Call call = apiClient.nextCall();
+
+        first.completeExceptionally(new TimeoutException());
+        assertFalse(call.future.isDone(), "other caller is still waiting");
+
+        second.orTimeout(10, TimeUnit.MILLISECONDS);
+        assertTrue(waitDone(call.future), "upstream request should be cancelled");
+        assertTrue(call.future.isCancelled());
+    }
+
+    @Test
+    void skipsCallersThatGaveUpBeforeSending() throws InterruptedException {
+        CompletableFuture<float[]> abandoned = batcher.submit("a", "m");
+        abandoned.completeExceptionally(new TimeoutException());
+        batcher.submit("b", "m");
+
+        Call call = apiClient.nextCall();
+        assertEquals(Arrays.asList("b"), call.inputs);
+    }
+
+    private static boolean waitDone(CompletableFuture<?> future) throws InterruptedException {
+        for (int i = 0; i < 100 && !future.isDone(); i++) {
+            Thread.sleep(10);
+        }
+        return future.isDone();
+    }
+
+    private static class Call {
+
+        private final List<String> inputs;
+
+        private final CompletableFuture<List<float[]>> future = new CompletableFuture<>();
+
+        Call(List<String> inputs) {
+            this.inputs = inputs;
+        }
+    }
+
+    /**
+     * 记录请求、不发出 HTTP 调用的客户端
+     */
+    private static class FakeApiClient extends DeepseekApiClient {
+
+        private final LinkedBlockingQueue<Call> calls = new LinkedBlockingQueue<>();
+
+        @Override
+        public CompletableFuture<List<float[]>> createEmbeddingsAsync(List<String> texts, String model) {
+            Call call = new Call(new ArrayList<>(texts));
+            calls.add(call);
+            return call.future;
+        }
+
+        Call nextCall() throws InterruptedException {
+            Call call = calls.poll(1, TimeUnit.SECONDS);
+            assertNotNull(call, "no request sent");
+            return call;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.ruoyi.system.rag.index;
+
+import com.ruoyi.system.util.VectorUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HNSW 索引测试：以精确检索为基准的召回率、删除墓碑与快照恢复
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+class HnswVectorIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    private static final int SIZE = 2000;
+
+    private static final int K = 10;
+
+    private static final int QUERIES = 100;
+
+    private static final double MIN_RECALL = 0.9;
+
+    private final Random random = new Random(42);
+
+    private HnswVectorIndex hnsw;
+
+    private FlatVectorIndex flat;
+
+    @BeforeEach
+    void setUp() {
+        hnsw = new HnswVectorIndex(DIMENSION, new HnswConfig(16, 100, 64));
+        flat = new FlatVectorIndex(DIMENSION);
+        for (int id = 0; id < SIZE; id++) {
+            float[] vector = randomVector();
+            hnsw.put(id, vector);
+            flat.put(id, vector);
+        }
+    }
+
+    @Test
+    void recallAgainstFlatIndex() {
+        assertEquals(SIZE, hnsw.size());
+        double recall = recall();
+        assertTrue(recall >= MIN_RECALL, "recall@" + K + " = " + recall);
+    }
+
+    @Test
+    void deletedNodesAreNeverReturned() {
+        Set<Long> removed = new HashSet<>();
+        for (int id = 0; id < SIZE; id += 2) {
+            assertTrue(hnsw.remove(id));
+            flat.remove(id);
+            removed.add((long) id);
+        }
+        assertFalse(hnsw.remove(0));
+        assertEquals(SIZE / 2, hnsw.size());
+        assertNull(hnsw.get(0));
+
+        for (int q = 0; q < QUERIES; q++) {
+            List<ScoredId> result = hnsw.search(randomVector(), -1, K);
+            // 墓碑不占用结果名额
+            assertEquals(K, result.size());
+            for (ScoredId hit : result) {
+                assertFalse(removed.contains(hit.getId()), "deleted id " + hit.getId() + " returned");
+            }
+        }
+        double recall = recall();
+        assertTrue(recall >= MIN_RECALL, "recall@" + K + " after deletes = " + recall);
+    }
+
+    @Test
+    void rebuildKeepsLiveRecords() {
+        // 删除大部分节点触发重建
+        for (int id = 0; id < SIZE * 3 / 4; id++) {
+            hnsw.remove(id);
+            flat.remove(id);
+        }
+        assertArrayEquals(sorted(flat.ids()), sorted(hnsw.ids()));
+        double recall = recall();
+        assertTrue(recall >= MIN_RECALL, "recall@" + K + " after rebuild = " + recall);
+    }
+
+    @Test
+    void putReplacesExistingVector() {
+        float[] vector = randomVector();
+        hnsw.put(7, vector);
+
+        assertEquals(SIZE, hnsw.size());
+        assertArrayEquals(vector, hnsw.get(7));
+        assertEquals(7L, hnsw.search(vector, -1, 1).get(0).getId());
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        for (int id = 0; id < SIZE; id += 3) {
+            hnsw.remove(id);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            hnsw.writeTo(out);
+        }
+        HnswVectorIndex restored;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = HnswVectorIndex.readFrom(in, 64);
+        }
+
+        assertEquals(hnsw.getDimension(), restored.getDimension());
+        assertEquals(hnsw.size(), restored.size());
+        assertArrayEquals(sorted(hnsw.ids()), sorted(restored.ids()));
+        assertArrayEquals(hnsw.get(1), restored.get(1));
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomVector();
+            assertEquals(ids(hnsw.search(query, -1, K)), ids(restored.search(query, -1, K)));
+        }
+    }
+
+    private double recall() {
+        int hits = 0;
+        int total = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomVector();
+            Set<Long> expected = new HashSet<>(ids(flat.search(query, -1, K)));
+            for (ScoredId hit : hnsw.search(query, -1, K)) {
+                if (expected.contains(hit.getId())) {
+                    hits++;
+                }
+            }
+            total += expected.size();
+        }
+        return hits / (double) total;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        VectorUtil.normalizeInPlace(vector);
+        return vector;
+    }
+
+    private static List<Long> ids(List<ScoredId> hits) {
+        Long[] ids = new Long[hits.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = hits.get(i).getId();
+        }
+        return Arrays.asList(ids);
+    }
+
+    private static long[] sorted(long[] ids) {
+        long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
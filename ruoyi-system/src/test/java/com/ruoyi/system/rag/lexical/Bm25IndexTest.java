@@ -0,0 +1,93 @@
+package com.ruoyi.system.rag.lexical;
+
+import com.ruoyi.system.rag.index.ScoredId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BM25 倒排索引测试
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+class Bm25IndexTest {
+
+    private Bm25Index index;
+
+    @BeforeEach
+    void setUp() {
+        index = new Bm25Index();
+        index.put(1, Arrays.asList("apple", "banana"));
+        index.put(2, Arrays.asList("apple", "apple", "cherry", "date"));
+        index.put(3, Collections.singletonList("cherry"));
+    }
+
+    @Test
+    void scoreMatchesBm25Formula() {
+        List<ScoredId> hits = index.search(Collections.singletonList("banana"), 10);
+
+        assertEquals(1, hits.size());
+        assertEquals(1L, hits.get(0).getId());
+        // N = 3，df = 1，tf = 1，文档长度 2，平均长度 7/3
+        double idf = Math.log(1 + (3 - 1 + 0.5) / (1 + 0.5));
+        double expected = idf * 1 * 2.2 / (1 + 1.2 * (1 - 0.75 + 0.75 * 2 / (7.0 / 3)));
+        assertEquals(expected, hits.get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    void higherTermFrequencyRanksFirst() {
+        List<ScoredId> hits = index.search(Collections.singletonList("apple"), 10);
+
+        assertEquals(2, hits.size());
+        assertEquals(2L, hits.get(0).getId());
+        assertEquals(1L, hits.get(1).getId());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    }
+
+    @Test
+    void duplicateQueryTokensCountOnce() {
+        double once = index.search(Collections.singletonList("cherry"), 10).get(0).getScore();
+        double twice = index.search(Arrays.asList("cherry", "cherry"), 10).get(0).getScore();
+
+        assertEquals(once, twice, 1e-12);
+    }
+
+    @Test
+    void limitsResultsToK() {
+        List<ScoredId> hits = index.search(Arrays.asList("apple", "cherry"), 2);
+
+        assertEquals(2, hits.size());
+        assertTrue(hits.get(0).getScore() >= hits.get(1).getScore());
+    }
+
+    @Test
+    void putReplacesAndRemoveDeletes() {
+        index.put(1, Collections.singletonList("fig"));
+
+        assertEquals(3, index.size());
+        assertTrue(index.search(Collections.singletonList("banana"), 10).isEmpty());
+        assertEquals(1L, index.search(Collections.singletonList("fig"), 10).get(0).getId());
+
+        index.remove(1);
+        index.remove(2);
+        index.remove(3);
+        assertEquals(0, index.size());
+        assertEquals(0, index.termCount());
+        assertTrue(index.search(Collections.singletonList("cherry"), 10).isEmpty());
+    }
+
+    @Test
+    void emptyTokensRemoveDocument() {
+        index.put(3, Collections.emptyList());
+
+        assertEquals(2, index.size());
+        assertEquals(1, index.search(Collections.singletonList("cherry"), 10).size());
+    }
+}
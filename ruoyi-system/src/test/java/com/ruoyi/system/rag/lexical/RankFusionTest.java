@@ -0,0 +1,70 @@
+package com.ruoyi.system.rag.lexical;
+
+import com.ruoyi.system.rag.index.ScoredId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 倒数排名融合测试
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+class RankFusionTest {
+
+    @Test
+    void sumsReciprocalRanks() {
+        List<ScoredId> fused = RankFusion.fuse(Arrays.asList(ranking(1, 2, 3), ranking(3, 1)), 60, 10);
+
+        assertEquals(Arrays.asList(1L, 3L, 2L), ids(fused));
+        assertEquals(1.0 / 61 + 1.0 / 62, fused.get(0).getScore(), 1e-12);
+        assertEquals(1.0 / 63 + 1.0 / 61, fused.get(1).getScore(), 1e-12);
+        assertEquals(1.0 / 62, fused.get(2).getScore(), 1e-12);
+    }
+
+    @Test
+    void tiesKeepFirstRankingOrder() {
+        List<ScoredId> fused = RankFusion.fuse(Arrays.asList(ranking(5), ranking(4)), 60, 10);
+
+        assertEquals(Arrays.asList(5L, 4L), ids(fused));
+    }
+
+    @Test
+    void limitsResults() {
+        List<ScoredId> fused = RankFusion.fuse(Arrays.asList(ranking(1, 2, 3), ranking(3, 1)), 60, 2);
+
+        assertEquals(Arrays.asList(1L, 3L), ids(fused));
+    }
+
+    @Test
+    void emptyRankings() {
+        assertTrue(RankFusion.fuse(Collections.emptyList(), 60, 10).isEmpty());
+        assertTrue(RankFusion.fuse(Arrays.asList(ranking(), ranking()), 60, 10).isEmpty());
+    }
+
+    /**
+     * 按给定顺序构造一路结果，得分只用于保持降序
+     */
+    private static List<ScoredId> ranking(long... ids) {
+        List<ScoredId> ranking = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            ranking.add(new ScoredId(ids[i], ids.length - i));
+        }
+        return ranking;
+    }
+
+    private static List<Long> ids(List<ScoredId> hits) {
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (ScoredId hit : hits) {
+            ids.add(hit.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,134 @@
+package com.ruoyi.system.rag.review.srs;
+
+import org.junit.jupiter.api.Test;
+
+import static com.ruoyi.system.rag.review.srs.SrsScheduler.DAY_MILLIS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FSRS-4.5 调度测试，期望值按 FSRS-4.5 默认参数与公式计算
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+class FsrsSchedulerTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private static final double DELTA = 1e-6;
+
+    private final FsrsScheduler scheduler = new FsrsScheduler(FsrsScheduler.DEFAULT_WEIGHTS, 0.9, 36500);
+
+    @Test
+    void firstReviewUsesInitialStabilityAndDifficulty() {
+        // 质量 0-2 / 3 / 4 / 5 对应评分 忘记 / 困难 / 良好 / 简单
+        assertFirstReview(1, 0.4872, 7.6214, 1);
+        assertFirstReview(3, 1.4003, 6.3916, 1);
+        assertFirstReview(4, 3.7145, 5.1618, 4);
+        assertFirstReview(5, 13.8206, 3.9320, 14);
+    }
+
+    @Test
+    void goodReviewAfterStabilityDays() {
+        SrsCard card = new SrsCard();
+        scheduler.review(card, 4, NOW);
+        // 在 S 天后复习，此时可提取概率恰为 0.9
+        long next = NOW + Math.round(card.stability * DAY_MILLIS);
+        scheduler.review(card, 4, next);
+
+        // R = 0.9：S' = S * (1 + e^w8 * (11 - D) * S^-w9 * (e^(0.1 * w10) - 1))
+        assertEquals(14.094985, card.stability, 1e-5);
+        // 评分“良好”时难度不变
+        assertEquals(5.1618, card.difficulty, DELTA);
+        assertEquals(14, card.intervalDays);
+        assertEquals(2, card.repetitions);
+        assertEquals(next + 14 * DAY_MILLIS, card.due);
+    }
+
+    @Test
+    void lapseAfterStabilityDays() {
+        SrsCard card = new SrsCard();
+        scheduler.review(card, 4, NOW);
+        scheduler.review(card, 0, NOW + Math.round(card.stability * DAY_MILLIS));
+
+        // S' = w11 * D^-w12 * ((S + 1)^w13 - 1) * e^(0.1 * w14)
+        assertEquals(1.418525, card.stability, 1e-5);
+        // D' = w7 * D0(3) + (1 - w7) * (D + 2 * w6)
+        assertEquals(6.901155, card.difficulty, 1e-5);
+        assertEquals(0, card.repetitions);
+        assertEquals(1, card.intervalDays);
+    }
+
+    @Test
+    void desiredRetentionScalesInterval() {
+        SrsCard card = new SrsCard();
+        new FsrsScheduler(FsrsScheduler.DEFAULT_WEIGHTS, 0.8, 36500).review(card, 4, NOW);
+        // 保持率 0.8 的间隔系数为 (0.8^-2 - 1) / (19/81)
+        assertEquals(9, card.intervalDays);
+
+        card.reset();
+        new FsrsScheduler(FsrsScheduler.DEFAULT_WEIGHTS, 0.95, 36500).review(card, 5, NOW);
+        assertEquals(6, card.intervalDays);
+    }
+
+    @Test
+    void intervalIsCappedByMaximumInterval() {
+        SrsCard card = new SrsCard();
+        new FsrsScheduler(FsrsScheduler.DEFAULT_WEIGHTS, 0.9, 7).review(card, 5, NOW);
+
+        assertEquals(7, card.intervalDays);
+    }
+
+    @Test
+    void rescheduleAppliesNewRetention() {
+        SrsCard card = new SrsCard();
+        scheduler.review(card, 4, NOW);
+        assertFalse(scheduler.reschedule(card));
+
+        FsrsScheduler relaxed = new FsrsScheduler(FsrsScheduler.DEFAULT_WEIGHTS, 0.8, 36500);
+        assertTrue(relaxed.reschedule(card));
+        assertEquals(9, card.intervalDays);
+        assertEquals(NOW + 9 * DAY_MILLIS, card.due);
+        assertFalse(relaxed.reschedule(card));
+    }
+
+    @Test
+    void rescheduleSeedsSm2Card() {
+        SrsCard card = new SrsCard();
+        card.easiness = 2.5;
+        card.intervalDays = 10;
+        card.repetitions = 3;
+        card.lastReviewedAt = NOW;
+        card.due = NOW + 10 * DAY_MILLIS;
+
+        // 90% 保持率下稳定性取原间隔，间隔不变
+        assertFalse(scheduler.reschedule(card));
+        assertEquals(10, card.stability, DELTA);
+        assertEquals(1, card.difficulty, DELTA);
+    }
+
+    @Test
+    void unreviewedCardIsNotRescheduled() {
+        assertFalse(scheduler.reschedule(new SrsCard()));
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new FsrsScheduler(new double[3], 0.9, 36500));
+        assertThrows(IllegalArgumentException.class, () -> new FsrsScheduler(FsrsScheduler.DEFAULT_WEIGHTS, 1, 36500));
+    }
+
+    private void assertFirstReview(int quality, double stability, double difficulty, int interval) {
+        SrsCard card = new SrsCard();
+        scheduler.review(card, quality, NOW);
+
+        assertEquals(stability, card.stability, DELTA);
+        assertEquals(difficulty, card.difficulty, DELTA);
+        assertEquals(interval, card.intervalDays);
+        assertEquals(NOW, card.lastReviewedAt);
+        assertEquals(NOW + interval * DAY_MILLIS, card.due);
+    }
+}
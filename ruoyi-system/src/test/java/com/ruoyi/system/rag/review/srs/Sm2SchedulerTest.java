@@ -0,0 +1,95 @@
+package com.ruoyi.system.rag.review.srs;
+
+import org.junit.jupiter.api.Test;
+
+import static com.ruoyi.system.rag.review.srs.SrsScheduler.DAY_MILLIS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SM-2 调度测试
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+class Sm2SchedulerTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private static final double DELTA = 1e-9;
+
+    private final Sm2Scheduler scheduler = new Sm2Scheduler(1, 1.3, 2.5, 2.5);
+
+    @Test
+    void intervalsFollowOneSixThenEasiness() {
+        SrsCard card = new SrsCard();
+
+        scheduler.review(card, 4, NOW);
+        assertEquals(1, card.intervalDays);
+        assertEquals(1, card.repetitions);
+        assertEquals(2.5, card.easiness, DELTA);
+
+        scheduler.review(card, 4, NOW);
+        assertEquals(6, card.intervalDays);
+
+        scheduler.review(card, 4, NOW);
+        assertEquals(15, card.intervalDays);
+        assertEquals(3, card.repetitions);
+        assertEquals(NOW + 15 * DAY_MILLIS, card.due);
+    }
+
+    @Test
+    void easinessUpdate() {
+        SrsCard card = new SrsCard();
+
+        // q = 3：EF + (0.1 - 2 * (0.08 + 2 * 0.02)) = EF - 0.14
+        scheduler.review(card, 3, NOW);
+        assertEquals(2.36, card.easiness, DELTA);
+
+        // q = 5：EF + 0.1，不超过上限
+        scheduler.review(card, 5, NOW);
+        assertEquals(2.46, card.easiness, DELTA);
+        scheduler.review(card, 5, NOW);
+        assertEquals(2.5, card.easiness, DELTA);
+    }
+
+    @Test
+    void easinessHasLowerBound() {
+        SrsCard card = new SrsCard();
+        for (int i = 0; i < 10; i++) {
+            scheduler.review(card, 0, NOW);
+        }
+
+        assertEquals(1.3, card.easiness, DELTA);
+    }
+
+    @Test
+    void failureResetsRepetitions() {
+        SrsCard card = new SrsCard();
+        scheduler.review(card, 5, NOW);
+        scheduler.review(card, 5, NOW);
+        scheduler.review(card, 2, NOW);
+
+        assertEquals(0, card.repetitions);
+        assertEquals(1, card.intervalDays);
+        assertEquals(NOW + DAY_MILLIS, card.due);
+    }
+
+    @Test
+    void rescheduleCorrectsDueFromLastReview() {
+        SrsCard card = new SrsCard();
+        scheduler.review(card, 4, NOW);
+        assertFalse(scheduler.reschedule(card));
+
+        card.due = NOW;
+        assertTrue(scheduler.reschedule(card));
+        assertEquals(NOW + DAY_MILLIS, card.due);
+        assertEquals(1, card.intervalDays);
+    }
+
+    @Test
+    void unreviewedCardIsNotRescheduled() {
+        assertFalse(scheduler.reschedule(new SrsCard()));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ruoyi.system.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 向量二进制编解码测试
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+class EmbeddingCodecTest {
+
+    private static final float[] VECTOR = { 0.5f, -0.25f, 0f, 1e-3f, -1f, 0.333f };
+
+    @Test
+    void float32RoundTrip() {
+        byte[] data = EmbeddingCodec.encode(VECTOR);
+
+        assertEquals(1 + VECTOR.length * Float.BYTES, data.length);
+        assertEquals(EmbeddingCodec.FORMAT_FLOAT32, data[0]);
+        assertArrayEquals(VECTOR, EmbeddingCodec.decode(data));
+    }
+
+    @Test
+    void float32IsLittleEndian() {
+        byte[] data = EmbeddingCodec.encode(new float[] { 1f });
+
+        // 1.0f = 0x3F800000
+        assertEquals((byte) 0x00, data[1]);
+        assertEquals((byte) 0x00, data[2]);
+        assertEquals((byte) 0x80, data[3]);
+        assertEquals((byte) 0x3F, data[4]);
+    }
+
+    @Test
+    void int8RoundTripWithinQuantizationError() {
+        byte[] data = EmbeddingCodec.encodeInt8(VECTOR);
+
+        assertEquals(1 + Float.BYTES + VECTOR.length, data.length);
+        assertEquals(EmbeddingCodec.FORMAT_INT8, data[0]);
+        // 对称量化的误差不超过半个量化步长
+        float step = 1f / 127f;
+        assertArrayEquals(VECTOR, EmbeddingCodec.decode(data), step / 2 + 1e-6f);
+    }
+
+    @Test
+    void int8ZeroVector() {
+        float[] zero = new float[4];
+
+        assertArrayEquals(zero, EmbeddingCodec.decode(EmbeddingCodec.encodeInt8(zero)));
+    }
+
+    @Test
+    void decodesLegacyJson() {
+        byte[] data = " [0.5, -0.25, 1.0]".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(EmbeddingCodec.isLegacyJson(data));
+        assertArrayEquals(new float[] { 0.5f, -0.25f, 1f }, EmbeddingCodec.decode(data));
+    }
+
+    @Test
+    void binaryIsNotLegacyJson() {
+        assertFalse(EmbeddingCodec.isLegacyJson(EmbeddingCodec.encode(VECTOR)));
+        assertFalse(EmbeddingCodec.isLegacyJson(EmbeddingCodec.encodeInt8(VECTOR)));
+        assertFalse(EmbeddingCodec.isLegacyJson(null));
+    }
+
+    @Test
+    void nullAndEmpty() {
+        assertNull(EmbeddingCodec.encode(null));
+        assertNull(EmbeddingCodec.encodeInt8(null));
+        assertNull(EmbeddingCodec.decode(null));
+        assertNull(EmbeddingCodec.decode(new byte[0]));
+    }
+
+    @Test
+    void rejectsCorruptedData() {
+        byte[] truncated = new byte[] { EmbeddingCodec.FORMAT_FLOAT32, 0, 0, 0 };
+        assertThrows(IllegalArgumentException.class, () -> EmbeddingCodec.decode(truncated));
+
+        byte[] unknown = new byte[] { 0x7F, 0, 0, 0, 0 };
+        assertThrows(IllegalArgumentException.class, () -> EmbeddingCodec.decode(unknown));
+    }
+}
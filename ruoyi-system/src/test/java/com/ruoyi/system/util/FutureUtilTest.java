@@ -0,0 +1,53 @@
+package com.ruoyi.system.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 异步结果工具类测试
+ *
+ * @author ruoyi
+ * @date 2025-02-10
+ */
+class FutureUtilTest {
+
+    @Test
+    void downstreamTimeoutCompletesUpstream() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<Integer> downstream = FutureUtil.propagateFailure(upstream, upstream.thenApply(String::length));
+
+        downstream.orTimeout(10, TimeUnit.MILLISECONDS);
+
+        Throwable cause = assertThrows(Exception.class, upstream::join).getCause();
+        assertTrue(cause instanceof TimeoutException, "cause = " + cause);
+    }
+
+    @Test
+    void downstreamCancelCompletesUpstream() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<Integer> downstream = FutureUtil.propagateFailure(upstream, upstream.thenApply(String::length));
+
+        downstream.cancel(false);
+
+        assertTrue(upstream.isCompletedExceptionally());
+    }
+
+    @Test
+    void successDoesNotTouchUpstream() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<Integer> downstream = FutureUtil.propagateFailure(upstream, upstream.thenApply(String::length));
+
+        upstream.complete("abc");
+
+        assertEquals(Integer.valueOf(3), downstream.join());
+        assertFalse(upstream.isCompletedExceptionally());
+    }
+}
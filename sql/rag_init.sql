@@ -8,14 +8,17 @@ CREATE TABLE IF NOT EXISTS english_note (
                                             id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '笔记ID',
                                             user_id BIGINT NOT NULL COMMENT '用户ID',
                                             content TEXT NOT NULL COMMENT '笔记内容',
-                                            embedding JSON DEFAULT NULL COMMENT '向量嵌入(JSON格式存储)',
+                                            embedding BLOB DEFAULT NULL COMMENT '向量嵌入(float32小端序二进制)',
                                             embedding_model VARCHAR(100) DEFAULT 'deepseek-embedding' COMMENT '嵌入模型名称',
     tags VARCHAR(500) DEFAULT NULL COMMENT '标签(逗号分隔)',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    embedded_at DATETIME DEFAULT NULL COMMENT '向量写入时间',
     del_flag CHAR(1) DEFAULT '0' COMMENT '删除标志(0正常 1删除)',
-    INDEX idx_user_id (user_id),
+    INDEX idx_user_del_created (user_id, del_flag, created_at, id),
     INDEX idx_created_at (created_at),
+    INDEX idx_updated_at (updated_at),
+    INDEX idx_embedded_at (embedded_at),
     INDEX idx_del_flag (del_flag)
     ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='英语学习笔记表';
 
@@ -31,7 +34,7 @@ CREATE TABLE IF NOT EXISTS review_record (
     next_review_date DATETIME NOT NULL COMMENT '下次复习时间',
     reviewed_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '复习时间',
     INDEX idx_note_id (note_id),
-    INDEX idx_user_id (user_id),
+    INDEX idx_user_reviewed (user_id, reviewed_at, id),
     INDEX idx_next_review (next_review_date),
     FOREIGN KEY (note_id) REFERENCES english_note(id) ON DELETE CASCADE
     ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='复习记录表';
@@ -50,6 +53,53 @@ CREATE TABLE IF NOT EXISTS embedding_record (
     INDEX idx_created_at (created_at)
     ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='向量检索记录表';
 
+-- 4. 笔记向量生成任务表 (发件箱，笔记写入时登记，后台异步生成向量)
+CREATE TABLE IF NOT EXISTS note_embedding_task (
+                                                   id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '任务ID',
+                                                   note_id BIGINT NOT NULL COMMENT '笔记ID',
+                                                   status CHAR(1) NOT NULL DEFAULT '0' COMMENT '状态(0待处理 1处理中 2失败)',
+                                                   attempts INT NOT NULL DEFAULT 0 COMMENT '已失败次数',
+                                                   next_attempt_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次可执行时间',
+                                                   last_error VARCHAR(500) DEFAULT NULL COMMENT '最近一次失败原因',
+                                                   claim_token VARCHAR(64) DEFAULT NULL COMMENT '领取标识',
+                                                   locked_at DATETIME DEFAULT NULL COMMENT '领取时间',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_note_id (note_id),
+    INDEX idx_status_next_attempt (status, next_attempt_at),
+    INDEX idx_claim_token (claim_token)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='笔记向量生成任务表';
+
+-- 5. 复习状态表 (每条笔记一行，复习时原地更新；review_record 只追加明细)
+CREATE TABLE IF NOT EXISTS review_state (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '状态ID',
+    note_id BIGINT NOT NULL COMMENT '笔记ID',
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    easiness_factor DECIMAL(5,2) DEFAULT 2.50 COMMENT '难度系数',
+    interval_days INT DEFAULT 1 COMMENT '复习间隔(天)',
+    repetitions INT DEFAULT 0 COMMENT '连续成功复习次数',
+    stability DOUBLE DEFAULT NULL COMMENT 'FSRS 记忆稳定性(天)',
+    difficulty DOUBLE DEFAULT NULL COMMENT 'FSRS 难度(1-10)',
+    last_quality INT DEFAULT NULL COMMENT '最近一次复习质量(0-5分)',
+    next_review_date DATETIME NOT NULL COMMENT '下次复习时间',
+    last_reviewed_at DATETIME DEFAULT NULL COMMENT '最近一次复习时间',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_note_id (note_id),
+    INDEX idx_user_next_review (user_id, next_review_date),
+    INDEX idx_user_id (user_id),
+    FOREIGN KEY (note_id) REFERENCES english_note(id) ON DELETE CASCADE
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='复习状态表';
+
+-- 6. 每日复习统计表 (写入复习明细时累加，统计接口只读此表)
+CREATE TABLE IF NOT EXISTS review_daily_stat (
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    stat_date DATE NOT NULL COMMENT '统计日期',
+    review_count INT NOT NULL DEFAULT 0 COMMENT '复习次数',
+    correct_count INT NOT NULL DEFAULT 0 COMMENT '记住的次数(质量>=3)',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (user_id, stat_date)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='每日复习统计表';
+
 -- ========================================
 -- 注意：向量相似度计算已移到 Java 应用层
 -- ========================================
@@ -76,8 +126,8 @@ CREATE TABLE IF NOT EXISTS embedding_record (
 -- ORDER BY created_at DESC;
 
 -- 3. 获取需要复习的笔记
--- SELECT n.id, n.content, r.next_review_date, r.repetitions
--- FROM english_note n
--- JOIN review_record r ON n.id = r.note_id
--- WHERE r.user_id = ? AND r.next_review_date <= NOW()
--- ORDER BY r.next_review_date ASC;
\ No newline at end of file
+-- SELECT n.id, n.content, s.next_review_date, s.repetitions
+-- FROM review_state s
+-- JOIN english_note n ON n.id = s.note_id
+-- WHERE s.user_id = ? AND s.next_review_date <= NOW() AND n.del_flag = '0'
+-- ORDER BY s.next_review_date ASC;
\ No newline at end of file
@@ -27,7 +27,7 @@ CREATE TABLE IF NOT EXISTS story (
   content LONGTEXT NOT NULL COMMENT '故事内容',
   objects JSON COMMENT '识别出的物品列表',
   image_url VARCHAR(500) COMMENT '原始图片URL',
-  embedding JSON COMMENT '故事向量表示(RAG)',
+  embedding BLOB COMMENT '故事向量表示(float32小端序二进制)',
   embedding_model VARCHAR(100) COMMENT '嵌入模型名称',
   is_favorite TINYINT DEFAULT 0 COMMENT '是否收藏',
   view_count INT DEFAULT 0 COMMENT '浏览次数',
@@ -36,9 +36,10 @@ CREATE TABLE IF NOT EXISTS story (
   created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   del_flag CHAR(1) DEFAULT '0' COMMENT '删除标志(0正常 1删除)',
-  INDEX idx_user_id (user_id),
+  INDEX idx_user_del_created (user_id, del_flag, created_at, id),
   INDEX idx_character_id (character_id),
   INDEX idx_created_at (created_at),
+  INDEX idx_updated_at (updated_at),
   INDEX idx_is_favorite (is_favorite),
   INDEX idx_share_token (share_token),
   INDEX idx_del_flag (del_flag),
@@ -0,0 +1,10 @@
+-- ========================================
+-- 向量存储格式升级：JSON -> float32 二进制(BLOB)
+-- ========================================
+-- 1. 修改列类型（已有 JSON 文本原样保留，应用层可兼容读取）
+ALTER TABLE english_note MODIFY COLUMN embedding BLOB DEFAULT NULL COMMENT '向量嵌入(float32小端序二进制)';
+ALTER TABLE story MODIFY COLUMN embedding BLOB DEFAULT NULL COMMENT '故事向量表示(float32小端序二进制)';
+
+-- 2. 注册一次性迁移任务（默认暂停，在"定时任务"中手动执行一次即可）
+INSERT INTO sys_job (job_name, job_group, invoke_target, cron_expression, misfire_policy, concurrent, status, create_by, create_time, remark)
+VALUES ('向量格式迁移', 'SYSTEM', 'embeddingMigrationTask.migrate(200)', '0 0 3 * * ?', '3', '1', '1', 'admin', sysdate(), 'JSON向量转换为float32二进制，执行一次即可');
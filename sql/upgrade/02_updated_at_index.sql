@@ -0,0 +1,5 @@
+-- ========================================
+-- 向量索引增量对账：按更新时间查询变更记录
+-- ========================================
+ALTER TABLE english_note ADD INDEX idx_updated_at (updated_at);
+ALTER TABLE story ADD INDEX idx_updated_at (updated_at);
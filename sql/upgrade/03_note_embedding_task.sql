@@ -0,0 +1,21 @@
+-- ========================================
+-- 笔记向量异步生成：发件箱任务表
+-- ========================================
+CREATE TABLE IF NOT EXISTS note_embedding_task (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '任务ID',
+    note_id BIGINT NOT NULL COMMENT '笔记ID',
+    status CHAR(1) NOT NULL DEFAULT '0' COMMENT '状态(0待处理 1处理中 2失败)',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已失败次数',
+    next_attempt_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次可执行时间',
+    last_error VARCHAR(500) DEFAULT NULL COMMENT '最近一次失败原因',
+    claim_token VARCHAR(64) DEFAULT NULL COMMENT '领取标识',
+    locked_at DATETIME DEFAULT NULL COMMENT '领取时间',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_note_id (note_id),
+    INDEX idx_status_next_attempt (status, next_attempt_at),
+    INDEX idx_claim_token (claim_token)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='笔记向量生成任务表';
+
+-- 为禁用向量期间创建、尚无向量的笔记补登任务
+INSERT IGNORE INTO note_embedding_task (note_id)
+SELECT id FROM english_note WHERE del_flag = '0' AND embedding IS NULL;
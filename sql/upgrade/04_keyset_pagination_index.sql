@@ -0,0 +1,7 @@
+-- ========================================
+-- 游标分页：按 (用户, 时间, ID) 倒序滚动加载
+-- 联合索引以 user_id 开头，可替代原 idx_user_id
+-- ========================================
+ALTER TABLE english_note ADD INDEX idx_user_del_created (user_id, del_flag, created_at, id), DROP INDEX idx_user_id;
+ALTER TABLE story ADD INDEX idx_user_del_created (user_id, del_flag, created_at, id), DROP INDEX idx_user_id;
+ALTER TABLE review_record ADD INDEX idx_user_reviewed (user_id, reviewed_at, id), DROP INDEX idx_user_id;
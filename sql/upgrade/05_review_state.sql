@@ -0,0 +1,28 @@
+-- ========================================
+-- 复习状态表：每条笔记一行，复习时原地更新
+-- review_record 保留为只追加的复习明细
+-- ========================================
+CREATE TABLE IF NOT EXISTS review_state (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '状态ID',
+    note_id BIGINT NOT NULL COMMENT '笔记ID',
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    easiness_factor DECIMAL(5,2) DEFAULT 2.50 COMMENT '难度系数',
+    interval_days INT DEFAULT 1 COMMENT '复习间隔(天)',
+    repetitions INT DEFAULT 0 COMMENT '连续成功复习次数',
+    last_quality INT DEFAULT NULL COMMENT '最近一次复习质量(0-5分)',
+    next_review_date DATETIME NOT NULL COMMENT '下次复习时间',
+    last_reviewed_at DATETIME DEFAULT NULL COMMENT '最近一次复习时间',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_note_id (note_id),
+    INDEX idx_user_next_review (user_id, next_review_date),
+    FOREIGN KEY (note_id) REFERENCES english_note(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='复习状态表';
+
+-- 以每条笔记最新的一条复习记录回填状态
+INSERT IGNORE INTO review_state (note_id, user_id, easiness_factor, interval_days, repetitions, last_quality,
+                                 next_review_date, last_reviewed_at)
+SELECT r.note_id, r.user_id, r.easiness_factor, r.interval_days, r.repetitions, r.quality,
+       r.next_review_date, r.reviewed_at
+FROM review_record r
+INNER JOIN (SELECT note_id, MAX(id) AS max_id FROM review_record GROUP BY note_id) latest ON r.id = latest.max_id;
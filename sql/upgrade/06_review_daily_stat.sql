@@ -0,0 +1,22 @@
+-- ========================================
+-- 每日复习统计表：写入复习明细时按 (用户, 日期) 累加
+-- 复习统计接口只读此表，不再扫描 review_record
+-- ========================================
+CREATE TABLE IF NOT EXISTS review_daily_stat (
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    stat_date DATE NOT NULL COMMENT '统计日期',
+    review_count INT NOT NULL DEFAULT 0 COMMENT '复习次数',
+    correct_count INT NOT NULL DEFAULT 0 COMMENT '记住的次数(质量>=3)',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (user_id, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='每日复习统计表';
+
+-- 以现有复习明细回填，需在停止写入复习记录时执行
+INSERT INTO review_daily_stat (user_id, stat_date, review_count, correct_count)
+SELECT user_id, DATE(reviewed_at), COUNT(*), SUM(CASE WHEN quality >= 3 THEN 1 ELSE 0 END)
+FROM review_record
+WHERE reviewed_at IS NOT NULL
+GROUP BY user_id, DATE(reviewed_at)
+ON DUPLICATE KEY UPDATE
+    review_count = VALUES(review_count),
+    correct_count = VALUES(correct_count);
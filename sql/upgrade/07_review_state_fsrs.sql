@@ -0,0 +1,8 @@
+-- ========================================
+-- review_state 增加 FSRS 记忆状态
+-- idx_user_id 供批量重排期按 (user_id, id) 分段扫描
+-- ========================================
+ALTER TABLE review_state
+    ADD COLUMN stability DOUBLE DEFAULT NULL COMMENT 'FSRS 记忆稳定性(天)' AFTER repetitions,
+    ADD COLUMN difficulty DOUBLE DEFAULT NULL COMMENT 'FSRS 难度(1-10)' AFTER stability,
+    ADD INDEX idx_user_id (user_id);
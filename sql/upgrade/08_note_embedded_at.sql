@@ -0,0 +1,5 @@
+-- ========================================
+-- 向量索引增量对账：后台写回向量不更新 updated_at，单独记录向量写入时间
+-- ========================================
+ALTER TABLE english_note ADD COLUMN embedded_at DATETIME DEFAULT NULL COMMENT '向量写入时间' AFTER updated_at;
+ALTER TABLE english_note ADD INDEX idx_embedded_at (embedded_at);